@@ -35,6 +35,12 @@ db.user_mailbox.createIndex(
   { name: "idx_user_conversation_type" }
 );
 
+// 会话级序列号索引（会话序列号计数器丢失时续号）
+db.user_mailbox.createIndex(
+  { conversationId: 1, lastMsgSequence: -1 },
+  { name: "idx_conversation_last_msg_sequence" }
+);
+
 print("user_mailbox 集合索引创建完成");
 
 // ========================================
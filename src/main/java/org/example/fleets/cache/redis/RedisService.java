@@ -2,10 +2,15 @@ package org.example.fleets.cache.redis;
 
 import lombok.RequiredArgsConstructor;
 import org.redisson.api.*;
+import org.redisson.client.RedisException;
+import org.redisson.client.codec.StringCodec;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -18,6 +23,11 @@ public class RedisService {
     private final RedissonClient redissonClient;
     private final RedisTemplate<String, Object> redisTemplate;
     
+    /**
+     * Lua 脚本 -> SHA1
+     */
+    private final Map<String, String> scriptShas = new ConcurrentHashMap<>();
+    
     // ==================== 基础操作 ====================
     
     /**
@@ -189,6 +199,31 @@ public class RedisService {
         return atomicLong.addAndGet(-delta);
     }
     
+    /**
+     * 读取计数器当前值（与 increment 使用同一编码）
+     */
+    public long getCounter(String key) {
+        return redissonClient.getAtomicLong(key).get();
+    }
+    
+    // ==================== 批量操作 ====================
+    
+    /**
+     * 创建批量命令（Pipeline），所有命令在 execute 时一次性发送
+     */
+    public RBatch createBatch() {
+        return redissonClient.createBatch(BatchOptions.defaults());
+    }
+    
+    // ==================== HyperLogLog ====================
+    
+    /**
+     * 获取 HyperLogLog（元素按字符串编码，与 RBatch 写入保持一致）
+     */
+    public RHyperLogLog<String> getHyperLogLog(String key) {
+        return redissonClient.getHyperLogLog(key, StringCodec.INSTANCE);
+    }
+    
     // ==================== 集合操作 ====================
     
     /**
@@ -212,6 +247,75 @@ public class RedisService {
         return redissonClient.getMap(key);
     }
     
+    // ==================== 字符串编码结构 ====================
+    
+    /**
+     * 获取字符串编码的 Set（与 Lua 脚本读写的数据保持一致）
+     */
+    public RSet<String> getStringSet(String key) {
+        return redissonClient.getSet(key, StringCodec.INSTANCE);
+    }
+    
+    /**
+     * 获取字符串编码的 Map（与 Lua 脚本读写的数据保持一致）
+     */
+    public RMap<String, String> getStringMap(String key) {
+        return redissonClient.getMap(key, StringCodec.INSTANCE);
+    }
+    
+    /**
+     * 获取字符串编码、支持单条目过期的 Map
+     */
+    public RMapCache<String, String> getStringMapCache(String key) {
+        return redissonClient.getMapCache(key, StringCodec.INSTANCE);
+    }
+    
+    /**
+     * 读取字符串编码的值（与 Lua 脚本写入的数据保持一致）
+     */
+    public String getPlainString(String key) {
+        RBucket<String> bucket = redissonClient.getBucket(key, StringCodec.INSTANCE);
+        return bucket.get();
+    }
+    
+    // ==================== Lua 脚本 ====================
+    
+    /**
+     * 执行 Lua 脚本（参数与返回值按字符串编码）
+     * 首次执行时加载脚本并缓存 SHA，之后用 EVALSHA 只传摘要；服务端脚本缓存丢失时回退 EVAL
+     */
+    public <R> R evalScript(String script, RScript.ReturnType returnType, List<Object> keys, Object... args) {
+        RScript rScript = redissonClient.getScript(StringCodec.INSTANCE);
+        String sha = scriptShas.computeIfAbsent(script, rScript::scriptLoad);
+        try {
+            return rScript.evalSha(RScript.Mode.READ_WRITE, sha, returnType, keys, args);
+        } catch (RedisException e) {
+            if (e.getMessage() == null || !e.getMessage().contains("NOSCRIPT")) {
+                throw e;
+            }
+            scriptShas.remove(script);
+            return rScript.eval(RScript.Mode.READ_WRITE, script, returnType, keys, args);
+        }
+    }
+    
+    // ==================== 发布订阅 ====================
+    
+    /**
+     * 获取发布订阅主题（字符串编码，消息体为 JSON 文本）
+     */
+    public RTopic getTopic(String name) {
+        return redissonClient.getTopic(name, StringCodec.INSTANCE);
+    }
+    
+    // ==================== 位图 ====================
+    
+    /**
+     * 获取位图
+     */
+    public RBitSet getBitSet(String key) {
+        return redissonClient.getBitSet(key);
+    }
+    
     // ==================== 布隆过滤器 ====================
     
     /**
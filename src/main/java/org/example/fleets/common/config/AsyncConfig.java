@@ -0,0 +1,37 @@
+package org.example.fleets.common.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.fleets.common.config.properties.FleetsProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * 异步任务配置
+ *
+ * 启用 @Async，用于：
+ * - 未读数变更推送（unreadPushExecutor）
+ */
+@Slf4j
+@Configuration
+@EnableAsync
+public class AsyncConfig {
+
+    public static final String UNREAD_PUSH_EXECUTOR = "unreadPushExecutor";
+
+    /**
+     * 未读数推送线程池：单线程保证推送顺序，有界队列，满时丢弃（推送的是未读数全量值，下一次变更会覆盖）
+     */
+    @Bean(UNREAD_PUSH_EXECUTOR)
+    public ThreadPoolTaskExecutor unreadPushExecutor(FleetsProperties fleetsProperties) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(fleetsProperties.getMailbox().getUnreadPushQueueCapacity());
+        executor.setThreadNamePrefix("unread-push-");
+        executor.setDaemon(true);
+        executor.setRejectedExecutionHandler((task, pool) -> log.warn("未读数推送队列已满，丢弃本次推送"));
+        return executor;
+    }
+}
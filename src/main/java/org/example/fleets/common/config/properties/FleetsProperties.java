@@ -32,6 +32,31 @@ public class FleetsProperties {
      */
     private RedisConfig redis = new RedisConfig();
     
+    /**
+     * 消息总线配置
+     */
+    private BusConfig bus = new BusConfig();
+    
+    /**
+     * 统计配置
+     */
+    private AnalyticsConfig analytics = new AnalyticsConfig();
+    
+    /**
+     * 投递确认（ACK）与重试配置
+     */
+    private AckConfig ack = new AckConfig();
+    
+    /**
+     * Netty 连接层配置
+     */
+    private ConnectorConfig connector = new ConnectorConfig();
+    
+    /**
+     * 离线推送配置
+     */
+    private OfflinePushConfig offlinePush = new OfflinePushConfig();
+    
     /**
      * WebSocket 配置
      */
@@ -47,6 +72,126 @@ public class FleetsProperties {
          */
         private long heartbeatInterval = 30;
         
+        /**
+         * 心跳合并刷新间隔（毫秒）：心跳先记在本节点内存，按此间隔一次 Pipeline 续期
+         */
+        private long heartbeatFlushMillis = 10000;
+        
+        /**
+         * 在线位图对账间隔（毫秒）：在线标记按 TTL 过期的用户，其在线位由对账任务清除
+         */
+        private long onlineReconcileMillis = 30000;
+        
+        /**
+         * 在线状态变更防抖时间（毫秒）：窗口内的快速断线重连不通知好友
+         */
+        private long presenceDebounceMillis = 3000;
+        
+        /**
+         * 输入状态节流间隔（毫秒）：同一用户同一会话在间隔内只转发一次
+         */
+        private long typingThrottleMillis = 3000;
+        
+        /**
+         * 输入状态过期时间（毫秒）：客户端超过该时间未收到刷新即隐藏
+         */
+        private long typingExpireMillis = 6000;
+        
+        /**
+         * 群成员数超过该值时输入状态改为汇总推送（N 人正在输入）
+         */
+        private int typingAggregateThreshold = 50;
+        
+        /**
+         * 大群输入状态汇总推送间隔（毫秒）
+         */
+        private long typingAggregateFlushMillis = 2000;
+        
+        /**
+         * 每个会话的发送缓冲上限（字节），超出即断开，客户端重连后同步补齐
+         */
+        private int sendBufferSizeLimit = 512 * 1024;
+        
+        /**
+         * 单次发送耗时上限（毫秒），慢客户端超过即断开
+         */
+        private int sendTimeLimitMillis = 10000;
+        
+        /**
+         * 入站 STOMP 消息大小上限（字节）
+         */
+        private int messageSizeLimit = 64 * 1024;
+        
+        /**
+         * 入站通道线程池：核心线程数 / 最大线程数 / 队列容量（同时限制按会话排队等待处理的帧数）
+         */
+        private int inboundCorePoolSize = 8;
+        private int inboundMaxPoolSize = 32;
+        private int inboundQueueCapacity = 10000;
+        
+        /**
+         * 出站通道线程池：核心线程数 / 最大线程数 / 队列容量
+         */
+        private int outboundCorePoolSize = 8;
+        private int outboundMaxPoolSize = 32;
+        private int outboundQueueCapacity = 10000;
+        
+        /**
+         * 会话恢复窗口（秒）：非正常断开后在此时间内重连可只补发缺失的推送
+         */
+        private long resumeGraceSeconds = 30;
+        
+        /**
+         * 每个挂起会话最多缓冲的推送条数，超出后恢复时需全量同步
+         */
+        private int resumeBufferSize = 200;
+        
+        /**
+         * 推送合并窗口（毫秒）：窗口内发往同一用户目的地的消息合并为一个数组帧，0 表示不合并
+         */
+        private long pushBatchWindowMillis = 5;
+        
+        /**
+         * 单个合并帧的字节上限，达到即提前下发
+         */
+        private int pushBatchMaxBytes = 32 * 1024;
+        
+        /**
+         * 参与合并的目的地（逗号分隔），回执、输入状态等低频或时延敏感的目的地不合并
+         */
+        private String pushBatchDestinations = "/queue/messages";
+        
+        /**
+         * 握手鉴权本地缓存 TTL（秒），只缓存校验成功的 token
+         */
+        private long authCacheTtlSeconds = 30;
+        
+        /**
+         * 握手鉴权本地缓存最大条目数，满后新 token 不再缓存
+         */
+        private int authCacheMaxSize = 100000;
+        
+        /**
+         * 本节点同时处理中的握手上限，超出返回 503
+         */
+        private int handshakeMaxConcurrent = 200;
+        
+        /**
+         * 拒绝握手时 Retry-After 的基础秒数与随机抖动上限（秒）
+         */
+        private int handshakeRetryAfterSeconds = 1;
+        private int handshakeRetryJitterSeconds = 5;
+        
+        /**
+         * 节点排空窗口（毫秒）：迁移控制帧的重连时间在此窗口内错开
+         */
+        private long drainWindowMillis = 10000;
+        
+        /**
+         * 排空窗口结束后继续等待客户端断开的时间（毫秒），超时后批量清除剩余会话
+         */
+        private long drainGraceMillis = 5000;
+        
         /**
          * 允许的跨域源
          */
@@ -57,6 +202,11 @@ public class FleetsProperties {
          */
         private String endpoint = "/ws";
         
+        /**
+         * 原生 WebSocket 端点路径（不经 SockJS，支持二进制帧与 CBOR 编码）
+         */
+        private String nativeEndpoint = "/ws-native";
+        
         /**
          * 应用目标前缀
          */
@@ -66,6 +216,11 @@ public class FleetsProperties {
          * 用户目标前缀
          */
         private String userDestinationPrefix = "/user";
+        
+        /**
+         * 节点ID（集群内唯一），为空时使用 主机名-随机后缀
+         */
+        private String nodeId = "";
     }
     
     /**
@@ -97,6 +252,21 @@ public class FleetsProperties {
          * 是否启用消息过期自动清理
          */
         private boolean enableAutoCleanup = true;
+        
+        /**
+         * 设备游标过期天数（设备长期未同步后游标失效，重新按全量同步）
+         */
+        private int deviceCursorExpireDays = 30;
+        
+        /**
+         * 设备同步单次最多返回的会话数
+         */
+        private int deviceSyncMaxConversations = 50;
+        
+        /**
+         * 未读数推送队列容量（单线程异步推送，队列满时丢弃，客户端可主动拉取未读数）
+         */
+        private int unreadPushQueueCapacity = 10000;
     }
     
     /**
@@ -123,6 +293,52 @@ public class FleetsProperties {
          * 批量发送最大数量
          */
         private int batchSendLimit = 500;
+        
+        /**
+         * 发送阶段（信箱/会话/总线）并发线程数
+         */
+        private int stageThreads = 16;
+        
+        /**
+         * 发送阶段队列容量，满时由调用线程执行
+         */
+        private int stageQueueCapacity = 1000;
+        
+        /**
+         * 单个发送阶段超时时间（毫秒）
+         */
+        private long stageTimeoutMillis = 3000;
+        
+        /**
+         * 阶段失败策略：fail - 发送失败（同一 clientMsgId 重试返回原消息）；repair - 照常返回
+         * 两种策略下失败阶段都会记入 message:repair，由修复任务重跑后再发布
+         */
+        private String stageFailurePolicy = "fail";
+        
+        /**
+         * 修复任务执行间隔（毫秒）
+         */
+        private long repairIntervalMillis = 30000;
+        
+        /**
+         * 修复记录的静默期（毫秒）：记录后超过该时长才重跑，留给超时阶段在后台执行完毕
+         */
+        private long repairGraceMillis = 60000;
+        
+        /**
+         * 单条消息最大修复次数，超过后放弃并记错误日志
+         */
+        private int repairMaxAttempts = 10;
+        
+        /**
+         * 客户端消息ID去重记录保留时间（秒），从该条消息发送成功算起
+         */
+        private long clientMsgIdTtlSeconds = 300;
+        
+        /**
+         * 客户端消息ID发送中占位的保留时间（秒），需大于一次发送的最长耗时；节点崩溃留下的占位到期后允许重试
+         */
+        private long clientMsgIdPendingTtlSeconds = 30;
     }
     
     /**
@@ -145,6 +361,26 @@ public class FleetsProperties {
          */
         private String userSessionsKeyPrefix = "user:sessions:";
         
+        /**
+         * 用户会话所在节点 Key 前缀（Hash：sessionId -> nodeId）
+         */
+        private String userNodesKeyPrefix = "user:nodes:";
+        
+        /**
+         * 在线用户位图 Key（偏移量为 userId）
+         */
+        private String onlineBitmapKey = "user:online:bitmap";
+        
+        /**
+         * 在线标记过期时间索引 Key（ZSet：userId -> 过期时间戳毫秒），供在线位图对账
+         */
+        private String onlineExpiryKey = "user:online:expiry";
+        
+        /**
+         * 最近一次已通知的在线状态 Key 前缀（集群共享，"1" 在线 / "0" 离线），用于在线状态变更通知去重
+         */
+        private String presenceNotifiedKeyPrefix = "presence:notified:";
+        
         /**
          * 序列号 Key 前缀
          */
@@ -156,8 +392,206 @@ public class FleetsProperties {
         private String unreadCountKeyPrefix = "mailbox:unread:";
         
         /**
-         * 序列号过期天数
+         * 设备游标 Key 前缀（Hash：conversationId -> 会话级序列号）
+         */
+        private String deviceCursorKeyPrefix = "mailbox:cursor:";
+        
+        /**
+         * 离线推送限频 Key 前缀（存在即表示该用户仍在最小间隔内）
+         */
+        private String offlinePushRateKeyPrefix = "push:offline:rate:";
+        
+        /**
+         * 用户信箱序列号过期天数（会话级序列号不过期）
          */
         private int sequenceExpireDays = 7;
     }
+    
+    /**
+     * 消息总线配置
+     */
+    @Data
+    public static class BusConfig {
+        /**
+         * 总线实现：rocketmq（默认，集群）或 in-process（单机/测试，无需 Broker）
+         */
+        private String type = "rocketmq";
+        
+        /**
+         * 进程内实现：每个订阅的环形队列容量
+         */
+        private int ringBufferSize = 8192;
+        
+        /**
+         * 进程内实现：每个订阅的消费线程数
+         */
+        private int consumerThreads = 2;
+        
+        /**
+         * 进程内实现：队列满时的入队等待时间（毫秒），超时后在发布线程上直接投递
+         */
+        private long offerTimeoutMillis = 100;
+    }
+    
+    /**
+     * 统计配置
+     */
+    @Data
+    public static class AnalyticsConfig {
+        /**
+         * 本地聚合结果写入 Redis 的间隔（毫秒）
+         */
+        private long flushIntervalMillis = 5000;
+        
+        /**
+         * 分钟计数保留时长（小时）
+         */
+        private int minuteBucketExpireHours = 48;
+        
+        /**
+         * 小时计数保留天数
+         */
+        private int hourBucketExpireDays = 30;
+        
+        /**
+         * 天计数保留天数，0 表示不过期
+         */
+        private int dayBucketExpireDays = 0;
+        
+        /**
+         * 按天去重用户（HyperLogLog）保留天数
+         */
+        private int uniqueUsersExpireDays = 90;
+    }
+    
+    /**
+     * 投递确认（ACK）与重试配置
+     */
+    @Data
+    public static class AckConfig {
+        /**
+         * 首次等待 ACK 的超时时间（毫秒），之后按指数退避
+         */
+        private long initialTimeoutMillis = 3000;
+        
+        /**
+         * 单次重试等待上限（毫秒）
+         */
+        private long maxBackoffMillis = 30000;
+        
+        /**
+         * 最大重推次数，超过后只保留在信箱，等待客户端同步
+         */
+        private int maxRetries = 3;
+        
+        /**
+         * 每个用户的待确认窗口上限，超出时最早的消息转为仅信箱
+         */
+        private int maxPendingPerUser = 256;
+        
+        /**
+         * 待确认消息最长保留时间（毫秒），兜底清理
+         */
+        private long maxPendingMillis = 120000;
+        
+        /**
+         * 时间轮刻度（毫秒）
+         */
+        private long wheelTickMillis = 100;
+        
+        /**
+         * 时间轮槽数
+         */
+        private int wheelSize = 512;
+        
+        /**
+         * 兜底巡检间隔（毫秒）
+         */
+        private long sweepIntervalMillis = 30000;
+    }
+    
+    /**
+     * Netty 连接层配置
+     * 连接层节点只终结长连接（握手鉴权、心跳、在线状态），上行帧经消息总线交给业务节点处理
+     */
+    @Data
+    public static class ConnectorConfig {
+        /**
+         * 是否在本节点启动 Netty 连接层
+         */
+        private boolean enabled = false;
+        
+        /**
+         * 监听端口
+         */
+        private int port = 9100;
+        
+        /**
+         * WebSocket 路径
+         */
+        private String path = "/ws";
+        
+        /**
+         * IO 线程数，0 表示 Netty 默认（CPU 核数 * 2）
+         */
+        private int workerThreads = 0;
+        
+        /**
+         * 处理线程数：握手鉴权、在线状态读写、上行帧转发会访问 Redis/MQ，不放在 IO 线程上
+         */
+        private int handlerThreads = 4;
+        
+        /**
+         * 单帧大小上限（字节）
+         */
+        private int maxFrameSize = 64 * 1024;
+        
+        /**
+         * 读空闲超时（秒），超过未收到任何帧（含心跳）即断开
+         */
+        private int readerIdleSeconds = 90;
+        
+        /**
+         * 是否启用 permessage-deflate（每个连接额外占用压缩上下文，大量空闲连接时建议关闭）
+         */
+        private boolean compression = false;
+        
+        /**
+         * 连接写缓冲高低水位（字节），超过高水位仍继续推送的慢连接直接断开
+         */
+        private int writeBufferLowWaterMark = 32 * 1024;
+        private int writeBufferHighWaterMark = 64 * 1024;
+    }
+    
+    /**
+     * 离线推送配置
+     * 不在线接收者的消息先按用户合并为摘要（如「3 个会话的 5 条新消息」），再经 OfflinePushSender 发出
+     */
+    @Data
+    public static class OfflinePushConfig {
+        /**
+         * 是否消费离线推送事件
+         */
+        private boolean enabled = true;
+        
+        /**
+         * 推送通道：log（本地桩实现，只打日志）；接入厂商通道时实现 OfflinePushSender 并配置对应名称
+         */
+        private String sender = "log";
+        
+        /**
+         * 合并窗口（毫秒）：用户第一条离线消息到达后等待该时长再发出摘要
+         */
+        private long coalesceWindowMillis = 3000;
+        
+        /**
+         * 同一用户两次推送的最小间隔（秒），集群内共享；间隔内到达的消息继续合并到下一条摘要
+         */
+        private long minIntervalSeconds = 60;
+        
+        /**
+         * 本节点同时合并中的用户数上限，超出后新用户的事件直接丢弃
+         */
+        private int maxPendingUsers = 100000;
+    }
 }
@@ -38,6 +38,7 @@ public enum ErrorCode {
     NOT_FRIEND_CANNOT_SEND(4006, "不是好友，无法发送消息"),
     INVALID_MESSAGE_TYPE(4007, "无效的消息类型"),
     MESSAGE_CANNOT_RECALL(4008, "只能撤回自己发送的消息"),
+    MESSAGE_SEND_IN_PROGRESS(4009, "消息正在发送中，请勿重复提交"),
     
     // 信箱模块 5xxx
     MAILBOX_WRITE_FAILED(5001, "信箱写入失败"),
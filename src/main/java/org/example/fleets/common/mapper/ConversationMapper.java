@@ -15,7 +15,7 @@ import java.util.Date;
 public interface ConversationMapper extends BaseMapper<Conversation> {
     
     /**
-     * 增加未读消息数（幂等操作）
+     * 增加未读消息数（幂等操作：同一条消息重复调用只计一次未读）
      */
     @Update("UPDATE conversation SET " +
             "unread_count = unread_count + 1, " +
@@ -24,6 +24,7 @@ public interface ConversationMapper extends BaseMapper<Conversation> {
             "last_message_time = #{messageTime} " +
             "WHERE conversation_id = #{conversationId} " +
             "AND owner_id = #{ownerId} " +
+            "AND (last_message_id IS NULL OR last_message_id <> #{messageId}) " +
             "AND (last_message_time IS NULL OR last_message_time <= #{messageTime})")
     int incrementUnreadCount(@Param("conversationId") String conversationId,
                             @Param("ownerId") Long ownerId,
@@ -2,8 +2,10 @@ package org.example.fleets.common.service;
 
 import org.example.fleets.common.model.Conversation;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Set;
 
 /**
  * 会话服务接口
@@ -11,7 +13,7 @@ import java.util.List;
 public interface ConversationService {
     
     /**
-     * 更新或创建会话（发送消息时调用）
+     * 更新或创建会话（发送消息时调用）；按 messageId 幂等，同一条消息重复调用不会重复增加未读数
      * 
      * @param ownerId 会话所有者ID
      * @param targetId 目标ID（对方用户ID或群组ID）
@@ -49,4 +51,12 @@ public interface ConversationService {
      * 免打扰/取消免打扰
      */
     boolean toggleMute(String conversationId, Long userId, boolean isMute);
+    
+    /**
+     * 从给定用户中筛选出将该会话设为免打扰的用户（一次查询）
+     * 
+     * @param type 会话类型（0-单聊，1-群聊）
+     * @param targetId 单聊时是对方（发送者）ID，群聊时是群组ID
+     */
+    Set<Long> getMutedOwnerIds(Integer type, Long targetId, Collection<Long> ownerIds);
 }
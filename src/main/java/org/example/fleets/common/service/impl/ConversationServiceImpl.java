@@ -9,8 +9,12 @@ import org.example.fleets.common.model.Conversation;
 import org.example.fleets.common.service.ConversationService;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * 会话服务实现类
@@ -55,8 +59,12 @@ public class ConversationServiceImpl implements ConversationService {
             
             conversationMapper.insert(conversation);
             log.info("创建新会话: conversationId={}, ownerId={}", conversationId, ownerId);
+        } else if (messageId != null && messageId.equals(conversation.getLastMessageId())) {
+            // 5. 已按该消息更新过（发送修复重跑、超时阶段在后台完成），不重复增加未读数
+            log.debug("会话已包含该消息，跳过更新: conversationId={}, ownerId={}, messageId={}",
+                conversationId, ownerId, messageId);
         } else {
-            // 5. 更新已有会话（使用幂等操作）
+            // 6. 更新已有会话（使用幂等操作）
             int updated;
             if (incrementUnread) {
                 updated = conversationMapper.incrementUnreadCount(
@@ -150,6 +158,21 @@ public class ConversationServiceImpl implements ConversationService {
         return false;
     }
     
+    @Override
+    public Set<Long> getMutedOwnerIds(Integer type, Long targetId, Collection<Long> ownerIds) {
+        if (ownerIds == null || ownerIds.isEmpty()) {
+            return Collections.emptySet();
+        }
+        return conversationMapper.selectList(
+            new QueryWrapper<Conversation>()
+                .select("owner_id")
+                .eq("type", type)
+                .eq("target_id", targetId)
+                .in("owner_id", ownerIds)
+                .eq("is_mute", 1)
+        ).stream().map(Conversation::getOwnerId).collect(Collectors.toSet());
+    }
+    
     /**
      * 生成会话ID
      * 单聊：conv_小ID_大ID（保证双方会话ID一致）
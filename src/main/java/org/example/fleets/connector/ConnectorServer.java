@@ -0,0 +1,129 @@
+package org.example.fleets.connector;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.websocketx.WebSocketServerProtocolHandler;
+import io.netty.handler.codec.http.websocketx.extensions.compression.WebSocketServerCompressionHandler;
+import io.netty.handler.timeout.IdleStateHandler;
+import io.netty.util.concurrent.DefaultEventExecutorGroup;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.EventExecutorGroup;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.example.fleets.common.config.properties.FleetsProperties;
+import org.example.fleets.connector.handler.ConnectorAuthHandler;
+import org.example.fleets.connector.handler.ConnectorFrameHandler;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+/**
+ * Netty 连接层
+ *
+ * 连接层节点（fleets.connector.enabled=true）在独立端口终结 WebSocket 长连接，连接数与业务负载分开扩容：
+ * - 连接只保存 userId / sessionId 两个属性，握手完成后 HTTP 聚合器被移除，空闲连接只占用少量内存
+ * - 鉴权、在线状态读写、上行帧转发在独立的处理线程组执行，不阻塞 IO 线程
+ * - permessage-deflate 默认关闭（每个连接的压缩上下文开销较大），按需开启
+ * 指标：fleets.connector.connections（当前连接数）
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "fleets.connector", name = "enabled", havingValue = "true")
+public class ConnectorServer implements SmartLifecycle {
+
+    private static final int MAX_HANDSHAKE_CONTENT_LENGTH = 8192;
+
+    private final FleetsProperties fleetsProperties;
+    private final ConnectorAuthHandler authHandler;
+    private final ConnectorFrameHandler frameHandler;
+
+    private EventLoopGroup bossGroup;
+    private EventLoopGroup workerGroup;
+    private EventExecutorGroup handlerGroup;
+    private Channel serverChannel;
+
+    public ConnectorServer(FleetsProperties fleetsProperties, ConnectorAuthHandler authHandler,
+                           ConnectorFrameHandler frameHandler, ConnectorSessionRegistry sessionRegistry,
+                           MeterRegistry meterRegistry) {
+        this.fleetsProperties = fleetsProperties;
+        this.authHandler = authHandler;
+        this.frameHandler = frameHandler;
+        Gauge.builder("fleets.connector.connections", sessionRegistry, ConnectorSessionRegistry::connectionCount)
+                .description("连接层当前连接数")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void start() {
+        FleetsProperties.ConnectorConfig config = fleetsProperties.getConnector();
+        bossGroup = new NioEventLoopGroup(1, new DefaultThreadFactory("connector-boss"));
+        workerGroup = new NioEventLoopGroup(config.getWorkerThreads(), new DefaultThreadFactory("connector-io"));
+        handlerGroup = new DefaultEventExecutorGroup(config.getHandlerThreads(), new DefaultThreadFactory("connector-handler"));
+
+        ServerBootstrap bootstrap = new ServerBootstrap()
+                .group(bossGroup, workerGroup)
+                .channel(NioServerSocketChannel.class)
+                .option(ChannelOption.SO_BACKLOG, 1024)
+                .childOption(ChannelOption.TCP_NODELAY, true)
+                .childOption(ChannelOption.SO_KEEPALIVE, true)
+                .childOption(ChannelOption.WRITE_BUFFER_WATER_MARK,
+                        new WriteBufferWaterMark(config.getWriteBufferLowWaterMark(), config.getWriteBufferHighWaterMark()))
+                .childHandler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel ch) {
+                        ChannelPipeline pipeline = ch.pipeline();
+                        pipeline.addLast(new IdleStateHandler(config.getReaderIdleSeconds(), 0, 0));
+                        pipeline.addLast(new HttpServerCodec());
+                        pipeline.addLast(new HttpObjectAggregator(MAX_HANDSHAKE_CONTENT_LENGTH));
+                        pipeline.addLast(handlerGroup, authHandler);
+                        if (config.isCompression()) {
+                            pipeline.addLast(new WebSocketServerCompressionHandler());
+                        }
+                        pipeline.addLast(new WebSocketServerProtocolHandler(config.getPath(), null,
+                                config.isCompression(), config.getMaxFrameSize(), false, true));
+                        pipeline.addLast(handlerGroup, frameHandler);
+                    }
+                });
+        try {
+            serverChannel = bootstrap.bind(config.getPort()).sync().channel();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("连接层启动被中断", e);
+        }
+        log.info("Netty 连接层已启动: port={}, path={}", config.getPort(), config.getPath());
+    }
+
+    @Override
+    public void stop() {
+        if (serverChannel != null) {
+            serverChannel.close().syncUninterruptibly();
+            serverChannel = null;
+        }
+        if (bossGroup != null) {
+            bossGroup.shutdownGracefully();
+        }
+        if (workerGroup != null) {
+            workerGroup.shutdownGracefully().syncUninterruptibly();
+        }
+        if (handlerGroup != null) {
+            handlerGroup.shutdownGracefully();
+        }
+        log.info("Netty 连接层已停止");
+    }
+
+    @Override
+    public boolean isRunning() {
+        return serverChannel != null && serverChannel.isActive();
+    }
+}
@@ -0,0 +1,111 @@
+package org.example.fleets.connector;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.util.AttributeKey;
+import lombok.extern.slf4j.Slf4j;
+import org.example.fleets.websocket.cluster.LocalPushTarget;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 连接层本地连接表：userId -> 连接
+ *
+ * 下行推送由 ClusterPushRouter 按会话所在节点路由到本节点后写入这里的连接，
+ * 帧格式为 {"destination":"/queue/messages","payload":{...}}，同一用户的多个连接共用同一 ByteBuf。
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "fleets.connector", name = "enabled", havingValue = "true")
+public class ConnectorSessionRegistry implements LocalPushTarget {
+
+    public static final AttributeKey<Long> USER_ID = AttributeKey.valueOf("fleets.userId");
+    public static final AttributeKey<String> SESSION_ID = AttributeKey.valueOf("fleets.sessionId");
+
+    private static final byte[] FRAME_SUFFIX = "}".getBytes(StandardCharsets.UTF_8);
+
+    private final ConcurrentHashMap<Long, Set<Channel>> channelsByUser = new ConcurrentHashMap<>();
+
+    public void register(Long userId, Channel channel) {
+        channelsByUser.computeIfAbsent(userId, k -> ConcurrentHashMap.newKeySet()).add(channel);
+    }
+
+    public void unregister(Long userId, Channel channel) {
+        channelsByUser.computeIfPresent(userId, (id, channels) -> {
+            channels.remove(channel);
+            return channels.isEmpty() ? null : channels;
+        });
+    }
+
+    public int connectionCount() {
+        int count = 0;
+        for (Set<Channel> channels : channelsByUser.values()) {
+            count += channels.size();
+        }
+        return count;
+    }
+
+    @Override
+    public boolean deliver(Long userId, String destination, byte[] body) {
+        Set<Channel> channels = channelsByUser.get(userId);
+        if (channels == null || channels.isEmpty()) {
+            log.debug("用户在本节点连接层无连接，跳过: userId={}, destination={}", userId, destination);
+            return false;
+        }
+        ByteBuf frame = frame(destination, body);
+        boolean written = false;
+        try {
+            for (Channel channel : channels) {
+                written |= write(userId, channel, frame);
+            }
+        } finally {
+            frame.release();
+        }
+        if (!written) {
+            log.debug("用户在本节点连接层无可写连接，推送未送达: userId={}, destination={}", userId, destination);
+        }
+        return written;
+    }
+
+    @Override
+    public boolean deliverToSession(Long userId, String sessionId, String destination, byte[] body) {
+        Set<Channel> channels = channelsByUser.get(userId);
+        if (channels == null) {
+            return false;
+        }
+        for (Channel channel : channels) {
+            if (!sessionId.equals(channel.attr(SESSION_ID).get())) {
+                continue;
+            }
+            ByteBuf frame = frame(destination, body);
+            try {
+                return write(userId, channel, frame);
+            } finally {
+                frame.release();
+            }
+        }
+        return false;
+    }
+
+    private static ByteBuf frame(String destination, byte[] body) {
+        byte[] prefix = ("{\"destination\":\"" + destination + "\",\"payload\":").getBytes(StandardCharsets.UTF_8);
+        return Unpooled.wrappedBuffer(prefix, body, FRAME_SUFFIX);
+    }
+
+    private static boolean write(Long userId, Channel channel, ByteBuf frame) {
+        if (!channel.isWritable()) {
+            // 写缓冲超过高水位仍有推送：慢连接直接断开，客户端重连后同步补齐
+            log.warn("连接写缓冲超限，断开: userId={}, sessionId={}", userId, channel.attr(SESSION_ID).get());
+            channel.close();
+            return false;
+        }
+        channel.writeAndFlush(new TextWebSocketFrame(frame.retainedDuplicate()));
+        return true;
+    }
+}
@@ -0,0 +1,69 @@
+package org.example.fleets.connector.handler;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import io.netty.util.ReferenceCountUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.fleets.connector.ConnectorSessionRegistry;
+import org.example.fleets.websocket.service.TokenAuthCache;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.List;
+
+/**
+ * 连接层握手鉴权：从 token 参数解析 userId（经本地短 TTL 缓存）写入连接属性，失败直接返回 401
+ * 鉴权通过后从 pipeline 移除，不再参与后续帧处理
+ */
+@Slf4j
+@Component
+@ChannelHandler.Sharable
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "fleets.connector", name = "enabled", havingValue = "true")
+public class ConnectorAuthHandler extends ChannelInboundHandlerAdapter {
+
+    private final TokenAuthCache tokenAuthCache;
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+        if (!(msg instanceof FullHttpRequest)) {
+            ctx.fireChannelRead(msg);
+            return;
+        }
+        FullHttpRequest request = (FullHttpRequest) msg;
+        Long userId = resolveUserId(request);
+        if (userId == null) {
+            ReferenceCountUtil.release(request);
+            ctx.writeAndFlush(new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.UNAUTHORIZED,
+                    Unpooled.EMPTY_BUFFER)).addListener(ChannelFutureListener.CLOSE);
+            return;
+        }
+        ctx.channel().attr(ConnectorSessionRegistry.USER_ID).set(userId);
+        ctx.pipeline().remove(this);
+        ctx.fireChannelRead(request);
+    }
+
+    private Long resolveUserId(FullHttpRequest request) {
+        List<String> tokens = new QueryStringDecoder(request.uri()).parameters().get("token");
+        String token = tokens != null && !tokens.isEmpty() ? tokens.get(0) : request.headers().get("X-Token");
+        if (!StringUtils.hasText(token)) {
+            log.warn("连接层握手失败: 未提供token");
+            return null;
+        }
+        Long userId = tokenAuthCache.resolveUserId(token.trim());
+        if (userId == null) {
+            log.warn("连接层握手失败: token 无效");
+        }
+        return userId;
+    }
+}
@@ -0,0 +1,115 @@
+package org.example.fleets.connector.handler;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketServerProtocolHandler;
+import io.netty.handler.timeout.IdleStateEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.fleets.connector.ConnectorSessionRegistry;
+import org.example.fleets.connector.model.UpstreamFrame;
+import org.example.fleets.message.bus.MessageBus;
+import org.example.fleets.message.bus.MessageTopics;
+import org.example.fleets.websocket.cluster.NodeIdentity;
+import org.example.fleets.websocket.service.PresenceNotifier;
+import org.example.fleets.websocket.service.UserOnlineService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * 连接层帧处理
+ * 1. 握手完成：登记连接、记录上线（会话路由指向本节点，业务节点的推送经 ws:push:&lt;nodeId&gt; 到达）
+ * 2. 心跳帧只刷新本地心跳记录；send/ack/typing 附带连接身份后发布到 im-upstream-topic
+ * 3. 读空闲超时或连接关闭：注销连接、记录离线
+ */
+@Slf4j
+@Component
+@ChannelHandler.Sharable
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "fleets.connector", name = "enabled", havingValue = "true")
+public class ConnectorFrameHandler extends SimpleChannelInboundHandler<TextWebSocketFrame> {
+
+    private final ConnectorSessionRegistry sessionRegistry;
+    private final UserOnlineService userOnlineService;
+    private final PresenceNotifier presenceNotifier;
+    private final MessageBus messageBus;
+    private final NodeIdentity nodeIdentity;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+        if (evt instanceof WebSocketServerProtocolHandler.HandshakeComplete) {
+            onHandshakeComplete(ctx.channel());
+        } else if (evt instanceof IdleStateEvent) {
+            log.debug("连接读空闲超时，断开: sessionId={}", ctx.channel().attr(ConnectorSessionRegistry.SESSION_ID).get());
+            ctx.close();
+        } else {
+            super.userEventTriggered(ctx, evt);
+        }
+    }
+
+    private void onHandshakeComplete(Channel channel) {
+        Long userId = channel.attr(ConnectorSessionRegistry.USER_ID).get();
+        String sessionId = nodeIdentity.getNodeId() + "-" + channel.id().asShortText();
+        channel.attr(ConnectorSessionRegistry.SESSION_ID).set(sessionId);
+        sessionRegistry.register(userId, channel);
+        if (userOnlineService.userOnline(userId, sessionId)) {
+            presenceNotifier.onTransition(userId, true);
+        }
+        log.debug("连接层连接建立: userId={}, sessionId={}", userId, sessionId);
+    }
+
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, TextWebSocketFrame frame) {
+        Long userId = ctx.channel().attr(ConnectorSessionRegistry.USER_ID).get();
+        String sessionId = ctx.channel().attr(ConnectorSessionRegistry.SESSION_ID).get();
+        if (userId == null || sessionId == null) {
+            return;
+        }
+        UpstreamFrame upstream;
+        try {
+            upstream = objectMapper.readValue(frame.text(), UpstreamFrame.class);
+        } catch (Exception e) {
+            log.warn("上行帧解析失败: userId={}, error={}", userId, e.getMessage());
+            return;
+        }
+        String type = upstream.getType();
+        if (UpstreamFrame.TYPE_HEARTBEAT.equals(type)) {
+            userOnlineService.refreshOnlineStatus(userId);
+            return;
+        }
+        if (!UpstreamFrame.TYPE_SEND.equals(type) && !UpstreamFrame.TYPE_ACK.equals(type)
+                && !UpstreamFrame.TYPE_TYPING.equals(type)) {
+            log.debug("未知上行帧类型，忽略: userId={}, type={}", userId, type);
+            return;
+        }
+        // 身份以连接属性为准，不信任客户端帧中的字段
+        upstream.setUserId(userId);
+        upstream.setSessionId(sessionId);
+        messageBus.publishAsync(MessageTopics.IM_UPSTREAM, upstream);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        Long userId = ctx.channel().attr(ConnectorSessionRegistry.USER_ID).get();
+        String sessionId = ctx.channel().attr(ConnectorSessionRegistry.SESSION_ID).get();
+        if (userId != null && sessionId != null) {
+            sessionRegistry.unregister(userId, ctx.channel());
+            if (userOnlineService.userOffline(userId, sessionId)) {
+                presenceNotifier.onTransition(userId, false);
+            }
+            log.debug("连接层连接断开: userId={}, sessionId={}", userId, sessionId);
+        }
+        super.channelInactive(ctx);
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        log.debug("连接层连接异常，断开: {}", cause.getMessage());
+        ctx.close();
+    }
+}
@@ -0,0 +1,27 @@
+package org.example.fleets.connector.model;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.Data;
+
+/**
+ * 连接层上行帧：客户端帧附带连接身份后经消息总线（im-upstream-topic）交给业务节点
+ */
+@Data
+public class UpstreamFrame {
+
+    public static final String TYPE_SEND = "send";
+    public static final String TYPE_ACK = "ack";
+    public static final String TYPE_TYPING = "typing";
+    public static final String TYPE_HEARTBEAT = "heartbeat";
+
+    private Long userId;
+
+    // 发起连接的会话ID，发送回执只回给该连接
+    private String sessionId;
+
+    // send / ack / typing
+    private String type;
+
+    // 客户端原始数据，按 type 解析为 MessageSendDTO / MessageAckDTO / 输入状态
+    private JsonNode data;
+}
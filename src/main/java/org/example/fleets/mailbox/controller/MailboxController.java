@@ -3,8 +3,10 @@ package org.example.fleets.mailbox.controller;
 import cn.dev33.satoken.stp.StpUtil;
 import lombok.RequiredArgsConstructor;
 import org.example.fleets.common.api.CommonResult;
+import org.example.fleets.mailbox.model.dto.DeviceSyncDTO;
 import org.example.fleets.mailbox.model.dto.MarkReadDTO;
 import org.example.fleets.mailbox.model.dto.SyncMessageDTO;
+import org.example.fleets.mailbox.model.vo.DeviceSyncResult;
 import org.example.fleets.mailbox.model.vo.SyncResult;
 import org.example.fleets.mailbox.model.vo.UnreadCountVO;
 import org.example.fleets.mailbox.service.MailboxService;
@@ -46,6 +48,17 @@ public class MailboxController {
         return CommonResult.success(result);
     }
     
+    /**
+     * 设备同步（按设备游标只返回该设备未收到的消息）
+     */
+    @PostMapping("/sync/device")
+    public CommonResult<DeviceSyncResult> syncDevice(
+            @Valid @RequestBody DeviceSyncDTO syncDTO) {
+        Long userId = StpUtil.getLoginIdAsLong();
+        DeviceSyncResult result = mailboxService.syncDevice(userId, syncDTO);
+        return CommonResult.success(result);
+    }
+    
     /**
      * 标记消息已读
      */
@@ -31,6 +31,7 @@ public interface MailboxConverter {
     @Mapping(target = "userId", ignore = true)
     @Mapping(target = "conversationId", ignore = true)
     @Mapping(target = "sequence", ignore = true)
+    @Mapping(target = "msgSequence", source = "sequence")
     @Mapping(target = "messageId", source = "id")
     @Mapping(target = "status", constant = "0")
     @Mapping(target = "createTime", expression = "java(new java.util.Date())")
@@ -46,6 +47,7 @@ public interface MailboxConverter {
     @Mapping(target = "receiverId", ignore = true)
     @Mapping(target = "groupId", ignore = true)
     @Mapping(target = "extra", ignore = true)
+    @Mapping(target = "clientMsgId", ignore = true)
     MessageVO toMessageVO(MailboxMessage mailboxMessage);
     
     /**
@@ -0,0 +1,22 @@
+package org.example.fleets.mailbox.event;
+
+import lombok.Getter;
+
+import java.util.Map;
+
+/**
+ * 信箱未读数变更事件：写入消息或标记已读改变了某会话的未读数时发布（同一会话一次批量写入只发一个事件）
+ */
+@Getter
+public class UnreadChangedEvent {
+
+    private final String conversationId;
+
+    // userId -> 该会话变更后的未读数
+    private final Map<Long, Integer> unreadCounts;
+
+    public UnreadChangedEvent(String conversationId, Map<Long, Integer> unreadCounts) {
+        this.conversationId = conversationId;
+        this.unreadCounts = unreadCounts;
+    }
+}
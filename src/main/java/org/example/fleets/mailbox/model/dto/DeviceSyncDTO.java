@@ -0,0 +1,25 @@
+package org.example.fleets.mailbox.model.dto;
+
+import lombok.Data;
+
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.Pattern;
+
+import java.util.Map;
+
+/**
+ * 设备同步DTO
+ */
+@Data
+public class DeviceSyncDTO {
+    
+    @NotBlank(message = "设备ID不能为空")
+    @Pattern(regexp = "[A-Za-z0-9_-]{1,64}", message = "设备ID格式不正确")
+    private String deviceId;
+    
+    // 上次同步结果（及之后连续收到的推送）已落地的游标：conversationId -> cursor，先确认再同步
+    private Map<String, Long> acks;
+    
+    // 每个会话返回的消息数（默认100）
+    private Integer pageSize;
+}
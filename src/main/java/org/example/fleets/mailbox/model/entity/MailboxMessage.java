@@ -29,6 +29,9 @@ public class MailboxMessage {
     // 该用户在该会话中的序列号
     private Long sequence;
     
+    // 会话级序列号（会话内所有参与者一致，设备游标以此为单位）
+    private Long msgSequence;
+    
     // 消息ID（关联message表）
     private String messageId;
     
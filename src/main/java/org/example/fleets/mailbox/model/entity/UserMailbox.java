@@ -29,6 +29,9 @@ public class UserMailbox {
     // 当前会话的最大序列号
     private Long sequence;
     
+    // 当前会话的最大会话级序列号（与设备游标比较判断是否有新消息）
+    private Long lastMsgSequence;
+    
     // 最后一条消息ID
     private String lastMessageId;
     
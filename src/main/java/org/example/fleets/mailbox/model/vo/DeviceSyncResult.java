@@ -0,0 +1,38 @@
+package org.example.fleets.mailbox.model.vo;
+
+import lombok.Data;
+import org.example.fleets.message.model.vo.MessageVO;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 设备同步结果VO：只包含该设备游标之后的消息，按会话分组
+ */
+@Data
+public class DeviceSyncResult {
+    
+    // 有新消息的会话
+    private List<ConversationDelta> conversations = new ArrayList<>();
+    
+    // 是否还有会话未返回（超过单次会话数上限）
+    private Boolean hasMore;
+    
+    /**
+     * 单个会话的增量
+     */
+    @Data
+    public static class ConversationDelta {
+        
+        private String conversationId;
+        
+        // 本批最后一条消息的会话级序列号，客户端落地后在下次同步的 acks 中回传
+        private Long cursor;
+        
+        // 消息列表（按序列号升序）
+        private List<MessageVO> messages;
+        
+        // 该会话是否还有更多消息
+        private Boolean hasMore;
+    }
+}
@@ -0,0 +1,21 @@
+package org.example.fleets.mailbox.model.vo;
+
+import lombok.Data;
+
+/**
+ * 未读数增量推送VO（/user/queue/unread）：只带变更的会话及其最新未读数，客户端据此更新角标
+ */
+@Data
+public class UnreadDeltaVO {
+
+    private String conversationId;
+
+    private Integer unreadCount;
+
+    public static UnreadDeltaVO of(String conversationId, Integer unreadCount) {
+        UnreadDeltaVO vo = new UnreadDeltaVO();
+        vo.setConversationId(conversationId);
+        vo.setUnreadCount(unreadCount);
+        return vo;
+    }
+}
@@ -27,6 +27,16 @@ public interface MailboxMessageRepository extends MongoRepository<MailboxMessage
         Pageable pageable
     );
     
+    /**
+     * 根据用户ID和会话ID查询消息（会话级序列号大于设备游标）
+     */
+    List<MailboxMessage> findByUserIdAndConversationIdAndMsgSequenceGreaterThan(
+        Long userId,
+        String conversationId,
+        Long msgSequence,
+        Pageable pageable
+    );
+    
     /**
      * 根据用户ID和状态查询消息
      */
@@ -28,4 +28,9 @@ public interface UserMailboxRepository extends MongoRepository<UserMailbox, Stri
      * 根据用户ID和会话类型查询信箱
      */
     List<UserMailbox> findByUserIdAndConversationType(Long userId, Integer conversationType);
+    
+    /**
+     * 查询会话内最大的会话级序列号所在信箱（会话序列号计数器丢失时续号）
+     */
+    Optional<UserMailbox> findFirstByConversationIdOrderByLastMsgSequenceDesc(String conversationId);
 }
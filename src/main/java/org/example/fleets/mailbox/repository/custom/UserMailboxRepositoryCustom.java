@@ -10,7 +10,7 @@ public interface UserMailboxRepositoryCustom {
      *
      * @param userId         用户ID
      * @param conversationId 会话ID
-     * @return 实际更新的文档数（1 表示减成功，0 表示未读已为 0 或信箱不存在）
+     * @return 减后的未读数；未读已为 0 或信箱不存在时返回 null
      */
-    long decrementUnreadCountIfPositive(Long userId, String conversationId);
+    Integer decrementUnreadCountIfPositive(Long userId, String conversationId);
 }
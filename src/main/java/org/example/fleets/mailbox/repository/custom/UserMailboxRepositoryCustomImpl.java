@@ -2,6 +2,7 @@ package org.example.fleets.mailbox.repository.custom;
 
 import lombok.RequiredArgsConstructor;
 import org.example.fleets.mailbox.model.entity.UserMailbox;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
@@ -19,7 +20,7 @@ public class UserMailboxRepositoryCustomImpl implements UserMailboxRepositoryCus
     private final MongoTemplate mongoTemplate;
 
     @Override
-    public long decrementUnreadCountIfPositive(Long userId, String conversationId) {
+    public Integer decrementUnreadCountIfPositive(Long userId, String conversationId) {
         Query query = Query.query(
                 Criteria.where("userId").is(userId)
                         .and("conversationId").is(conversationId)
@@ -28,6 +29,8 @@ public class UserMailboxRepositoryCustomImpl implements UserMailboxRepositoryCus
         Update update = new Update()
                 .inc("unreadCount", -1)
                 .set("updateTime", new Date());
-        return mongoTemplate.updateFirst(query, update, UserMailbox.class).getModifiedCount();
+        UserMailbox updated = mongoTemplate.findAndModify(query, update,
+                FindAndModifyOptions.options().returnNew(true), UserMailbox.class);
+        return updated != null ? updated.getUnreadCount() : null;
     }
 }
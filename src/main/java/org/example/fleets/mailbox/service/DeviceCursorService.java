@@ -0,0 +1,99 @@
+package org.example.fleets.mailbox.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.fleets.cache.redis.RedisService;
+import org.example.fleets.common.config.properties.FleetsProperties;
+import org.redisson.api.RScript;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 设备投递游标服务
+ * 每台设备一个 Redis Hash（mailbox:cursor:&lt;userId&gt;:&lt;deviceId&gt;），field 为会话ID，value 为该设备已确认的会话级序列号
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DeviceCursorService {
+
+    /**
+     * 推进脚本：游标只前进不后退，重复或乱序的确认不会回退游标；会话序列号重置后需先 {@link #reset} 再推进
+     * KEYS: cursor；ARGV: ttlSeconds, conversationId1, sequence1, conversationId2, sequence2 ...
+     */
+    private static final String ADVANCE_SCRIPT =
+            "for i = 2, #ARGV, 2 do " +
+            "  local current = tonumber(redis.call('HGET', KEYS[1], ARGV[i]) or '0') " +
+            "  if tonumber(ARGV[i + 1]) > current then redis.call('HSET', KEYS[1], ARGV[i], ARGV[i + 1]) end " +
+            "end " +
+            "redis.call('EXPIRE', KEYS[1], ARGV[1]) " +
+            "return 0";
+
+    private final RedisService redisService;
+    private final FleetsProperties fleetsProperties;
+
+    /**
+     * 获取设备在各会话的游标
+     */
+    public Map<String, Long> getCursors(Long userId, String deviceId) {
+        Map<String, String> raw = redisService.getStringMap(cursorKey(userId, deviceId)).readAllMap();
+        if (raw == null || raw.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, Long> cursors = new HashMap<>(raw.size() * 2);
+        for (Map.Entry<String, String> entry : raw.entrySet()) {
+            try {
+                cursors.put(entry.getKey(), Long.parseLong(entry.getValue()));
+            } catch (NumberFormatException e) {
+                log.warn("设备游标格式错误，忽略: userId={}, deviceId={}, conversationId={}", userId, deviceId, entry.getKey());
+            }
+        }
+        return cursors;
+    }
+
+    /**
+     * 推进设备游标（conversationId -> 会话级序列号），一次脚本调用完成所有会话
+     */
+    public void advance(Long userId, String deviceId, Map<String, Long> cursors) {
+        if (cursors == null || cursors.isEmpty()) {
+            return;
+        }
+        List<Object> args = new ArrayList<>(cursors.size() * 2 + 1);
+        long ttlSeconds = TimeUnit.DAYS.toSeconds(fleetsProperties.getMailbox().getDeviceCursorExpireDays());
+        args.add(String.valueOf(ttlSeconds));
+        for (Map.Entry<String, Long> entry : cursors.entrySet()) {
+            if (entry.getKey() == null || entry.getValue() == null || entry.getValue() <= 0) {
+                continue;
+            }
+            args.add(entry.getKey());
+            args.add(String.valueOf(entry.getValue()));
+        }
+        if (args.size() == 1) {
+            return;
+        }
+        redisService.evalScript(ADVANCE_SCRIPT, RScript.ReturnType.INTEGER,
+                Collections.<Object>singletonList(cursorKey(userId, deviceId)), args.toArray());
+        log.debug("推进设备游标: userId={}, deviceId={}, conversations={}", userId, deviceId, (args.size() - 1) / 2);
+    }
+
+    /**
+     * 清除设备在指定会话的游标（会话序列号计数器被重置后，旧游标会挡住新序列号的消息）
+     */
+    public void reset(Long userId, String deviceId, Collection<String> conversationIds) {
+        if (conversationIds == null || conversationIds.isEmpty()) {
+            return;
+        }
+        redisService.getStringMap(cursorKey(userId, deviceId)).fastRemove(conversationIds.toArray(new String[0]));
+    }
+    
+    private String cursorKey(Long userId, String deviceId) {
+        return fleetsProperties.getRedis().getDeviceCursorKeyPrefix() + userId + ":" + deviceId;
+    }
+}
@@ -1,8 +1,10 @@
 package org.example.fleets.mailbox.service;
 
 import org.example.fleets.common.util.PageResult;
+import org.example.fleets.mailbox.model.dto.DeviceSyncDTO;
 import org.example.fleets.mailbox.model.dto.MarkReadDTO;
 import org.example.fleets.mailbox.model.dto.SyncMessageDTO;
+import org.example.fleets.mailbox.model.vo.DeviceSyncResult;
 import org.example.fleets.mailbox.model.vo.SyncResult;
 import org.example.fleets.mailbox.model.vo.UnreadCountVO;
 import org.example.fleets.message.model.entity.Message;
@@ -49,6 +51,11 @@ public interface MailboxService {
      */
     SyncResult syncMessages(Long userId, SyncMessageDTO syncDTO);
     
+    /**
+     * 设备同步：先确认 acks 中的游标，再返回该设备各会话游标之后的消息
+     */
+    DeviceSyncResult syncDevice(Long userId, DeviceSyncDTO syncDTO);
+    
     /**
      * 标记消息已读
      */
@@ -89,6 +96,11 @@ public interface MailboxService {
      */
     boolean markAsReadByMessageId(Long userId, String messageId);
 
+    /**
+     * 用户信箱中是否已有该消息（发送修复重跑时跳过已写入的用户）
+     */
+    boolean hasMessage(Long userId, String messageId);
+
     /**
      * 撤回消息：更新所有信箱中该消息的内容为「已撤回」
      */
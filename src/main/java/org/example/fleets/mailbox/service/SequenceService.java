@@ -4,8 +4,12 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.example.fleets.cache.redis.RedisService;
 import org.example.fleets.common.config.properties.FleetsProperties;
+import org.example.fleets.mailbox.model.entity.UserMailbox;
+import org.example.fleets.mailbox.repository.UserMailboxRepository;
+import org.redisson.api.RScript;
 import org.springframework.stereotype.Service;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -19,8 +23,18 @@ import java.util.concurrent.TimeUnit;
 @RequiredArgsConstructor
 public class SequenceService {
     
+    /**
+     * 续号脚本：计数器低于下限时先抬到下限再递增，保证会话级序列号不回退
+     * KEYS: sequence；ARGV: floor
+     */
+    private static final String RAISE_SCRIPT =
+            "local current = tonumber(redis.call('GET', KEYS[1]) or '0') " +
+            "if current < tonumber(ARGV[1]) then redis.call('SET', KEYS[1], ARGV[1]) end " +
+            "return redis.call('INCR', KEYS[1])";
+    
     private final RedisService redisService;
     private final FleetsProperties fleetsProperties;
+    private final UserMailboxRepository userMailboxRepository;
     
     /**
      * 生成单个序列号
@@ -42,6 +56,33 @@ public class SequenceService {
         return sequence;
     }
     
+    /**
+     * 生成会话级序列号（会话内所有参与者共用，写入消息本身并随发送回执返回）
+     * 设备游标依赖它单调递增，因此计数器不设过期时间；
+     * 计数器丢失（淘汰、主从切换）时从信箱中已落库的最大会话级序列号续号
+     */
+    public Long generateConversationSequence(String conversationId) {
+        String key = fleetsProperties.getRedis().getSequenceKeyPrefix() + conversationId;
+        Long sequence = redisService.increment(key);
+        
+        if (sequence == 1) {
+            // 新会话或计数器丢失，后者需要从已落库的序列号续上
+            Long floor = userMailboxRepository.findFirstByConversationIdOrderByLastMsgSequenceDesc(conversationId)
+                    .map(UserMailbox::getLastMsgSequence)
+                    .orElse(null);
+            if (floor != null && floor > 0) {
+                sequence = redisService.evalScript(RAISE_SCRIPT, RScript.ReturnType.INTEGER,
+                        Collections.<Object>singletonList(key), String.valueOf(floor));
+                log.warn("会话序列号计数器丢失，已从信箱续号，conversationId: {}, floor: {}, sequence: {}",
+                    conversationId, floor, sequence);
+            }
+        }
+        
+        log.debug("生成会话序列号，conversationId: {}, sequence: {}", conversationId, sequence);
+        
+        return sequence;
+    }
+    
     /**
      * 批量生成序列号（群聊场景）
      */
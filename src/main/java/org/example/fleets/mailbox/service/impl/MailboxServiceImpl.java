@@ -10,20 +10,25 @@ import org.example.fleets.common.exception.ErrorCode;
 import org.example.fleets.common.util.Assert;
 import org.example.fleets.common.util.PageResult;
 import org.example.fleets.mailbox.converter.MailboxConverter;
+import org.example.fleets.mailbox.event.UnreadChangedEvent;
+import org.example.fleets.mailbox.model.dto.DeviceSyncDTO;
 import org.example.fleets.mailbox.model.dto.MarkReadDTO;
 import org.example.fleets.mailbox.model.dto.SyncMessageDTO;
 import org.example.fleets.mailbox.model.entity.MailboxMessage;
 import org.example.fleets.mailbox.model.entity.UserMailbox;
+import org.example.fleets.mailbox.model.vo.DeviceSyncResult;
 import org.example.fleets.mailbox.model.vo.SyncResult;
 import org.example.fleets.mailbox.model.vo.UnreadCountVO;
 import org.example.fleets.mailbox.repository.MailboxMessageRepository;
 import org.example.fleets.mailbox.repository.UserMailboxRepository;
+import org.example.fleets.mailbox.service.DeviceCursorService;
 import org.example.fleets.mailbox.service.MailboxService;
 import org.example.fleets.mailbox.service.SequenceService;
 import org.example.fleets.message.model.entity.Message;
 import org.example.fleets.message.model.vo.MessageVO;
 import org.example.fleets.user.mapper.UserMapper;
 import org.example.fleets.user.model.entity.User;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -48,6 +53,8 @@ public class MailboxServiceImpl implements MailboxService {
     private final MailboxConverter mailboxConverter;
     private final UserMapper userMapper;
     private final FleetsProperties fleetsProperties;
+    private final DeviceCursorService deviceCursorService;
+    private final ApplicationEventPublisher eventPublisher;
 
     
     private static final String SEQUENCE_KEY_PREFIX = "mailbox:seq:";
@@ -69,6 +76,7 @@ public class MailboxServiceImpl implements MailboxService {
         log.info(LogConstants.buildLog(LogConstants.MODULE_MAILBOX, "写入消息", 
             String.format("userId:%s, conversationId:%s, messageId:%s", userId, conversationId, message.getId())));
         
+        Integer unreadCount;
         try {
             // 1. 获取或创建用户信箱
             UserMailbox userMailbox = userMailboxRepository
@@ -90,6 +98,7 @@ public class MailboxServiceImpl implements MailboxService {
             
             // 4. 更新UserMailbox元数据
             userMailbox.setSequence(sequence);
+            userMailbox.setLastMsgSequence(latestMsgSequence(userMailbox, message));
             userMailbox.setLastMessageId(message.getId());
             userMailbox.setLastMessageTime(message.getSendTime());
             if (incrementUnread) {
@@ -97,18 +106,24 @@ public class MailboxServiceImpl implements MailboxService {
             }
             userMailbox.setUpdateTime(new Date());
             userMailboxRepository.save(userMailbox);
+            unreadCount = userMailbox.getUnreadCount();
             
             // 5. 清理缓存
             clearUnreadCountCache(userId);
             
             log.info(LogConstants.buildLog(LogConstants.MODULE_MAILBOX, "写入消息", LogConstants.STATUS_SUCCESS,
                 String.format("userId:%s, sequence:%s", userId, sequence)));
-            return true;
         } catch (Exception e) {
             log.error("写入消息到信箱失败，userId: {}, conversationId: {}, messageId: {}",
                     userId, conversationId, message.getId(), e);
             throw new BusinessException(ErrorCode.MAILBOX_WRITE_FAILED, e);
         }
+        
+        // 6. 推送未读数增量（失败不影响写入结果）
+        if (incrementUnread) {
+            publishUnreadChanged(conversationId, Collections.singletonMap(userId, unreadCount));
+        }
+        return true;
     }
     
     @Override
@@ -125,6 +140,7 @@ public class MailboxServiceImpl implements MailboxService {
         // 2. 批量创建MailboxMessage
         // 3. 批量更新UserMailbox元数据
 
+        Map<Long, Integer> unreadCounts = new HashMap<>();
         try {
              Map<Long,Long> seqMap = sequenceService.batchGenerateSequence(userIds,conversationId);
              List<MailboxMessage> mailboxMsgs = userIds.stream()
@@ -138,16 +154,21 @@ public class MailboxServiceImpl implements MailboxService {
                      .collect(Collectors.toList());
              mailboxMessageRepository.saveAll(mailboxMsgs);
             for (Long userId : userIds) {
-                updateMailboxMetadata(userId, conversationId, seqMap.get(userId), message, incrementUnread);
+                Integer unreadCount = updateMailboxMetadata(userId, conversationId, seqMap.get(userId), message, incrementUnread);
+                unreadCounts.put(userId, unreadCount);
             }
 
-            return true;
-
         } catch (Exception e) {
             log.error("批量写入消息失败，conversationId: {}, messageId: {}, userIdsCount: {}",
                     conversationId, message.getId(), userIds.size(), e);
             throw new BusinessException(ErrorCode.MAILBOX_WRITE_FAILED, e);
         }
+
+        // 同一会话的全部接收者合并为一个事件
+        if (incrementUnread) {
+            publishUnreadChanged(conversationId, unreadCounts);
+        }
+        return true;
     }
     
     @Override
@@ -214,6 +235,91 @@ public class MailboxServiceImpl implements MailboxService {
         }
     }
     
+    @Override
+    public DeviceSyncResult syncDevice(Long userId, DeviceSyncDTO syncDTO) {
+        Assert.notNull(userId, "用户ID不能为空");
+        Assert.hasText(syncDTO.getDeviceId(), "设备ID不能为空");
+        String deviceId = syncDTO.getDeviceId();
+        
+        try {
+            List<UserMailbox> mailboxes = userMailboxRepository.findByUserId(userId);
+            
+            // 1. 游标超过会话最新序列号，说明会话序列号计数器被重置过：清掉该会话游标从头同步，
+            //    并丢弃旧序列号空间里的确认，否则只前进的游标会挡住新序列号的消息
+            Map<String, Long> lastSequences = new HashMap<>(mailboxes.size() * 2);
+            for (UserMailbox mailbox : mailboxes) {
+                if (mailbox.getLastMsgSequence() != null) {
+                    lastSequences.put(mailbox.getConversationId(), mailbox.getLastMsgSequence());
+                }
+            }
+            List<String> reset = new ArrayList<>();
+            for (Map.Entry<String, Long> cursor : deviceCursorService.getCursors(userId, deviceId).entrySet()) {
+                Long last = lastSequences.get(cursor.getKey());
+                if (last != null && cursor.getValue() > last) {
+                    reset.add(cursor.getKey());
+                }
+            }
+            if (!reset.isEmpty()) {
+                deviceCursorService.reset(userId, deviceId, reset);
+                log.warn("设备游标超过会话最新序列号，已重置，userId: {}, deviceId: {}, conversations: {}",
+                    userId, deviceId, reset);
+            }
+            Map<String, Long> acks = new HashMap<>();
+            if (syncDTO.getAcks() != null) {
+                for (Map.Entry<String, Long> ack : syncDTO.getAcks().entrySet()) {
+                    Long last = lastSequences.get(ack.getKey());
+                    if (ack.getValue() != null && last != null && ack.getValue() > last) {
+                        continue;
+                    }
+                    acks.put(ack.getKey(), ack.getValue());
+                }
+            }
+            
+            // 2. 确认上一批（客户端已落地的游标），游标只前进不后退
+            deviceCursorService.advance(userId, deviceId, acks);
+            
+            // 3. 找出最新会话级序列号超过设备游标的会话，最近活跃的优先
+            Map<String, Long> cursors = deviceCursorService.getCursors(userId, deviceId);
+            List<UserMailbox> behind = mailboxes.stream()
+                    .filter(m -> m.getLastMsgSequence() != null
+                            && m.getLastMsgSequence() > cursors.getOrDefault(m.getConversationId(), 0L))
+                    .sorted(Comparator.comparing(UserMailbox::getLastMessageTime,
+                            Comparator.nullsLast(Comparator.reverseOrder())))
+                    .collect(Collectors.toList());
+            
+            int maxConversations = fleetsProperties.getMailbox().getDeviceSyncMaxConversations();
+            int limit = fleetsProperties.getMailbox().getPullMessageLimit();
+            int pageSize = syncDTO.getPageSize() == null ? limit : Math.max(1, Math.min(syncDTO.getPageSize(), limit));
+            Pageable pageable = PageRequest.of(0, pageSize, Sort.by("msgSequence").ascending());
+            
+            // 4. 每个会话只取游标之后的消息；游标由客户端下次同步时确认，响应丢失不会丢消息
+            DeviceSyncResult result = new DeviceSyncResult();
+            for (UserMailbox mailbox : behind.subList(0, Math.min(behind.size(), maxConversations))) {
+                Long cursor = cursors.getOrDefault(mailbox.getConversationId(), 0L);
+                List<MailboxMessage> messages = mailboxMessageRepository
+                        .findByUserIdAndConversationIdAndMsgSequenceGreaterThan(
+                                userId, mailbox.getConversationId(), cursor, pageable);
+                if (messages.isEmpty()) {
+                    continue;
+                }
+                DeviceSyncResult.ConversationDelta delta = new DeviceSyncResult.ConversationDelta();
+                delta.setConversationId(mailbox.getConversationId());
+                delta.setCursor(messages.get(messages.size() - 1).getMsgSequence());
+                delta.setMessages(mailboxConverter.toMessageVOList(messages));
+                delta.setHasMore(messages.size() >= pageSize);
+                result.getConversations().add(delta);
+            }
+            result.setHasMore(behind.size() > maxConversations);
+            
+            log.info("设备同步，userId: {}, deviceId: {}, behind: {}, returned: {}",
+                userId, deviceId, behind.size(), result.getConversations().size());
+            return result;
+        } catch (Exception e) {
+            log.error("设备同步失败，userId: {}, deviceId: {}", userId, deviceId, e);
+            throw new BusinessException(ErrorCode.MAILBOX_READ_FAILED, e);
+        }
+    }
+    
     @Override
     public boolean markAsRead(Long userId, MarkReadDTO markReadDTO) {
         log.info("标记消息已读，userId: {}, conversationId: {}, sequence: {}",
@@ -238,11 +344,15 @@ public class MailboxServiceImpl implements MailboxService {
             }
 
             // 2. 只有真正从未读改为已读时，才原子减未读数
-            userMailboxRepository.decrementUnreadCountIfPositive(userId, markReadDTO.getConversationId());
+            Integer unreadCount = userMailboxRepository.decrementUnreadCountIfPositive(userId, markReadDTO.getConversationId());
 
             // 3. 清理未读缓存，下次读取会重新统计
             clearUnreadCountCache(userId);
 
+            // 4. 推送未读数增量（该用户的其他设备同步角标）
+            if (unreadCount != null) {
+                publishUnreadChanged(markReadDTO.getConversationId(), Collections.singletonMap(userId, unreadCount));
+            }
             return true;
         } catch (Exception e) {
             log.error("标记消息已读失败，userId: {}, conversationId: {}, sequence: {}",
@@ -380,6 +490,11 @@ public class MailboxServiceImpl implements MailboxService {
         return markAsRead(userId, dto);
     }
 
+    @Override
+    public boolean hasMessage(Long userId, String messageId) {
+        return mailboxMessageRepository.findByUserIdAndMessageId(userId, messageId).isPresent();
+    }
+
     @Override
     public void recallMessageByMessageId(String messageId) {
         List<MailboxMessage> list = mailboxMessageRepository.findByMessageId(messageId);
@@ -419,13 +534,16 @@ public class MailboxServiceImpl implements MailboxService {
 
     /**
      * 更新信箱元数据
+     *
+     * @return 更新后的未读数
      */
-    private void updateMailboxMetadata(Long userId, String conversationId, Long sequence, Message message, boolean incrementUnread) {
+    private Integer updateMailboxMetadata(Long userId, String conversationId, Long sequence, Message message, boolean incrementUnread) {
         UserMailbox mailbox = userMailboxRepository
                 .findByUserIdAndConversationId(userId, conversationId)
                 .orElseGet(() -> mailboxConverter.createNewMailbox(userId, conversationId));
 
         mailbox.setSequence(sequence);
+        mailbox.setLastMsgSequence(latestMsgSequence(mailbox, message));
         mailbox.setLastMessageId(message.getId());
         mailbox.setLastMessageTime(message.getSendTime());
         if (incrementUnread) {
@@ -434,6 +552,42 @@ public class MailboxServiceImpl implements MailboxService {
         mailbox.setUpdateTime(new Date());
 
         userMailboxRepository.save(mailbox);
+        return mailbox.getUnreadCount();
+    }
+
+    /**
+     * 发布未读数变更事件，由 WebSocket 层推送到 /user/queue/unread；推送失败只记日志
+     */
+    private void publishUnreadChanged(String conversationId, Map<Long, Integer> unreadCounts) {
+        if (unreadCounts.isEmpty()) {
+            return;
+        }
+        try {
+            eventPublisher.publishEvent(new UnreadChangedEvent(conversationId, unreadCounts));
+        } catch (Exception e) {
+            log.warn("推送未读数变更失败，conversationId: {}, users: {}", conversationId, unreadCounts.size(), e);
+        }
+    }
+
+    /**
+     * 会话级序列号取较大值（并发写入时后到的旧序列号不覆盖）；
+     * 若发送时间更晚的消息带着更小的序列号，说明会话序列号计数器被重置过，以新消息为准，设备同步据此发现游标超前
+     * 须在更新 lastMessageTime 之前调用
+     */
+    private static Long latestMsgSequence(UserMailbox mailbox, Message message) {
+        Long current = mailbox.getLastMsgSequence();
+        Long incoming = message.getSequence();
+        if (incoming == null) {
+            return current;
+        }
+        if (current == null || incoming > current) {
+            return incoming;
+        }
+        Date lastMessageTime = mailbox.getLastMessageTime();
+        if (lastMessageTime != null && message.getSendTime() != null && message.getSendTime().after(lastMessageTime)) {
+            return incoming;
+        }
+        return current;
     }
 
     /**
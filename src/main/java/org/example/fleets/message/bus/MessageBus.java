@@ -0,0 +1,26 @@
+package org.example.fleets.message.bus;
+
+/**
+ * 消息总线抽象
+ * 屏蔽底层投递实现：集群部署走 RocketMQ，单机/测试部署可切换为进程内实现（fleets.bus.type=in-process），无需外部 Broker。
+ */
+public interface MessageBus {
+
+    /**
+     * 同步发布消息
+     *
+     * @param destination 目标（topic 或 topic:tag）
+     * @param payload     消息体，非 String 时按 JSON 序列化
+     */
+    void publish(String destination, Object payload);
+
+    /**
+     * 异步发布消息（不等待投递结果）
+     */
+    void publishAsync(String destination, Object payload);
+
+    /**
+     * 订阅 topic
+     */
+    void subscribe(String topic, MessageBusListener listener);
+}
@@ -0,0 +1,17 @@
+package org.example.fleets.message.bus;
+
+/**
+ * 消息总线监听器：由 {@link MessageBusListenerRegistrar} 在启动时统一注册到当前 {@link MessageBus} 实现
+ */
+public interface MessageBusListener {
+
+    /**
+     * 订阅的 topic
+     */
+    String topic();
+
+    /**
+     * 处理消息（JSON 字符串）
+     */
+    void onMessage(String payload);
+}
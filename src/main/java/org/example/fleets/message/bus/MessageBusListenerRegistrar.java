@@ -0,0 +1,28 @@
+package org.example.fleets.message.bus;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 启动时将所有 {@link MessageBusListener} 注册到消息总线
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MessageBusListenerRegistrar implements SmartInitializingSingleton {
+
+    private final MessageBus messageBus;
+    private final List<MessageBusListener> listeners;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        for (MessageBusListener listener : listeners) {
+            messageBus.subscribe(listener.topic(), listener);
+            log.info("消息总线订阅: topic={}, listener={}", listener.topic(), listener.getClass().getSimpleName());
+        }
+    }
+}
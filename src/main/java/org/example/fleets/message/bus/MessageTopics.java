@@ -0,0 +1,25 @@
+package org.example.fleets.message.bus;
+
+/**
+ * 消息总线 topic 常量
+ */
+public final class MessageTopics {
+
+    /** IM 消息（在线推送） */
+    public static final String IM_MESSAGE = "im-message-topic";
+
+    /** 系统通知 */
+    public static final String IM_NOTIFICATION = "im-notification-topic";
+
+    /** 统计/行为事件 */
+    public static final String IM_ANALYTICS = "im-analytics-topic";
+
+    /** 离线推送（接收者无在线会话，供移动端推送） */
+    public static final String IM_OFFLINE_PUSH = "im-offline-push-topic";
+
+    /** Netty 连接层上行帧（发送、确认、输入状态） */
+    public static final String IM_UPSTREAM = "im-upstream-topic";
+
+    private MessageTopics() {
+    }
+}
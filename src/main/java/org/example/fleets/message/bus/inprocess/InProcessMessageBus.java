@@ -0,0 +1,181 @@
+package org.example.fleets.message.bus.inprocess;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.fleets.common.config.properties.FleetsProperties;
+import org.example.fleets.message.bus.MessageBus;
+import org.example.fleets.message.bus.MessageBusListener;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.messaging.MessagingException;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 进程内消息总线（单机/测试部署）
+ * 每个订阅持有一个有界环形队列（ArrayBlockingQueue）和固定数量的消费线程；队列满时在发布线程上直接投递，保证不丢消息。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "fleets.bus", name = "type", havingValue = "in-process")
+public class InProcessMessageBus implements MessageBus, DisposableBean {
+
+    private final ObjectMapper objectMapper;
+    private final FleetsProperties fleetsProperties;
+
+    private final Map<String, List<Subscription>> subscriptions = new ConcurrentHashMap<>();
+
+    @Override
+    public void publish(String destination, Object payload) {
+        String topic = resolveTopic(destination);
+        List<Subscription> subs = subscriptions.get(topic);
+        if (subs == null || subs.isEmpty()) {
+            log.debug("进程内总线无订阅者，丢弃消息: topic={}", topic);
+            return;
+        }
+        String body = serialize(payload);
+        for (Subscription sub : subs) {
+            sub.offer(body);
+        }
+    }
+
+    @Override
+    public void publishAsync(String destination, Object payload) {
+        // 入队即返回，本身就是异步投递
+        publish(destination, payload);
+    }
+
+    @Override
+    public void subscribe(String topic, MessageBusListener listener) {
+        FleetsProperties.BusConfig busConfig = fleetsProperties.getBus();
+        Subscription sub = new Subscription(topic, listener, busConfig.getRingBufferSize(),
+                busConfig.getOfferTimeoutMillis());
+        sub.start(busConfig.getConsumerThreads());
+        subscriptions.computeIfAbsent(topic, k -> new CopyOnWriteArrayList<>()).add(sub);
+    }
+
+    @Override
+    public void destroy() {
+        for (List<Subscription> subs : subscriptions.values()) {
+            for (Subscription sub : subs) {
+                sub.stop();
+            }
+        }
+        subscriptions.clear();
+    }
+
+    /**
+     * RocketMQ 的 topic:tag 写法在进程内只按 topic 路由
+     */
+    private String resolveTopic(String destination) {
+        int idx = destination.indexOf(':');
+        return idx < 0 ? destination : destination.substring(0, idx);
+    }
+
+    private String serialize(Object payload) {
+        if (payload instanceof String) {
+            return (String) payload;
+        }
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new MessagingException("消息序列化失败", e);
+        }
+    }
+
+    /**
+     * 单个订阅：有界队列 + 消费线程
+     */
+    private static final class Subscription {
+
+        private static final long STOP_JOIN_MILLIS = 1000;
+
+        private final String topic;
+        private final MessageBusListener listener;
+        private final BlockingQueue<String> ring;
+        private final long offerTimeoutMillis;
+        private final List<Thread> workers = new CopyOnWriteArrayList<>();
+        private volatile boolean running = true;
+
+        Subscription(String topic, MessageBusListener listener, int capacity, long offerTimeoutMillis) {
+            this.topic = topic;
+            this.listener = listener;
+            this.ring = new ArrayBlockingQueue<>(capacity);
+            this.offerTimeoutMillis = offerTimeoutMillis;
+        }
+
+        void start(int threads) {
+            for (int i = 0; i < threads; i++) {
+                Thread worker = new Thread(this::consumeLoop, "bus-" + topic + "-" + i);
+                worker.setDaemon(true);
+                worker.start();
+                workers.add(worker);
+            }
+        }
+
+        void offer(String body) {
+            boolean queued;
+            try {
+                queued = ring.offer(body, offerTimeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                queued = false;
+            }
+            if (!queued) {
+                log.warn("进程内总线队列已满，在发布线程上直接投递: topic={}", topic);
+                deliver(body);
+            }
+        }
+
+        void stop() {
+            running = false;
+            for (Thread worker : workers) {
+                worker.interrupt();
+            }
+            for (Thread worker : workers) {
+                try {
+                    worker.join(STOP_JOIN_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            // 停机时把残留消息投递完，避免丢失
+            String body;
+            while ((body = ring.poll()) != null) {
+                deliver(body);
+            }
+        }
+
+        private void consumeLoop() {
+            while (running) {
+                String body;
+                try {
+                    body = ring.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                deliver(body);
+            }
+        }
+
+        private void deliver(String body) {
+            try {
+                listener.onMessage(body);
+            } catch (Exception e) {
+                log.error("进程内总线消息处理失败: topic={}", topic, e);
+            }
+        }
+    }
+}
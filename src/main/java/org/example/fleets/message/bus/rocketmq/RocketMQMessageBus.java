@@ -0,0 +1,69 @@
+package org.example.fleets.message.bus.rocketmq;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.rocketmq.client.producer.SendCallback;
+import org.apache.rocketmq.client.producer.SendResult;
+import org.apache.rocketmq.spring.core.RocketMQTemplate;
+import org.example.fleets.message.bus.MessageBus;
+import org.example.fleets.message.bus.MessageBusListener;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 基于 RocketMQ 的消息总线（默认实现，集群部署使用）
+ * 消费端由 {@link RocketMQTopicAdapters} 中的 @RocketMQMessageListener 容器接收后，按 topic 分发给已注册的监听器。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "fleets.bus", name = "type", havingValue = "rocketmq", matchIfMissing = true)
+public class RocketMQMessageBus implements MessageBus {
+
+    private final RocketMQTemplate rocketMQTemplate;
+
+    private final Map<String, MessageBusListener> listeners = new ConcurrentHashMap<>();
+
+    @Override
+    public void publish(String destination, Object payload) {
+        rocketMQTemplate.convertAndSend(destination, payload);
+    }
+
+    @Override
+    public void publishAsync(String destination, Object payload) {
+        rocketMQTemplate.asyncSend(destination, MessageBuilder.withPayload(payload).build(), new SendCallback() {
+            @Override
+            public void onSuccess(SendResult sendResult) {
+                log.debug("异步发送成功: destination={}, msgId={}", destination, sendResult.getMsgId());
+            }
+
+            @Override
+            public void onException(Throwable e) {
+                log.error("异步发送失败: destination={}", destination, e);
+            }
+        });
+    }
+
+    @Override
+    public void subscribe(String topic, MessageBusListener listener) {
+        MessageBusListener previous = listeners.putIfAbsent(topic, listener);
+        if (previous != null && previous != listener) {
+            throw new IllegalStateException("topic 已存在监听器: " + topic);
+        }
+    }
+
+    /**
+     * 由 RocketMQ 监听容器回调；监听器尚未注册时抛异常，交由 RocketMQ 稍后重投，避免启动窗口内丢消息
+     */
+    void dispatch(String topic, String payload) {
+        MessageBusListener listener = listeners.get(topic);
+        if (listener == null) {
+            throw new IllegalStateException("topic 尚无监听器: " + topic);
+        }
+        listener.onMessage(payload);
+    }
+}
@@ -0,0 +1,77 @@
+package org.example.fleets.message.bus.rocketmq;
+
+import org.apache.rocketmq.spring.annotation.RocketMQMessageListener;
+import org.apache.rocketmq.spring.core.RocketMQListener;
+import org.example.fleets.message.bus.MessageTopics;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * RocketMQ 监听容器适配：每个 topic/消费组一个 @RocketMQMessageListener，收到消息后交给 {@link RocketMQMessageBus} 分发
+ */
+public final class RocketMQTopicAdapters {
+
+    private RocketMQTopicAdapters() {
+    }
+
+    abstract static class AbstractTopicAdapter implements RocketMQListener<String> {
+
+        private final RocketMQMessageBus messageBus;
+        private final String topic;
+
+        AbstractTopicAdapter(RocketMQMessageBus messageBus, String topic) {
+            this.messageBus = messageBus;
+            this.topic = topic;
+        }
+
+        @Override
+        public void onMessage(String payload) {
+            messageBus.dispatch(topic, payload);
+        }
+    }
+
+    @Component
+    @ConditionalOnProperty(prefix = "fleets.bus", name = "type", havingValue = "rocketmq", matchIfMissing = true)
+    @RocketMQMessageListener(topic = MessageTopics.IM_MESSAGE, consumerGroup = "online-push-consumer-group")
+    public static class ImMessageAdapter extends AbstractTopicAdapter {
+        public ImMessageAdapter(RocketMQMessageBus messageBus) {
+            super(messageBus, MessageTopics.IM_MESSAGE);
+        }
+    }
+
+    @Component
+    @ConditionalOnProperty(prefix = "fleets.bus", name = "type", havingValue = "rocketmq", matchIfMissing = true)
+    @RocketMQMessageListener(topic = MessageTopics.IM_NOTIFICATION, consumerGroup = "notification-consumer-group")
+    public static class ImNotificationAdapter extends AbstractTopicAdapter {
+        public ImNotificationAdapter(RocketMQMessageBus messageBus) {
+            super(messageBus, MessageTopics.IM_NOTIFICATION);
+        }
+    }
+
+    @Component
+    @ConditionalOnProperty(prefix = "fleets.bus", name = "type", havingValue = "rocketmq", matchIfMissing = true)
+    @RocketMQMessageListener(topic = MessageTopics.IM_ANALYTICS, consumerGroup = "analytics-consumer-group")
+    public static class ImAnalyticsAdapter extends AbstractTopicAdapter {
+        public ImAnalyticsAdapter(RocketMQMessageBus messageBus) {
+            super(messageBus, MessageTopics.IM_ANALYTICS);
+        }
+    }
+
+    @Component
+    @ConditionalOnProperty(prefix = "fleets.bus", name = "type", havingValue = "rocketmq", matchIfMissing = true)
+    @RocketMQMessageListener(topic = MessageTopics.IM_UPSTREAM, consumerGroup = "upstream-consumer-group")
+    public static class ImUpstreamAdapter extends AbstractTopicAdapter {
+        public ImUpstreamAdapter(RocketMQMessageBus messageBus) {
+            super(messageBus, MessageTopics.IM_UPSTREAM);
+        }
+    }
+
+    @Component
+    @ConditionalOnProperty(prefix = "fleets.bus", name = "type", havingValue = "rocketmq", matchIfMissing = true)
+    @RocketMQMessageListener(topic = MessageTopics.IM_OFFLINE_PUSH, consumerGroup = "offline-push-consumer-group")
+    public static class ImOfflinePushAdapter extends AbstractTopicAdapter {
+        public ImOfflinePushAdapter(RocketMQMessageBus messageBus) {
+            super(messageBus, MessageTopics.IM_OFFLINE_PUSH);
+        }
+    }
+}
@@ -4,32 +4,28 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.rocketmq.spring.annotation.RocketMQMessageListener;
-import org.apache.rocketmq.spring.core.RocketMQListener;
-import org.example.fleets.cache.redis.RedisService;
+import org.example.fleets.message.bus.MessageBusListener;
+import org.example.fleets.message.bus.MessageTopics;
 import org.example.fleets.message.model.dto.AnalyticsEventDTO;
+import org.example.fleets.message.service.AnalyticsService;
 import org.springframework.stereotype.Component;
 
-import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
-
 /**
- * 统计/行为事件消费者：解析事件后打日志并写入 Redis 计数（按事件类型+日期），便于后续报表或活跃度分析。
+ * 统计/行为事件消费者：解析事件后交给 AnalyticsService 在本地聚合（按事件类型 + 分钟/小时/天计数、按天去重用户），
+ * 由其定时批量写入 Redis，便于后续报表或活跃度分析。
  */
 @Slf4j
 @Component
 @RequiredArgsConstructor
-@RocketMQMessageListener(
-    topic = "im-analytics-topic",
-    consumerGroup = "analytics-consumer-group"
-)
-public class AnalyticsConsumer implements RocketMQListener<String> {
-
-    private static final String KEY_PREFIX = "analytics:count:";
-    private static final DateTimeFormatter DATE_FMT = DateTimeFormatter.ofPattern("yyyyMMdd");
+public class AnalyticsConsumer implements MessageBusListener {
 
     private final ObjectMapper objectMapper;
-    private final RedisService redisService;
+    private final AnalyticsService analyticsService;
+
+    @Override
+    public String topic() {
+        return MessageTopics.IM_ANALYTICS;
+    }
 
     @Override
     public void onMessage(String messageJson) {
@@ -45,13 +41,11 @@ public class AnalyticsConsumer implements RocketMQListener<String> {
             return;
         }
 
-        String date = LocalDate.now().format(DATE_FMT);
-        String key = KEY_PREFIX + dto.getEventType() + ":" + date;
         try {
-            redisService.increment(key);
-            log.debug("统计事件: eventType={}, userId={}, key={}", dto.getEventType(), dto.getUserId(), key);
+            analyticsService.record(dto);
+            log.debug("统计事件: eventType={}, userId={}", dto.getEventType(), dto.getUserId());
         } catch (Exception e) {
-            log.error("统计事件处理失败: eventType={}, key={}", dto.getEventType(), key, e);
+            log.error("统计事件处理失败: eventType={}", dto.getEventType(), e);
         }
     }
 }
@@ -4,24 +4,30 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.rocketmq.spring.annotation.RocketMQMessageListener;
-import org.apache.rocketmq.spring.core.RocketMQListener;
 import org.example.fleets.group.service.GroupService;
+import org.example.fleets.message.bus.MessageBus;
+import org.example.fleets.message.bus.MessageBusListener;
+import org.example.fleets.message.bus.MessageTopics;
+import org.example.fleets.message.model.dto.OfflinePushDTO;
 import org.example.fleets.message.model.entity.Message;
+import org.example.fleets.message.service.MessageAckService;
 import org.example.fleets.websocket.service.WebSocketService;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
 /**
  * 在线消息推送消费者：消费 IM 消息并推送到 WebSocket（单聊/群聊）
+ * 推送前由路由层按会话记录判断在线（单聊一次查询，群聊一次 Pipeline），
+ * 不在线的接收者不做序列化与投递，也不登记送达确认，直接发布离线推送事件
  */
 @Slf4j
 @Component
 @RequiredArgsConstructor
-@RocketMQMessageListener(
-    topic = "im-message-topic",
-    consumerGroup = "online-push-consumer-group"
-)
-public class MessageConsumer implements RocketMQListener<String> {
+public class MessageConsumer implements MessageBusListener {
 
     private static final int MESSAGE_TYPE_SINGLE = 1;
     private static final int MESSAGE_TYPE_GROUP = 2;
@@ -29,6 +35,13 @@ public class MessageConsumer implements RocketMQListener<String> {
     private final ObjectMapper objectMapper;
     private final WebSocketService webSocketService;
     private final GroupService groupService;
+    private final MessageAckService messageAckService;
+    private final MessageBus messageBus;
+
+    @Override
+    public String topic() {
+        return MessageTopics.IM_MESSAGE;
+    }
 
     @Override
     public void onMessage(String messageJson) {
@@ -56,14 +69,27 @@ public class MessageConsumer implements RocketMQListener<String> {
                     log.warn("单聊消息缺少 receiverId，跳过: messageId={}", message.getId());
                     return;
                 }
-                webSocketService.sendMessageToUser(message.getReceiverId(), message);
+                boolean online = webSocketService.sendMessageToUser(message.getReceiverId(), message);
+                // 多端同步：回显到发送者的其他设备，跳过发起发送的会话（群聊在成员推送中处理）
+                if (message.getSenderId() != null && !message.getSenderId().equals(message.getReceiverId())) {
+                    webSocketService.sendMessageToSenderSessions(message.getSenderId(), message);
+                }
+                if (!online) {
+                    publishOffline(Collections.singletonList(message.getReceiverId()), message);
+                    return;
+                }
+                messageAckService.trackDelivery(message.getReceiverId(), message);
                 log.debug("已推送单聊消息: messageId={}, receiverId={}", message.getId(), message.getReceiverId());
             } else if (messageType == MESSAGE_TYPE_GROUP) {
                 if (message.getGroupId() == null) {
                     log.warn("群聊消息缺少 groupId，跳过: messageId={}", message.getId());
                     return;
                 }
-                webSocketService.sendMessageToGroup(message.getGroupId(), message);
+                Set<Long> offline = webSocketService.sendMessageToGroup(message.getGroupId(), message);
+                offline.remove(message.getSenderId());
+                if (!offline.isEmpty()) {
+                    publishOffline(new ArrayList<>(offline), message);
+                }
                 log.debug("已推送群聊消息: messageId={}, groupId={}", message.getId(), message.getGroupId());
             } else {
                 log.warn("未知消息类型，跳过: messageId={}, messageType={}", message.getId(), messageType);
@@ -72,4 +98,13 @@ public class MessageConsumer implements RocketMQListener<String> {
             log.error("推送消息失败: messageId={}", message.getId(), e);
         }
     }
+
+    private void publishOffline(List<Long> userIds, Message message) {
+        try {
+            messageBus.publishAsync(MessageTopics.IM_OFFLINE_PUSH, OfflinePushDTO.of(userIds, message));
+            log.debug("接收者不在线，转离线推送: messageId={}, users={}", message.getId(), userIds.size());
+        } catch (Exception e) {
+            log.warn("发布离线推送事件失败: messageId={}", message.getId(), e);
+        }
+    }
 }
@@ -4,8 +4,8 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.rocketmq.spring.annotation.RocketMQMessageListener;
-import org.apache.rocketmq.spring.core.RocketMQListener;
+import org.example.fleets.message.bus.MessageBusListener;
+import org.example.fleets.message.bus.MessageTopics;
 import org.example.fleets.message.model.dto.NotificationDTO;
 import org.example.fleets.websocket.service.WebSocketService;
 import org.springframework.stereotype.Component;
@@ -16,15 +16,16 @@ import org.springframework.stereotype.Component;
 @Slf4j
 @Component
 @RequiredArgsConstructor
-@RocketMQMessageListener(
-    topic = "im-notification-topic",
-    consumerGroup = "notification-consumer-group"
-)
-public class NotificationConsumer implements RocketMQListener<String> {
+public class NotificationConsumer implements MessageBusListener {
 
     private final ObjectMapper objectMapper;
     private final WebSocketService webSocketService;
 
+    @Override
+    public String topic() {
+        return MessageTopics.IM_NOTIFICATION;
+    }
+
     @Override
     public void onMessage(String notificationJson) {
         NotificationDTO dto;
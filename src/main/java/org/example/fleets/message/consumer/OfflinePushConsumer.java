@@ -0,0 +1,96 @@
+package org.example.fleets.message.consumer;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.fleets.common.service.ConversationService;
+import org.example.fleets.message.bus.MessageBusListener;
+import org.example.fleets.message.bus.MessageTopics;
+import org.example.fleets.message.model.dto.OfflinePushDTO;
+import org.example.fleets.message.push.OfflinePushCoalescer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * 离线推送消费者：接收者无在线会话时由推送阶段发布，过滤免打扰会话后交给合并器按用户合并发出
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "fleets.offline-push", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class OfflinePushConsumer implements MessageBusListener {
+
+    private static final int MESSAGE_TYPE_GROUP = 2;
+
+    // 会话类型：0-单聊，1-群聊
+    private static final int CONVERSATION_TYPE_SINGLE = 0;
+    private static final int CONVERSATION_TYPE_GROUP = 1;
+
+    private final ObjectMapper objectMapper;
+    private final ConversationService conversationService;
+    private final OfflinePushCoalescer offlinePushCoalescer;
+
+    @Override
+    public String topic() {
+        return MessageTopics.IM_OFFLINE_PUSH;
+    }
+
+    @Override
+    public void onMessage(String payload) {
+        OfflinePushDTO dto;
+        try {
+            dto = objectMapper.readValue(payload, OfflinePushDTO.class);
+        } catch (JsonProcessingException e) {
+            log.error("离线推送事件 JSON 解析失败: payload={}", payload, e);
+            return;
+        }
+        if (dto == null || dto.getUserIds() == null || dto.getUserIds().isEmpty() || dto.getSenderId() == null) {
+            log.warn("离线推送事件无效，跳过: dto={}", dto);
+            return;
+        }
+
+        boolean group = dto.getMessageType() != null && dto.getMessageType() == MESSAGE_TYPE_GROUP;
+        if (group && dto.getGroupId() == null) {
+            log.warn("群聊离线推送事件缺少 groupId，跳过: messageId={}", dto.getMessageId());
+            return;
+        }
+
+        try {
+            // 免打扰按接收者自己的会话记录判断：单聊的会话目标是发送者，群聊是群组
+            Set<Long> muted = group
+                    ? conversationService.getMutedOwnerIds(CONVERSATION_TYPE_GROUP, dto.getGroupId(), dto.getUserIds())
+                    : conversationService.getMutedOwnerIds(CONVERSATION_TYPE_SINGLE, dto.getSenderId(), dto.getUserIds());
+            if (muted == null) {
+                muted = Collections.emptySet();
+            }
+            int offered = 0;
+            for (Long userId : dto.getUserIds()) {
+                if (userId == null || userId.equals(dto.getSenderId()) || muted.contains(userId)) {
+                    continue;
+                }
+                offlinePushCoalescer.offer(userId, conversationId(dto, userId, group), dto.getMessageId());
+                offered++;
+            }
+            log.debug("离线推送事件: messageId={}, users={}, muted={}, offered={}",
+                    dto.getMessageId(), dto.getUserIds().size(), muted.size(), offered);
+        } catch (Exception e) {
+            log.error("处理离线推送事件失败: messageId={}", dto.getMessageId(), e);
+        }
+    }
+
+    /**
+     * 与会话表一致的会话ID：单聊 conv_小ID_大ID，群聊 conv_group_群ID
+     */
+    private static String conversationId(OfflinePushDTO dto, Long userId, boolean group) {
+        if (group) {
+            return "conv_group_" + dto.getGroupId();
+        }
+        long min = Math.min(userId, dto.getSenderId());
+        long max = Math.max(userId, dto.getSenderId());
+        return "conv_" + min + "_" + max;
+    }
+}
@@ -0,0 +1,134 @@
+package org.example.fleets.message.consumer;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.fleets.common.exception.BusinessException;
+import org.example.fleets.common.exception.ErrorCode;
+import org.example.fleets.connector.model.UpstreamFrame;
+import org.example.fleets.message.bus.MessageBusListener;
+import org.example.fleets.message.bus.MessageTopics;
+import org.example.fleets.message.model.dto.MessageAckDTO;
+import org.example.fleets.message.model.dto.MessageSendDTO;
+import org.example.fleets.message.model.vo.MessageSendAckVO;
+import org.example.fleets.message.model.vo.MessageVO;
+import org.example.fleets.message.service.MessageAckService;
+import org.example.fleets.message.service.MessageService;
+import org.example.fleets.websocket.cluster.ClusterPushRouter;
+import org.example.fleets.websocket.service.TypingRelayService;
+import org.springframework.stereotype.Component;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 连接层上行帧消费者：处理 Netty 连接层转发的 send/ack/typing，与 STOMP /app/send、/app/ack、/app/typing 等价
+ * 发送回执经 ClusterPushRouter 推送到发起连接的 /queue/ack，由会话路由送回连接层节点，用户的其他设备不会收到
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UpstreamConsumer implements MessageBusListener {
+
+    private static final String ACK_DESTINATION = "/queue/ack";
+
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final MessageService messageService;
+    private final MessageAckService messageAckService;
+    private final TypingRelayService typingRelayService;
+    private final ClusterPushRouter clusterPushRouter;
+
+    @Override
+    public String topic() {
+        return MessageTopics.IM_UPSTREAM;
+    }
+
+    @Override
+    public void onMessage(String messageJson) {
+        UpstreamFrame frame;
+        try {
+            frame = objectMapper.readValue(messageJson, UpstreamFrame.class);
+        } catch (JsonProcessingException e) {
+            log.error("上行帧 JSON 解析失败: messageJson={}", messageJson, e);
+            return;
+        }
+        if (frame == null || frame.getUserId() == null || frame.getData() == null) {
+            log.warn("上行帧无效，跳过: frame={}", frame);
+            return;
+        }
+        try {
+            if (UpstreamFrame.TYPE_SEND.equals(frame.getType())) {
+                handleSend(frame.getUserId(), frame.getSessionId(), frame.getData());
+            } else if (UpstreamFrame.TYPE_ACK.equals(frame.getType())) {
+                handleAck(frame.getUserId(), frame.getData());
+            } else if (UpstreamFrame.TYPE_TYPING.equals(frame.getType())) {
+                handleTyping(frame.getUserId(), frame.getData());
+            } else {
+                log.debug("未知上行帧类型，忽略: type={}", frame.getType());
+            }
+        } catch (JsonProcessingException e) {
+            log.warn("上行帧数据格式错误: userId={}, type={}, error={}", frame.getUserId(), frame.getType(), e.getMessage());
+        }
+    }
+
+    private void handleSend(Long userId, String sessionId, JsonNode data) throws JsonProcessingException {
+        MessageSendDTO sendDTO = objectMapper.treeToValue(data, MessageSendDTO.class);
+        Set<ConstraintViolation<MessageSendDTO>> violations = validator.validate(sendDTO);
+        if (!violations.isEmpty()) {
+            String errors = violations.stream().map(ConstraintViolation::getMessage).collect(Collectors.joining(", "));
+            pushAck(userId, sessionId, MessageSendAckVO.failed(sendDTO.getClientMsgId(), ErrorCode.VALIDATE_FAILED.getCode(), errors));
+            return;
+        }
+        MessageSendAckVO ack;
+        try {
+            MessageVO messageVO = messageService.sendMessage(userId, sendDTO, sessionId);
+            ack = MessageSendAckVO.success(sendDTO.getClientMsgId(), messageVO);
+        } catch (BusinessException e) {
+            log.warn("连接层发送消息失败: userId={}, clientMsgId={}, code={}, msg={}",
+                    userId, sendDTO.getClientMsgId(), e.getCode(), e.getMessage());
+            ack = MessageSendAckVO.failed(sendDTO.getClientMsgId(), e.getCode(), e.getMessage());
+        } catch (RuntimeException e) {
+            log.error("连接层发送消息异常: userId={}, clientMsgId={}", userId, sendDTO.getClientMsgId(), e);
+            ack = MessageSendAckVO.failed(sendDTO.getClientMsgId(), ErrorCode.SYSTEM_ERROR.getCode(),
+                    ErrorCode.SYSTEM_ERROR.getMessage());
+        }
+        pushAck(userId, sessionId, ack);
+    }
+
+    private void handleAck(Long userId, JsonNode data) throws JsonProcessingException {
+        MessageAckDTO ackDTO = objectMapper.treeToValue(data, MessageAckDTO.class);
+        if (ackDTO == null || ackDTO.getMessageId() == null) {
+            log.warn("无效的消息确认: userId={}, ack={}", userId, ackDTO);
+            return;
+        }
+        if (Integer.valueOf(2).equals(ackDTO.getAckType())) {
+            messageAckService.handleReadAck(userId, ackDTO.getMessageId());
+        } else {
+            messageAckService.handleDeliveredAck(userId, ackDTO.getMessageId());
+        }
+    }
+
+    private void handleTyping(Long userId, JsonNode data) {
+        JsonNode conversationId = data.get("conversationId");
+        if (conversationId == null || !conversationId.isTextual()) {
+            return;
+        }
+        typingRelayService.relay(userId, conversationId.asText(), data.path("typing").asBoolean(false));
+    }
+
+    /**
+     * 回执只推送到发起发送的连接，客户端按 clientMsgId 匹配；缺少会话ID（旧版连接层）时推送到该用户所有会话
+     */
+    private void pushAck(Long userId, String sessionId, MessageSendAckVO ack) {
+        if (sessionId == null) {
+            clusterPushRouter.pushToUser(userId, ACK_DESTINATION, ack);
+            return;
+        }
+        clusterPushRouter.pushToSession(userId, sessionId, ACK_DESTINATION, ack);
+    }
+}
@@ -4,6 +4,7 @@ import lombok.Data;
 
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
 
 /**
  * 消息发送DTO
@@ -25,4 +26,7 @@ public class MessageSendDTO {
     private String content;
     
     private String extra;  // 扩展信息（JSON格式）
+    
+    @Size(max = 64, message = "客户端消息ID过长")
+    private String clientMsgId;  // 客户端生成的消息ID，用于重试去重（可选）
 }
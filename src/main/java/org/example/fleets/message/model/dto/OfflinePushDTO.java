@@ -0,0 +1,41 @@
+package org.example.fleets.message.model.dto;
+
+import lombok.Data;
+import org.example.fleets.message.model.entity.Message;
+
+import java.util.List;
+
+/**
+ * 离线推送事件：接收者没有任何在线会话时发布到 im-offline-push-topic，供移动端推送使用
+ * 消息正文不随事件传递，推送文案由消费端按需查询生成
+ */
+@Data
+public class OfflinePushDTO {
+
+    // 不在线的接收者
+    private List<Long> userIds;
+
+    private String messageId;
+
+    private Integer messageType;  // 1-单聊，2-群聊
+
+    private Integer contentType;
+
+    private Long senderId;
+
+    private Long groupId;
+
+    private Long sendTime;  // 毫秒时间戳
+
+    public static OfflinePushDTO of(List<Long> userIds, Message message) {
+        OfflinePushDTO dto = new OfflinePushDTO();
+        dto.setUserIds(userIds);
+        dto.setMessageId(message.getId());
+        dto.setMessageType(message.getMessageType());
+        dto.setContentType(message.getContentType());
+        dto.setSenderId(message.getSenderId());
+        dto.setGroupId(message.getGroupId());
+        dto.setSendTime(message.getSendTime() != null ? message.getSendTime().getTime() : null);
+        return dto;
+    }
+}
@@ -4,6 +4,7 @@ import lombok.Data;
 import org.example.fleets.message.model.dto.MessageSendDTO;
 import org.example.fleets.message.model.enums.MessageStatus;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.util.Date;
@@ -27,6 +28,7 @@ public class Message {
         message.setGroupId(dto.getGroupId());
         message.setContent(dto.getContent());
         message.setExtra(dto.getExtra());
+        message.setClientMsgId(dto.getClientMsgId());
         message.setStatus(MessageStatus.SENT.getCode());
         message.setSendTime(new Date());
         return message;
@@ -63,4 +65,11 @@ public class Message {
     
     // 扩展信息（JSON格式）
     private String extra;
+    
+    // 客户端消息ID（重试去重）
+    private String clientMsgId;
+    
+    // 发起发送的会话ID（不落库，随消息总线传递，多端同步回显时跳过该会话）
+    @Transient
+    private String senderSessionId;
 }
@@ -0,0 +1,44 @@
+package org.example.fleets.message.model.vo;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+import org.example.fleets.common.exception.ErrorCode;
+
+/**
+ * WebSocket 发送回执VO（推送到发送会话的 /user/queue/ack）
+ * 客户端可连续发送多条而不等待回执，按 clientMsgId 匹配本地待发消息
+ */
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class MessageSendAckVO {
+
+    private String clientMsgId;
+
+    private Integer code;  // 0-成功，其余为 ErrorCode
+
+    private String message;  // 失败原因
+
+    private String messageId;
+
+    private Long sequence;
+
+    private Long sendTime;  // 毫秒时间戳
+
+    public static MessageSendAckVO success(String clientMsgId, MessageVO vo) {
+        MessageSendAckVO ack = new MessageSendAckVO();
+        ack.setClientMsgId(clientMsgId);
+        ack.setCode(ErrorCode.SUCCESS.getCode());
+        ack.setMessageId(vo.getId());
+        ack.setSequence(vo.getSequence());
+        ack.setSendTime(vo.getSendTime() != null ? vo.getSendTime().getTime() : null);
+        return ack;
+    }
+
+    public static MessageSendAckVO failed(String clientMsgId, int code, String message) {
+        MessageSendAckVO ack = new MessageSendAckVO();
+        ack.setClientMsgId(clientMsgId);
+        ack.setCode(code);
+        ack.setMessage(message);
+        return ack;
+    }
+}
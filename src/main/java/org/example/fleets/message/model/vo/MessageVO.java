@@ -35,4 +35,6 @@ public class MessageVO {
     private Date sendTime;
     
     private String extra;
+    
+    private String clientMsgId;  // 客户端消息ID，便于客户端匹配本地待发消息
 }
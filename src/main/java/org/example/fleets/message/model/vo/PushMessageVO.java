@@ -0,0 +1,52 @@
+package org.example.fleets.message.model.vo;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+import org.example.fleets.message.model.entity.Message;
+
+/**
+ * WebSocket 推送消息VO
+ * 只包含客户端渲染所需字段，空字段不输出；每条消息只序列化一次，所有接收会话复用
+ */
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PushMessageVO {
+
+    private String id;
+
+    private Integer messageType;  // 1-单聊，2-群聊
+
+    private Integer contentType;  // 1-文本，2-图片，3-语音，4-视频，5-文件
+
+    private Long senderId;
+
+    private Long receiverId;
+
+    private Long groupId;
+
+    private String content;
+
+    private Long sequence;
+
+    private Long sendTime;  // 毫秒时间戳
+
+    private String extra;
+
+    private String clientMsgId;
+
+    public static PushMessageVO from(Message message) {
+        PushMessageVO vo = new PushMessageVO();
+        vo.setId(message.getId());
+        vo.setMessageType(message.getMessageType());
+        vo.setContentType(message.getContentType());
+        vo.setSenderId(message.getSenderId());
+        vo.setReceiverId(message.getReceiverId());
+        vo.setGroupId(message.getGroupId());
+        vo.setContent(message.getContent());
+        vo.setSequence(message.getSequence());
+        vo.setSendTime(message.getSendTime() != null ? message.getSendTime().getTime() : null);
+        vo.setExtra(message.getExtra());
+        vo.setClientMsgId(message.getClientMsgId());
+        return vo;
+    }
+}
@@ -1,24 +1,24 @@
 package org.example.fleets.message.producer;
 
-import org.apache.rocketmq.spring.core.RocketMQTemplate;
 import lombok.RequiredArgsConstructor;
-import org.springframework.messaging.support.MessageBuilder;
+import org.example.fleets.message.bus.MessageBus;
 import org.springframework.stereotype.Component;
 
 /**
  * 消息生产者
+ * 通过 {@link MessageBus} 发布，底层为 RocketMQ 或进程内实现（由 fleets.bus.type 决定）
  */
 @Component
 @RequiredArgsConstructor
 public class MessageProducer {
     
-    private final RocketMQTemplate rocketMQTemplate;
+    private final MessageBus messageBus;
     
     /**
-     * 发送消息到RocketMQ
+     * 发送消息
      */
     public void sendMessage(String topic, Object message) {
-        rocketMQTemplate.convertAndSend(topic, message);
+        messageBus.publish(topic, message);
     }
     
     /**
@@ -26,20 +26,20 @@ public class MessageProducer {
      */
     public void sendMessageWithTag(String topic, String tag, Object message) {
         String destination = topic + ":" + tag;
-        rocketMQTemplate.convertAndSend(destination, message);
+        messageBus.publish(destination, message);
     }
     
     /**
      * 发送同步消息
      */
     public void sendSyncMessage(String topic, Object message) {
-        rocketMQTemplate.syncSend(topic, MessageBuilder.withPayload(message).build());
+        messageBus.publish(topic, message);
     }
     
     /**
      * 发送异步消息
      */
     public void sendAsyncMessage(String topic, Object message) {
-        rocketMQTemplate.asyncSend(topic, MessageBuilder.withPayload(message).build(), null);
+        messageBus.publishAsync(topic, message);
     }
 }
@@ -0,0 +1,20 @@
+package org.example.fleets.message.push;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * 离线推送本地桩实现：只打日志，用于开发测试和未接入推送通道的部署
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "fleets.offline-push", name = "sender", havingValue = "log", matchIfMissing = true)
+public class LogOfflinePushSender implements OfflinePushSender {
+
+    @Override
+    public void send(OfflineNotification notification) {
+        log.info("离线推送: userId={}, title={}, body={}, conversations={}",
+                notification.getUserId(), notification.getTitle(), notification.getBody(), notification.getConversationIds());
+    }
+}
@@ -0,0 +1,29 @@
+package org.example.fleets.message.push;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 离线推送摘要：合并窗口内同一用户的全部离线消息，只发一条
+ */
+@Data
+public class OfflineNotification {
+
+    private Long userId;
+
+    private String title;
+
+    // 摘要文案，如「3 个会话的 5 条新消息」
+    private String body;
+
+    private int messageCount;
+
+    private int conversationCount;
+
+    // 涉及的会话ID，只有一个会话时客户端可直接打开该会话
+    private List<String> conversationIds;
+
+    // 最后一条消息ID
+    private String lastMessageId;
+}
@@ -0,0 +1,192 @@
+package org.example.fleets.message.push;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.example.fleets.cache.redis.RedisService;
+import org.example.fleets.common.config.properties.FleetsProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 离线推送合并器（按用户）
+ *
+ * 用户的第一条离线消息到达后开启合并窗口，窗口内的后续消息只累加计数；窗口结束时发出一条摘要。
+ * 发出前在 Redis 上 SET NX 一个最小间隔的限频 Key（集群共享），仍在间隔内则继续合并，到间隔结束再发，
+ * 因此活跃群聊对一个离线成员每个间隔最多产生一条推送，且不会丢失计数。合并状态只在本节点内存中。
+ * 指标：fleets.offline.push{result=sent|rate_limited|dropped|failed}、fleets.offline.push.pending
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "fleets.offline-push", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class OfflinePushCoalescer {
+
+    private final OfflinePushSender sender;
+    private final RedisService redisService;
+    private final FleetsProperties fleetsProperties;
+    private final Map<Long, Pending> pending = new ConcurrentHashMap<>();
+    private final ScheduledThreadPoolExecutor scheduler;
+    private final Counter sent;
+    private final Counter rateLimited;
+    private final Counter dropped;
+    private final Counter failed;
+
+    public OfflinePushCoalescer(OfflinePushSender sender, RedisService redisService,
+                                FleetsProperties fleetsProperties, MeterRegistry meterRegistry) {
+        this.sender = sender;
+        this.redisService = redisService;
+        this.fleetsProperties = fleetsProperties;
+        this.scheduler = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "offline-push");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.sent = Counter.builder("fleets.offline.push").tag("result", "sent").register(meterRegistry);
+        this.rateLimited = Counter.builder("fleets.offline.push").tag("result", "rate_limited").register(meterRegistry);
+        this.dropped = Counter.builder("fleets.offline.push").tag("result", "dropped").register(meterRegistry);
+        this.failed = Counter.builder("fleets.offline.push").tag("result", "failed").register(meterRegistry);
+        Gauge.builder("fleets.offline.push.pending", pending, Map::size).register(meterRegistry);
+    }
+
+    /**
+     * 记入一条离线消息，窗口结束后合并发出
+     */
+    public void offer(Long userId, String conversationId, String messageId) {
+        while (true) {
+            Pending p = pending.get(userId);
+            if (p == null) {
+                if (pending.size() >= fleetsProperties.getOfflinePush().getMaxPendingUsers()) {
+                    dropped.increment();
+                    return;
+                }
+                p = pending.computeIfAbsent(userId, k -> new Pending());
+            }
+            synchronized (p) {
+                if (p.closed) {
+                    continue;
+                }
+                p.messageCount++;
+                p.conversationIds.add(conversationId);
+                p.lastMessageId = messageId;
+                if (!p.scheduled) {
+                    p.scheduled = true;
+                    schedule(userId, p, fleetsProperties.getOfflinePush().getCoalesceWindowMillis());
+                }
+                return;
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        // 尽力发出仍在合并中的摘要（仍受限频约束）
+        for (Map.Entry<Long, Pending> entry : pending.entrySet()) {
+            flush(entry.getKey(), entry.getValue(), false);
+        }
+    }
+
+    int pendingCount(Long userId) {
+        Pending p = pending.get(userId);
+        if (p == null) {
+            return 0;
+        }
+        synchronized (p) {
+            return p.messageCount;
+        }
+    }
+
+    private void schedule(Long userId, Pending p, long delayMillis) {
+        scheduler.schedule(() -> flush(userId, p, true), delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void flush(Long userId, Pending p, boolean retry) {
+        OfflineNotification notification;
+        synchronized (p) {
+            if (p.closed) {
+                return;
+            }
+            if (!tryAcquireRate(userId)) {
+                rateLimited.increment();
+                if (retry) {
+                    schedule(userId, p, retryDelayMillis(userId));
+                }
+                return;
+            }
+            p.closed = true;
+            pending.remove(userId, p);
+            notification = toNotification(userId, p);
+        }
+        try {
+            sender.send(notification);
+            sent.increment();
+        } catch (RuntimeException e) {
+            failed.increment();
+            log.warn("离线推送发送失败: userId={}, messages={}", userId, notification.getMessageCount(), e);
+        }
+    }
+
+    private boolean tryAcquireRate(Long userId) {
+        long minInterval = fleetsProperties.getOfflinePush().getMinIntervalSeconds();
+        if (minInterval <= 0) {
+            return true;
+        }
+        try {
+            return Boolean.TRUE.equals(redisService.setIfAbsent(rateKey(userId), "1", minInterval, TimeUnit.SECONDS));
+        } catch (Exception e) {
+            // Redis 不可用时不阻塞推送，本节点的合并窗口仍能限制推送频率
+            log.warn("离线推送限频检查失败，直接发送: userId={}", userId, e);
+            return true;
+        }
+    }
+
+    private long retryDelayMillis(Long userId) {
+        long window = fleetsProperties.getOfflinePush().getCoalesceWindowMillis();
+        try {
+            Long ttl = redisService.getExpire(rateKey(userId));
+            if (ttl != null && ttl > 0) {
+                return TimeUnit.SECONDS.toMillis(ttl) + window;
+            }
+        } catch (Exception e) {
+            log.debug("读取离线推送限频剩余时间失败: userId={}", userId, e);
+        }
+        return window;
+    }
+
+    private String rateKey(Long userId) {
+        return fleetsProperties.getRedis().getOfflinePushRateKeyPrefix() + userId;
+    }
+
+    private static OfflineNotification toNotification(Long userId, Pending p) {
+        int conversations = p.conversationIds.size();
+        OfflineNotification notification = new OfflineNotification();
+        notification.setUserId(userId);
+        notification.setTitle("新消息");
+        notification.setBody(conversations > 1
+                ? String.format("%d 个会话的 %d 条新消息", conversations, p.messageCount)
+                : String.format("%d 条新消息", p.messageCount));
+        notification.setMessageCount(p.messageCount);
+        notification.setConversationCount(conversations);
+        notification.setConversationIds(new ArrayList<>(p.conversationIds));
+        notification.setLastMessageId(p.lastMessageId);
+        return notification;
+    }
+
+    private static class Pending {
+        int messageCount;
+        final Set<String> conversationIds = new LinkedHashSet<>();
+        String lastMessageId;
+        boolean scheduled;
+        boolean closed;
+    }
+}
@@ -0,0 +1,11 @@
+package org.example.fleets.message.push;
+
+/**
+ * 离线推送通道（SPI）
+ * 接入 APNs/FCM/厂商通道时实现该接口并注册为 Bean，同时将 fleets.offline-push.sender 改为对应名称以停用本地桩实现。
+ * 在合并器的调度线程上调用，实现应尽快返回（耗时的网络请求请自行异步化）。
+ */
+public interface OfflinePushSender {
+
+    void send(OfflineNotification notification);
+}
@@ -0,0 +1,34 @@
+package org.example.fleets.message.service;
+
+import org.example.fleets.message.model.dto.AnalyticsEventDTO;
+
+import java.time.LocalDate;
+
+/**
+ * 统计服务接口
+ * 事件先在本节点聚合（分钟/小时/天计数 + 按天去重用户），定时批量写入 Redis
+ */
+public interface AnalyticsService {
+    
+    /**
+     * 记录一条统计事件（仅更新本地聚合，不访问 Redis）
+     */
+    void record(AnalyticsEventDTO event);
+    
+    /**
+     * 将本地聚合结果一次性 Pipeline 写入 Redis
+     * 定时任务调用
+     */
+    void flush();
+    
+    /**
+     * 查询某事件类型某天的事件数
+     */
+    long getDailyCount(String eventType, LocalDate date);
+    
+    /**
+     * 查询某事件类型在日期区间内的去重用户数（HyperLogLog 估算，from/to 均包含）
+     * 单日即 DAU，自然月区间即 MAU
+     */
+    long countUniqueUsers(String eventType, LocalDate from, LocalDate to);
+}
@@ -1,6 +1,6 @@
 package org.example.fleets.message.service;
 
-import org.example.fleets.message.model.dto.MessageAckDTO;
+import org.example.fleets.message.model.entity.Message;
 
 import java.util.List;
 
@@ -9,6 +9,15 @@ import java.util.List;
  */
 public interface MessageAckService {
     
+    /**
+     * 登记一条已推送、等待客户端确认的消息
+     * 超时未确认时按退避策略重推，多次失败后仅保留在信箱
+     * 
+     * @param userId 接收者ID
+     * @param message 已推送的消息
+     */
+    void trackDelivery(Long userId, Message message);
+    
     /**
      * 处理送达确认
      * 
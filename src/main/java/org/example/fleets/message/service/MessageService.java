@@ -16,6 +16,13 @@ public interface MessageService {
      */
     MessageVO sendMessage(Long senderId, MessageSendDTO sendDTO);
     
+    /**
+     * 从 WebSocket/连接层会话发送消息，回显到发送者其他设备时跳过该会话
+     *
+     * @param senderSessionId 发起发送的会话ID，为 null 时回显到发送者所有会话（如 HTTP 发送）
+     */
+    MessageVO sendMessage(Long senderId, MessageSendDTO sendDTO, String senderSessionId);
+    
     /**
      * 撤回消息
      */
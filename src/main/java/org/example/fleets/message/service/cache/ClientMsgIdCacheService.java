@@ -0,0 +1,68 @@
+package org.example.fleets.message.service.cache;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.fleets.cache.redis.RedisService;
+import org.example.fleets.common.config.properties.FleetsProperties;
+import org.redisson.api.RMapCache;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 客户端消息ID去重缓存
+ *
+ * 每个发送者一个 Hash：clientMsgId -> messageId，发送中的记录值为 PENDING。
+ * 每个条目单独过期：PENDING 只保留 clientMsgIdPendingTtlSeconds（节点在发送中途崩溃时占位不会一直挡住重试），
+ * 发送成功后的记录保留 clientMsgIdTtlSeconds，持续发送的用户的 Hash 不会无限增长。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ClientMsgIdCacheService {
+
+    private static final String CLIENT_MSG_ID_KEY = "message:client-msg:";
+
+    /**
+     * 发送中占位值
+     */
+    public static final String PENDING = "PENDING";
+
+    private final RedisService redisService;
+    private final FleetsProperties fleetsProperties;
+
+    /**
+     * 认领 clientMsgId
+     *
+     * @return null 表示首次发送、认领成功；PENDING 表示相同请求仍在处理；否则为已生成的 messageId
+     */
+    public String claim(Long senderId, String clientMsgId) {
+        RMapCache<String, String> map = redisService.getStringMapCache(key(senderId));
+        return map.putIfAbsent(clientMsgId, PENDING,
+                fleetsProperties.getMessage().getClientMsgIdPendingTtlSeconds(), TimeUnit.SECONDS);
+    }
+
+    /**
+     * 发送成功：记录对应的 messageId，供重试直接返回
+     */
+    public void complete(Long senderId, String clientMsgId, String messageId) {
+        RMapCache<String, String> map = redisService.getStringMapCache(key(senderId));
+        map.fastPut(clientMsgId, messageId, fleetsProperties.getMessage().getClientMsgIdTtlSeconds(), TimeUnit.SECONDS);
+    }
+
+    /**
+     * 发送失败：释放认领，允许客户端重试
+     */
+    public void release(Long senderId, String clientMsgId) {
+        try {
+            RMapCache<String, String> map = redisService.getStringMapCache(key(senderId));
+            map.fastRemove(clientMsgId);
+        } catch (Exception e) {
+            log.warn("释放客户端消息ID失败: senderId={}, clientMsgId={}", senderId, clientMsgId, e);
+        }
+    }
+
+    private String key(Long senderId) {
+        return CLIENT_MSG_ID_KEY + senderId;
+    }
+}
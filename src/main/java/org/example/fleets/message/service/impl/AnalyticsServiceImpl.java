@@ -0,0 +1,257 @@
+package org.example.fleets.message.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.fleets.cache.redis.RedisService;
+import org.example.fleets.common.config.properties.FleetsProperties;
+import org.example.fleets.message.model.dto.AnalyticsEventDTO;
+import org.example.fleets.message.service.AnalyticsService;
+import org.redisson.api.RAtomicLongAsync;
+import org.redisson.api.RBatch;
+import org.redisson.api.RFuture;
+import org.redisson.api.RHyperLogLogAsync;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 统计服务实现类
+ * 
+ * Key 规则：
+ * - 计数：analytics:count:{eventType}:{yyyyMMddHHmm | yyyyMMddHH | yyyyMMdd}
+ * - 去重用户：analytics:uv:{eventType}:{yyyyMMdd}（HyperLogLog）
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AnalyticsServiceImpl implements AnalyticsService {
+
+    private static final String COUNT_KEY_PREFIX = "analytics:count:";
+    private static final String UV_KEY_PREFIX = "analytics:uv:";
+
+    private final RedisService redisService;
+    private final FleetsProperties fleetsProperties;
+
+    /**
+     * 按粒度分桶的本地计数器，Key 为 Redis 计数 Key；只在 ConcurrentHashMap.compute 内 increment，flush 时整体摘除
+     */
+    private final Map<Granularity, ConcurrentHashMap<String, LongAdder>> counters = initCounters();
+
+    /**
+     * 待写入的去重用户，Key 为 HyperLogLog Key；只在 ConcurrentHashMap.compute 内修改 Set，flush 时整体摘除
+     */
+    private final ConcurrentHashMap<String, Set<String>> pendingUniques = new ConcurrentHashMap<>();
+
+    @Override
+    public void record(AnalyticsEventDTO event) {
+        String eventType = event.getEventType();
+        LocalDateTime time = event.getTimestamp() != null
+                ? LocalDateTime.ofInstant(event.getTimestamp().toInstant(), ZoneId.systemDefault())
+                : LocalDateTime.now();
+
+        for (Granularity granularity : Granularity.values()) {
+            String key = countKey(eventType, granularity.format(time));
+            counters.get(granularity).compute(key, (k, adder) -> {
+                LongAdder value = adder != null ? adder : new LongAdder();
+                value.increment();
+                return value;
+            });
+        }
+
+        if (event.getUserId() != null) {
+            String uvKey = uvKey(eventType, Granularity.DAY.format(time));
+            String userId = String.valueOf(event.getUserId());
+            pendingUniques.compute(uvKey, (k, users) -> {
+                Set<String> set = users != null ? users : new HashSet<>();
+                set.add(userId);
+                return set;
+            });
+        }
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${fleets.analytics.flush-interval-millis:5000}")
+    public void flush() {
+        FleetsProperties.AnalyticsConfig config = fleetsProperties.getAnalytics();
+        RBatch batch = redisService.createBatch();
+        Map<Granularity, Map<String, Long>> flushedCounts = new EnumMap<>(Granularity.class);
+        Map<String, Set<String>> flushedUniques = new HashMap<>();
+        // 每个 Key 的写入结果，批量写入失败时只回灌未成功的 Key
+        Map<String, RFuture<?>> writes = new HashMap<>();
+
+        for (Granularity granularity : Granularity.values()) {
+            ConcurrentHashMap<String, LongAdder> bucketCounters = counters.get(granularity);
+            Duration ttl = granularity.ttl(config);
+            Map<String, Long> flushed = new HashMap<>();
+            for (String key : new ArrayList<>(bucketCounters.keySet())) {
+                // 摘除与 record 的 compute 互斥，摘除后不会再有 increment 落到旧计数器上；之后的事件进入新计数器
+                LongAdder adder = bucketCounters.remove(key);
+                long delta = adder != null ? adder.sum() : 0L;
+                if (delta == 0) {
+                    continue;
+                }
+                flushed.put(key, delta);
+                RAtomicLongAsync counter = batch.getAtomicLong(key);
+                writes.put(key, counter.addAndGetAsync(delta));
+                if (ttl != null) {
+                    counter.expireAsync(ttl);
+                }
+            }
+            flushedCounts.put(granularity, flushed);
+        }
+
+        Duration uvTtl = Duration.ofDays(config.getUniqueUsersExpireDays());
+        for (String key : new ArrayList<>(pendingUniques.keySet())) {
+            Set<String> users = pendingUniques.remove(key);
+            if (users == null || users.isEmpty()) {
+                continue;
+            }
+            flushedUniques.put(key, users);
+            RHyperLogLogAsync<String> hll = batch.getHyperLogLog(key, StringCodec.INSTANCE);
+            writes.put(key, hll.addAllAsync(users));
+            hll.expireAsync(uvTtl);
+        }
+
+        int counterKeys = flushedCounts.values().stream().mapToInt(Map::size).sum();
+        if (counterKeys == 0 && flushedUniques.isEmpty()) {
+            return;
+        }
+        try {
+            batch.execute();
+            log.debug("统计数据已批量写入: counterKeys={}, uvKeys={}", counterKeys, flushedUniques.size());
+        } catch (Exception e) {
+            log.error("统计数据批量写入失败，回灌本地等待下次重试: counterKeys={}, uvKeys={}",
+                    counterKeys, flushedUniques.size(), e);
+            restore(flushedCounts, flushedUniques, writes);
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    @Override
+    public long getDailyCount(String eventType, LocalDate date) {
+        return redisService.getCounter(countKey(eventType, date.format(Granularity.DAY.formatter)));
+    }
+
+    @Override
+    public long countUniqueUsers(String eventType, LocalDate from, LocalDate to) {
+        List<String> keys = new ArrayList<>();
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            keys.add(uvKey(eventType, day.format(Granularity.DAY.formatter)));
+        }
+        if (keys.isEmpty()) {
+            return 0L;
+        }
+        String first = keys.get(0);
+        if (keys.size() == 1) {
+            return redisService.getHyperLogLog(first).count();
+        }
+        String[] others = keys.subList(1, keys.size()).toArray(new String[0]);
+        return redisService.getHyperLogLog(first).countWith(others);
+    }
+
+    // ==================== 私有方法 ====================
+
+    /**
+     * 回灌写入未成功的 Key；已成功写入的 Key 不回灌，否则下次 flush 会重复累加
+     * （过期时间设置失败不影响计数，不回灌）
+     */
+    private void restore(Map<Granularity, Map<String, Long>> flushedCounts, Map<String, Set<String>> flushedUniques,
+                         Map<String, RFuture<?>> writes) {
+        for (Map.Entry<Granularity, Map<String, Long>> entry : flushedCounts.entrySet()) {
+            ConcurrentHashMap<String, LongAdder> bucketCounters = counters.get(entry.getKey());
+            for (Map.Entry<String, Long> count : entry.getValue().entrySet()) {
+                if (isWritten(writes.get(count.getKey()))) {
+                    continue;
+                }
+                bucketCounters.compute(count.getKey(), (k, adder) -> {
+                    LongAdder value = adder != null ? adder : new LongAdder();
+                    value.add(count.getValue());
+                    return value;
+                });
+            }
+        }
+        for (Map.Entry<String, Set<String>> entry : flushedUniques.entrySet()) {
+            if (isWritten(writes.get(entry.getKey()))) {
+                continue;
+            }
+            pendingUniques.compute(entry.getKey(), (k, users) -> {
+                Set<String> set = users != null ? users : new HashSet<>();
+                set.addAll(entry.getValue());
+                return set;
+            });
+        }
+    }
+
+    private static boolean isWritten(RFuture<?> write) {
+        return write != null && write.isSuccess();
+    }
+
+    private static String countKey(String eventType, String bucket) {
+        return COUNT_KEY_PREFIX + eventType + ":" + bucket;
+    }
+
+    private static String uvKey(String eventType, String day) {
+        return UV_KEY_PREFIX + eventType + ":" + day;
+    }
+
+    private static Map<Granularity, ConcurrentHashMap<String, LongAdder>> initCounters() {
+        Map<Granularity, ConcurrentHashMap<String, LongAdder>> map = new EnumMap<>(Granularity.class);
+        for (Granularity granularity : Granularity.values()) {
+            map.put(granularity, new ConcurrentHashMap<>());
+        }
+        return map;
+    }
+
+    /**
+     * 计数粒度
+     */
+    private enum Granularity {
+        MINUTE("yyyyMMddHHmm"),
+        HOUR("yyyyMMddHH"),
+        DAY("yyyyMMdd");
+
+        private final DateTimeFormatter formatter;
+
+        Granularity(String pattern) {
+            this.formatter = DateTimeFormatter.ofPattern(pattern);
+        }
+
+        String format(LocalDateTime time) {
+            return time.format(formatter);
+        }
+
+        /**
+         * 过期时间，null 表示不过期
+         */
+        Duration ttl(FleetsProperties.AnalyticsConfig config) {
+            switch (this) {
+                case MINUTE:
+                    return Duration.ofHours(config.getMinuteBucketExpireHours());
+                case HOUR:
+                    return Duration.ofDays(config.getHourBucketExpireDays());
+                default:
+                    return config.getDayBucketExpireDays() > 0 ? Duration.ofDays(config.getDayBucketExpireDays()) : null;
+            }
+        }
+    }
+}
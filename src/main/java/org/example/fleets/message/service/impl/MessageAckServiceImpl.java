@@ -1,52 +1,336 @@
 package org.example.fleets.message.service.impl;
 
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.example.fleets.message.repository.MessageRepository;
+import org.example.fleets.common.config.properties.FleetsProperties;
+import org.example.fleets.mailbox.service.MailboxService;
+import org.example.fleets.message.model.entity.Message;
 import org.example.fleets.message.service.MessageAckService;
+import org.example.fleets.websocket.service.WebSocketService;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 消息确认服务实现类
- * 
- * TODO: 实现消息确认相关功能
+ *
+ * 每个用户维护一个有界的待确认窗口，超时由哈希时间轮驱动：
+ * 1. 推送后登记，客户端送达/已读 ACK 时清除
+ * 2. 超时未确认按指数退避重推，超过最大次数后不再重推，仅保留在信箱，由客户端同步补齐
+ * 3. 窗口超出上限时最早的消息直接转为仅信箱，保证内存有界
+ *
+ * 窗口的所有修改都在 ConcurrentHashMap 的 compute 系列方法内完成，空窗口随之移除
  */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class MessageAckServiceImpl implements MessageAckService {
-    
-    private final MessageRepository messageRepository;
-    
+
+    private static final int RETRY_THREADS = 2;
+    private static final int RETRY_QUEUE_CAPACITY = 10000;
+
+    private final MailboxService mailboxService;
+    private final WebSocketService webSocketService;
+    private final FleetsProperties fleetsProperties;
+
+    /**
+     * userId -> 待确认窗口（按登记顺序）
+     */
+    private final ConcurrentHashMap<Long, PendingWindow> windows = new ConcurrentHashMap<>();
+
+    private HashedWheelTimer timer;
+
+    /**
+     * 重推在独立线程执行，避免阻塞时间轮的 tick 线程
+     */
+    private ThreadPoolExecutor retryExecutor;
+
+    @PostConstruct
+    public void init() {
+        FleetsProperties.AckConfig config = fleetsProperties.getAck();
+        timer = new HashedWheelTimer(namedDaemon("ack-timing-wheel"),
+                config.getWheelTickMillis(), TimeUnit.MILLISECONDS, config.getWheelSize());
+        AtomicInteger index = new AtomicInteger();
+        retryExecutor = new ThreadPoolExecutor(RETRY_THREADS, RETRY_THREADS, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(RETRY_QUEUE_CAPACITY),
+                r -> namedDaemon("ack-retry-" + index.getAndIncrement()).newThread(r),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (timer != null) {
+            timer.stop();
+        }
+        if (retryExecutor != null) {
+            retryExecutor.shutdownNow();
+        }
+    }
+
+    @Override
+    public void trackDelivery(Long userId, Message message) {
+        if (userId == null || message == null || message.getId() == null) {
+            return;
+        }
+        String messageId = message.getId();
+        int maxPending = Math.max(1, fleetsProperties.getAck().getMaxPendingPerUser());
+        List<String> evicted = new ArrayList<>(1);
+
+        windows.compute(userId, (key, window) -> {
+            PendingWindow target = window != null ? window : new PendingWindow();
+            if (target.entries.containsKey(messageId)) {
+                return target;
+            }
+            if (target.entries.size() >= maxPending) {
+                Iterator<Map.Entry<String, PendingAck>> eldest = target.entries.entrySet().iterator();
+                Map.Entry<String, PendingAck> entry = eldest.next();
+                entry.getValue().cancel();
+                eldest.remove();
+                evicted.add(entry.getKey());
+            }
+            PendingAck pending = new PendingAck(message);
+            target.entries.put(messageId, pending);
+            schedule(userId, messageId, pending);
+            return target;
+        });
+
+        for (String evictedId : evicted) {
+            moveToMailboxOnly(userId, evictedId, "窗口已满");
+        }
+    }
+
     @Override
     public void handleDeliveredAck(Long userId, String messageId) {
-        // TODO: 实现送达确认逻辑
-        log.warn("送达确认功能未实现: userId={}, messageId={}", userId, messageId);
+        if (clear(userId, messageId)) {
+            log.debug("收到送达确认: userId={}, messageId={}", userId, messageId);
+        }
     }
-    
+
     @Override
     public void handleReadAck(Long userId, String messageId) {
-        // TODO: 实现已读确认逻辑
-        log.warn("已读确认功能未实现: userId={}, messageId={}", userId, messageId);
+        clear(userId, messageId);
+        mailboxService.markAsReadByMessageId(userId, messageId);
+        log.debug("收到已读确认: userId={}, messageId={}", userId, messageId);
     }
-    
+
     @Override
     public void batchHandleReadAck(Long userId, List<String> messageIds) {
-        // TODO: 实现批量已读确认逻辑
-        log.warn("批量已读确认功能未实现: userId={}, count={}", userId, messageIds.size());
+        if (messageIds == null || messageIds.isEmpty()) {
+            return;
+        }
+        for (String messageId : messageIds) {
+            handleReadAck(userId, messageId);
+        }
+        log.debug("批量已读确认: userId={}, count={}", userId, messageIds.size());
     }
-    
+
+    /**
+     * 兜底：为未能挂上时间轮的待确认消息重新调度（如时间轮拒绝或重推队列已满）
+     */
     @Override
+    @Scheduled(fixedDelayString = "${fleets.ack.sweep-interval-millis:30000}")
     public void retryFailedMessages() {
-        // TODO: 实现消息重试逻辑
-        log.debug("消息重试功能未实现");
+        int rescheduled = 0;
+        for (Long userId : windows.keySet()) {
+            int[] count = new int[1];
+            windows.computeIfPresent(userId, (key, window) -> {
+                for (Map.Entry<String, PendingAck> entry : window.entries.entrySet()) {
+                    PendingAck pending = entry.getValue();
+                    if (pending.timeout == null) {
+                        schedule(userId, entry.getKey(), pending);
+                        count[0]++;
+                    }
+                }
+                return window;
+            });
+            rescheduled += count[0];
+        }
+        if (rescheduled > 0) {
+            log.info("重新调度待确认消息: count={}", rescheduled);
+        }
     }
-    
+
+    /**
+     * 兜底：清理登记时间超过上限的待确认消息，转为仅信箱
+     */
     @Override
+    @Scheduled(fixedDelayString = "${fleets.ack.sweep-interval-millis:30000}")
     public void checkTimeoutMessages() {
-        // TODO: 实现超时检查逻辑
-        log.debug("超时检查功能未实现");
+        long deadline = System.currentTimeMillis() - fleetsProperties.getAck().getMaxPendingMillis();
+        for (Long userId : windows.keySet()) {
+            List<String> expired = new ArrayList<>();
+            windows.computeIfPresent(userId, (key, window) -> {
+                Iterator<Map.Entry<String, PendingAck>> it = window.entries.entrySet().iterator();
+                while (it.hasNext()) {
+                    Map.Entry<String, PendingAck> entry = it.next();
+                    if (entry.getValue().trackedAt < deadline) {
+                        entry.getValue().cancel();
+                        it.remove();
+                        expired.add(entry.getKey());
+                    }
+                }
+                return window.entries.isEmpty() ? null : window;
+            });
+            for (String messageId : expired) {
+                moveToMailboxOnly(userId, messageId, "等待超时");
+            }
+        }
+    }
+
+    /**
+     * 当前待确认的消息数（用于监控与测试）
+     */
+    public int getPendingCount(Long userId) {
+        PendingWindow window = windows.get(userId);
+        return window == null ? 0 : window.entries.size();
+    }
+
+    /**
+     * 时间轮到期：转交重推线程
+     */
+    void onTimeout(Long userId, String messageId) {
+        try {
+            retryExecutor.execute(() -> retry(userId, messageId));
+        } catch (RejectedExecutionException e) {
+            windows.computeIfPresent(userId, (key, window) -> {
+                PendingAck pending = window.entries.get(messageId);
+                if (pending != null) {
+                    pending.timeout = null;
+                }
+                return window;
+            });
+            log.warn("重推队列已满，等待兜底巡检: userId={}, messageId={}", userId, messageId);
+        }
+    }
+
+    /**
+     * 重推一次；超过最大次数则转为仅信箱
+     */
+    void retry(Long userId, String messageId) {
+        int maxRetries = fleetsProperties.getAck().getMaxRetries();
+        Message[] toPush = new Message[1];
+        boolean[] exhausted = new boolean[1];
+
+        windows.computeIfPresent(userId, (key, window) -> {
+            PendingAck pending = window.entries.get(messageId);
+            if (pending == null) {
+                return window;
+            }
+            if (pending.attempts >= maxRetries) {
+                window.entries.remove(messageId);
+                exhausted[0] = true;
+                return window.entries.isEmpty() ? null : window;
+            }
+            pending.attempts++;
+            schedule(userId, messageId, pending);
+            toPush[0] = pending.message;
+            return window;
+        });
+
+        if (exhausted[0]) {
+            moveToMailboxOnly(userId, messageId, "重试次数耗尽");
+            return;
+        }
+        if (toPush[0] != null) {
+            try {
+                webSocketService.sendMessageToUser(userId, toPush[0]);
+                log.debug("重推未确认消息: userId={}, messageId={}", userId, messageId);
+            } catch (Exception e) {
+                log.warn("重推消息失败，等待下次重试: userId={}, messageId={}", userId, messageId, e);
+            }
+        }
+    }
+
+    /**
+     * 按已重试次数计算等待时间：initial * 2^attempts，封顶 maxBackoff
+     */
+    long backoffMillis(int attempts) {
+        FleetsProperties.AckConfig config = fleetsProperties.getAck();
+        long delay = config.getInitialTimeoutMillis() << Math.min(attempts, 20);
+        return Math.min(delay, config.getMaxBackoffMillis());
+    }
+
+    private boolean clear(Long userId, String messageId) {
+        if (userId == null || messageId == null) {
+            return false;
+        }
+        boolean[] removed = new boolean[1];
+        windows.computeIfPresent(userId, (key, window) -> {
+            PendingAck pending = window.entries.remove(messageId);
+            if (pending != null) {
+                pending.cancel();
+                removed[0] = true;
+            }
+            return window.entries.isEmpty() ? null : window;
+        });
+        return removed[0];
+    }
+
+    /**
+     * 在 compute 内调用：挂上时间轮，失败时保留条目等待兜底巡检
+     */
+    private void schedule(Long userId, String messageId, PendingAck pending) {
+        try {
+            pending.timeout = timer.newTimeout(t -> onTimeout(userId, messageId),
+                    backoffMillis(pending.attempts), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException | IllegalStateException e) {
+            pending.timeout = null;
+            log.warn("时间轮调度失败，等待兜底巡检: userId={}, messageId={}", userId, messageId);
+        }
+    }
+
+    /**
+     * 消息已落信箱，不再主动推送，客户端重连或同步时拉取
+     */
+    private void moveToMailboxOnly(Long userId, String messageId, String reason) {
+        log.info("消息未确认，转为仅信箱: userId={}, messageId={}, reason={}", userId, messageId, reason);
+    }
+
+    private static ThreadFactory namedDaemon(String name) {
+        return r -> {
+            Thread thread = new Thread(r, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * 单个用户的待确认窗口，仅在 windows 的 compute 回调内访问
+     */
+    private static final class PendingWindow {
+        private final LinkedHashMap<String, PendingAck> entries = new LinkedHashMap<>();
+    }
+
+    private static final class PendingAck {
+        private final Message message;
+        private final long trackedAt = System.currentTimeMillis();
+        private int attempts;
+        private Timeout timeout;
+
+        private PendingAck(Message message) {
+            this.message = message;
+        }
+
+        private void cancel() {
+            if (timeout != null) {
+                timeout.cancel();
+            }
+        }
     }
 }
@@ -0,0 +1,106 @@
+package org.example.fleets.message.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.fleets.cache.redis.RedisService;
+import org.example.fleets.common.config.properties.FleetsProperties;
+import org.example.fleets.group.service.GroupService;
+import org.example.fleets.message.model.entity.Message;
+import org.example.fleets.message.repository.MessageRepository;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 发送修复任务：消费 message:repair，重跑失败的落库阶段，全部成功后再发布到消息总线
+ * 集群内通过分布式锁保证同一时刻只有一个节点在修复；记录超过静默期才处理，避免与仍在后台执行的超时阶段重复写入
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MessageSendRepairTask {
+
+    private static final String LOCK_KEY = "lock:message:repair";
+
+    private final RedisService redisService;
+    private final MessageRepository messageRepository;
+    private final GroupService groupService;
+    private final MessageServiceImpl messageService;
+    private final SendStageExecutor sendStageExecutor;
+    private final FleetsProperties fleetsProperties;
+
+    @Scheduled(fixedDelayString = "${fleets.message.repair-interval-millis:30000}")
+    public void repair() {
+        long interval = fleetsProperties.getMessage().getRepairIntervalMillis();
+        if (!redisService.tryLock(LOCK_KEY, 0, interval, TimeUnit.MILLISECONDS)) {
+            return;
+        }
+        try {
+            Map<String, String> entries = redisService.getStringMap(SendStageExecutor.REPAIR_KEY).readAllMap();
+            long threshold = System.currentTimeMillis() - fleetsProperties.getMessage().getRepairGraceMillis();
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                try {
+                    if (SendStageExecutor.parseRecordedAt(entry.getValue()) <= threshold) {
+                        repairOne(entry.getKey(), entry.getValue());
+                    }
+                } catch (Exception e) {
+                    log.error("修复发送失败: messageId={}, record={}", entry.getKey(), entry.getValue(), e);
+                }
+            }
+        } catch (Exception e) {
+            log.error("发送修复任务执行失败", e);
+        } finally {
+            redisService.unlock(LOCK_KEY);
+        }
+    }
+
+    void repairOne(String messageId, String record) {
+        Message message = messageRepository.findById(messageId).orElse(null);
+        if (message == null) {
+            log.warn("待修复消息不存在，丢弃修复记录: messageId={}", messageId);
+            sendStageExecutor.clearRepair(messageId);
+            return;
+        }
+        int attempts = SendStageExecutor.parseAttempts(record) + 1;
+        List<String> stageNames = SendStageExecutor.parseStages(record);
+        List<Long> memberIds = message.getMessageType() == 1 ? null : groupService.getGroupMemberIds(message.getGroupId());
+        LinkedHashMap<String, Runnable> stages = messageService.buildStages(message, memberIds, true);
+
+        List<String> failed = new ArrayList<>();
+        for (String name : stageNames) {
+            Runnable stage = stages.get(name);
+            if (stage == null) {
+                // publish 或已不存在的阶段，无需重跑
+                continue;
+            }
+            try {
+                stage.run();
+            } catch (Exception e) {
+                failed.add(name);
+                log.warn("修复阶段失败: messageId={}, stage={}, attempts={}", messageId, name, attempts, e);
+            }
+        }
+        if (failed.isEmpty()) {
+            try {
+                messageService.publish(message);
+                sendStageExecutor.clearRepair(messageId);
+                log.info("消息修复完成并已发布: messageId={}, stages={}", messageId, stageNames);
+                return;
+            } catch (Exception e) {
+                failed.add(SendStageExecutor.STAGE_PUBLISH);
+                log.warn("修复后发布失败: messageId={}, attempts={}", messageId, attempts, e);
+            }
+        }
+        if (attempts >= fleetsProperties.getMessage().getRepairMaxAttempts()) {
+            sendStageExecutor.clearRepair(messageId);
+            log.error("消息修复超过最大次数，放弃: messageId={}, stages={}", messageId, failed);
+            return;
+        }
+        sendStageExecutor.recordRepair(messageId, failed, attempts);
+    }
+}
@@ -9,6 +9,8 @@ import org.example.fleets.common.util.Assert;
 import org.example.fleets.common.util.PageResult;
 import org.example.fleets.group.service.GroupService;
 import org.example.fleets.mailbox.service.MailboxService;
+import org.example.fleets.mailbox.service.SequenceService;
+import org.example.fleets.message.bus.MessageTopics;
 import org.example.fleets.message.converter.MessageConverter;
 import org.example.fleets.message.model.dto.MessageSendDTO;
 import org.example.fleets.message.model.entity.Message;
@@ -17,12 +19,15 @@ import org.example.fleets.message.model.vo.MessageVO;
 import org.example.fleets.message.producer.MessageProducer;
 import org.example.fleets.message.repository.MessageRepository;
 import org.example.fleets.message.service.MessageService;
+import org.example.fleets.message.service.cache.ClientMsgIdCacheService;
 import org.example.fleets.user.mapper.UserMapper;
 import org.example.fleets.user.model.entity.User;
 import org.example.fleets.user.service.FriendshipService;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
 
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -34,8 +39,6 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class MessageServiceImpl implements MessageService {
 
-    private static final String TOPIC_IM_MESSAGE = "im-message-topic";
-
     private final MessageRepository messageRepository;
     private final MailboxService mailboxService;
     private final ConversationService conversationService;
@@ -44,15 +47,24 @@ public class MessageServiceImpl implements MessageService {
     private final GroupService groupService;
     private final FriendshipService friendshipService;
     private final UserMapper userMapper;
+    private final SendStageExecutor sendStageExecutor;
+    private final ClientMsgIdCacheService clientMsgIdCacheService;
+    private final SequenceService sequenceService;
 
     @Override
     public MessageVO sendMessage(Long senderId, MessageSendDTO sendDTO) {
-        // 1. 参数校验
+        return sendMessage(senderId, sendDTO, null);
+    }
+
+    @Override
+    public MessageVO sendMessage(Long senderId, MessageSendDTO sendDTO, String senderSessionId) {
+        // 1. 参数校验（群成员列表只解析一次，后续阶段复用）
         Assert.notNull(sendDTO.getMessageType(), "消息类型不能为空");
         Assert.notNull(sendDTO.getContentType(), "内容类型不能为空");
         Assert.hasText(sendDTO.getContent(), "消息内容不能为空");
 
         int msgType = sendDTO.getMessageType();
+        List<Long> memberIds = null;
         if (msgType == 1) {
             // 单聊
             Assert.notNull(sendDTO.getReceiverId(), "单聊时接收者不能为空");
@@ -62,58 +74,136 @@ public class MessageServiceImpl implements MessageService {
             // 群聊
             Assert.notNull(sendDTO.getGroupId(), "群聊时群组不能为空");
             groupService.getGroupInfo(sendDTO.getGroupId()); // 校验群存在，不存在会抛 GROUP_NOT_FOUND
-            List<Long> memberIds = groupService.getGroupMemberIds(sendDTO.getGroupId());
+            memberIds = groupService.getGroupMemberIds(sendDTO.getGroupId());
             Assert.isTrue(memberIds.contains(senderId), ErrorCode.NOT_GROUP_MEMBER);
         } else {
             throw new BusinessException(ErrorCode.INVALID_MESSAGE_TYPE);
         }
 
-        // 2. 构建并保存 Message
+        // 客户端重试去重：已发送过的直接返回原消息，不再重复写入与推送
+        String clientMsgId = StringUtils.hasText(sendDTO.getClientMsgId()) ? sendDTO.getClientMsgId() : null;
+        if (clientMsgId != null) {
+            String existingId = clientMsgIdCacheService.claim(senderId, clientMsgId);
+            if (ClientMsgIdCacheService.PENDING.equals(existingId)) {
+                throw new BusinessException(ErrorCode.MESSAGE_SEND_IN_PROGRESS);
+            }
+            if (existingId != null) {
+                Message existing = messageRepository.findById(existingId).orElse(null);
+                if (existing != null) {
+                    log.info("重复的客户端消息，返回原消息: senderId={}, clientMsgId={}, messageId={}",
+                            senderId, clientMsgId, existingId);
+                    return toSenderVO(existing);
+                }
+            }
+        }
+
+        // 2. 构建并保存 Message（会话级序列号随消息落库，发送回执与推送都带上）
+        Message saved;
+        try {
+            saved = saveMessage(senderId, sendDTO, msgType);
+        } catch (RuntimeException e) {
+            if (clientMsgId != null) {
+                clientMsgIdCacheService.release(senderId, clientMsgId);
+            }
+            throw e;
+        }
+        // 消息已落库：之后即使阶段失败，重试也返回这条消息，失败阶段由修复任务补齐，不会产生重复消息
+        if (clientMsgId != null) {
+            clientMsgIdCacheService.complete(senderId, clientMsgId, saved.getId());
+        }
+
+        saved.setSenderSessionId(senderSessionId);
+
+        // 3~4. 信箱写入（发送者不增未读，接收者增未读）、会话更新互不依赖，并发执行；全部成功后发布到消息总线
+        sendStageExecutor.execute(saved.getId(), buildStages(saved, memberIds, false), () -> publish(saved));
+
+        // 5. 返回 MessageVO（填充发送者信息）
+        return toSenderVO(saved);
+    }
+
+    private Message saveMessage(Long senderId, MessageSendDTO sendDTO, int msgType) {
         Message message = Message.fromSendDTO(senderId, sendDTO);
+        message.setSequence(sequenceService.generateConversationSequence(conversationIdOf(message)));
         Message saved = messageRepository.save(message);
         if (saved == null) {
             throw new BusinessException(ErrorCode.MESSAGE_SAVE_FAILED);
         }
+        return saved;
+    }
 
-        // 会话ID生成规则与读取端保持一致：
-        // type=0 表示单聊（conv_min_max），type=1 表示群聊（conv_group_<groupId>）
-        int conversationType = (msgType == 1) ? 0 : 1;
-        String conversationId = generateConversationId(conversationType, senderId,
-                msgType == 1 ? sendDTO.getReceiverId() : sendDTO.getGroupId());
-
-        // 3. 写入 Mailbox（发送者不增未读，接收者增未读）
-        if (msgType == 1) {
-            mailboxService.writeMessage(sendDTO.getReceiverId(), conversationId, saved, true);
-            mailboxService.writeMessage(senderId, conversationId, saved, false);
-        } else {
-            List<Long> memberIds = groupService.getGroupMemberIds(sendDTO.getGroupId());
-            List<Long> others = memberIds.stream().filter(id -> !id.equals(senderId)).collect(Collectors.toList());
-            if (!others.isEmpty()) {
-                mailboxService.batchWriteMessage(others, conversationId, saved, true);
-            }
-            mailboxService.writeMessage(senderId, conversationId, saved, false);
-        }
+    /**
+     * 会话ID生成规则与读取端保持一致：
+     * type=0 表示单聊（conv_min_max），type=1 表示群聊（conv_group_<groupId>）
+     */
+    private String conversationIdOf(Message message) {
+        boolean single = message.getMessageType() == 1;
+        return generateConversationId(single ? 0 : 1, message.getSenderId(),
+                single ? message.getReceiverId() : message.getGroupId());
+    }
 
-        // 4. 更新会话表
-        if (msgType == 1) {
-            conversationService.updateConversation(senderId, sendDTO.getReceiverId(), 0,
-                    saved.getId(), saved.getContent(), saved.getSendTime(), false);
-            conversationService.updateConversation(sendDTO.getReceiverId(), senderId, 0,
-                    saved.getId(), saved.getContent(), saved.getSendTime(), true);
+    /**
+     * 构建落库阶段
+     *
+     * @param memberIds 群成员（单聊为 null）
+     * @param repair 修复重跑：跳过信箱中已有该消息的用户，避免重复写入（会话更新本身按 messageId 幂等，无需跳过）
+     */
+    LinkedHashMap<String, Runnable> buildStages(Message saved, List<Long> memberIds, boolean repair) {
+        String conversationId = conversationIdOf(saved);
+        Long senderId = saved.getSenderId();
+        LinkedHashMap<String, Runnable> stages = new LinkedHashMap<>();
+        if (saved.getMessageType() == 1) {
+            Long receiverId = saved.getReceiverId();
+            stages.put("mailbox-receiver", () -> {
+                if (!repair || !mailboxService.hasMessage(receiverId, saved.getId())) {
+                    mailboxService.writeMessage(receiverId, conversationId, saved, true);
+                }
+            });
+            stages.put("mailbox-sender", () -> {
+                if (!repair || !mailboxService.hasMessage(senderId, saved.getId())) {
+                    mailboxService.writeMessage(senderId, conversationId, saved, false);
+                }
+            });
+            stages.put("conversation-sender", () -> conversationService.updateConversation(senderId, receiverId, 0,
+                    saved.getId(), saved.getContent(), saved.getSendTime(), false));
+            stages.put("conversation-receiver", () -> conversationService.updateConversation(receiverId, senderId, 0,
+                    saved.getId(), saved.getContent(), saved.getSendTime(), true));
         } else {
-            List<Long> memberIds = groupService.getGroupMemberIds(sendDTO.getGroupId());
-            for (Long userId : memberIds) {
-                boolean incrementUnread = !userId.equals(senderId);
-                conversationService.updateConversation(userId, sendDTO.getGroupId(), 1,
-                        saved.getId(), saved.getContent(), saved.getSendTime(), incrementUnread);
-            }
+            Long groupId = saved.getGroupId();
+            List<Long> members = memberIds;
+            stages.put("mailbox-members", () -> {
+                List<Long> others = members.stream()
+                        .filter(id -> !id.equals(senderId))
+                        .filter(id -> !repair || !mailboxService.hasMessage(id, saved.getId()))
+                        .collect(Collectors.toList());
+                if (!others.isEmpty()) {
+                    mailboxService.batchWriteMessage(others, conversationId, saved, true);
+                }
+            });
+            stages.put("mailbox-sender", () -> {
+                if (!repair || !mailboxService.hasMessage(senderId, saved.getId())) {
+                    mailboxService.writeMessage(senderId, conversationId, saved, false);
+                }
+            });
+            stages.put("conversation-members", () -> {
+                for (Long userId : members) {
+                    boolean incrementUnread = !userId.equals(senderId);
+                    conversationService.updateConversation(userId, groupId, 1,
+                            saved.getId(), saved.getContent(), saved.getSendTime(), incrementUnread);
+                }
+            });
         }
+        return stages;
+    }
 
-        // 5. 发送到 RocketMQ（供 MessageConsumer 做 WebSocket 推送）
-        messageProducer.sendMessage(TOPIC_IM_MESSAGE, saved);
+    /**
+     * 发布到消息总线（供 MessageConsumer 做 WebSocket 推送）
+     */
+    void publish(Message saved) {
+        messageProducer.sendMessage(MessageTopics.IM_MESSAGE, saved);
+    }
 
-        // 6. 返回 MessageVO（填充发送者信息）
-        MessageVO vo = messageConverter.toVO(saved);
+    private MessageVO toSenderVO(Message message) {
+        MessageVO vo = messageConverter.toVO(message);
         enrichSenderInfo(vo);
         return vo;
     }
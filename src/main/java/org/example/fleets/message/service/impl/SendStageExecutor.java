@@ -0,0 +1,209 @@
+package org.example.fleets.message.service.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.fleets.cache.redis.RedisService;
+import org.example.fleets.common.config.properties.FleetsProperties;
+import org.example.fleets.common.exception.BusinessException;
+import org.example.fleets.common.exception.ErrorCode;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 发送消息的阶段执行器
+ *
+ * 消息保存后，信箱写入、会话更新彼此独立，并发执行在有界线程池上，
+ * 发送耗时取决于最慢的一个阶段而不是所有阶段之和。
+ * 线程池饱和时由调用线程执行（退化为串行），不会丢阶段。
+ *
+ * 总线发布只在所有落库阶段成功后执行，接收者不会收到未落库的消息。
+ * 超时的阶段不会被中断，继续执行到结束：结束时全部成功则补发布，否则留在修复集合。
+ * 失败（异常、超时、发布失败）的阶段记入修复集合 message:repair，由 {@link MessageSendRepairTask} 重跑后再发布。
+ * 对客户端的响应由 fleets.message.stage-failure-policy 决定：
+ * fail - 抛出 MESSAGE_SEND_FAILED，客户端用同一 clientMsgId 重试时返回已保存的原消息；
+ * repair - 照常返回。
+ */
+@Slf4j
+@Component
+public class SendStageExecutor {
+
+    /**
+     * 待修复消息（Hash：messageId -> 记录时间|已重试次数|stage1,stage2）
+     */
+    public static final String REPAIR_KEY = "message:repair";
+
+    /**
+     * 总线发布在修复记录中的阶段名
+     */
+    public static final String STAGE_PUBLISH = "publish";
+
+    public static final String POLICY_FAIL = "fail";
+    public static final String POLICY_REPAIR = "repair";
+
+    private final FleetsProperties fleetsProperties;
+    private final RedisService redisService;
+    private final ThreadPoolExecutor executor;
+
+    public SendStageExecutor(FleetsProperties fleetsProperties, RedisService redisService) {
+        this.fleetsProperties = fleetsProperties;
+        this.redisService = redisService;
+        FleetsProperties.MessageConfig config = fleetsProperties.getMessage();
+        AtomicInteger index = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(config.getStageThreads(), config.getStageThreads(),
+                60L, TimeUnit.SECONDS, new ArrayBlockingQueue<>(config.getStageQueueCapacity()),
+                r -> {
+                    Thread thread = new Thread(r, "send-stage-" + index.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * 并发执行各落库阶段，全部成功后发布
+     *
+     * @param messageId 消息ID（用于日志与修复记录）
+     * @param stages 阶段名 -> 阶段任务
+     * @param publish 总线发布，只在所有阶段成功后执行
+     */
+    public void execute(String messageId, LinkedHashMap<String, Runnable> stages, Runnable publish) {
+        Map<String, CompletableFuture<Void>> futures = new LinkedHashMap<>();
+        for (Map.Entry<String, Runnable> stage : stages.entrySet()) {
+            futures.put(stage.getKey(), CompletableFuture.runAsync(stage.getValue(), executor));
+        }
+
+        long deadline = System.nanoTime()
+                + TimeUnit.MILLISECONDS.toNanos(fleetsProperties.getMessage().getStageTimeoutMillis());
+        List<String> failed = new ArrayList<>();
+        Map<String, CompletableFuture<Void>> running = new LinkedHashMap<>();
+        for (Map.Entry<String, CompletableFuture<Void>> entry : futures.entrySet()) {
+            String stageName = entry.getKey();
+            try {
+                entry.getValue().get(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                // 不中断：写入可能已在数据库端执行，中断只会留下不确定的状态
+                running.put(stageName, entry.getValue());
+                log.warn("发送阶段超时，继续在后台执行: messageId={}, stage={}", messageId, stageName);
+            } catch (ExecutionException e) {
+                failed.add(stageName);
+                log.error("发送阶段失败: messageId={}, stage={}", messageId, stageName, e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running.put(stageName, entry.getValue());
+            }
+        }
+
+        if (failed.isEmpty() && running.isEmpty()) {
+            if (tryPublish(messageId, publish)) {
+                return;
+            }
+            failed.add(STAGE_PUBLISH);
+        } else {
+            List<String> unfinished = new ArrayList<>(failed);
+            unfinished.addAll(running.keySet());
+            recordRepair(messageId, unfinished, 0);
+            if (!running.isEmpty()) {
+                awaitRunning(messageId, failed, running, publish);
+            }
+        }
+
+        if (!POLICY_REPAIR.equalsIgnoreCase(fleetsProperties.getMessage().getStageFailurePolicy())) {
+            throw new BusinessException(ErrorCode.MESSAGE_SEND_FAILED);
+        }
+    }
+
+    /**
+     * 超时阶段结束后：全部成功则发布并清除修复记录，否则只保留真正失败的阶段
+     */
+    private void awaitRunning(String messageId, List<String> failed,
+                              Map<String, CompletableFuture<Void>> running, Runnable publish) {
+        CompletableFuture.allOf(running.values().toArray(new CompletableFuture[0])).whenComplete((v, ex) -> {
+            List<String> stillFailed = new ArrayList<>(failed);
+            for (Map.Entry<String, CompletableFuture<Void>> entry : running.entrySet()) {
+                if (entry.getValue().isCompletedExceptionally()) {
+                    stillFailed.add(entry.getKey());
+                }
+            }
+            if (stillFailed.isEmpty()) {
+                if (tryPublish(messageId, publish)) {
+                    clearRepair(messageId);
+                    log.info("超时阶段已完成，补发布: messageId={}", messageId);
+                    return;
+                }
+                stillFailed.add(STAGE_PUBLISH);
+            }
+            recordRepair(messageId, stillFailed, 0);
+        });
+    }
+
+    private boolean tryPublish(String messageId, Runnable publish) {
+        try {
+            publish.run();
+            return true;
+        } catch (RuntimeException e) {
+            log.error("消息发布失败: messageId={}", messageId, e);
+            return false;
+        }
+    }
+
+    /**
+     * 记录（覆盖）待修复阶段
+     */
+    void recordRepair(String messageId, Collection<String> stages, int attempts) {
+        try {
+            redisService.getStringMap(REPAIR_KEY).fastPut(messageId,
+                    System.currentTimeMillis() + "|" + attempts + "|" + String.join(",", stages));
+            log.warn("发送阶段未完成，已标记待修复: messageId={}, stages={}", messageId, stages);
+        } catch (Exception e) {
+            log.error("记录待修复消息失败: messageId={}, stages={}", messageId, stages, e);
+        }
+    }
+
+    void clearRepair(String messageId) {
+        try {
+            redisService.getStringMap(REPAIR_KEY).fastRemove(messageId);
+        } catch (Exception e) {
+            log.error("清除修复记录失败: messageId={}", messageId, e);
+        }
+    }
+
+    /**
+     * 解析修复记录的阶段列表
+     */
+    static List<String> parseStages(String value) {
+        String[] parts = value.split("\\|", 3);
+        if (parts.length < 3 || parts[2].isEmpty()) {
+            return Collections.emptyList();
+        }
+        return Arrays.asList(parts[2].split(","));
+    }
+
+    static long parseRecordedAt(String value) {
+        return Long.parseLong(value.split("\\|", 3)[0]);
+    }
+
+    static int parseAttempts(String value) {
+        String[] parts = value.split("\\|", 3);
+        return parts.length < 2 ? 0 : Integer.parseInt(parts[1]);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
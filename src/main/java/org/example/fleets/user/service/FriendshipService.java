@@ -88,4 +88,9 @@ public interface FriendshipService {
      * 检查是否是好友
      */
     boolean isFriend(Long userId, Long friendId);
+    
+    /**
+     * 获取已确认好友的ID列表（优先读缓存）
+     */
+    List<Long> getFriendIds(Long userId);
 }
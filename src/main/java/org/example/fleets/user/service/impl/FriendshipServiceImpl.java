@@ -575,6 +575,33 @@ public class FriendshipServiceImpl implements FriendshipService {
         }
     }
     
+    /**
+     * 获取好友ID列表
+     * 优先查缓存，未命中时只查询 friendId 列并回填缓存
+     */
+    @Override
+    public List<Long> getFriendIds(Long userId) {
+        if (userId == null) {
+            return new ArrayList<>();
+        }
+        
+        List<Long> cached = friendshipCacheService.getCachedFriendList(userId);
+        if (cached != null) {
+            return cached;
+        }
+        
+        LambdaQueryWrapper<Friendship> wrapper = new LambdaQueryWrapper<>();
+        wrapper.eq(Friendship::getUserId, userId)
+               .eq(Friendship::getStatus, 1)
+               .select(Friendship::getFriendId);
+        List<Long> friendIds = friendshipMapper.selectList(wrapper).stream()
+            .map(Friendship::getFriendId)
+            .collect(Collectors.toList());
+        
+        friendshipCacheService.cacheFriendList(userId, friendIds);
+        return friendIds;
+    }
+    
     /**
      * 接受好友请求
      * 将双方的好友关系状态从待确认改为已确认
@@ -18,6 +18,7 @@ import org.example.fleets.user.model.vo.UserVO;
 import org.example.fleets.user.service.UserService;
 import org.example.fleets.user.service.cache.UserCacheService;
 import org.example.fleets.user.validator.UserValidator;
+import org.example.fleets.websocket.service.TokenAuthCache;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -41,6 +42,7 @@ public class UserServiceImpl implements UserService {
     private final RedisService redisService;
     private final BCryptPasswordEncoder passwordEncoder;
     private final UserConverter userConverter;  // 注入MapStruct转换器
+    private final TokenAuthCache tokenAuthCache;
     
     // Redis Key前缀
     private static final String REGISTER_LOCK_PREFIX = "register:lock:";
@@ -159,6 +161,7 @@ public class UserServiceImpl implements UserService {
         try {
             // 使用 Sa-Token 登出
             StpUtil.logout(userId);
+            tokenAuthCache.invalidateUser(userId);
             
             // 清理用户缓存
             userCacheService.deleteUserCache(userId);
@@ -298,6 +301,7 @@ public class UserServiceImpl implements UserService {
             
             // 清理Token，强制重新登录
             StpUtil.logout(user.getId());
+            tokenAuthCache.invalidateUser(user.getId());
             
             log.info("修改密码成功，userId: {}", user.getId());
             return true;
@@ -361,6 +365,7 @@ public class UserServiceImpl implements UserService {
             // 清理验证码和Token
             redisService.delete(codeKey);
             StpUtil.logout(user.getId());
+            tokenAuthCache.invalidateUser(user.getId());
             
             log.info("重置密码成功，userId: {}", user.getId());
             return true;
@@ -406,6 +411,7 @@ public class UserServiceImpl implements UserService {
             // 如果禁用用户，清理Token
             if (status == 0) {
                 StpUtil.logout(userId);
+                tokenAuthCache.invalidateUser(userId);
             }
             
             userCacheService.deleteUserCache(userId);
@@ -447,6 +453,7 @@ public class UserServiceImpl implements UserService {
             
             // 清理相关缓存和Token
             StpUtil.logout(userId);
+            tokenAuthCache.invalidateUser(userId);
             userCacheService.deleteUserCache(userId);
             
             log.info("删除用户成功，userId: {}", userId);
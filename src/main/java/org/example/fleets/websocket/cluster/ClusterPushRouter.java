@@ -0,0 +1,564 @@
+package org.example.fleets.websocket.cluster;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.example.fleets.cache.redis.RedisService;
+import org.example.fleets.common.config.properties.FleetsProperties;
+import org.example.fleets.websocket.codec.StompPayloadCodec;
+import org.example.fleets.websocket.service.SessionResumeService;
+import org.example.fleets.websocket.service.UserOnlineService;
+import org.redisson.api.RTopic;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.user.SimpSession;
+import org.springframework.messaging.simp.user.SimpUser;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 集群推送路由
+ *
+ * SimpleBroker 只在本节点内存中维护会话，消息被哪个节点消费就只能推给该节点上的连接。
+ * 这里按 UserOnlineService 记录的 sessionId -> nodeId 把消息直接路由到会话所在节点：
+ * 本节点直接写入，其他节点通过各自的 ws:push:&lt;nodeId&gt; 通道投递，不做全集群广播。
+ * 同一节点上的多个接收者合并为一个信封，发布次数等于涉及的节点数。
+ *
+ * 消息体每条只序列化一次为 byte[]，本节点所有接收会话共用同一数组，不再逐个走消息转换器。
+ * 指标：fleets.push.encode（序列化耗时）、fleets.push.payload.bytes（消息体大小）、
+ * fleets.push.deliveries（本地写入次数），配合 jvm.gc.memory.allocated 观察分配速率。
+ *
+ * 协商了 CBOR 编码的原生 WebSocket 会话按会话单独投递二进制消息体（每条消息最多转换一次），
+ * fleets.push.payload.bytes 按 codec 标签区分，可直接对比两种编码的每条消息字节数。
+ *
+ * 配置的目的地（默认 /queue/messages）经 PushBatcher 按用户目的地微批：会话空闲时立即下发，
+ * 窗口内的后续消息合并为一个 JSON 数组帧（STOMP 头 batch-size 为条数）。CBOR 会话按会话投递，不参与合并。
+ * fleets.push.batch.size 记录每帧合并的条数，fleets.push.deliveries 即下发帧数。
+ *
+ * 接收者按结果计数 fleets.push.recipients{outcome}：offline（无任何会话，未编码即跳过）、
+ * remote（转发到其他节点）、delivered（写入本节点会话或连接层连接）、stale（会话记录指向本节点但本地已无可写的连接）。
+ *
+ * 节点通道同时承载节点间的大群输入人数上报（{@link GroupTypingCount}），接收后以应用事件发布，不投递给用户。
+ */
+@Slf4j
+@Component
+public class ClusterPushRouter {
+
+    static final String NODE_CHANNEL_PREFIX = "ws:push:";
+    static final String BATCH_SIZE_HEADER = "batch-size";
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final UserOnlineService userOnlineService;
+    private final RedisService redisService;
+    private final NodeIdentity nodeIdentity;
+    private final ObjectMapper objectMapper;
+    private final SimpUserRegistry simpUserRegistry;
+    private final StompPayloadCodec payloadCodec;
+    private final SessionResumeService sessionResumeService;
+    private final List<LocalPushTarget> localPushTargets;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Timer encodeTimer;
+    private final DistributionSummary payloadBytes;
+    private final DistributionSummary cborPayloadBytes;
+    private final Counter deliveries;
+    private final DistributionSummary batchSize;
+    private final Counter offlineRecipients;
+    private final Counter remoteRecipients;
+    private final Counter deliveredRecipients;
+    private final Counter staleRecipients;
+    private final PushBatcher pushBatcher;
+    private final Set<String> batchDestinations = new HashSet<>();
+
+    private RTopic localChannel;
+    private int listenerId = -1;
+
+    public ClusterPushRouter(SimpMessagingTemplate messagingTemplate, UserOnlineService userOnlineService,
+                             RedisService redisService, NodeIdentity nodeIdentity, ObjectMapper objectMapper,
+                             SimpUserRegistry simpUserRegistry, StompPayloadCodec payloadCodec,
+                             SessionResumeService sessionResumeService, ObjectProvider<LocalPushTarget> localPushTargets,
+                             ApplicationEventPublisher eventPublisher, FleetsProperties fleetsProperties,
+                             MeterRegistry meterRegistry) {
+        this.messagingTemplate = messagingTemplate;
+        this.userOnlineService = userOnlineService;
+        this.redisService = redisService;
+        this.nodeIdentity = nodeIdentity;
+        this.objectMapper = objectMapper;
+        this.simpUserRegistry = simpUserRegistry;
+        this.payloadCodec = payloadCodec;
+        this.sessionResumeService = sessionResumeService;
+        this.localPushTargets = localPushTargets.orderedStream().collect(Collectors.toList());
+        this.eventPublisher = eventPublisher;
+        this.encodeTimer = Timer.builder("fleets.push.encode")
+                .description("推送消息体序列化耗时（每条消息一次）")
+                .register(meterRegistry);
+        this.payloadBytes = DistributionSummary.builder("fleets.push.payload.bytes")
+                .baseUnit("bytes")
+                .tag("codec", "json")
+                .register(meterRegistry);
+        this.cborPayloadBytes = DistributionSummary.builder("fleets.push.payload.bytes")
+                .baseUnit("bytes")
+                .tag("codec", "cbor")
+                .register(meterRegistry);
+        this.deliveries = Counter.builder("fleets.push.deliveries")
+                .description("本节点写入用户会话的次数")
+                .register(meterRegistry);
+        this.batchSize = DistributionSummary.builder("fleets.push.batch.size")
+                .description("每个下发帧合并的消息条数")
+                .register(meterRegistry);
+        this.offlineRecipients = recipientCounter(meterRegistry, "offline");
+        this.remoteRecipients = recipientCounter(meterRegistry, "remote");
+        this.deliveredRecipients = recipientCounter(meterRegistry, "delivered");
+        this.staleRecipients = recipientCounter(meterRegistry, "stale");
+        FleetsProperties.WebSocketConfig config = fleetsProperties.getWebsocket();
+        if (config.getPushBatchWindowMillis() > 0) {
+            this.pushBatcher = new PushBatcher(config.getPushBatchWindowMillis(), config.getPushBatchMaxBytes(),
+                    (userDestination, body, count) -> send(userDestination, body, MimeTypeUtils.APPLICATION_JSON, null, count));
+            for (String destination : StringUtils.commaDelimitedListToSet(config.getPushBatchDestinations())) {
+                if (StringUtils.hasText(destination)) {
+                    batchDestinations.add(destination.trim());
+                }
+            }
+        } else {
+            this.pushBatcher = null;
+        }
+    }
+
+    private static Counter recipientCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("fleets.push.recipients")
+                .description("推送接收者按结果计数")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        localChannel = redisService.getTopic(NODE_CHANNEL_PREFIX + nodeIdentity.getNodeId());
+        listenerId = localChannel.addListener(String.class, (channel, envelopeJson) -> onEnvelope(envelopeJson));
+        log.info("已订阅节点推送通道: {}", NODE_CHANNEL_PREFIX + nodeIdentity.getNodeId());
+    }
+
+    @PreDestroy
+    public void unsubscribe() {
+        if (localChannel != null && listenerId != -1) {
+            localChannel.removeListener(listenerId);
+        }
+        if (pushBatcher != null) {
+            pushBatcher.shutdown();
+        }
+    }
+
+    /**
+     * 立即下发合并窗口内暂存的推送（节点排空时调用）
+     */
+    public void flushPending() {
+        if (pushBatcher != null) {
+            pushBatcher.flushAll();
+        }
+    }
+
+    /**
+     * 推送给单个用户的所有会话
+     *
+     * @return 用户是否有在线会话（false 时未做任何序列化与投递）
+     */
+    public boolean pushToUser(Long userId, String destination, Object payload) {
+        Map<String, String> sessionNodes = userOnlineService.getSessionNodes(userId);
+        if (sessionNodes == null || sessionNodes.isEmpty()) {
+            offlineRecipients.increment();
+            log.debug("用户不在线，跳过推送: userId={}, destination={}", userId, destination);
+            return false;
+        }
+        route(Collections.singletonMap(userId, sessionNodes), destination, payload);
+        return true;
+    }
+
+    /**
+     * 推送给用户除指定会话外的其他会话（多端同步回显时跳过发起发送的会话），逐个会话路由到其所在节点
+     *
+     * @return 是否有其他在线会话
+     */
+    public boolean pushToOtherSessions(Long userId, String excludedSessionId, String destination, Object payload) {
+        Map<String, String> sessionNodes = userOnlineService.getSessionNodes(userId);
+        Map<String, String> others = sessionNodes == null ? new HashMap<>() : new HashMap<>(sessionNodes);
+        others.remove(excludedSessionId);
+        if (others.isEmpty()) {
+            log.debug("用户无其他在线会话，跳过推送: userId={}, excludedSessionId={}, destination={}",
+                    userId, excludedSessionId, destination);
+            return false;
+        }
+        byte[] body = encode(payload);
+        if (body == null) {
+            return false;
+        }
+        for (Map.Entry<String, String> entry : others.entrySet()) {
+            if (nodeIdentity.isLocal(entry.getValue())) {
+                deliverToLocalSession(userId, entry.getKey(), destination, body);
+            } else {
+                remoteRecipients.increment();
+                publish(entry.getValue(), Collections.singleton(userId), entry.getKey(), destination, body);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 只推送给用户的指定会话（STOMP 会话或连接层连接），按会话记录路由到其所在节点
+     *
+     * @return 该会话是否在线
+     */
+    public boolean pushToSession(Long userId, String sessionId, String destination, Object payload) {
+        Map<String, String> sessionNodes = userOnlineService.getSessionNodes(userId);
+        String nodeId = sessionNodes == null ? null : sessionNodes.get(sessionId);
+        if (nodeId == null) {
+            offlineRecipients.increment();
+            log.debug("会话不在线，跳过推送: userId={}, sessionId={}, destination={}", userId, sessionId, destination);
+            return false;
+        }
+        byte[] body = encode(payload);
+        if (body == null) {
+            return false;
+        }
+        if (nodeIdentity.isLocal(nodeId)) {
+            deliverToLocalSession(userId, sessionId, destination, body);
+        } else {
+            remoteRecipients.increment();
+            publish(nodeId, Collections.singleton(userId), sessionId, destination, body);
+        }
+        return true;
+    }
+
+    /**
+     * 推送给多个用户（会话节点一次批量查询，同节点接收者合并投递）
+     *
+     * @return 没有任何在线会话的用户
+     */
+    public Set<Long> pushToUsers(Collection<Long> userIds, String destination, Object payload) {
+        Set<Long> offline = new LinkedHashSet<>();
+        if (userIds == null || userIds.isEmpty()) {
+            return offline;
+        }
+        Map<Long, Map<String, String>> sessionNodes = userOnlineService.getSessionNodes(userIds);
+        for (Long userId : userIds) {
+            if (!sessionNodes.containsKey(userId)) {
+                offline.add(userId);
+            }
+        }
+        offlineRecipients.increment(offline.size());
+        route(sessionNodes, destination, payload);
+        return offline;
+    }
+
+    /**
+     * 推送给多个用户，每个用户各自的消息体（会话节点一次批量查询，消息体相同的接收者合并编码与投递）
+     *
+     * @return 没有任何在线会话的用户
+     */
+    public Set<Long> pushEachToUsers(Map<Long, ?> payloads, String destination) {
+        Set<Long> offline = new LinkedHashSet<>();
+        if (payloads == null || payloads.isEmpty()) {
+            return offline;
+        }
+        Map<Long, Map<String, String>> sessionNodes = userOnlineService.getSessionNodes(payloads.keySet());
+        Map<Object, Map<Long, Map<String, String>>> usersByPayload = new LinkedHashMap<>();
+        for (Map.Entry<Long, ?> entry : payloads.entrySet()) {
+            Map<String, String> nodes = sessionNodes.get(entry.getKey());
+            if (nodes == null) {
+                offline.add(entry.getKey());
+                continue;
+            }
+            usersByPayload.computeIfAbsent(entry.getValue(), k -> new HashMap<>()).put(entry.getKey(), nodes);
+        }
+        offlineRecipients.increment(offline.size());
+        for (Map.Entry<Object, Map<Long, Map<String, String>>> entry : usersByPayload.entrySet()) {
+            route(entry.getValue(), destination, entry.getKey());
+        }
+        return offline;
+    }
+
+    /**
+     * 只写入本节点上的用户会话，不查询会话节点、不转发；不在本节点的用户直接跳过，不计入接收者指标
+     * 用于各节点分别推送本地成员的场景（如大群输入人数）
+     */
+    public void pushToLocalUsers(Collection<Long> userIds, String destination, Object payload) {
+        if (userIds == null || userIds.isEmpty()) {
+            return;
+        }
+        byte[] body = encode(payload);
+        if (body != null) {
+            deliverLocal(userIds, destination, body, false);
+        }
+    }
+
+    /**
+     * 把本节点的大群输入人数上报给有该群在线成员的节点（含本节点），只读取会话节点，不写 Redis
+     */
+    public void publishTypingCount(Collection<Long> memberIds, GroupTypingCount typingCount) {
+        Set<String> nodeIds = new HashSet<>();
+        for (Map<String, String> nodes : userOnlineService.getSessionNodes(memberIds).values()) {
+            nodeIds.addAll(nodes.values());
+        }
+        for (String nodeId : nodeIds) {
+            if (nodeIdentity.isLocal(nodeId)) {
+                eventPublisher.publishEvent(typingCount);
+                continue;
+            }
+            PushEnvelope envelope = new PushEnvelope();
+            envelope.setTypingCount(typingCount);
+            try {
+                redisService.getTopic(NODE_CHANNEL_PREFIX + nodeId).publish(objectMapper.writeValueAsString(envelope));
+            } catch (JsonProcessingException e) {
+                log.error("输入人数上报序列化失败: groupId={}", typingCount.getGroupId(), e);
+                return;
+            }
+        }
+    }
+
+    private void route(Map<Long, Map<String, String>> sessionNodesByUser, String destination, Object payload) {
+        if (sessionNodesByUser.isEmpty()) {
+            return;
+        }
+        byte[] body = encode(payload);
+        if (body == null) {
+            return;
+        }
+
+        Map<String, Set<Long>> usersByNode = new HashMap<>();
+        for (Map.Entry<Long, Map<String, String>> entry : sessionNodesByUser.entrySet()) {
+            for (String nodeId : entry.getValue().values()) {
+                usersByNode.computeIfAbsent(nodeId, k -> new LinkedHashSet<>()).add(entry.getKey());
+            }
+        }
+
+        for (Map.Entry<String, Set<Long>> entry : usersByNode.entrySet()) {
+            String nodeId = entry.getKey();
+            if (nodeIdentity.isLocal(nodeId)) {
+                deliverLocal(entry.getValue(), destination, body);
+            } else {
+                remoteRecipients.increment(entry.getValue().size());
+                publish(nodeId, entry.getValue(), null, destination, body);
+            }
+        }
+    }
+
+    private void publish(String nodeId, Set<Long> userIds, String sessionId, String destination, byte[] body) {
+        PushEnvelope envelope = new PushEnvelope();
+        envelope.setUserIds(new ArrayList<>(userIds));
+        envelope.setSessionId(sessionId);
+        envelope.setDestination(destination);
+        envelope.setPayload(new String(body, StandardCharsets.UTF_8));
+        String envelopeJson;
+        try {
+            envelopeJson = objectMapper.writeValueAsString(envelope);
+        } catch (JsonProcessingException e) {
+            log.error("推送信封序列化失败: nodeId={}", nodeId, e);
+            return;
+        }
+        long receivers = redisService.getTopic(NODE_CHANNEL_PREFIX + nodeId).publish(envelopeJson);
+        if (receivers == 0) {
+            // 通道无人订阅说明节点已下线，清理指向该节点的会话记录
+            log.warn("目标节点无订阅者，清理失效会话: nodeId={}, users={}", nodeId, userIds.size());
+            for (Long userId : userIds) {
+                userOnlineService.removeNodeSessions(userId, nodeId);
+            }
+        }
+    }
+
+    private void onEnvelope(String envelopeJson) {
+        try {
+            PushEnvelope envelope = objectMapper.readValue(envelopeJson, PushEnvelope.class);
+            if (envelope.getTypingCount() != null) {
+                eventPublisher.publishEvent(envelope.getTypingCount());
+                return;
+            }
+            if (envelope.getUserIds() == null || envelope.getPayload() == null) {
+                return;
+            }
+            if (envelope.getSessionId() != null) {
+                for (Long userId : envelope.getUserIds()) {
+                    deliverToLocalSession(userId, envelope.getSessionId(), envelope.getDestination(),
+                            envelope.getPayload().getBytes(StandardCharsets.UTF_8));
+                }
+                return;
+            }
+            deliverLocal(envelope.getUserIds(), envelope.getDestination(),
+                    envelope.getPayload().getBytes(StandardCharsets.UTF_8));
+        } catch (Exception e) {
+            log.error("处理节点推送信封失败: envelope={}", envelopeJson, e);
+        }
+    }
+
+    /**
+     * 写入本节点上的用户会话，消息体已是 JSON，绕过消息转换器
+     * 先与本节点的用户注册表求交集，Redis 记录滞后时不做无效投递
+     * 用户有 CBOR 会话时按会话分别投递，CBOR 消息体在首次需要时转换一次
+     * 用户有挂起等待恢复的会话时，同时记入其恢复缓冲；启用了 Netty 连接层时一并写入其连接
+     */
+    void deliverLocal(Collection<Long> userIds, String destination, byte[] body) {
+        deliverLocal(userIds, destination, body, true);
+    }
+
+    /**
+     * @param routed 接收者是否按会话记录路由到本节点；false 时不在本节点的用户不计入 stale
+     */
+    private void deliverLocal(Collection<Long> userIds, String destination, byte[] body, boolean routed) {
+        String prefix = messagingTemplate.getUserDestinationPrefix();
+        byte[] cbor = null;
+        boolean cborFailed = false;
+        for (Long userId : userIds) {
+            if (sessionResumeService.isDetached(userId)) {
+                sessionResumeService.buffer(userId, destination, body);
+            }
+            boolean targetDelivered = false;
+            for (LocalPushTarget target : localPushTargets) {
+                targetDelivered |= target.deliver(userId, destination, body);
+            }
+            SimpUser user = simpUserRegistry.getUser(String.valueOf(userId));
+            if (user == null) {
+                if (!routed) {
+                    continue;
+                }
+                if (targetDelivered) {
+                    deliveredRecipients.increment();
+                } else {
+                    staleRecipients.increment();
+                }
+                continue;
+            }
+            deliveredRecipients.increment();
+            String userDestination = prefix + userId + destination;
+            if (!payloadCodec.hasCborSession(user)) {
+                if (pushBatcher != null && batchDestinations.contains(destination)) {
+                    pushBatcher.offer(userDestination, body);
+                } else {
+                    send(userDestination, body, MimeTypeUtils.APPLICATION_JSON, null);
+                }
+                continue;
+            }
+            for (SimpSession session : user.getSessions()) {
+                if (payloadCodec.isCbor(session.getId())) {
+                    if (cbor == null && !cborFailed) {
+                        cbor = payloadCodec.toCbor(body);
+                        if (cbor == null) {
+                            // 编码失败：本批 CBOR 会话都退回 JSON，不再重复编码
+                            cborFailed = true;
+                        } else {
+                            cborPayloadBytes.record(cbor.length);
+                        }
+                    }
+                    if (cbor != null) {
+                        // 只有 application/octet-stream 会以二进制帧下发
+                        send(userDestination, cbor, MimeTypeUtils.APPLICATION_OCTET_STREAM, session.getId());
+                        continue;
+                    }
+                }
+                send(userDestination, body, MimeTypeUtils.APPLICATION_JSON, session.getId());
+            }
+        }
+    }
+
+    /**
+     * 投递到本节点的指定会话：先找连接层连接，再找 STOMP 会话；都不存在时计为 stale
+     */
+    private void deliverToLocalSession(Long userId, String sessionId, String destination, byte[] body) {
+        for (LocalPushTarget target : localPushTargets) {
+            if (target.deliverToSession(userId, sessionId, destination, body)) {
+                deliveredRecipients.increment();
+                return;
+            }
+        }
+        SimpUser user = simpUserRegistry.getUser(String.valueOf(userId));
+        if (user != null && user.getSession(sessionId) != null) {
+            deliverToSession(userId, sessionId, destination, body);
+            deliveredRecipients.increment();
+            return;
+        }
+        staleRecipients.increment();
+        log.debug("会话记录指向本节点但本地无该会话: userId={}, sessionId={}", userId, sessionId);
+    }
+
+    /**
+     * 投递到本节点的指定会话（恢复会话时补发缓冲），按会话协商的编码下发
+     */
+    public void deliverToSession(Long userId, String sessionId, String destination, byte[] body) {
+        String userDestination = messagingTemplate.getUserDestinationPrefix() + userId + destination;
+        if (!payloadCodec.isCbor(sessionId)) {
+            send(userDestination, body, MimeTypeUtils.APPLICATION_JSON, sessionId);
+            return;
+        }
+        byte[] cbor = payloadCodec.toCbor(body);
+        if (cbor == null) {
+            send(userDestination, body, MimeTypeUtils.APPLICATION_JSON, sessionId);
+            return;
+        }
+        send(userDestination, cbor, MimeTypeUtils.APPLICATION_OCTET_STREAM, sessionId);
+    }
+
+    private void send(String userDestination, byte[] body, MimeType contentType, String sessionId) {
+        send(userDestination, body, contentType, sessionId, 1);
+    }
+
+    /**
+     * sessionId 为空时投递到用户的全部会话，否则只投递到该会话；count 大于 1 表示消息体是合并后的数组
+     */
+    private void send(String userDestination, byte[] body, MimeType contentType, String sessionId, int count) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setContentType(contentType);
+        if (sessionId != null) {
+            accessor.setSessionId(sessionId);
+        }
+        if (count > 1) {
+            accessor.setNativeHeader(BATCH_SIZE_HEADER, String.valueOf(count));
+        }
+        accessor.setLeaveMutable(true);
+        messagingTemplate.send(userDestination, MessageBuilder.createMessage(body, accessor.getMessageHeaders()));
+        deliveries.increment();
+        batchSize.record(count);
+    }
+
+    /**
+     * String 视为已序列化的 JSON，其余对象按 Jackson 序列化
+     */
+    private byte[] encode(Object value) {
+        if (value instanceof String) {
+            return ((String) value).getBytes(StandardCharsets.UTF_8);
+        }
+        long start = System.nanoTime();
+        try {
+            byte[] body = objectMapper.writeValueAsBytes(value);
+            payloadBytes.record(body.length);
+            return body;
+        } catch (JsonProcessingException e) {
+            log.error("推送消息序列化失败: type={}", value.getClass().getSimpleName(), e);
+            return null;
+        } finally {
+            encodeTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package org.example.fleets.websocket.cluster;
+
+import lombok.Data;
+
+/**
+ * 节点上报的大群输入人数：经 ws:push:&lt;nodeId&gt; 通道发往有该群在线成员的节点，接收节点以应用事件发布
+ */
+@Data
+public class GroupTypingCount {
+
+    // 群ID
+    private Long groupId;
+
+    // 上报节点
+    private String nodeId;
+
+    // 该节点上正在输入的人数，0 表示已全部停止
+    private int count;
+
+    // 有效期，过期未刷新视为该节点已无输入者（节点宕机时不会残留）
+    private long expiresInMillis;
+}
@@ -0,0 +1,22 @@
+package org.example.fleets.websocket.cluster;
+
+/**
+ * 本节点上 STOMP 之外的连接承载方（如 Netty 连接层），ClusterPushRouter 本地投递时一并写入
+ */
+public interface LocalPushTarget {
+
+    /**
+     * 写入该用户在本承载方上的连接
+     *
+     * @param body 已序列化的 JSON 消息体，多个连接共用
+     * @return 是否至少写入了一个连接（用户在该承载方上没有连接或连接全部不可写时为 false）
+     */
+    boolean deliver(Long userId, String destination, byte[] body);
+
+    /**
+     * 只写入该用户在本承载方上的指定连接（如发送回执只回给发起的连接）
+     *
+     * @return 是否写入（该连接不在本承载方或不可写时为 false）
+     */
+    boolean deliverToSession(Long userId, String sessionId, String destination, byte[] body);
+}
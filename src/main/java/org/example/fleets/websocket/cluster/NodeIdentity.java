@@ -0,0 +1,47 @@
+package org.example.fleets.websocket.cluster;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.fleets.common.config.properties.FleetsProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.UUID;
+
+/**
+ * 当前 WebSocket 节点标识
+ *
+ * 会话归属记录与节点推送通道都以此为键。未显式配置时使用 主机名-随机后缀，
+ * 进程重启后得到新的节点ID，旧ID的通道无人订阅，可据此识别失效的会话记录。
+ */
+@Slf4j
+@Component
+public class NodeIdentity {
+
+    private final String nodeId;
+
+    public NodeIdentity(FleetsProperties fleetsProperties) {
+        String configured = fleetsProperties.getWebsocket().getNodeId();
+        this.nodeId = StringUtils.hasText(configured) ? configured.trim() : generate();
+        log.info("WebSocket 节点ID: {}", nodeId);
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public boolean isLocal(String otherNodeId) {
+        return nodeId.equals(otherNodeId);
+    }
+
+    private static String generate() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "node";
+        }
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
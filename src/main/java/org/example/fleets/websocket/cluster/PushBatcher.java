@@ -0,0 +1,166 @@
+package org.example.fleets.websocket.cluster;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 推送微批窗口（按用户目的地）
+ *
+ * 距上次下发已超过窗口（会话空闲）时立即下发；窗口内的后续消息先暂存，窗口结束或累计字节达到上限时
+ * 合并为一个 JSON 数组帧下发。单条消息保持原样，只有合并了两条及以上时才是数组。
+ * 同一目的地的下发在批对象的锁内完成，合并前后消息顺序不变。
+ */
+@Slf4j
+class PushBatcher {
+
+    /**
+     * 下发回调：目的地、消息体、合并条数
+     */
+    interface Sink {
+        void send(String userDestination, byte[] body, int count);
+    }
+
+    private static final long IDLE_EVICT_MILLIS = 60_000;
+
+    private final long windowNanos;
+    private final int maxBytes;
+    private final Sink sink;
+    private final Map<String, Batch> batches = new ConcurrentHashMap<>();
+    private final ScheduledThreadPoolExecutor scheduler;
+
+    PushBatcher(long windowMillis, int maxBytes, Sink sink) {
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        this.maxBytes = maxBytes;
+        this.sink = sink;
+        this.scheduler = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "push-batcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler.setRemoveOnCancelPolicy(true);
+        this.scheduler.scheduleWithFixedDelay(this::evictIdle, IDLE_EVICT_MILLIS, IDLE_EVICT_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    void offer(String userDestination, byte[] body) {
+        while (true) {
+            Batch batch = batches.computeIfAbsent(userDestination, k -> new Batch());
+            synchronized (batch) {
+                if (batch.evicted) {
+                    continue;
+                }
+                long now = System.nanoTime();
+                if (batch.pending.isEmpty() && now - batch.lastSentNanos >= windowNanos) {
+                    batch.lastSentNanos = now;
+                    sink.send(userDestination, body, 1);
+                    return;
+                }
+                batch.pending.add(body);
+                batch.pendingBytes += body.length;
+                if (batch.pendingBytes >= maxBytes) {
+                    flush(userDestination, batch);
+                } else if (!batch.scheduled) {
+                    batch.scheduled = true;
+                    scheduler.schedule(() -> onWindowEnd(userDestination, batch), windowNanos, TimeUnit.NANOSECONDS);
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * 立即下发所有暂存的消息（节点排空时调用）
+     */
+    void flushAll() {
+        for (Map.Entry<String, Batch> entry : batches.entrySet()) {
+            synchronized (entry.getValue()) {
+                flush(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    void shutdown() {
+        scheduler.shutdownNow();
+        flushAll();
+    }
+
+    private void onWindowEnd(String userDestination, Batch batch) {
+        synchronized (batch) {
+            batch.scheduled = false;
+            flush(userDestination, batch);
+        }
+    }
+
+    /**
+     * 调用方需持有 batch 锁
+     */
+    private void flush(String userDestination, Batch batch) {
+        if (batch.pending.isEmpty()) {
+            return;
+        }
+        List<byte[]> bodies = batch.pending;
+        int bytes = batch.pendingBytes;
+        batch.pending = new ArrayList<>();
+        batch.pendingBytes = 0;
+        batch.lastSentNanos = System.nanoTime();
+        try {
+            sink.send(userDestination, bodies.size() == 1 ? bodies.get(0) : toArray(bodies, bytes), bodies.size());
+        } catch (RuntimeException e) {
+            log.error("合并推送下发失败: destination={}, count={}", userDestination, bodies.size(), e);
+        }
+    }
+
+    private void evictIdle() {
+        long threshold = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(IDLE_EVICT_MILLIS);
+        for (Map.Entry<String, Batch> entry : batches.entrySet()) {
+            Batch batch = entry.getValue();
+            synchronized (batch) {
+                if (batch.pending.isEmpty() && !batch.scheduled && batch.lastSentNanos - threshold < 0) {
+                    batch.evicted = true;
+                    batches.remove(entry.getKey(), batch);
+                }
+            }
+        }
+    }
+
+    int pendingCount(String userDestination) {
+        Batch batch = batches.get(userDestination);
+        if (batch == null) {
+            return 0;
+        }
+        synchronized (batch) {
+            return batch.pending.size();
+        }
+    }
+
+    /**
+     * 各消息体已是 JSON，直接拼接为 [a,b,c]
+     */
+    private static byte[] toArray(List<byte[]> bodies, int bytes) {
+        byte[] array = new byte[bytes + bodies.size() + 1];
+        array[0] = '[';
+        int pos = 1;
+        for (byte[] body : bodies) {
+            if (pos > 1) {
+                array[pos++] = ',';
+            }
+            System.arraycopy(body, 0, array, pos, body.length);
+            pos += body.length;
+        }
+        array[pos] = ']';
+        return array;
+    }
+
+    private static class Batch {
+        List<byte[]> pending = new ArrayList<>();
+        int pendingBytes;
+        long lastSentNanos = System.nanoTime() - TimeUnit.DAYS.toNanos(1);
+        boolean scheduled;
+        boolean evicted;
+    }
+}
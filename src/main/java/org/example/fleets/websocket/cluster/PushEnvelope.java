@@ -0,0 +1,27 @@
+package org.example.fleets.websocket.cluster;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 跨节点推送信封：发往目标节点的 ws:push:&lt;nodeId&gt; 通道
+ */
+@Data
+public class PushEnvelope {
+
+    // 目标节点上的接收用户
+    private List<Long> userIds;
+
+    // 非空时只投递到该会话（userIds 只有一个用户），如发送回执
+    private String sessionId;
+
+    // 用户目的地，如 /queue/messages
+    private String destination;
+
+    // 已序列化的 JSON 消息体
+    private String payload;
+
+    // 节点间的大群输入人数上报，非空时不投递给用户
+    private GroupTypingCount typingCount;
+}
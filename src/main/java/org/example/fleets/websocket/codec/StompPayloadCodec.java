@@ -0,0 +1,126 @@
+package org.example.fleets.websocket.codec;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.simp.user.SimpSession;
+import org.springframework.messaging.simp.user.SimpUser;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.messaging.SessionConnectEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * STOMP 消息体编码协商
+ *
+ * 原生 WebSocket 端点（不经 SockJS）上的会话可在 CONNECT 帧携带 accept-codec:cbor，
+ * 之后推送给该会话的消息体以 CBOR 编码、content-type 为 application/octet-stream，以二进制帧下发；
+ * 客户端也可用 content-type:application/cbor 发送二进制帧。SockJS 会话只能走文本帧，始终为 JSON。
+ * 客户端按 MESSAGE 帧的 content-type 判断消息体编码（application/json 或 application/octet-stream）。
+ */
+@Slf4j
+@Component
+public class StompPayloadCodec implements HandshakeInterceptor {
+
+    public static final MimeType APPLICATION_CBOR = new MimeType("application", "cbor");
+
+    static final String NATIVE_TRANSPORT_ATTR = "fleets.nativeTransport";
+    static final String ACCEPT_CODEC_HEADER = "accept-codec";
+    static final String CODEC_CBOR = "cbor";
+
+    private final ObjectMapper objectMapper;
+    private final ObjectMapper cborMapper;
+
+    /**
+     * 已协商 CBOR 编码的会话
+     */
+    private final Set<String> cborSessions = ConcurrentHashMap.newKeySet();
+
+    public StompPayloadCodec(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.cborMapper = new ObjectMapper(new CBORFactory())
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    }
+
+    /**
+     * 入站 CBOR 消息体的反序列化使用
+     */
+    public ObjectMapper getCborMapper() {
+        return cborMapper;
+    }
+
+    public boolean isCbor(String sessionId) {
+        return cborSessions.contains(sessionId);
+    }
+
+    public boolean hasCborSession(SimpUser user) {
+        if (cborSessions.isEmpty()) {
+            return false;
+        }
+        for (SimpSession session : user.getSessions()) {
+            if (cborSessions.contains(session.getId())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 已序列化的 JSON 转为 CBOR（按 JSON 树转换，字段与 JSON 输出保持一致）
+     */
+    public byte[] toCbor(byte[] json) {
+        try {
+            return cborMapper.writeValueAsBytes(objectMapper.readTree(json));
+        } catch (IOException e) {
+            log.error("消息体转换 CBOR 失败", e);
+            return null;
+        }
+    }
+
+    // ---------------- 原生端点标记 ----------------
+
+    @Override
+    public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                   WebSocketHandler wsHandler, Map<String, Object> attributes) {
+        attributes.put(NATIVE_TRANSPORT_ATTR, Boolean.TRUE);
+        return true;
+    }
+
+    @Override
+    public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                               WebSocketHandler wsHandler, Exception exception) {
+    }
+
+    // ---------------- 会话协商 ----------------
+
+    @EventListener
+    public void onConnect(SessionConnectEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        Map<String, Object> attributes = accessor.getSessionAttributes();
+        if (attributes == null || !Boolean.TRUE.equals(attributes.get(NATIVE_TRANSPORT_ATTR))) {
+            return;
+        }
+        String codec = accessor.getFirstNativeHeader(ACCEPT_CODEC_HEADER);
+        if (codec != null && codec.toLowerCase().contains(CODEC_CBOR)) {
+            cborSessions.add(accessor.getSessionId());
+            log.debug("会话协商 CBOR 编码: sessionId={}", accessor.getSessionId());
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        cborSessions.remove(event.getSessionId());
+    }
+}
@@ -0,0 +1,119 @@
+package org.example.fleets.websocket.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.support.MessageHandlingRunnable;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 客户端入站通道线程池：同一 STOMP 会话的帧按到达顺序串行处理，不同会话之间仍并发
+ *
+ * 入站通道把每一帧作为一个任务提交到线程池，默认实现下同一连接上连续发送的帧会被不同线程并发执行，
+ * 会话序列号按执行顺序分配，与发送顺序不一致。这里按 simpSessionId 为每个会话维护一个任务队列，
+ * 线程池里同一时刻最多只有一个任务在处理该会话的帧，处理完依次取下一帧。
+ * 没有会话ID的任务（非客户端帧）直接交给线程池。
+ *
+ * 线程池队列里放的是会话而不是帧，帧的积压由 maxPendingFrames 单独限制，超过时与线程池队列满一样拒绝。
+ */
+@Slf4j
+public class SessionOrderedTaskExecutor extends ThreadPoolTaskExecutor {
+
+    private final int maxPendingFrames;
+    private final AtomicInteger pendingFrames = new AtomicInteger();
+    private final Map<String, SessionTasks> sessions = new ConcurrentHashMap<>();
+
+    public SessionOrderedTaskExecutor(int maxPendingFrames) {
+        this.maxPendingFrames = maxPendingFrames;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        String sessionId = sessionId(task);
+        if (sessionId == null) {
+            super.execute(task);
+            return;
+        }
+        if (pendingFrames.incrementAndGet() > maxPendingFrames) {
+            pendingFrames.decrementAndGet();
+            throw new TaskRejectedException("入站帧积压超过上限: " + maxPendingFrames);
+        }
+        while (true) {
+            SessionTasks tasks = sessions.computeIfAbsent(sessionId, SessionTasks::new);
+            synchronized (tasks) {
+                if (tasks.closed) {
+                    continue;
+                }
+                tasks.queue.add(task);
+                if (tasks.running) {
+                    return;
+                }
+                tasks.running = true;
+            }
+            try {
+                super.execute(() -> drain(tasks));
+            } catch (RuntimeException e) {
+                synchronized (tasks) {
+                    tasks.queue.remove(task);
+                    tasks.running = false;
+                }
+                pendingFrames.decrementAndGet();
+                throw e;
+            }
+            return;
+        }
+    }
+
+    int pendingFrames() {
+        return pendingFrames.get();
+    }
+
+    /**
+     * 依次处理会话队列中的帧，队列为空时摘除会话
+     */
+    private void drain(SessionTasks tasks) {
+        while (true) {
+            Runnable next;
+            synchronized (tasks) {
+                next = tasks.queue.poll();
+                if (next == null) {
+                    tasks.running = false;
+                    tasks.closed = true;
+                    sessions.remove(tasks.sessionId, tasks);
+                    return;
+                }
+            }
+            pendingFrames.decrementAndGet();
+            try {
+                next.run();
+            } catch (RuntimeException e) {
+                // 与线程池直接执行一致：单帧失败不影响同一会话的后续帧
+                log.error("入站帧处理失败: sessionId={}", tasks.sessionId, e);
+            }
+        }
+    }
+
+    private static String sessionId(Runnable task) {
+        if (!(task instanceof MessageHandlingRunnable)) {
+            return null;
+        }
+        return SimpMessageHeaderAccessor.getSessionId(((MessageHandlingRunnable) task).getMessage().getHeaders());
+    }
+
+    private static class SessionTasks {
+        final String sessionId;
+        final Queue<Runnable> queue = new ArrayDeque<>();
+        boolean running;
+        boolean closed;
+
+        SessionTasks(String sessionId) {
+            this.sessionId = sessionId;
+        }
+    }
+}
@@ -2,13 +2,21 @@ package org.example.fleets.websocket.config;
 
 import lombok.RequiredArgsConstructor;
 import org.example.fleets.common.config.properties.FleetsProperties;
+import org.example.fleets.websocket.codec.StompPayloadCodec;
+import org.example.fleets.websocket.handler.GroupSubscriptionInterceptor;
+import org.example.fleets.websocket.handler.OutboundBackpressureMonitor;
 import org.example.fleets.websocket.handler.WebSocketHandshakeInterceptor;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.converter.MessageConverter;
 import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+
+import java.util.List;
 
 /**
  * WebSocket 配置
@@ -20,6 +28,10 @@ import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerCo
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
     private final WebSocketHandshakeInterceptor handshakeInterceptor;
+    private final GroupSubscriptionInterceptor groupSubscriptionInterceptor;
+    private final OutboundBackpressureMonitor outboundBackpressureMonitor;
+    private final WsHandshakeHandler handshakeHandler;
+    private final StompPayloadCodec payloadCodec;
     private final FleetsProperties fleetsProperties;
 
     /**
@@ -34,21 +46,71 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
     /**
      * 注册 STOMP 端点，否则 WebSocket 基础设施无可用 handler，启动会报 "No handlers"。
+     * SockJS 端点供浏览器使用；原生端点不经 SockJS，供移动端使用二进制帧，
+     * permessage-deflate 由容器在握手时与客户端协商。
      */
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
         registry.addEndpoint(fleetsProperties.getWebsocket().getEndpoint())
                 .setAllowedOrigins(fleetsProperties.getWebsocket().getAllowedOrigins())
+                .setHandshakeHandler(handshakeHandler)
                 .addInterceptors(handshakeInterceptor)
                 .withSockJS();
+        registry.addEndpoint(fleetsProperties.getWebsocket().getNativeEndpoint())
+                .setAllowedOrigins(fleetsProperties.getWebsocket().getAllowedOrigins())
+                .setHandshakeHandler(handshakeHandler)
+                .addInterceptors(handshakeInterceptor, payloadCodec);
+    }
+
+    /**
+     * 增加 application/cbor 消息转换器（仅匹配显式声明该 content-type 的入站消息），保留默认转换器
+     */
+    @Override
+    public boolean configureMessageConverters(List<MessageConverter> messageConverters) {
+        MappingJackson2MessageConverter cborConverter = new MappingJackson2MessageConverter(StompPayloadCodec.APPLICATION_CBOR);
+        cborConverter.setObjectMapper(payloadCodec.getCborMapper());
+        cborConverter.setStrictContentTypeMatch(true);
+        messageConverters.add(cborConverter);
+        return true;
     }
     
     /**
-     * 配置客户端入站通道拦截器
-     * TODO: 添加认证拦截器（可选）
+     * 传输限制：会话发送缓冲或单次发送耗时超限时 Spring 直接断开会话（慢客户端不拖住出站线程），
+     * 客户端重连后通过信箱同步补齐
+     */
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        FleetsProperties.WebSocketConfig config = fleetsProperties.getWebsocket();
+        registration.setSendBufferSizeLimit(config.getSendBufferSizeLimit())
+                .setSendTimeLimit(config.getSendTimeLimitMillis())
+                .setMessageSizeLimit(config.getMessageSizeLimit())
+                .addDecoratorFactory(outboundBackpressureMonitor);
+    }
+
+    /**
+     * 配置客户端入站通道：群主题仅允许群成员订阅，线程池按配置定容；
+     * 同一会话的帧按到达顺序串行处理（见 {@link SessionOrderedTaskExecutor}），客户端可连续发送不必等待回执
      */
     @Override
     public void configureClientInboundChannel(ChannelRegistration registration) {
-        // TODO: 添加拦截器进行认证、日志等
+        FleetsProperties.WebSocketConfig config = fleetsProperties.getWebsocket();
+        registration.interceptors(groupSubscriptionInterceptor);
+        registration.taskExecutor(new SessionOrderedTaskExecutor(config.getInboundQueueCapacity()))
+                .corePoolSize(config.getInboundCorePoolSize())
+                .maxPoolSize(config.getInboundMaxPoolSize())
+                .queueCapacity(config.getInboundQueueCapacity());
+    }
+
+    /**
+     * 配置客户端出站通道：统计每个会话的出站积压，线程池按配置定容
+     */
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        FleetsProperties.WebSocketConfig config = fleetsProperties.getWebsocket();
+        registration.interceptors(outboundBackpressureMonitor);
+        registration.taskExecutor()
+                .corePoolSize(config.getOutboundCorePoolSize())
+                .maxPoolSize(config.getOutboundMaxPoolSize())
+                .queueCapacity(config.getOutboundQueueCapacity());
     }
 }
@@ -0,0 +1,45 @@
+package org.example.fleets.websocket.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.example.fleets.common.api.CommonResult;
+import org.example.fleets.common.util.Assert;
+import org.example.fleets.websocket.service.UserOnlineService;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 在线状态查询控制器
+ */
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/presence")
+public class PresenceController {
+    
+    private static final int MAX_QUERY_SIZE = 1000;
+    
+    private final UserOnlineService userOnlineService;
+    
+    /**
+     * 批量查询在线状态
+     * 示例：/api/presence?userIds=1,2,3
+     */
+    @GetMapping
+    public CommonResult<Map<Long, Boolean>> getPresence(@RequestParam List<Long> userIds) {
+        Assert.notEmpty(userIds, "用户ID列表不能为空");
+        Assert.isTrue(userIds.size() <= MAX_QUERY_SIZE, "单次最多查询 " + MAX_QUERY_SIZE + " 个用户");
+        return CommonResult.success(userOnlineService.getOnlineStatus(userIds));
+    }
+    
+    /**
+     * 全集群在线用户数
+     */
+    @GetMapping("/count")
+    public CommonResult<Long> countOnline() {
+        return CommonResult.success(userOnlineService.countOnlineUsers());
+    }
+}
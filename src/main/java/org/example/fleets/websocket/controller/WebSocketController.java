@@ -2,11 +2,35 @@ package org.example.fleets.websocket.controller;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.example.fleets.common.config.properties.FleetsProperties;
+import org.example.fleets.common.exception.BusinessException;
+import org.example.fleets.common.exception.ErrorCode;
+import org.example.fleets.message.model.dto.MessageAckDTO;
+import org.example.fleets.message.model.dto.MessageSendDTO;
+import org.example.fleets.message.model.vo.MessageSendAckVO;
+import org.example.fleets.message.model.vo.MessageVO;
+import org.example.fleets.message.service.MessageAckService;
+import org.example.fleets.message.service.MessageService;
+import org.example.fleets.websocket.cluster.ClusterPushRouter;
+import org.example.fleets.websocket.model.vo.ResumeResultVO;
+import org.example.fleets.websocket.model.vo.ResumeTokenVO;
+import org.example.fleets.websocket.service.SessionResumeService;
+import org.example.fleets.websocket.service.TypingRelayService;
 import org.example.fleets.websocket.service.UserOnlineService;
+import org.springframework.messaging.handler.annotation.MessageExceptionHandler;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.messaging.handler.annotation.support.MethodArgumentNotValidException;
 import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.annotation.SendToUser;
+import org.springframework.messaging.simp.annotation.SubscribeMapping;
 import org.springframework.stereotype.Controller;
+import org.springframework.validation.BindingResult;
+import org.springframework.validation.FieldError;
+
+import javax.validation.Valid;
+import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  * WebSocket 消息处理控制器
@@ -17,6 +41,13 @@ import org.springframework.stereotype.Controller;
 public class WebSocketController {
     
     private final UserOnlineService userOnlineService;
+    private final MessageAckService messageAckService;
+    private final MessageService messageService;
+    private final TypingRelayService typingRelayService;
+    private final SessionResumeService sessionResumeService;
+    private final ClusterPushRouter clusterPushRouter;
+    private final FleetsProperties fleetsProperties;
+    
     /**
      * 心跳检测
      * 客户端发送: /app/heartbeat
@@ -32,6 +63,66 @@ public class WebSocketController {
         log.debug("收到心跳: userId={}", userId);
     }
 
+    /**
+     * 消息确认（送达/已读），与 HTTP /api/message/ack/* 等价
+     * 客户端发送: /app/ack
+     */
+    @MessageMapping("/ack")
+    public void ack(@Payload MessageAckDTO ackDTO, SimpMessageHeaderAccessor headerAccessor) {
+        Long userId = resolveUserId(headerAccessor);
+        if (userId == null || ackDTO == null || ackDTO.getMessageId() == null) {
+            log.warn("无效的消息确认: userId={}, ack={}", userId, ackDTO);
+            return;
+        }
+        if (Integer.valueOf(2).equals(ackDTO.getAckType())) {
+            messageAckService.handleReadAck(userId, ackDTO.getMessageId());
+        } else {
+            messageAckService.handleDeliveredAck(userId, ackDTO.getMessageId());
+        }
+    }
+
+    /**
+     * 领取会话恢复令牌（连接建立后订阅一次，订阅即返回）
+     * 客户端订阅: /app/resume-token
+     */
+    @SubscribeMapping("/resume-token")
+    public ResumeTokenVO resumeToken(SimpMessageHeaderAccessor headerAccessor) {
+        Long userId = resolveUserId(headerAccessor);
+        if (userId == null) {
+            return null;
+        }
+        ResumeTokenVO vo = new ResumeTokenVO();
+        vo.setToken(sessionResumeService.issueToken(userId, headerAccessor.getSessionId()));
+        vo.setGraceSeconds(fleetsProperties.getWebsocket().getResumeGraceSeconds());
+        return vo;
+    }
+
+    /**
+     * 恢复上一个会话：补发断开期间的推送，失败时客户端走全量同步
+     * 客户端需先订阅 /user/queue/messages 等目的地再发送: /app/resume
+     */
+    @MessageMapping("/resume")
+    @SendToUser(destinations = "/queue/resume", broadcast = false)
+    public ResumeResultVO resume(@Payload ResumeRequest request, SimpMessageHeaderAccessor headerAccessor) {
+        Long userId = resolveUserId(headerAccessor);
+        SessionResumeService.ResumeTicket ticket = sessionResumeService.verify(request != null ? request.getToken() : null);
+        if (userId == null || ticket == null || !userId.equals(ticket.getUserId())) {
+            return ResumeResultVO.of(false, 0);
+        }
+        List<SessionResumeService.BufferedPush> missed = sessionResumeService.resume(ticket);
+        // 旧会话的路由记录由新会话接替，用户仍在线，不会产生下线通知
+        userOnlineService.userOffline(userId, ticket.getSessionId());
+        if (missed == null) {
+            log.info("会话恢复缓冲已溢出，需全量同步: userId={}, oldSessionId={}", userId, ticket.getSessionId());
+            return ResumeResultVO.of(false, 0);
+        }
+        for (SessionResumeService.BufferedPush push : missed) {
+            clusterPushRouter.deliverToSession(userId, headerAccessor.getSessionId(), push.getDestination(), push.getBody());
+        }
+        log.info("会话恢复: userId={}, oldSessionId={}, replayed={}", userId, ticket.getSessionId(), missed.size());
+        return ResumeResultVO.of(true, missed.size());
+    }
+
     /**
      * 从 STOMP 会话中解析当前用户 ID（Principal.name 即 userId）
      */
@@ -47,23 +138,71 @@ public class WebSocketController {
     }
     
     /**
-     * 客户端发送消息（可选，通常用 HTTP API 发消息）
-     * 客户端发送: /app/send
+     * 客户端发送消息，与 HTTP /api/message/send 走同一发送流程（含 clientMsgId 去重）
+     * 客户端发送: /app/send，回执推送到本会话的 /user/queue/ack
+     * 入站通道按会话串行处理帧，同一连接上可连续发送多条，不必等待上一条回执，会话序列号与发送顺序一致
      */
     @MessageMapping("/send")
-    public void sendMessage(@Payload String message, SimpMessageHeaderAccessor headerAccessor) {
+    @SendToUser(destinations = "/queue/ack", broadcast = false)
+    public MessageSendAckVO sendMessage(@Valid @Payload MessageSendDTO sendDTO, SimpMessageHeaderAccessor headerAccessor) {
         Long userId = resolveUserId(headerAccessor);
-        log.info("收到客户端消息: userId={}, message={}", userId, message);
+        if (userId == null) {
+            return MessageSendAckVO.failed(sendDTO.getClientMsgId(), ErrorCode.UNAUTHORIZED.getCode(), "请先登录");
+        }
+        try {
+            MessageVO messageVO = messageService.sendMessage(userId, sendDTO, headerAccessor.getSessionId());
+            return MessageSendAckVO.success(sendDTO.getClientMsgId(), messageVO);
+        } catch (BusinessException e) {
+            log.warn("WebSocket 发送消息失败: userId={}, clientMsgId={}, code={}, msg={}",
+                    userId, sendDTO.getClientMsgId(), e.getCode(), e.getMessage());
+            return MessageSendAckVO.failed(sendDTO.getClientMsgId(), e.getCode(), e.getMessage());
+        } catch (RuntimeException e) {
+            // 未预期异常也要回执，否则客户端的待发消息一直挂起
+            log.error("WebSocket 发送消息异常: userId={}, clientMsgId={}", userId, sendDTO.getClientMsgId(), e);
+            return MessageSendAckVO.failed(sendDTO.getClientMsgId(), ErrorCode.SYSTEM_ERROR.getCode(),
+                    ErrorCode.SYSTEM_ERROR.getMessage());
+        }
+    }
+
+    /**
+     * /app/send 参数校验失败，同样以回执返回，便于客户端按 clientMsgId 标记失败
+     */
+    @MessageExceptionHandler(MethodArgumentNotValidException.class)
+    @SendToUser(destinations = "/queue/ack", broadcast = false)
+    public MessageSendAckVO handleInvalidSend(MethodArgumentNotValidException e) {
+        BindingResult bindingResult = e.getBindingResult();
+        if (bindingResult == null) {
+            return MessageSendAckVO.failed(null, ErrorCode.VALIDATE_FAILED.getCode(), e.getMessage());
+        }
+        Object target = bindingResult.getTarget();
+        String clientMsgId = target instanceof MessageSendDTO ? ((MessageSendDTO) target).getClientMsgId() : null;
+        String errors = bindingResult.getFieldErrors().stream()
+                .map(FieldError::getDefaultMessage)
+                .collect(Collectors.joining(", "));
+        return MessageSendAckVO.failed(clientMsgId, ErrorCode.VALIDATE_FAILED.getCode(), errors);
     }
     
     /**
-     * 输入状态通知（正在输入...）
-     * 客户端发送: /app/typing
+     * 输入状态通知（正在输入...），只在内存中节流转发，不落库
+     * 客户端发送: /app/typing，对方接收 /user/queue/typing
      */
     @MessageMapping("/typing")
     public void typing(@Payload TypingMessage typingMessage, SimpMessageHeaderAccessor headerAccessor) {
         Long userId = resolveUserId(headerAccessor);
-        log.debug("用户正在输入: userId={}, conversationId={}", userId, typingMessage != null ? typingMessage.getConversationId() : null);
+        if (userId == null || typingMessage == null) {
+            return;
+        }
+        typingRelayService.relay(userId, typingMessage.getConversationId(), typingMessage.isTyping());
+    }
+    
+    /**
+     * 会话恢复请求
+     */
+    public static class ResumeRequest {
+        private String token;
+
+        public String getToken() { return token; }
+        public void setToken(String token) { this.token = token; }
     }
     
     /**
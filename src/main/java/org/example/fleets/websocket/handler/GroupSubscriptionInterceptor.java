@@ -0,0 +1,68 @@
+package org.example.fleets.websocket.handler;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.fleets.group.service.GroupService;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+
+import java.security.Principal;
+import java.util.List;
+
+/**
+ * 群主题订阅拦截器
+ * 客户端入站 SUBSCRIBE /topic/group/{groupId} 时校验是否为群成员，非成员拒绝订阅（返回 ERROR 帧）
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class GroupSubscriptionInterceptor implements ChannelInterceptor {
+
+    private static final String GROUP_TOPIC_PREFIX = "/topic/group/";
+
+    private final GroupService groupService;
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() != StompCommand.SUBSCRIBE) {
+            return message;
+        }
+        String destination = accessor.getDestination();
+        if (destination == null || !destination.startsWith(GROUP_TOPIC_PREFIX)) {
+            return message;
+        }
+
+        Long userId = resolveUserId(accessor.getUser());
+        Long groupId = parseGroupId(destination);
+        if (userId == null || groupId == null) {
+            throw new MessagingException(message, "无权订阅: " + destination);
+        }
+        List<Long> memberIds = groupService.getGroupMemberIds(groupId);
+        if (memberIds == null || !memberIds.contains(userId)) {
+            log.warn("拒绝非群成员订阅: userId={}, groupId={}", userId, groupId);
+            throw new MessagingException(message, "非群成员，无权订阅: " + destination);
+        }
+        return message;
+    }
+
+    private Long resolveUserId(Principal principal) {
+        if (principal == null || !principal.getName().matches("\\d+")) {
+            return null;
+        }
+        return Long.parseLong(principal.getName());
+    }
+
+    private Long parseGroupId(String destination) {
+        String rest = destination.substring(GROUP_TOPIC_PREFIX.length());
+        int slash = rest.indexOf('/');
+        String id = slash >= 0 ? rest.substring(0, slash) : rest;
+        return id.matches("\\d+") ? Long.parseLong(id) : null;
+    }
+}
@@ -0,0 +1,68 @@
+package org.example.fleets.websocket.handler;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.fleets.common.config.properties.FleetsProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 握手准入控制：限制本节点同时处理中的握手数
+ *
+ * 超出上限的握手直接返回 503，Retry-After 在基础值上加随机抖动，把同一时刻涌入的重连打散到后续若干秒，
+ * 避免客户端按相同间隔重试再次同时到达。节点排空时关闭准入，所有新握手都被拒绝。
+ * 指标：fleets.ws.handshake.inflight、fleets.ws.handshake.rejected
+ */
+@Component
+public class HandshakeAdmissionLimiter {
+
+    private final FleetsProperties fleetsProperties;
+    private final Semaphore permits;
+    private final Counter rejected;
+    private volatile boolean closed;
+
+    public HandshakeAdmissionLimiter(FleetsProperties fleetsProperties, MeterRegistry meterRegistry) {
+        this.fleetsProperties = fleetsProperties;
+        int maxConcurrent = fleetsProperties.getWebsocket().getHandshakeMaxConcurrent();
+        this.permits = new Semaphore(maxConcurrent);
+        this.rejected = Counter.builder("fleets.ws.handshake.rejected")
+                .description("超过并发握手上限被拒绝的握手数")
+                .register(meterRegistry);
+        Gauge.builder("fleets.ws.handshake.inflight", permits, p -> maxConcurrent - p.availablePermits())
+                .register(meterRegistry);
+    }
+
+    /**
+     * 不等待，拿不到许可即拒绝
+     */
+    public boolean tryAcquire() {
+        if (!closed && permits.tryAcquire()) {
+            return true;
+        }
+        rejected.increment();
+        return false;
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    /**
+     * 关闭准入（节点排空），不可恢复
+     */
+    public void close() {
+        closed = true;
+    }
+
+    /**
+     * 建议的重试间隔（秒）：基础值 + [0, 抖动上限] 内的随机值
+     */
+    public int retryAfterSeconds() {
+        FleetsProperties.WebSocketConfig config = fleetsProperties.getWebsocket();
+        return config.getHandshakeRetryAfterSeconds()
+                + ThreadLocalRandom.current().nextInt(config.getHandshakeRetryJitterSeconds() + 1);
+    }
+}
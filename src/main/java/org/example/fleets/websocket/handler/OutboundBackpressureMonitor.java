@@ -0,0 +1,194 @@
+package org.example.fleets.websocket.handler;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.example.fleets.common.config.properties.FleetsProperties;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 出站背压监控
+ *
+ * Spring 的会话发送缓冲（sendBufferSizeLimit / sendTimeLimit）超限时会直接断开会话，
+ * 但消息进入会话缓冲之前还可能积压在出站通道线程池的队列里。这里按会话统计
+ * 已进入出站通道、尚未处理完的字节数：
+ * 1. 持续超过发送缓冲上限达到发送耗时上限的会话主动断开，客户端重连后同步补齐
+ * 2. 指标：fleets.ws.outbound.queued.bytes（全部会话积压）、fleets.ws.outbound.queued.bytes.max（最大单会话积压）、
+ *    fleets.ws.sessions.evicted（因超限被断开的会话数，reason=buffer 为 Spring 缓冲超限，reason=backlog 为通道积压超限）
+ */
+@Slf4j
+@Component
+public class OutboundBackpressureMonitor implements ExecutorChannelInterceptor, WebSocketHandlerDecoratorFactory {
+
+    private final FleetsProperties fleetsProperties;
+    private final ConcurrentHashMap<String, SessionBacklog> backlogs = new ConcurrentHashMap<>();
+    private final Counter bufferEvictions;
+    private final Counter backlogEvictions;
+
+    public OutboundBackpressureMonitor(FleetsProperties fleetsProperties, MeterRegistry meterRegistry) {
+        this.fleetsProperties = fleetsProperties;
+        Gauge.builder("fleets.ws.outbound.queued.bytes", this, OutboundBackpressureMonitor::totalQueuedBytes)
+                .baseUnit("bytes")
+                .description("出站通道中尚未写给客户端的字节数")
+                .register(meterRegistry);
+        Gauge.builder("fleets.ws.outbound.queued.bytes.max", this, OutboundBackpressureMonitor::maxQueuedBytes)
+                .baseUnit("bytes")
+                .description("积压最多的单个会话的字节数")
+                .register(meterRegistry);
+        this.bufferEvictions = Counter.builder("fleets.ws.sessions.evicted")
+                .tag("reason", "buffer")
+                .register(meterRegistry);
+        this.backlogEvictions = Counter.builder("fleets.ws.sessions.evicted")
+                .tag("reason", "backlog")
+                .register(meterRegistry);
+    }
+
+    // ---------------- 会话登记 ----------------
+
+    @Override
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                backlogs.put(session.getId(), new SessionBacklog(session));
+                super.afterConnectionEstablished(session);
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                SessionBacklog backlog = backlogs.remove(session.getId());
+                if (CloseStatus.SESSION_NOT_RELIABLE.equals(closeStatus) && (backlog == null || !backlog.evicted)) {
+                    bufferEvictions.increment();
+                    log.warn("会话发送缓冲超限被断开: sessionId={}", session.getId());
+                }
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+
+    // ---------------- 出站通道 ----------------
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        SessionBacklog backlog = backlogOf(message);
+        int size = sizeOf(message);
+        if (backlog == null || size == 0) {
+            return message;
+        }
+        long queued = backlog.bytes.addAndGet(size);
+        checkLimit(backlog, queued);
+        return message;
+    }
+
+    @Override
+    public void afterSendCompletion(Message<?> message, MessageChannel channel, boolean sent, Exception ex) {
+        if (!sent || ex != null) {
+            // 未能进入线程池（如队列已满），撤回计数
+            release(message);
+        }
+    }
+
+    @Override
+    public Message<?> beforeHandle(Message<?> message, MessageChannel channel, MessageHandler handler) {
+        return message;
+    }
+
+    @Override
+    public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler handler, Exception ex) {
+        release(message);
+    }
+
+    private void release(Message<?> message) {
+        SessionBacklog backlog = backlogOf(message);
+        int size = sizeOf(message);
+        if (backlog == null || size == 0) {
+            return;
+        }
+        if (backlog.bytes.addAndGet(-size) <= fleetsProperties.getWebsocket().getSendBufferSizeLimit()) {
+            backlog.overSince = 0;
+        }
+    }
+
+    /**
+     * 积压持续超过缓冲上限达到发送耗时上限即断开
+     */
+    private void checkLimit(SessionBacklog backlog, long queued) {
+        FleetsProperties.WebSocketConfig config = fleetsProperties.getWebsocket();
+        if (queued <= config.getSendBufferSizeLimit()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (backlog.overSince == 0) {
+            backlog.overSince = now;
+            return;
+        }
+        if (now - backlog.overSince < config.getSendTimeLimitMillis() || backlog.evicted) {
+            return;
+        }
+        backlog.evicted = true;
+        backlogEvictions.increment();
+        log.warn("会话出站积压持续超限，断开连接: sessionId={}, queuedBytes={}", backlog.session.getId(), queued);
+        try {
+            backlog.session.close(CloseStatus.SESSION_NOT_RELIABLE);
+        } catch (IOException e) {
+            log.debug("关闭慢会话失败: sessionId={}", backlog.session.getId(), e);
+        }
+    }
+
+    private SessionBacklog backlogOf(Message<?> message) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        return sessionId != null ? backlogs.get(sessionId) : null;
+    }
+
+    private static int sizeOf(Message<?> message) {
+        Object payload = message.getPayload();
+        return payload instanceof byte[] ? ((byte[]) payload).length : 0;
+    }
+
+    long queuedBytes(String sessionId) {
+        SessionBacklog backlog = backlogs.get(sessionId);
+        return backlog != null ? backlog.bytes.get() : 0;
+    }
+
+    private double totalQueuedBytes() {
+        long total = 0;
+        for (SessionBacklog backlog : backlogs.values()) {
+            total += backlog.bytes.get();
+        }
+        return total;
+    }
+
+    private double maxQueuedBytes() {
+        long max = 0;
+        for (SessionBacklog backlog : backlogs.values()) {
+            max = Math.max(max, backlog.bytes.get());
+        }
+        return max;
+    }
+
+    private static class SessionBacklog {
+        private final WebSocketSession session;
+        private final AtomicLong bytes = new AtomicLong();
+        private volatile long overSince;
+        private volatile boolean evicted;
+
+        SessionBacklog(WebSocketSession session) {
+            this.session = session;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package org.example.fleets.websocket.handler;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.fleets.common.config.AsyncConfig;
+import org.example.fleets.mailbox.event.UnreadChangedEvent;
+import org.example.fleets.websocket.service.WebSocketService;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+/**
+ * 未读数变更监听：信箱写入/标记已读后把变更会话的最新未读数推送给在线用户，客户端无需轮询 /api/mailbox/unread
+ * 在单线程的 unreadPushExecutor 上异步推送，不占用信箱写入阶段的耗时；单线程保证同一节点上的推送顺序与发布顺序一致
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UnreadChangedListener {
+
+    private final WebSocketService webSocketService;
+
+    @Async(AsyncConfig.UNREAD_PUSH_EXECUTOR)
+    @EventListener
+    public void onUnreadChanged(UnreadChangedEvent event) {
+        try {
+            webSocketService.sendUnreadCounts(event.getConversationId(), event.getUnreadCounts());
+        } catch (Exception e) {
+            log.warn("推送未读数增量失败: conversationId={}, users={}",
+                    event.getConversationId(), event.getUnreadCounts().size(), e);
+        }
+    }
+}
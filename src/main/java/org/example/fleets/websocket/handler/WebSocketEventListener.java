@@ -2,10 +2,14 @@ package org.example.fleets.websocket.handler;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.example.fleets.websocket.service.ConnectionDrainService;
+import org.example.fleets.websocket.service.PresenceNotifier;
+import org.example.fleets.websocket.service.SessionResumeService;
 import org.example.fleets.websocket.service.UserOnlineService;
 import org.springframework.context.event.EventListener;
 import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.messaging.SessionConnectedEvent;
 import org.springframework.web.socket.messaging.SessionDisconnectEvent;
 import org.springframework.web.socket.messaging.SessionSubscribeEvent;
@@ -22,6 +26,9 @@ import java.security.Principal;
 public class WebSocketEventListener {
 
     private final UserOnlineService userOnlineService;
+    private final PresenceNotifier presenceNotifier;
+    private final SessionResumeService sessionResumeService;
+    private final ConnectionDrainService connectionDrainService;
 
     /**
      * 连接建立事件：从 Principal 取 userId，记录上线
@@ -36,17 +43,26 @@ public class WebSocketEventListener {
             return;
         }
         Long userId = Long.parseLong(principal.getName());
-        userOnlineService.userOnline(userId, sessionId);
+        if (userOnlineService.userOnline(userId, sessionId)) {
+            // 首个会话才算上线，多端登录不重复通知
+            presenceNotifier.onTransition(userId, true);
+        }
         log.info("WebSocket 连接建立: userId={}, sessionId={}", userId, sessionId);
     }
 
     /**
      * 连接断开事件：从 Principal 或 Redis 反查 userId，记录离线
+     * 非正常断开且领取过恢复令牌的会话先挂起，恢复窗口到期仍未重连才下线
+     * 节点排空时不再挂起；排空结束后剩余会话的在线记录已批量清除，断开事件直接忽略
      */
     @EventListener
     public void handleWebSocketDisconnectListener(SessionDisconnectEvent event) {
         SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(event.getMessage());
         String sessionId = accessor.getSessionId();
+        if (connectionDrainService.isPresenceReleased()) {
+            log.debug("节点已排空，忽略断开事件: sessionId={}", sessionId);
+            return;
+        }
         Long userId = null;
         Principal principal = accessor.getUser();
         if (principal != null && principal.getName().matches("\\d+")) {
@@ -56,13 +72,27 @@ public class WebSocketEventListener {
             userId = userOnlineService.getUserIdBySessionId(sessionId);
         }
         if (userId != null && sessionId != null) {
-            userOnlineService.userOffline(userId, sessionId);
+            Long offlineUserId = userId;
+            boolean normalClose = event.getCloseStatus() != null
+                    && event.getCloseStatus().getCode() == CloseStatus.NORMAL.getCode();
+            if (!normalClose && !connectionDrainService.isDraining() && sessionResumeService.detach(userId, sessionId, () -> goOffline(offlineUserId, sessionId))) {
+                log.info("WebSocket 连接断开，等待恢复: userId={}, sessionId={}", userId, sessionId);
+                return;
+            }
+            sessionResumeService.forget(sessionId);
+            goOffline(userId, sessionId);
             log.info("WebSocket 连接断开: userId={}, sessionId={}", userId, sessionId);
         } else {
             log.warn("WebSocket 连接断开但无法解析 userId: sessionId={}", sessionId);
         }
     }
 
+    private void goOffline(Long userId, String sessionId) {
+        if (userOnlineService.userOffline(userId, sessionId)) {
+            presenceNotifier.onTransition(userId, false);
+        }
+    }
+
     /**
      * 订阅事件（可选，仅打日志）
      */
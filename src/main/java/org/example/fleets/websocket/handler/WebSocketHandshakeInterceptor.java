@@ -1,8 +1,11 @@
 package org.example.fleets.websocket.handler;
 
-import cn.dev33.satoken.exception.NotLoginException;
-import cn.dev33.satoken.stp.StpUtil;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.example.fleets.websocket.service.SessionResumeService;
+import org.example.fleets.websocket.service.TokenAuthCache;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.server.ServerHttpRequest;
 import org.springframework.http.server.ServerHttpResponse;
 import org.springframework.stereotype.Component;
@@ -14,52 +17,72 @@ import java.util.Map;
 
 /**
  * WebSocket 握手拦截器
- * 用于认证和设置用户信息
+ * 用于认证和设置用户信息；携带有效恢复令牌（resume 参数）的重连直接放行，不查 Sa-Token
+ * 先经并发握手上限准入（超限返回 503 + Retry-After），token 经本地短 TTL 缓存解析
+ * 许可在 afterHandshake 中归还；本拦截器拒绝握手时 afterHandshake 不会被调用，需在返回前归还
  */
 @Slf4j
 @Component
+@RequiredArgsConstructor
 public class WebSocketHandshakeInterceptor implements HandshakeInterceptor {
     private static final String ATTR_USER_ID = "userId";
+
+    private final SessionResumeService sessionResumeService;
+    private final TokenAuthCache tokenAuthCache;
+    private final HandshakeAdmissionLimiter admissionLimiter;
     
     /**
-     * 握手前
-     * TODO: 实现 token 验证和用户信息设置
+     * 握手前：准入 -> 恢复令牌 -> token 鉴权
      */
     @Override
     public boolean beforeHandshake(ServerHttpRequest request, 
                                   ServerHttpResponse response,
                                   WebSocketHandler wsHandler, 
                                   Map<String, Object> attributes) throws Exception {
-        
-        // TODO: 从请求中获取 token
-        // TODO: 验证 token
-        // TODO: 将用户 ID 存入 attributes
-        // TODO: 返回 true 允许握手，false 拒绝握手
+        if (!admissionLimiter.tryAcquire()) {
+            int retryAfter = admissionLimiter.retryAfterSeconds();
+            response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+            response.getHeaders().set(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter));
+            log.debug("websocket 握手超过并发上限，拒绝: retryAfter={}s", retryAfter);
+            return false;
+        }
+        boolean admitted = false;
+        try {
+            admitted = authenticate(request, attributes);
+            return admitted;
+        } finally {
+            if (!admitted) {
+                admissionLimiter.release();
+            }
+        }
+    }
+
+    private boolean authenticate(ServerHttpRequest request, Map<String, Object> attributes) {
+        SessionResumeService.ResumeTicket ticket = sessionResumeService.verify(queryParam(request, "resume"));
+        if (ticket != null) {
+            attributes.put(ATTR_USER_ID, ticket.getUserId());
+            log.debug("websocket 恢复令牌握手成功: userId = {}", ticket.getUserId());
+            return true;
+        }
         String token = resolveToken(request);
         if (!StringUtils.hasText(token)) {
             log.warn("websocket握手失败:未提供token");
             return false;
         }
-        try {
-            Object loginId = StpUtil.getLoginIdByToken(token);
-            Long userId = loginId instanceof Long ? (Long) loginId : Long.parseLong(String.valueOf(loginId));
-            attributes.put(ATTR_USER_ID,userId);
-            log.debug("websocket 握手成功: userId = {}",userId);
-            return true;
-        }catch (NotLoginException e){
-            log.warn("websocket 握手失败:token 无效,{}",e.getMessage());
+        Long userId = tokenAuthCache.resolveUserId(token);
+        if (userId == null) {
+            log.warn("websocket 握手失败:token 无效");
             return false;
         }
+        attributes.put(ATTR_USER_ID,userId);
+        log.debug("websocket 握手成功: userId = {}",userId);
+        return true;
     }
 
     private String resolveToken(ServerHttpRequest request) {
-        String query = request.getURI().getQuery();
-        if (StringUtils.hasText(query)) {
-            for (String param: query.split("&")) {
-                if (param.startsWith("token=")) {
-                    return param.substring(6).trim();
-                }
-            }
+        String queryToken = queryParam(request, "token");
+        if (queryToken != null) {
+            return queryToken;
         }
 
         String auth = request.getHeaders().getFirst("Authorization");
@@ -72,16 +95,28 @@ public class WebSocketHandshakeInterceptor implements HandshakeInterceptor {
         }
         return null;
     }
+
+    private String queryParam(ServerHttpRequest request, String name) {
+        String query = request.getURI().getQuery();
+        if (StringUtils.hasText(query)) {
+            String prefix = name + "=";
+            for (String param: query.split("&")) {
+                if (param.startsWith(prefix)) {
+                    return param.substring(prefix.length()).trim();
+                }
+            }
+        }
+        return null;
+    }
     
     /**
-     * 握手后
-     * TODO: 握手完成后的处理（可选）
+     * 握手后（成功或失败都会调用）：归还准入许可
      */
     @Override
     public void afterHandshake(ServerHttpRequest request, 
                               ServerHttpResponse response,
                               WebSocketHandler wsHandler, 
                               Exception exception) {
-        // TODO: 握手完成后的处理
+        admissionLimiter.release();
     }
 }
@@ -0,0 +1,26 @@
+package org.example.fleets.websocket.model.vo;
+
+import lombok.Data;
+
+/**
+ * 连接控制帧VO（推送到 /user/queue/control）
+ */
+@Data
+public class ControlFrameVO {
+
+    public static final String TYPE_MIGRATE = "migrate";
+
+    private String type;
+
+    /**
+     * 建议客户端在此时间后建立新连接（先连新节点再断开旧连接）
+     */
+    private Long reconnectAfterMillis;
+
+    public static ControlFrameVO migrate(long reconnectAfterMillis) {
+        ControlFrameVO vo = new ControlFrameVO();
+        vo.setType(TYPE_MIGRATE);
+        vo.setReconnectAfterMillis(reconnectAfterMillis);
+        return vo;
+    }
+}
@@ -0,0 +1,24 @@
+package org.example.fleets.websocket.model.vo;
+
+import lombok.Data;
+
+/**
+ * 在线状态变更通知VO（推送到好友的 /user/queue/presence）
+ */
+@Data
+public class PresenceChangeVO {
+
+    private Long userId;
+
+    private Boolean online;
+
+    private Long timestamp;  // 毫秒时间戳
+
+    public static PresenceChangeVO of(Long userId, boolean online) {
+        PresenceChangeVO vo = new PresenceChangeVO();
+        vo.setUserId(userId);
+        vo.setOnline(online);
+        vo.setTimestamp(System.currentTimeMillis());
+        return vo;
+    }
+}
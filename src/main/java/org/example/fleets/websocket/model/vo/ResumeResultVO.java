@@ -0,0 +1,22 @@
+package org.example.fleets.websocket.model.vo;
+
+import lombok.Data;
+
+/**
+ * 会话恢复结果VO（推送到本会话的 /user/queue/resume）
+ * resumed=false 时客户端需走全量同步
+ */
+@Data
+public class ResumeResultVO {
+
+    private Boolean resumed;
+
+    private Integer replayed;  // 补发的消息数
+
+    public static ResumeResultVO of(boolean resumed, int replayed) {
+        ResumeResultVO vo = new ResumeResultVO();
+        vo.setResumed(resumed);
+        vo.setReplayed(replayed);
+        return vo;
+    }
+}
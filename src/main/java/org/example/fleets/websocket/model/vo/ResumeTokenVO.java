@@ -0,0 +1,14 @@
+package org.example.fleets.websocket.model.vo;
+
+import lombok.Data;
+
+/**
+ * 会话恢复令牌VO（订阅 /app/resume-token 时直接返回）
+ */
+@Data
+public class ResumeTokenVO {
+
+    private String token;
+
+    private Long graceSeconds;  // 断开后可恢复的时间窗口
+}
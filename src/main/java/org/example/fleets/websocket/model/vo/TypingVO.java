@@ -0,0 +1,23 @@
+package org.example.fleets.websocket.model.vo;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+/**
+ * 输入状态通知VO（推送到 /user/queue/typing）
+ * 单聊与小群逐人推送 userId，大群只推送正在输入的人数；客户端超过 expiresInMillis 未收到刷新即自动隐藏
+ */
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TypingVO {
+
+    private String conversationId;
+
+    private Long userId;  // 聚合通知时为空
+
+    private Boolean typing;
+
+    private Integer count;  // 大群聚合：正在输入的人数
+
+    private Long expiresInMillis;
+}
@@ -0,0 +1,155 @@
+package org.example.fleets.websocket.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.fleets.common.config.properties.FleetsProperties;
+import org.example.fleets.websocket.cluster.ClusterPushRouter;
+import org.example.fleets.websocket.handler.HandshakeAdmissionLimiter;
+import org.example.fleets.websocket.model.vo.ControlFrameVO;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.user.SimpSession;
+import org.springframework.messaging.simp.user.SimpUser;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 节点排空（滚动发布）
+ *
+ * ContextClosedEvent 在 WebSocket 代理等生命周期组件停止之前发布，这里同步完成排空后再让容器继续关闭：
+ * 1. 停止接受新握手（返回 503，负载均衡把重连导向其他节点）
+ * 2. 下发合并窗口内暂存的推送
+ * 3. 向本节点每个会话推送 migrate 控制帧，reconnectAfterMillis 在排空窗口内均匀错开，客户端按时迁移
+ * 4. 等待客户端自行断开，超时后剩余会话与挂起等待恢复的会话的在线记录一次 Pipeline 批量清除，
+ *    之后的断开事件不再逐个写 Redis；因此而离线的用户与防抖中的状态变更在节点退出前通知好友
+ * 排空总时长约为 drain-window-millis + drain-grace-millis，部署平台的终止宽限期需大于该值。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ConnectionDrainService {
+
+    private static final String CONTROL_DESTINATION = "/queue/control";
+    private static final long POLL_INTERVAL_MILLIS = 200;
+
+    private final HandshakeAdmissionLimiter admissionLimiter;
+    private final SimpUserRegistry simpUserRegistry;
+    private final ClusterPushRouter clusterPushRouter;
+    private final UserOnlineService userOnlineService;
+    private final SessionResumeService sessionResumeService;
+    private final PresenceNotifier presenceNotifier;
+    private final ObjectMapper objectMapper;
+    private final FleetsProperties fleetsProperties;
+
+    private volatile boolean draining;
+    private volatile boolean presenceReleased;
+
+    @EventListener(ContextClosedEvent.class)
+    public void onContextClosed() {
+        drain();
+    }
+
+    /**
+     * 排空本节点连接，重复调用无副作用
+     */
+    public synchronized void drain() {
+        if (draining) {
+            return;
+        }
+        draining = true;
+        admissionLimiter.close();
+        clusterPushRouter.flushPending();
+
+        FleetsProperties.WebSocketConfig config = fleetsProperties.getWebsocket();
+        List<SimpSession> sessions = localSessions();
+        log.info("节点开始排空: sessions={}, windowMillis={}", sessions.size(), config.getDrainWindowMillis());
+        sendMigrate(sessions, config.getDrainWindowMillis());
+
+        long deadline = System.currentTimeMillis() + config.getDrainWindowMillis() + config.getDrainGraceMillis();
+        while (simpUserRegistry.getUserCount() > 0 && System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(POLL_INTERVAL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        releasePresence();
+    }
+
+    public boolean isDraining() {
+        return draining;
+    }
+
+    /**
+     * 剩余会话的在线记录已批量清除，断开事件无需再处理
+     */
+    public boolean isPresenceReleased() {
+        return presenceReleased;
+    }
+
+    private void sendMigrate(List<SimpSession> sessions, long windowMillis) {
+        int total = sessions.size();
+        long slotMillis = total > 0 ? windowMillis / total : 0;
+        for (int i = 0; i < total; i++) {
+            SimpSession session = sessions.get(i);
+            Long userId = parseUserId(session.getUser());
+            if (userId == null) {
+                continue;
+            }
+            long delay = windowMillis * i / total + (slotMillis > 0 ? ThreadLocalRandom.current().nextLong(slotMillis) : 0);
+            try {
+                byte[] body = objectMapper.writeValueAsBytes(ControlFrameVO.migrate(delay));
+                clusterPushRouter.deliverToSession(userId, session.getId(), CONTROL_DESTINATION, body);
+            } catch (JsonProcessingException | RuntimeException e) {
+                log.warn("下发迁移控制帧失败: userId={}, sessionId={}", userId, session.getId(), e);
+            }
+        }
+    }
+
+    private void releasePresence() {
+        Map<String, Long> remaining = new HashMap<>();
+        for (SimpSession session : localSessions()) {
+            Long userId = parseUserId(session.getUser());
+            if (userId != null) {
+                remaining.put(session.getId(), userId);
+            }
+        }
+        // 挂起的会话在本节点退出后无法恢复，一并下线
+        Map<String, Long> detached = sessionResumeService.expireAll();
+        remaining.putAll(detached);
+        try {
+            for (Long userId : userOnlineService.usersOffline(remaining)) {
+                presenceNotifier.onTransition(userId, false);
+            }
+        } catch (RuntimeException e) {
+            log.warn("批量清除在线记录失败: sessions={}", remaining.size(), e);
+        }
+        presenceNotifier.flushPending();
+        presenceReleased = true;
+        log.info("节点排空结束: 剩余会话={}, 挂起会话={}", remaining.size() - detached.size(), detached.size());
+    }
+
+    private List<SimpSession> localSessions() {
+        List<SimpSession> sessions = new ArrayList<>();
+        for (SimpUser user : simpUserRegistry.getUsers()) {
+            sessions.addAll(user.getSessions());
+        }
+        return sessions;
+    }
+
+    private Long parseUserId(SimpUser user) {
+        if (user == null || !user.getName().matches("\\d+")) {
+            return null;
+        }
+        return Long.parseLong(user.getName());
+    }
+}
@@ -0,0 +1,113 @@
+package org.example.fleets.websocket.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.fleets.common.config.properties.FleetsProperties;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 在线状态变更通知（防抖）
+ *
+ * 上线/离线转换（由上线/离线脚本返回的集群级转换触发）先挂起 presenceDebounceMillis，窗口内的新转换替换旧的，
+ * 到期时在 Redis 中原子认领这次通知（{@link UserOnlineService#claimPresenceNotification}）：
+ * 1. 实际在线状态已反转（如在其他节点重连）则跳过，以那次转换为准
+ * 2. 与集群最近一次已通知的状态相同则不重复通知，换节点重连时两个节点不会各发一次
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PresenceNotifier {
+
+    private final WebSocketService webSocketService;
+    private final UserOnlineService userOnlineService;
+    private final FleetsProperties fleetsProperties;
+
+    /**
+     * userId -> 挂起中的通知
+     */
+    private final ConcurrentHashMap<Long, PendingTransition> pending = new ConcurrentHashMap<>();
+
+    private ScheduledThreadPoolExecutor scheduler;
+
+    @PostConstruct
+    public void init() {
+        scheduler = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "presence-notifier");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.setRemoveOnCancelPolicy(true);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * 记录一次上线/离线转换，防抖后通知在线好友
+     *
+     * 谁把挂起记录从 pending 中移除谁负责通知：到期任务只移除自己那条记录（remove(id, transition)），
+     * 已开始执行、取消失败的旧任务不会移除窗口内新挂起的转换
+     */
+    public void onTransition(Long userId, boolean online) {
+        long delay = fleetsProperties.getWebsocket().getPresenceDebounceMillis();
+        pending.compute(userId, (id, previous) -> {
+            if (previous != null) {
+                previous.future.cancel(false);
+            }
+            PendingTransition transition = new PendingTransition(online);
+            // 任务即使先于 compute 返回执行，remove 也会等到记录写入后再比较
+            transition.future = scheduler.schedule(() -> {
+                if (pending.remove(id, transition)) {
+                    fire(id, online);
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+            return transition;
+        });
+    }
+
+    /**
+     * 立即发出所有挂起中的通知（节点排空时调用，防抖窗口等不到到期）
+     */
+    public void flushPending() {
+        for (Long userId : pending.keySet()) {
+            PendingTransition transition = pending.remove(userId);
+            if (transition != null) {
+                transition.future.cancel(false);
+                fire(userId, transition.online);
+            }
+        }
+    }
+
+    void fire(Long userId, boolean online) {
+        try {
+            if (!userOnlineService.claimPresenceNotification(userId, online)) {
+                // 状态已反转，或集群内已通知过同一状态
+                log.debug("在线状态无需通知: userId={}, online={}", userId, online);
+                return;
+            }
+            webSocketService.sendOnlineStatusChange(userId, online);
+        } catch (Exception e) {
+            log.error("在线状态变更通知失败: userId={}, online={}", userId, online, e);
+        }
+    }
+
+    private static final class PendingTransition {
+        private final boolean online;
+        private volatile ScheduledFuture<?> future;
+
+        private PendingTransition(boolean online) {
+            this.online = online;
+        }
+    }
+}
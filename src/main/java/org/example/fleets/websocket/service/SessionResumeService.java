@@ -0,0 +1,299 @@
+package org.example.fleets.websocket.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.fleets.common.config.properties.FleetsProperties;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 会话快速恢复
+ *
+ * 1. 连接建立后客户端订阅 /app/resume-token 领取恢复令牌（HMAC 签名的 userId + sessionId）
+ * 2. 领取过令牌的会话非正常断开时先“挂起”resumeGraceSeconds：Redis 中的会话路由保留，
+ *    推送仍路由到本节点，写入该会话的内存缓冲（有界，溢出后只能全量同步）
+ * 3. 窗口内在本节点重连并发送 /app/resume 的客户端只补发缓冲中的消息；握手可直接用令牌认证，省去 Sa-Token 查询
+ * 4. 窗口到期未恢复才真正下线；换节点重连时令牌无法校验，客户端回退到全量同步
+ *
+ * 签名密钥每个进程随机生成，令牌只在签发节点有效，与缓冲只存在于本节点一致。
+ */
+@Slf4j
+@Service
+public class SessionResumeService {
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    /**
+     * 瞬时状态不缓冲，过期后补发没有意义
+     */
+    private static final String TYPING_DESTINATION = "/queue/typing";
+
+    private final FleetsProperties fleetsProperties;
+    private final byte[] secret = new byte[32];
+
+    /**
+     * 领取过令牌、断开时可挂起的会话
+     */
+    private final Set<String> resumableSessions = ConcurrentHashMap.newKeySet();
+
+    /**
+     * userId -> (sessionId -> 挂起中的会话)
+     */
+    private final ConcurrentHashMap<Long, ConcurrentHashMap<String, Detached>> detached = new ConcurrentHashMap<>();
+
+    private ScheduledThreadPoolExecutor scheduler;
+
+    public SessionResumeService(FleetsProperties fleetsProperties) {
+        this.fleetsProperties = fleetsProperties;
+        new SecureRandom().nextBytes(secret);
+    }
+
+    @PostConstruct
+    public void init() {
+        scheduler = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "session-resume");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.setRemoveOnCancelPolicy(true);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    // ---------------- 令牌 ----------------
+
+    /**
+     * 为当前会话签发恢复令牌
+     */
+    public String issueToken(Long userId, String sessionId) {
+        resumableSessions.add(sessionId);
+        String payload = userId + ":" + sessionId + ":" + System.currentTimeMillis();
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        return encoder.encodeToString(payload.getBytes(StandardCharsets.UTF_8)) + "." + encoder.encodeToString(sign(payload));
+    }
+
+    /**
+     * 校验令牌，且对应会话仍挂起在本节点时返回恢复凭据，否则返回 null
+     */
+    public ResumeTicket verify(String token) {
+        if (token == null) {
+            return null;
+        }
+        int dot = token.indexOf('.');
+        if (dot <= 0) {
+            return null;
+        }
+        try {
+            Base64.Decoder decoder = Base64.getUrlDecoder();
+            String payload = new String(decoder.decode(token.substring(0, dot)), StandardCharsets.UTF_8);
+            if (!MessageDigest.isEqual(sign(payload), decoder.decode(token.substring(dot + 1)))) {
+                return null;
+            }
+            String[] parts = payload.split(":");
+            if (parts.length != 3) {
+                return null;
+            }
+            ResumeTicket ticket = new ResumeTicket(Long.parseLong(parts[0]), parts[1]);
+            Map<String, Detached> sessions = detached.get(ticket.getUserId());
+            return sessions != null && sessions.containsKey(ticket.getSessionId()) ? ticket : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private byte[] sign(String payload) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(new SecretKeySpec(secret, HMAC_ALGORITHM));
+            return mac.doFinal(payload.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("恢复令牌签名失败", e);
+        }
+    }
+
+    // ---------------- 挂起与缓冲 ----------------
+
+    /**
+     * 会话断开：领取过令牌的会话挂起，窗口到期执行 onExpire（真正下线）；返回 false 表示不可挂起，调用方应立即下线
+     */
+    public boolean detach(Long userId, String sessionId, Runnable onExpire) {
+        if (!resumableSessions.remove(sessionId)) {
+            return false;
+        }
+        Detached session = new Detached();
+        detached.computeIfAbsent(userId, k -> new ConcurrentHashMap<>()).put(sessionId, session);
+        session.expiry = scheduler.schedule(() -> {
+            if (remove(userId, sessionId) != null) {
+                log.debug("会话恢复窗口到期，下线: userId={}, sessionId={}", userId, sessionId);
+                onExpire.run();
+            }
+        }, fleetsProperties.getWebsocket().getResumeGraceSeconds(), TimeUnit.SECONDS);
+        log.debug("会话挂起等待恢复: userId={}, sessionId={}", userId, sessionId);
+        return true;
+    }
+
+    public boolean isDetached(Long userId) {
+        return detached.containsKey(userId);
+    }
+
+    /**
+     * 记录推送给挂起会话的消息体（已编码，多个会话共用同一数组）
+     */
+    public void buffer(Long userId, String destination, byte[] body) {
+        Map<String, Detached> sessions = detached.get(userId);
+        if (sessions == null || TYPING_DESTINATION.equals(destination)) {
+            return;
+        }
+        int limit = fleetsProperties.getWebsocket().getResumeBufferSize();
+        for (Detached session : sessions.values()) {
+            session.offer(new BufferedPush(destination, body), limit);
+        }
+    }
+
+    /**
+     * 恢复挂起的会话：取消下线并取出缓冲；缓冲溢出或会话已不存在时返回 null
+     */
+    public List<BufferedPush> resume(ResumeTicket ticket) {
+        Detached session = remove(ticket.getUserId(), ticket.getSessionId());
+        if (session == null) {
+            return null;
+        }
+        if (session.expiry != null) {
+            session.expiry.cancel(false);
+        }
+        return session.drain();
+    }
+
+    /**
+     * 立即结束所有挂起的会话（节点排空时调用：节点即将退出，挂起窗口不会再到期，缓冲也无法补发）
+     *
+     * @return sessionId -> userId，由调用方批量下线
+     */
+    public Map<String, Long> expireAll() {
+        Map<String, Long> expired = new HashMap<>();
+        for (Map.Entry<Long, ConcurrentHashMap<String, Detached>> entry : detached.entrySet()) {
+            Long userId = entry.getKey();
+            for (String sessionId : new ArrayList<>(entry.getValue().keySet())) {
+                Detached session = remove(userId, sessionId);
+                if (session == null) {
+                    continue;
+                }
+                if (session.expiry != null) {
+                    session.expiry.cancel(false);
+                }
+                expired.put(sessionId, userId);
+            }
+        }
+        resumableSessions.clear();
+        return expired;
+    }
+
+    /**
+     * 会话正常结束（不挂起）时清理令牌登记
+     */
+    public void forget(String sessionId) {
+        resumableSessions.remove(sessionId);
+    }
+
+    private Detached remove(Long userId, String sessionId) {
+        Detached[] removed = new Detached[1];
+        detached.computeIfPresent(userId, (id, sessions) -> {
+            removed[0] = sessions.remove(sessionId);
+            return sessions.isEmpty() ? null : sessions;
+        });
+        return removed[0];
+    }
+
+    /**
+     * 挂起中的会话及其缓冲
+     */
+    private static class Detached {
+        private final Deque<BufferedPush> buffer = new ArrayDeque<>();
+        private boolean overflowed;
+        private volatile ScheduledFuture<?> expiry;
+
+        synchronized void offer(BufferedPush push, int limit) {
+            if (overflowed) {
+                return;
+            }
+            if (buffer.size() >= limit) {
+                // 缓冲放不下，恢复时只能全量同步，不再继续占用内存
+                overflowed = true;
+                buffer.clear();
+                return;
+            }
+            buffer.addLast(push);
+        }
+
+        synchronized List<BufferedPush> drain() {
+            return overflowed ? null : Collections.unmodifiableList(new ArrayList<>(buffer));
+        }
+    }
+
+    /**
+     * 恢复凭据
+     */
+    public static class ResumeTicket {
+        private final Long userId;
+        private final String sessionId;
+
+        public ResumeTicket(Long userId, String sessionId) {
+            this.userId = userId;
+            this.sessionId = sessionId;
+        }
+
+        public Long getUserId() {
+            return userId;
+        }
+
+        public String getSessionId() {
+            return sessionId;
+        }
+    }
+
+    /**
+     * 缓冲的推送
+     */
+    public static class BufferedPush {
+        private final String destination;
+        private final byte[] body;
+
+        public BufferedPush(String destination, byte[] body) {
+            this.destination = destination;
+            this.body = body;
+        }
+
+        public String getDestination() {
+            return destination;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package org.example.fleets.websocket.service;
+
+import cn.dev33.satoken.stp.StpUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.example.fleets.cache.redis.RedisService;
+import org.example.fleets.common.config.properties.FleetsProperties;
+import org.redisson.api.RTopic;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 握手鉴权本地缓存：token -> userId
+ *
+ * 发布或网络抖动后大量客户端同时重连，每次握手都查 Sa-Token（Redis）会把 Redis 打满。
+ * 这里只缓存校验成功的结果，TTL 很短（默认 30 秒），无效 token 不缓存。
+ * 注销、改密、禁用、删除用户时由 {@link #invalidateUser} 通过 Redis 频道通知所有节点清除该用户的缓存，
+ * 注销后的 token 不能再借缓存完成握手；频道消息丢失时最多在 TTL 内仍可握手。
+ * 注意：只有握手时鉴权，已建立的 STOMP 连接上的后续帧不再经过 Sa-Token 校验，注销不会断开已有连接。
+ * 指标：fleets.ws.auth.cache{result=hit|miss}、fleets.ws.auth.cache.size
+ */
+@Slf4j
+@Component
+public class TokenAuthCache {
+
+    /**
+     * 失效通知频道（消息体为 userId）
+     */
+    private static final String INVALIDATE_CHANNEL = "ws:auth:invalidate";
+
+    private final FleetsProperties fleetsProperties;
+    private final RedisService redisService;
+    private final ConcurrentHashMap<String, CachedLogin> cache = new ConcurrentHashMap<>();
+    private final Counter hits;
+    private final Counter misses;
+    private RTopic invalidateChannel;
+    private int listenerId = -1;
+
+    public TokenAuthCache(FleetsProperties fleetsProperties, RedisService redisService, MeterRegistry meterRegistry) {
+        this.fleetsProperties = fleetsProperties;
+        this.redisService = redisService;
+        this.hits = Counter.builder("fleets.ws.auth.cache").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("fleets.ws.auth.cache").tag("result", "miss").register(meterRegistry);
+        Gauge.builder("fleets.ws.auth.cache.size", cache, ConcurrentHashMap::size).register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        invalidateChannel = redisService.getTopic(INVALIDATE_CHANNEL);
+        listenerId = invalidateChannel.addListener(String.class, (channel, userId) -> {
+            try {
+                evictUser(Long.parseLong(userId));
+            } catch (NumberFormatException e) {
+                log.warn("忽略格式错误的鉴权缓存失效通知: {}", userId);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void unsubscribe() {
+        if (invalidateChannel != null && listenerId != -1) {
+            invalidateChannel.removeListener(listenerId);
+        }
+    }
+
+    /**
+     * 解析 token 对应的 userId，无效或未登录返回 null
+     */
+    public Long resolveUserId(String token) {
+        if (!StringUtils.hasText(token)) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        CachedLogin cached = cache.get(token);
+        if (cached != null && cached.expiresAt > now) {
+            hits.increment();
+            return cached.userId;
+        }
+        misses.increment();
+        Long userId = lookup(token);
+        if (userId != null && cache.size() < fleetsProperties.getWebsocket().getAuthCacheMaxSize()) {
+            long ttl = TimeUnit.SECONDS.toMillis(fleetsProperties.getWebsocket().getAuthCacheTtlSeconds());
+            cache.put(token, new CachedLogin(userId, now + ttl));
+        } else if (userId == null && cached != null) {
+            cache.remove(token, cached);
+        }
+        return userId;
+    }
+
+    /**
+     * 主动失效单个 token（仅本节点）
+     */
+    public void invalidate(String token) {
+        if (token != null) {
+            cache.remove(token);
+        }
+    }
+
+    /**
+     * 失效用户的所有 token：先清本节点，再通知其他节点（Sa-Token 按 userId 注销时调用）
+     */
+    public void invalidateUser(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        evictUser(userId);
+        try {
+            redisService.getTopic(INVALIDATE_CHANNEL).publish(String.valueOf(userId));
+        } catch (Exception e) {
+            log.warn("广播鉴权缓存失效失败，其他节点的缓存将在 TTL 后过期: userId={}", userId, e);
+        }
+    }
+
+    /**
+     * 清理过期条目
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        Iterator<CachedLogin> it = cache.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().expiresAt <= now) {
+                it.remove();
+            }
+        }
+    }
+
+    private void evictUser(Long userId) {
+        cache.values().removeIf(cached -> userId.equals(cached.userId));
+    }
+
+    private Long lookup(String token) {
+        try {
+            Object loginId = StpUtil.getLoginIdByToken(token);
+            if (loginId == null) {
+                return null;
+            }
+            return loginId instanceof Long ? (Long) loginId : Long.parseLong(String.valueOf(loginId));
+        } catch (Exception e) {
+            log.debug("token 校验失败: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static final class CachedLogin {
+        private final Long userId;
+        private final long expiresAt;
+
+        private CachedLogin(Long userId, long expiresAt) {
+            this.userId = userId;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
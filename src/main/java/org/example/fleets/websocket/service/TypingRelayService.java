@@ -0,0 +1,301 @@
+package org.example.fleets.websocket.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.fleets.common.config.properties.FleetsProperties;
+import org.example.fleets.group.service.GroupService;
+import org.example.fleets.user.service.FriendshipService;
+import org.example.fleets.websocket.cluster.ClusterPushRouter;
+import org.example.fleets.websocket.cluster.GroupTypingCount;
+import org.example.fleets.websocket.cluster.NodeIdentity;
+import org.example.fleets.websocket.model.vo.TypingVO;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * 输入状态转发服务
+ *
+ * 输入状态是瞬时数据，不写 Redis 或 Mongo，也不经过消息总线：
+ * 1. 同一 (用户, 会话) 在节流间隔内只转发一次“正在输入”，停止输入立即转发；节流记录只在本节点内存
+ * 2. 只转发给会话另一方（须为好友）或群内其他成员，与发送消息的校验一致
+ * 3. 通知带过期时间，客户端到期自动隐藏，服务端节流记录由定时任务清理
+ * 4. 成员数超过聚合阈值的大群不逐人转发，按间隔汇总为“N 人正在输入”：
+ *    每个节点只在内存中记录本节点的输入者，人数变化时经节点推送通道上报给有该群在线成员的节点；
+ *    每个节点把各节点上报的人数相加，人数变化时只推送给本节点上的成员。上报带有效期并定期刷新，节点宕机后自动失效
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TypingRelayService {
+
+    private static final String SINGLE_PREFIX = "conv_";
+    private static final String GROUP_PREFIX = "conv_group_";
+    private static final String DESTINATION = "/queue/typing";
+
+    private final ClusterPushRouter clusterPushRouter;
+    private final GroupService groupService;
+    private final FriendshipService friendshipService;
+    private final NodeIdentity nodeIdentity;
+    private final FleetsProperties fleetsProperties;
+
+    /**
+     * userId:conversationId -> 上次转发时间
+     */
+    private final ConcurrentHashMap<String, Long> lastRelayed = new ConcurrentHashMap<>();
+
+    /**
+     * 本节点的大群输入者：groupId -> (userId -> 输入状态过期时间)
+     */
+    private final ConcurrentHashMap<Long, Map<Long, Long>> localTypers = new ConcurrentHashMap<>();
+
+    /**
+     * 本节点上次上报的输入人数：groupId -> 上报记录
+     */
+    private final Map<Long, Report> lastReported = new ConcurrentHashMap<>();
+
+    /**
+     * 各节点上报的输入人数：groupId -> (nodeId -> 上报记录)
+     */
+    private final ConcurrentHashMap<Long, Map<String, Report>> nodeCounts = new ConcurrentHashMap<>();
+
+    /**
+     * 上次推送给本节点成员的汇总人数：groupId -> count
+     */
+    private final Map<Long, Integer> lastPushed = new ConcurrentHashMap<>();
+
+    /**
+     * 处理客户端输入状态
+     */
+    public void relay(Long userId, String conversationId, boolean typing) {
+        if (userId == null || conversationId == null) {
+            return;
+        }
+        // 先节流再查成员，连续按键不会每次都查询群成员
+        if (!acquire(userId, conversationId, typing)) {
+            return;
+        }
+        if (conversationId.startsWith(GROUP_PREFIX)) {
+            Long groupId = parseId(conversationId.substring(GROUP_PREFIX.length()));
+            if (groupId != null) {
+                relayToGroup(userId, groupId, conversationId, typing);
+            }
+        } else if (conversationId.startsWith(SINGLE_PREFIX)) {
+            Long peerId = resolvePeer(userId, conversationId);
+            if (peerId == null) {
+                return;
+            }
+            if (!friendshipService.isFriend(userId, peerId)) {
+                log.debug("非好友的输入状态，忽略: userId={}, peerId={}", userId, peerId);
+                return;
+            }
+            clusterPushRouter.pushToUser(peerId, DESTINATION, build(conversationId, userId, typing));
+        }
+    }
+
+    private void relayToGroup(Long userId, Long groupId, String conversationId, boolean typing) {
+        List<Long> memberIds = groupService.getGroupMemberIds(groupId);
+        if (memberIds == null || !memberIds.contains(userId)) {
+            log.debug("非群成员的输入状态，忽略: userId={}, groupId={}", userId, groupId);
+            return;
+        }
+        FleetsProperties.WebSocketConfig config = fleetsProperties.getWebsocket();
+        if (memberIds.size() > config.getTypingAggregateThreshold()) {
+            // 大群只记录到本节点内存，由定时汇总推送
+            long expireAt = System.currentTimeMillis() + config.getTypingExpireMillis();
+            localTypers.compute(groupId, (k, typers) -> {
+                Map<Long, Long> value = typers != null ? typers : new ConcurrentHashMap<>();
+                if (typing) {
+                    value.put(userId, expireAt);
+                } else {
+                    value.remove(userId);
+                }
+                return value;
+            });
+            return;
+        }
+        List<Long> others = memberIds.stream().filter(id -> !id.equals(userId)).collect(Collectors.toList());
+        clusterPushRouter.pushToUsers(others, DESTINATION, build(conversationId, userId, typing));
+    }
+
+    /**
+     * 节流：停止输入总是放行并清除记录；正在输入在间隔内只放行一次
+     */
+    private boolean acquire(Long userId, String conversationId, boolean typing) {
+        String key = userId + ":" + conversationId;
+        if (!typing) {
+            return lastRelayed.remove(key) != null;
+        }
+        long now = System.currentTimeMillis();
+        long throttle = fleetsProperties.getWebsocket().getTypingThrottleMillis();
+        boolean[] acquired = new boolean[1];
+        lastRelayed.compute(key, (k, last) -> {
+            if (last != null && now - last < throttle) {
+                return last;
+            }
+            acquired[0] = true;
+            return now;
+        });
+        return acquired[0];
+    }
+
+    /**
+     * 大群输入人数汇总：先上报本节点人数的变化，再把各节点人数之和推送给本节点上的成员
+     */
+    @Scheduled(fixedDelayString = "${fleets.websocket.typing-aggregate-flush-millis:2000}")
+    public void flushGroupTypers() {
+        long now = System.currentTimeMillis();
+        Set<Long> groupIds = new HashSet<>(localTypers.keySet());
+        groupIds.addAll(lastReported.keySet());
+        for (Long groupId : groupIds) {
+            try {
+                reportLocalTypers(groupId, now);
+            } catch (Exception e) {
+                log.warn("上报群输入人数失败: groupId={}", groupId, e);
+            }
+        }
+        for (Long groupId : new HashSet<>(nodeCounts.keySet())) {
+            try {
+                pushAggregatedCount(groupId, now);
+            } catch (Exception e) {
+                log.warn("推送群输入状态失败: groupId={}", groupId, e);
+            }
+        }
+    }
+
+    /**
+     * 接收节点上报的大群输入人数（含本节点自己的上报）
+     */
+    @EventListener
+    public void onTypingCount(GroupTypingCount typingCount) {
+        if (typingCount.getGroupId() == null || typingCount.getNodeId() == null) {
+            return;
+        }
+        long expireAt = System.currentTimeMillis() + typingCount.getExpiresInMillis();
+        nodeCounts.compute(typingCount.getGroupId(), (k, counts) -> {
+            Map<String, Report> value = counts != null ? counts : new ConcurrentHashMap<>();
+            if (typingCount.getCount() > 0) {
+                value.put(typingCount.getNodeId(), new Report(typingCount.getCount(), expireAt));
+            } else {
+                value.remove(typingCount.getNodeId());
+            }
+            return value;
+        });
+    }
+
+    /**
+     * 本节点人数变化时上报；人数不变但仍有人输入时，在上报过期前刷新
+     */
+    private void reportLocalTypers(Long groupId, long now) {
+        Map<Long, Long> typers = localTypers.computeIfPresent(groupId, (k, value) -> {
+            value.values().removeIf(expireAt -> expireAt <= now);
+            return value.isEmpty() ? null : value;
+        });
+        int count = typers == null ? 0 : typers.size();
+        long expire = fleetsProperties.getWebsocket().getTypingExpireMillis();
+        Report last = lastReported.get(groupId);
+        boolean changed = last == null ? count > 0 : last.count != count;
+        boolean refresh = count > 0 && last != null && now - last.at >= expire / 2;
+        if (!changed && !refresh) {
+            return;
+        }
+        GroupTypingCount typingCount = new GroupTypingCount();
+        typingCount.setGroupId(groupId);
+        typingCount.setNodeId(nodeIdentity.getNodeId());
+        typingCount.setCount(count);
+        typingCount.setExpiresInMillis(expire);
+        clusterPushRouter.publishTypingCount(groupService.getGroupMemberIds(groupId), typingCount);
+        if (count > 0) {
+            lastReported.put(groupId, new Report(count, now));
+        } else {
+            lastReported.remove(groupId);
+        }
+    }
+
+    /**
+     * 各节点人数之和变化时推送给本节点成员；降为 0 时推送一次“停止输入”后清除
+     */
+    private void pushAggregatedCount(Long groupId, long now) {
+        Map<String, Report> counts = nodeCounts.computeIfPresent(groupId, (k, value) -> {
+            value.values().removeIf(report -> report.at <= now);
+            return value.isEmpty() ? null : value;
+        });
+        int total = counts == null ? 0 : counts.values().stream().mapToInt(report -> report.count).sum();
+        Integer last = total > 0 ? lastPushed.put(groupId, total) : lastPushed.remove(groupId);
+        if (last == null ? total == 0 : last == total) {
+            return;
+        }
+        TypingVO vo = build(GROUP_PREFIX + groupId, null, total > 0);
+        vo.setCount(total);
+        clusterPushRouter.pushToLocalUsers(groupService.getGroupMemberIds(groupId), DESTINATION, vo);
+    }
+
+    /**
+     * 清理过期的节流记录
+     */
+    @Scheduled(fixedDelayString = "${fleets.websocket.typing-expire-millis:6000}")
+    public void evictExpired() {
+        long expireBefore = System.currentTimeMillis() - fleetsProperties.getWebsocket().getTypingExpireMillis();
+        Iterator<Long> it = lastRelayed.values().iterator();
+        while (it.hasNext()) {
+            if (it.next() < expireBefore) {
+                it.remove();
+            }
+        }
+    }
+
+    private TypingVO build(String conversationId, Long userId, boolean typing) {
+        TypingVO vo = new TypingVO();
+        vo.setConversationId(conversationId);
+        vo.setUserId(userId);
+        vo.setTyping(typing);
+        if (typing) {
+            vo.setExpiresInMillis(fleetsProperties.getWebsocket().getTypingExpireMillis());
+        }
+        return vo;
+    }
+
+    /**
+     * 单聊会话ID为 conv_min_max，当前用户必须是其中一方
+     */
+    private Long resolvePeer(Long userId, String conversationId) {
+        String[] parts = conversationId.substring(SINGLE_PREFIX.length()).split("_");
+        if (parts.length != 2) {
+            return null;
+        }
+        Long first = parseId(parts[0]);
+        Long second = parseId(parts[1]);
+        if (first == null || second == null) {
+            return null;
+        }
+        if (userId.equals(first)) {
+            return second;
+        }
+        return userId.equals(second) ? first : null;
+    }
+
+    private Long parseId(String value) {
+        return value.matches("\\d+") ? Long.parseLong(value) : null;
+    }
+
+    /**
+     * 输入人数记录：本节点上报时 at 为上报时间，接收节点记录时 at 为过期时间
+     */
+    private static class Report {
+        final int count;
+        final long at;
+
+        Report(int count, long at) {
+            this.count = count;
+            this.at = at;
+        }
+    }
+}
@@ -4,14 +4,44 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.example.fleets.cache.redis.RedisService;
 import org.example.fleets.common.config.properties.FleetsProperties;
+import org.example.fleets.websocket.cluster.NodeIdentity;
+import org.redisson.api.RBatch;
+import org.redisson.api.RFuture;
+import org.redisson.api.RMap;
+import org.redisson.api.RScript;
+import org.redisson.api.RScoredSortedSetAsync;
+import org.redisson.api.RScriptAsync;
 import org.redisson.api.RSet;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 /**
  * 用户在线状态服务
+ * 
+ * 上线/离线各用一次 Lua 脚本完成，会话计数与在线标记在同一原子操作内更新，
+ * 多端场景下不存在"仍有会话却显示离线"的窗口。
+ * 
+ * 仅支持单实例/哨兵部署，暂不支持 Redis Cluster：上线/离线脚本除用户自己的 Key 外还写全局在线位图与过期时间索引，
+ * 对账脚本按前缀拼出各用户的在线标记 Key，一次脚本调用的 Key 必须在同一个槽内，给用户 Key 加 hash tag 并不够。
+ * 要支持 Cluster，需先把位图与过期时间索引拆出脚本（或按用户分片），再为同一用户的 Key 加 hash tag。
+ * 
+ * 在线位图的位由上线/离线脚本维护；心跳中断时在线标记按 TTL 过期，没有脚本清位，
+ * 因此上线与续期时同时在过期时间索引（ZSet）中记录过期时间，由 reconcileOnlineBitmap 定期清除已过期用户的在线位。
  */
 @Slf4j
 @Service
@@ -20,52 +50,175 @@ public class UserOnlineService {
     
     private final RedisService redisService;
     private final FleetsProperties fleetsProperties;
+    private final NodeIdentity nodeIdentity;
     
     /**
-     * 用户上线
-     * TODO: 实现用户上线逻辑
-     * 提示：使用 Redis 存储在线状态和会话信息
+     * 当前周期内收到心跳的用户；flushHeartbeats 逐个摘除，摘除后到达的心跳留到下个周期
      */
-    public void userOnline(Long userId, String sessionId) {
-        // TODO: 标记用户在线
-        // TODO: 存储会话信息
-        // TODO: 支持多端登录（一个用户多个会话）
-        FleetsProperties.RedisConfig redisConfig = fleetsProperties.getRedis();
-        FleetsProperties.WebSocketConfig webSocketConfig = fleetsProperties.getWebsocket();
-        String onlineKey = redisConfig.getOnlineKeyPrefix() + userId;
-        redisService.set(onlineKey, "1", webSocketConfig.getOnlineExpireSeconds(),TimeUnit.SECONDS);
-        String sessionKey = redisConfig.getSessionKeyPrefix() + sessionId;
-        redisService.set(sessionKey, userId);
-        String sessionsKey = redisConfig.getUserSessionsKeyPrefix() + userId;
-        RSet<String> sessionsSet = redisService.getSet(sessionsKey);
-        sessionsSet.add(sessionId);
-        redisService.expire(sessionsKey, webSocketConfig.getOnlineExpireSeconds(),TimeUnit.SECONDS);
+    private final Set<Long> heartbeats = ConcurrentHashMap.newKeySet();
+    
+    /**
+     * userId -> 上次在 Redis 续期的时间
+     */
+    private final Map<Long, Long> lastRefreshed = new ConcurrentHashMap<>();
+    
+    /**
+     * Redis 位图最大偏移量（2^32 - 1），超出的 userId 不进入位图
+     */
+    private static final long MAX_BITMAP_OFFSET = 4294967295L;
+    
+    /**
+     * 对账单次脚本处理的过期用户数
+     */
+    private static final int RECONCILE_BATCH_SIZE = 1000;
+    
+    private static final String RECONCILE_LOCK_KEY = "lock:user:online:reconcile";
+    
+    /**
+     * 已通知状态的保留时间（秒）；过期后最多多发一次相同状态的通知
+     */
+    private static final long PRESENCE_NOTIFIED_TTL_SECONDS = TimeUnit.DAYS.toSeconds(1);
+    
+    /**
+     * 上线脚本：标记在线（含在线位图与过期时间索引）、记录会话与所在节点并续期，返回当前会话数
+     * KEYS: online, session, sessions, nodes, bitmap, expiry；ARGV: userId, sessionId, nodeId, ttlSeconds, expireAtMillis
+     */
+    private static final String ONLINE_SCRIPT =
+            "redis.call('SET', KEYS[1], '1', 'EX', ARGV[4]) " +
+            "redis.call('SET', KEYS[2], ARGV[1]) " +
+            "redis.call('SADD', KEYS[3], ARGV[2]) " +
+            "redis.call('EXPIRE', KEYS[3], ARGV[4]) " +
+            "redis.call('HSET', KEYS[4], ARGV[2], ARGV[3]) " +
+            "redis.call('EXPIRE', KEYS[4], ARGV[4]) " +
+            "if tonumber(ARGV[1]) < 4294967296 then redis.call('SETBIT', KEYS[5], ARGV[1], 1) end " +
+            "redis.call('ZADD', KEYS[6], ARGV[5], ARGV[1]) " +
+            "return redis.call('SCARD', KEYS[3])";
+    
+    /**
+     * 离线脚本：移除会话，最后一个会话离开时清除在线标记、在线位与过期时间索引，返回剩余会话数
+     * KEYS: online, session, sessions, nodes, bitmap, expiry；ARGV: sessionId, ttlSeconds, userId
+     */
+    private static final String OFFLINE_SCRIPT =
+            "redis.call('DEL', KEYS[2]) " +
+            "redis.call('SREM', KEYS[3], ARGV[1]) " +
+            "redis.call('HDEL', KEYS[4], ARGV[1]) " +
+            "local remaining = redis.call('SCARD', KEYS[3]) " +
+            "if remaining == 0 then " +
+            "  redis.call('DEL', KEYS[1], KEYS[3], KEYS[4]) " +
+            "  if tonumber(ARGV[3]) < 4294967296 then redis.call('SETBIT', KEYS[5], ARGV[3], 0) end " +
+            "  redis.call('ZREM', KEYS[6], ARGV[3]) " +
+            "else " +
+            "  redis.call('EXPIRE', KEYS[3], ARGV[2]) " +
+            "  redis.call('EXPIRE', KEYS[4], ARGV[2]) " +
+            "end " +
+            "return remaining";
+    
+    /**
+     * 通知去重脚本：在线标记与待通知状态一致、且与集群最近一次已通知的状态不同时记录并返回 1，否则返回 0
+     * KEYS: notified, online；ARGV: state("1"/"0"), ttlSeconds
+     */
+    private static final String CLAIM_NOTIFICATION_SCRIPT =
+            "local online = redis.call('EXISTS', KEYS[2]) == 1 and '1' or '0' " +
+            "if online ~= ARGV[1] then return 0 end " +
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return 0 end " +
+            "redis.call('SET', KEYS[1], ARGV[1], 'EX', ARGV[2]) " +
+            "return 1";
+    
+    /**
+     * 对账脚本：取过期时间已到的用户，在线标记已不存在则清除在线位并移出索引，
+     * 仍存在（其他节点续期后索引未跟上）则按剩余 TTL 更新索引；返回 {处理数, 清除数}
+     * KEYS: expiry, bitmap；ARGV: nowMillis, limit, onlineKeyPrefix, ttlMillis
+     */
+    private static final String RECONCILE_SCRIPT =
+            "local expired = redis.call('ZRANGEBYSCORE', KEYS[1], '-inf', ARGV[1], 'LIMIT', 0, ARGV[2]) " +
+            "local cleared = 0 " +
+            "for _, uid in ipairs(expired) do " +
+            "  local pttl = redis.call('PTTL', ARGV[3] .. uid) " +
+            "  if pttl == -2 then " +
+            "    if tonumber(uid) < 4294967296 then redis.call('SETBIT', KEYS[2], uid, 0) end " +
+            "    redis.call('ZREM', KEYS[1], uid) " +
+            "    cleared = cleared + 1 " +
+            "  else " +
+            "    if pttl < 0 then pttl = tonumber(ARGV[4]) end " +
+            "    redis.call('ZADD', KEYS[1], tonumber(ARGV[1]) + pttl, uid) " +
+            "  end " +
+            "end " +
+            "return {#expired, cleared}";
+    
+    /**
+     * 用户上线（一次 Lua 脚本原子完成，支持多端：一个用户多个会话）
+     * 
+     * @return 是否为该用户的第一个会话（离线 -> 在线）
+     */
+    public boolean userOnline(Long userId, String sessionId) {
+        long ttl = fleetsProperties.getWebsocket().getOnlineExpireSeconds();
+        long expireAt = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(ttl);
+        Long sessions = redisService.evalScript(ONLINE_SCRIPT, RScript.ReturnType.INTEGER,
+                presenceKeys(userId, sessionId),
+                String.valueOf(userId), sessionId, nodeIdentity.getNodeId(), String.valueOf(ttl), String.valueOf(expireAt));
+        
+        // 上线脚本已设置 TTL
+        lastRefreshed.put(userId, System.currentTimeMillis());
         
-        log.debug("用户上线: userId={}, sessionId={}", userId, sessionId);
+        log.debug("用户上线: userId={}, sessionId={}, nodeId={}, sessions={}", userId, sessionId, nodeIdentity.getNodeId(), sessions);
+        return sessions != null && sessions == 1L;
     }
     
     /**
-     * 用户离线
-     * TODO: 实现用户离线逻辑
+     * 用户离线（一次 Lua 脚本原子完成，仍有其他会话时保持在线）
+     * 
+     * @return 是否为该用户的最后一个会话（在线 -> 离线）
      */
-    public void userOffline(Long userId, String sessionId) {
-        FleetsProperties.RedisConfig redisConfig = fleetsProperties.getRedis();
-        FleetsProperties.WebSocketConfig webSocketConfig = fleetsProperties.getWebsocket();
-        String onlineKey = redisConfig.getOnlineKeyPrefix() + userId;
-        String sessionKey = redisConfig.getSessionKeyPrefix() + sessionId;
-        String sessionsKey = redisConfig.getUserSessionsKeyPrefix() + userId;
-
-        redisService.delete(sessionKey);
-        RSet<String> sessionsSet = redisService.getSet(sessionsKey);
-        sessionsSet.remove(sessionId);
-
-        if (sessionsSet.isEmpty()) {
-            redisService.delete(sessionsKey);
-            redisService.delete(onlineKey);
-        } else {
-            redisService.expire(sessionsKey, webSocketConfig.getOnlineExpireSeconds(), TimeUnit.SECONDS);
+    public boolean userOffline(Long userId, String sessionId) {
+        long ttl = fleetsProperties.getWebsocket().getOnlineExpireSeconds();
+        Long remaining = redisService.evalScript(OFFLINE_SCRIPT, RScript.ReturnType.INTEGER,
+                presenceKeys(userId, sessionId),
+                sessionId, String.valueOf(ttl), String.valueOf(userId));
+        log.info("用户离线: userId={}, sessionId={}, remaining={}", userId, sessionId, remaining);
+        return remaining != null && remaining == 0L;
+    }
+    
+    /**
+     * 批量下线多个会话（节点排空时调用，离线脚本在一次 Pipeline 内执行）
+     * 
+     * @param userIdsBySession sessionId -> userId
+     * @return 最后一个会话被移除（在线 -> 离线）的用户
+     */
+    public Set<Long> usersOffline(Map<String, Long> userIdsBySession) {
+        Set<Long> offline = new HashSet<>();
+        if (userIdsBySession == null || userIdsBySession.isEmpty()) {
+            return offline;
+        }
+        String ttl = String.valueOf(fleetsProperties.getWebsocket().getOnlineExpireSeconds());
+        RBatch batch = redisService.createBatch();
+        RScriptAsync script = batch.getScript(StringCodec.INSTANCE);
+        Map<String, RFuture<Long>> futures = new LinkedHashMap<>();
+        for (Map.Entry<String, Long> entry : userIdsBySession.entrySet()) {
+            String sessionId = entry.getKey();
+            Long userId = entry.getValue();
+            futures.put(sessionId, script.evalAsync(RScript.Mode.READ_WRITE, OFFLINE_SCRIPT, RScript.ReturnType.INTEGER,
+                    presenceKeys(userId, sessionId), sessionId, ttl, String.valueOf(userId)));
         }
-        log.info("用户离线: userId={}, sessionId={}", userId, sessionId);
+        batch.execute();
+        for (Map.Entry<String, RFuture<Long>> entry : futures.entrySet()) {
+            Long remaining = entry.getValue().getNow();
+            if (remaining != null && remaining == 0L) {
+                offline.add(userIdsBySession.get(entry.getKey()));
+            }
+        }
+        log.info("批量下线会话: sessions={}, offlineUsers={}", userIdsBySession.size(), offline.size());
+        return offline;
+    }
+    
+    private List<Object> presenceKeys(Long userId, String sessionId) {
+        FleetsProperties.RedisConfig redisConfig = fleetsProperties.getRedis();
+        return Arrays.<Object>asList(
+                redisConfig.getOnlineKeyPrefix() + userId,
+                redisConfig.getSessionKeyPrefix() + sessionId,
+                redisConfig.getUserSessionsKeyPrefix() + userId,
+                redisConfig.getUserNodesKeyPrefix() + userId,
+                redisConfig.getOnlineBitmapKey(),
+                redisConfig.getOnlineExpiryKey());
     }
     
     /**
@@ -78,17 +231,112 @@ public class UserOnlineService {
         return redisService.hasKey(onlineKey);
     }
     
+    /**
+     * 认领一次在线状态变更通知（集群范围去重）
+     * 快速断线后在其他节点重连时，两个节点各自观察到一次转换，只有与集群最近一次已通知状态不同的那次返回 true
+     * 
+     * @return 是否应发出通知
+     */
+    public boolean claimPresenceNotification(Long userId, boolean online) {
+        FleetsProperties.RedisConfig redisConfig = fleetsProperties.getRedis();
+        Long claimed = redisService.evalScript(CLAIM_NOTIFICATION_SCRIPT, RScript.ReturnType.INTEGER,
+                Arrays.<Object>asList(redisConfig.getPresenceNotifiedKeyPrefix() + userId, redisConfig.getOnlineKeyPrefix() + userId),
+                online ? "1" : "0", String.valueOf(PRESENCE_NOTIFIED_TTL_SECONDS));
+        return claimed != null && claimed == 1L;
+    }
+    
+    /**
+     * 批量查询在线状态：在线位图上一次 Pipeline 的 GETBIT
+     */
+    public Map<Long, Boolean> getOnlineStatus(Collection<Long> userIds) {
+        Map<Long, Boolean> result = new LinkedHashMap<>();
+        if (userIds == null || userIds.isEmpty()) {
+            return result;
+        }
+        String bitmapKey = fleetsProperties.getRedis().getOnlineBitmapKey();
+        RBatch batch = redisService.createBatch();
+        Map<Long, RFuture<Boolean>> futures = new LinkedHashMap<>();
+        for (Long userId : userIds) {
+            if (userId == null || userId < 0 || userId > MAX_BITMAP_OFFSET) {
+                result.put(userId, false);
+                continue;
+            }
+            futures.put(userId, batch.getBitSet(bitmapKey).getAsync(userId));
+        }
+        if (!futures.isEmpty()) {
+            batch.execute();
+        }
+        for (Map.Entry<Long, RFuture<Boolean>> entry : futures.entrySet()) {
+            result.put(entry.getKey(), Boolean.TRUE.equals(entry.getValue().getNow()));
+        }
+        return result;
+    }
+    
+    /**
+     * 全集群在线用户数（在线位图 BITCOUNT）
+     */
+    public long countOnlineUsers() {
+        return redisService.getBitSet(fleetsProperties.getRedis().getOnlineBitmapKey()).cardinality();
+    }
+    
     /**
      * 获取用户的所有会话 ID
      */
     public Set<String> getUserSessions(Long userId) {
         FleetsProperties.RedisConfig redisConfig = fleetsProperties.getRedis();
         String sessionsKey = redisConfig.getUserSessionsKeyPrefix() + userId;
-        RSet<String> sessionsSet = redisService.getSet(sessionsKey);
+        RSet<String> sessionsSet = redisService.getStringSet(sessionsKey);
         // Redisson 的 RSet 实现了 Set 接口，readAll 返回一个常规 Set
         return sessionsSet.readAll();
     }
     
+    /**
+     * 获取用户各会话所在节点（sessionId -> nodeId）
+     */
+    public Map<String, String> getSessionNodes(Long userId) {
+        String nodesKey = fleetsProperties.getRedis().getUserNodesKeyPrefix() + userId;
+        RMap<String, String> nodes = redisService.getStringMap(nodesKey);
+        return nodes.readAllMap();
+    }
+    
+    /**
+     * 批量获取多个用户的会话节点（一次 Pipeline），不在线的用户不出现在结果中
+     */
+    public Map<Long, Map<String, String>> getSessionNodes(Collection<Long> userIds) {
+        Map<Long, Map<String, String>> result = new HashMap<>();
+        if (userIds == null || userIds.isEmpty()) {
+            return result;
+        }
+        String prefix = fleetsProperties.getRedis().getUserNodesKeyPrefix();
+        RBatch batch = redisService.createBatch();
+        Map<Long, RFuture<Map<String, String>>> futures = new LinkedHashMap<>();
+        for (Long userId : userIds) {
+            RFuture<Map<String, String>> future = batch.<String, String>getMap(prefix + userId, StringCodec.INSTANCE).readAllMapAsync();
+            futures.put(userId, future);
+        }
+        batch.execute();
+        for (Map.Entry<Long, RFuture<Map<String, String>>> entry : futures.entrySet()) {
+            Map<String, String> nodes = entry.getValue().getNow();
+            if (nodes != null && !nodes.isEmpty()) {
+                result.put(entry.getKey(), nodes);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * 清理用户在指定节点上的会话记录（节点已失效时调用）
+     */
+    public void removeNodeSessions(Long userId, String nodeId) {
+        String nodesKey = fleetsProperties.getRedis().getUserNodesKeyPrefix() + userId;
+        RMap<String, String> nodes = redisService.getStringMap(nodesKey);
+        for (Map.Entry<String, String> entry : nodes.readAllMap().entrySet()) {
+            if (nodeId.equals(entry.getValue())) {
+                userOffline(userId, entry.getKey());
+            }
+        }
+    }
+    
     /**
      * 根据 sessionId 从 Redis 反查 userId（断线时若 Principal 为空可用）
      */
@@ -97,18 +345,12 @@ public class UserOnlineService {
             return null;
         }
         String sessionKey = fleetsProperties.getRedis().getSessionKeyPrefix() + sessionId;
-        Object val = redisService.get(sessionKey);
+        String val = redisService.getPlainString(sessionKey);
         if (val == null) {
             return null;
         }
-        if (val instanceof Long) {
-            return (Long) val;
-        }
-        if (val instanceof Number) {
-            return ((Number) val).longValue();
-        }
         try {
-            return Long.parseLong(String.valueOf(val));
+            return Long.parseLong(val);
         } catch (NumberFormatException e) {
             return null;
         }
@@ -116,12 +358,93 @@ public class UserOnlineService {
 
     /**
      * 刷新用户在线状态（心跳）
+     * 只记录到本节点内存，由 flushHeartbeats 合并续期，不直接访问 Redis
      */
     public void refreshOnlineStatus(Long userId) {
-        // TODO: 刷新 Redis 中的过期时间
+        heartbeats.add(userId);
+    }
+    
+    /**
+     * 合并续期：本周期内有心跳、且距上次续期超过在线过期时间 1/3 的用户，
+     * 其在线标记、会话集合、节点记录的 TTL 在一次 Pipeline 中续期。
+     * Redis 往返次数只与节点数和刷新间隔有关，与连接数无关。
+     */
+    @Scheduled(fixedDelayString = "${fleets.websocket.heartbeat-flush-millis:10000}")
+    public void flushHeartbeats() {
+        Set<Long> seen = new HashSet<>();
+        for (Iterator<Long> it = heartbeats.iterator(); it.hasNext(); ) {
+            seen.add(it.next());
+            it.remove();
+        }
+        long now = System.currentTimeMillis();
+        long ttlSeconds = fleetsProperties.getWebsocket().getOnlineExpireSeconds();
+        long refreshAfterMillis = TimeUnit.SECONDS.toMillis(ttlSeconds) / 3;
+        
+        // 清理长时间没有心跳的本地记录
+        lastRefreshed.values().removeIf(refreshedAt -> now - refreshedAt > TimeUnit.SECONDS.toMillis(ttlSeconds));
+        
+        List<Long> due = new ArrayList<>();
+        for (Long userId : seen) {
+            Long refreshedAt = lastRefreshed.get(userId);
+            if (refreshedAt == null || now - refreshedAt >= refreshAfterMillis) {
+                due.add(userId);
+            }
+        }
+        if (due.isEmpty()) {
+            return;
+        }
+        
         FleetsProperties.RedisConfig redisConfig = fleetsProperties.getRedis();
-        FleetsProperties.WebSocketConfig webSocketConfig = fleetsProperties.getWebsocket();
-        String onlineKey = redisConfig.getOnlineKeyPrefix() + userId;
-        redisService.expire(onlineKey, webSocketConfig.getOnlineExpireSeconds(),TimeUnit.SECONDS);
+        long expireAt = now + TimeUnit.SECONDS.toMillis(ttlSeconds);
+        RBatch batch = redisService.createBatch();
+        Duration ttl = Duration.ofSeconds(ttlSeconds);
+        RScoredSortedSetAsync<String> expiry = batch.getScoredSortedSet(redisConfig.getOnlineExpiryKey(), StringCodec.INSTANCE);
+        for (Long userId : due) {
+            batch.getBucket(redisConfig.getOnlineKeyPrefix() + userId).expireAsync(ttl);
+            batch.getSet(redisConfig.getUserSessionsKeyPrefix() + userId).expireAsync(ttl);
+            batch.getMap(redisConfig.getUserNodesKeyPrefix() + userId).expireAsync(ttl);
+            expiry.addAsync(expireAt, String.valueOf(userId));
+        }
+        try {
+            batch.execute();
+            for (Long userId : due) {
+                lastRefreshed.put(userId, now);
+            }
+            log.debug("心跳合并续期: heartbeats={}, refreshed={}", seen.size(), due.size());
+        } catch (Exception e) {
+            // 未记录续期时间，下个周期有心跳时会重试
+            log.warn("心跳续期失败: users={}", due.size(), e);
+        }
+    }
+    
+    /**
+     * 在线位图对账：清除在线标记已按 TTL 过期的用户的在线位（集群内同一时刻只有一个节点执行）
+     */
+    @Scheduled(fixedDelayString = "${fleets.websocket.online-reconcile-millis:30000}")
+    public void reconcileOnlineBitmap() {
+        long interval = fleetsProperties.getWebsocket().getOnlineReconcileMillis();
+        if (!redisService.tryLock(RECONCILE_LOCK_KEY, 0, interval, TimeUnit.MILLISECONDS)) {
+            return;
+        }
+        try {
+            FleetsProperties.RedisConfig redisConfig = fleetsProperties.getRedis();
+            List<Object> keys = Arrays.<Object>asList(redisConfig.getOnlineExpiryKey(), redisConfig.getOnlineBitmapKey());
+            String ttlMillis = String.valueOf(TimeUnit.SECONDS.toMillis(fleetsProperties.getWebsocket().getOnlineExpireSeconds()));
+            long cleared = 0;
+            List<Long> processed;
+            do {
+                processed = redisService.evalScript(RECONCILE_SCRIPT, RScript.ReturnType.MULTI, keys,
+                        String.valueOf(System.currentTimeMillis()), String.valueOf(RECONCILE_BATCH_SIZE),
+                        redisConfig.getOnlineKeyPrefix(), ttlMillis);
+                cleared += processed.get(1);
+            } while (processed.get(0) >= RECONCILE_BATCH_SIZE);
+            if (cleared > 0) {
+                log.info("在线位图对账，清除已过期用户: {}", cleared);
+            }
+        } catch (Exception e) {
+            log.warn("在线位图对账失败", e);
+        } finally {
+            redisService.unlock(RECONCILE_LOCK_KEY);
+        }
     }
 }
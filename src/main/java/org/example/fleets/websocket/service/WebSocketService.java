@@ -2,10 +2,21 @@ package org.example.fleets.websocket.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.example.fleets.group.service.GroupService;
+import org.example.fleets.mailbox.model.vo.UnreadDeltaVO;
 import org.example.fleets.message.model.entity.Message;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.example.fleets.message.model.vo.PushMessageVO;
+import org.example.fleets.user.service.FriendshipService;
+import org.example.fleets.websocket.cluster.ClusterPushRouter;
+import org.example.fleets.websocket.model.vo.PresenceChangeVO;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 /**
  * WebSocket 消息推送服务
  */
@@ -14,43 +25,71 @@ import org.springframework.stereotype.Service;
 @RequiredArgsConstructor
 public class WebSocketService {
     
-    private final SimpMessagingTemplate messagingTemplate;
     private final UserOnlineService userOnlineService;
+    private final ClusterPushRouter clusterPushRouter;
+    private final GroupService groupService;
+    private final FriendshipService friendshipService;
     
     /**
-     * 向指定用户推送消息（点对点）
-     * 提示：使用 messagingTemplate.convertAndSendToUser()
+     * 向指定用户推送消息（点对点），经集群路由投递到会话所在节点
+     *
+     * @return 用户是否在线（不在线时未推送）
      */
-    public void sendMessageToUser(Long userId, Message message) {
+    public boolean sendMessageToUser(Long userId, Message message) {
 
         String dest = "/queue/messages";
-        messagingTemplate.convertAndSendToUser(String.valueOf(userId),dest,message);
-        log.debug("推送消息到用户: userId={}, messageId={}", userId, message.getId());
+        boolean online = clusterPushRouter.pushToUser(userId, dest, PushMessageVO.from(message));
+        log.debug("推送消息到用户: userId={}, messageId={}, online={}", userId, message.getId(), online);
+        return online;
     }
     
     /**
-     * 向指定用户的所有会话推送消息（多端同步）
-     * TODO: 实现多端消息推送
+     * 多端同步：发送者自己发出的消息回显到其其他设备
+     * 发起发送的会话（message.senderSessionId）已通过回执拿到消息，不再推送；
+     * 没有发起会话（如 HTTP 发送）时推送到所有会话。不在线时不推送，由设备同步补齐
      */
-    public void sendMessageToAllSessions(Long userId, Message message) {
-
+    public void sendMessageToSenderSessions(Long userId, Message message) {
 
         String dest = "/queue/messages";
-        messagingTemplate.convertAndSendToUser(String.valueOf(userId),dest,message);
-        log.debug("推送消息到所有会话: userId={}, messageId={}", userId, message.getId());
+        PushMessageVO payload = PushMessageVO.from(message);
+        boolean online = message.getSenderSessionId() == null
+                ? clusterPushRouter.pushToUser(userId, dest, payload)
+                : clusterPushRouter.pushToOtherSessions(userId, message.getSenderSessionId(), dest, payload);
+        log.debug("回显消息到发送者会话: userId={}, messageId={}, online={}", userId, message.getId(), online);
     }
     
     /**
-     * 广播消息到群组
-     * TODO: 实现群组消息广播
-     * 提示：使用 messagingTemplate.convertAndSend()
+     * 推送群消息给群成员（按成员列表投递到各自的 /user/queue/messages，不依赖是否订阅群主题）
+     * 有发起会话时发送者单独回显，跳过发起发送的会话
+     *
+     * @return 不在线的群成员
      */
-    public void sendMessageToGroup(Long groupId, Message message) {
+    public Set<Long> sendMessageToGroup(Long groupId, Message message) {
 
-        String dest = "/topic/group/" + groupId;
-        messagingTemplate.convertAndSend(dest,message);
+        List<Long> memberIds = groupService.getGroupMemberIds(groupId);
+        List<Long> recipients = memberIds;
+        if (message.getSenderSessionId() != null && memberIds.contains(message.getSenderId())) {
+            recipients = new ArrayList<>(memberIds);
+            recipients.remove(message.getSenderId());
+            sendMessageToSenderSessions(message.getSenderId(), message);
+        }
+        Set<Long> offline = clusterPushRouter.pushToUsers(recipients, "/queue/messages", PushMessageVO.from(message));
         
-        log.debug("广播消息到群组: groupId={}, messageId={}", groupId, message.getId());
+        log.debug("推送群消息: groupId={}, members={}, offline={}, messageId={}", groupId, memberIds.size(), offline.size(), message.getId());
+        return offline;
+    }
+    
+    /**
+     * 推送会话未读数增量（客户端订阅 /user/queue/unread），未读数相同的接收者共用一次编码
+     */
+    public void sendUnreadCounts(String conversationId, Map<Long, Integer> unreadCounts) {
+        Map<Long, UnreadDeltaVO> payloads = new HashMap<>(unreadCounts.size() * 2);
+        Map<Integer, UnreadDeltaVO> byCount = new HashMap<>();
+        for (Map.Entry<Long, Integer> entry : unreadCounts.entrySet()) {
+            payloads.put(entry.getKey(), byCount.computeIfAbsent(entry.getValue(), c -> UnreadDeltaVO.of(conversationId, c)));
+        }
+        Set<Long> offline = clusterPushRouter.pushEachToUsers(payloads, "/queue/unread");
+        log.debug("推送未读数增量: conversationId={}, users={}, offline={}", conversationId, unreadCounts.size(), offline.size());
     }
     
     /**
@@ -58,19 +97,22 @@ public class WebSocketService {
      */
     public void sendNotification(Long userId, Object notification) {
         String dest = "/queue/notifications";
-        messagingTemplate.convertAndSendToUser(String.valueOf(userId), dest, notification);
+        clusterPushRouter.pushToUser(userId, dest, notification);
         log.debug("推送通知: userId={}", userId);
     }
     
     /**
-     * 发送在线状态变更通知
-     * TODO: 实现在线状态广播
+     * 发送在线状态变更通知（客户端订阅 /user/queue/presence）
+     * 只推给该用户的好友，路由层按会话记录过滤掉不在线的好友
      */
     public void sendOnlineStatusChange(Long userId, boolean online) {
 
-        String dest = "/topic/online-status";
-        messagingTemplate.convertAndSend(dest,userId);
+        List<Long> friendIds = friendshipService.getFriendIds(userId);
+        if (friendIds.isEmpty()) {
+            return;
+        }
+        clusterPushRouter.pushToUsers(friendIds, "/queue/presence", PresenceChangeVO.of(userId, online));
         
-        log.debug("广播在线状态: userId={}, online={}", userId, online);
+        log.debug("通知好友在线状态: userId={}, online={}, friends={}", userId, online, friendIds.size());
     }
 }
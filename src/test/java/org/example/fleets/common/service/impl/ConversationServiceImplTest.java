@@ -0,0 +1,76 @@
+package org.example.fleets.common.service.impl;
+
+import org.example.fleets.common.mapper.ConversationMapper;
+import org.example.fleets.common.model.Conversation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 会话服务单元测试
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("会话服务单元测试")
+class ConversationServiceImplTest {
+
+    private static final Long OWNER_ID = 2L;
+    private static final Long TARGET_ID = 1L;
+    private static final String MESSAGE_ID = "msg_001";
+
+    @Mock
+    private ConversationMapper conversationMapper;
+
+    @InjectMocks
+    private ConversationServiceImpl conversationService;
+
+    private Conversation conversation;
+
+    @BeforeEach
+    void setUp() {
+        conversation = new Conversation();
+        conversation.setConversationId("conv_1_2");
+        conversation.setOwnerId(OWNER_ID);
+        conversation.setUnreadCount(0);
+        conversation.setLastMessageId("msg_000");
+        when(conversationMapper.selectOne(any())).thenReturn(conversation);
+    }
+
+    @Test
+    @DisplayName("发送修复重跑 - 同一条消息未读数只增加一次")
+    void updateConversation_RepairRerun_IncrementsUnreadOnce() {
+        when(conversationMapper.incrementUnreadCount(anyString(), eq(OWNER_ID), eq(MESSAGE_ID), anyString(), any()))
+                .thenAnswer(invocation -> {
+                    conversation.setUnreadCount(conversation.getUnreadCount() + 1);
+                    conversation.setLastMessageId(MESSAGE_ID);
+                    return 1;
+                });
+        Date sendTime = new Date();
+
+        conversationService.updateConversation(OWNER_ID, TARGET_ID, 0, MESSAGE_ID, "hello", sendTime, true);
+        // 修复任务重跑 conversation-receiver 阶段
+        conversationService.updateConversation(OWNER_ID, TARGET_ID, 0, MESSAGE_ID, "hello", sendTime, true);
+
+        verify(conversationMapper, times(1)).incrementUnreadCount(anyString(), eq(OWNER_ID), eq(MESSAGE_ID), anyString(), any());
+        assertThat(conversation.getUnreadCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("新消息 - 正常增加未读数")
+    void updateConversation_NewMessage_IncrementsUnread() {
+        when(conversationMapper.incrementUnreadCount(anyString(), anyLong(), anyString(), anyString(), any())).thenReturn(1);
+
+        conversationService.updateConversation(OWNER_ID, TARGET_ID, 0, MESSAGE_ID, "hello", new Date(), true);
+
+        verify(conversationMapper).incrementUnreadCount(eq("conv_1_2"), eq(OWNER_ID), eq(MESSAGE_ID), eq("hello"), any());
+    }
+}
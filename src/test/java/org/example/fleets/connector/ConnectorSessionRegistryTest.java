@@ -0,0 +1,90 @@
+package org.example.fleets.connector;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * ConnectorSessionRegistry 单元测试
+ */
+@DisplayName("连接层会话注册表单元测试")
+class ConnectorSessionRegistryTest {
+
+    private static final Long USER_ID = 1L;
+
+    private final ConnectorSessionRegistry registry = new ConnectorSessionRegistry();
+
+    @Test
+    @DisplayName("推送 - 用户的每个连接都收到带目的地的文本帧")
+    void deliver_WritesFrameToEveryChannel() {
+        EmbeddedChannel phone = new EmbeddedChannel();
+        EmbeddedChannel desktop = new EmbeddedChannel();
+        registry.register(USER_ID, phone);
+        registry.register(USER_ID, desktop);
+
+        boolean delivered = registry.deliver(USER_ID, "/queue/messages", "{\"id\":\"m1\"}".getBytes(StandardCharsets.UTF_8));
+
+        assertThat(delivered).isTrue();
+
+        for (EmbeddedChannel channel : new EmbeddedChannel[]{phone, desktop}) {
+            TextWebSocketFrame frame = channel.readOutbound();
+            assertThat(frame.text()).isEqualTo("{\"destination\":\"/queue/messages\",\"payload\":{\"id\":\"m1\"}}");
+            frame.release();
+        }
+        assertThat(registry.connectionCount()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("注销 - 最后一个连接注销后不再推送")
+    void unregister_LastChannel_NoLongerDelivers() {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        registry.register(USER_ID, channel);
+        registry.unregister(USER_ID, channel);
+
+        boolean delivered = registry.deliver(USER_ID, "/queue/messages", "{}".getBytes(StandardCharsets.UTF_8));
+
+        assertThat(delivered).isFalse();
+        assertThat((Object) channel.readOutbound()).isNull();
+        assertThat(registry.connectionCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("推送 - 写缓冲超过高水位的连接被断开")
+    void deliver_UnwritableChannel_Closes() {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        channel.unsafe().outboundBuffer().setUserDefinedWritability(1, false);
+        registry.register(USER_ID, channel);
+
+        boolean delivered = registry.deliver(USER_ID, "/queue/messages", "{}".getBytes(StandardCharsets.UTF_8));
+
+        assertThat(delivered).isFalse();
+        assertThat(channel.isOpen()).isFalse();
+        assertThat((Object) channel.readOutbound()).isNull();
+    }
+
+    @Test
+    @DisplayName("按会话推送 - 只写入该会话对应的连接")
+    void deliverToSession_WritesOnlyMatchingChannel() {
+        EmbeddedChannel phone = new EmbeddedChannel();
+        EmbeddedChannel desktop = new EmbeddedChannel();
+        phone.attr(ConnectorSessionRegistry.SESSION_ID).set("node-a-phone");
+        desktop.attr(ConnectorSessionRegistry.SESSION_ID).set("node-a-desktop");
+        registry.register(USER_ID, phone);
+        registry.register(USER_ID, desktop);
+
+        boolean delivered = registry.deliverToSession(USER_ID, "node-a-phone", "/queue/ack", "{}".getBytes(StandardCharsets.UTF_8));
+        boolean unknown = registry.deliverToSession(USER_ID, "node-a-tablet", "/queue/ack", "{}".getBytes(StandardCharsets.UTF_8));
+
+        assertThat(delivered).isTrue();
+        assertThat(unknown).isFalse();
+        TextWebSocketFrame frame = phone.readOutbound();
+        assertThat(frame.text()).isEqualTo("{\"destination\":\"/queue/ack\",\"payload\":{}}");
+        frame.release();
+        assertThat((Object) desktop.readOutbound()).isNull();
+    }
+}
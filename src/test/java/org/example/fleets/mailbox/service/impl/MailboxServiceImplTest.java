@@ -1,16 +1,20 @@
 package org.example.fleets.mailbox.service.impl;
 
 import org.example.fleets.mailbox.converter.MailboxConverter;
+import org.example.fleets.mailbox.event.UnreadChangedEvent;
+import org.example.fleets.mailbox.model.dto.DeviceSyncDTO;
 import org.example.fleets.mailbox.model.dto.MarkReadDTO;
 import org.example.fleets.mailbox.model.dto.SyncMessageDTO;
 import org.example.fleets.mailbox.model.entity.MailboxMessage;
 import org.example.fleets.mailbox.model.entity.UserMailbox;
+import org.example.fleets.mailbox.model.vo.DeviceSyncResult;
 import org.example.fleets.mailbox.model.vo.SyncResult;
 import org.example.fleets.mailbox.model.vo.UnreadCountVO;
 import org.example.fleets.mailbox.repository.MailboxMessageRepository;
 import org.example.fleets.mailbox.repository.UserMailboxRepository;
 import org.example.fleets.cache.redis.RedisService;
 import org.example.fleets.common.config.properties.FleetsProperties;
+import org.example.fleets.mailbox.service.DeviceCursorService;
 import org.example.fleets.mailbox.service.SequenceService;
 import org.example.fleets.message.repository.MessageRepository;
 import org.example.fleets.user.mapper.UserMapper;
@@ -18,9 +22,11 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.util.*;
 
@@ -51,6 +57,10 @@ class MailboxServiceImplTest {
     private FleetsProperties fleetsProperties;
     @Mock
     private MessageRepository messageRepository;
+    @Mock
+    private DeviceCursorService deviceCursorService;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
 
     @InjectMocks
     private MailboxServiceImpl mailboxService;
@@ -60,8 +70,9 @@ class MailboxServiceImplTest {
 
     @BeforeEach
     void setUp() {
-        when(fleetsProperties.getRedis()).thenReturn(new FleetsProperties.RedisConfig());
-        when(fleetsProperties.getMailbox()).thenReturn(new FleetsProperties.MailboxConfig());
+        // 共享配置桩：部分用例（如已读幂等、设备同步）只用到其中之一或都不用
+        lenient().when(fleetsProperties.getRedis()).thenReturn(new FleetsProperties.RedisConfig());
+        lenient().when(fleetsProperties.getMailbox()).thenReturn(new FleetsProperties.MailboxConfig());
     }
 
     @Test
@@ -128,4 +139,149 @@ class MailboxServiceImplTest {
         assertThat(result.getMessages()).isEmpty();
         assertThat(result.getHasMore()).isFalse();
     }
+
+    @Test
+    @DisplayName("设备同步 - 先确认游标，只返回游标之后的会话与消息")
+    void testSyncDevice_ReturnsOnlyUnseenConversations() {
+        when(fleetsProperties.getMailbox()).thenReturn(new FleetsProperties.MailboxConfig());
+        UserMailbox seen = new UserMailbox();
+        seen.setConversationId("conv_1_3");
+        seen.setLastMsgSequence(5L);
+        UserMailbox behind = new UserMailbox();
+        behind.setConversationId(CONVERSATION_ID);
+        behind.setLastMsgSequence(12L);
+        behind.setLastMessageTime(new Date());
+        when(userMailboxRepository.findByUserId(USER_ID)).thenReturn(Arrays.asList(seen, behind));
+
+        Map<String, Long> cursors = new HashMap<>();
+        cursors.put("conv_1_3", 5L);
+        cursors.put(CONVERSATION_ID, 10L);
+        when(deviceCursorService.getCursors(USER_ID, "phone")).thenReturn(cursors);
+
+        MailboxMessage m11 = new MailboxMessage();
+        m11.setMsgSequence(11L);
+        MailboxMessage m12 = new MailboxMessage();
+        m12.setMsgSequence(12L);
+        when(mailboxMessageRepository.findByUserIdAndConversationIdAndMsgSequenceGreaterThan(
+            eq(USER_ID), eq(CONVERSATION_ID), eq(10L), any()))
+            .thenReturn(Arrays.asList(m11, m12));
+        when(mailboxConverter.toMessageVOList(anyList())).thenReturn(Collections.emptyList());
+
+        DeviceSyncDTO dto = new DeviceSyncDTO();
+        dto.setDeviceId("phone");
+        dto.setAcks(Collections.singletonMap(CONVERSATION_ID, 10L));
+
+        DeviceSyncResult result = mailboxService.syncDevice(USER_ID, dto);
+
+        verify(deviceCursorService).advance(USER_ID, "phone", dto.getAcks());
+        assertThat(result.getHasMore()).isFalse();
+        assertThat(result.getConversations()).hasSize(1);
+        DeviceSyncResult.ConversationDelta delta = result.getConversations().get(0);
+        assertThat(delta.getConversationId()).isEqualTo(CONVERSATION_ID);
+        assertThat(delta.getCursor()).isEqualTo(12L);
+        assertThat(delta.getHasMore()).isFalse();
+        verify(mailboxMessageRepository, never()).findByUserIdAndConversationIdAndMsgSequenceGreaterThan(
+            eq(USER_ID), eq("conv_1_3"), anyLong(), any());
+    }
+
+    @Test
+    @DisplayName("设备同步 - 落后会话超过单次上限时只返回最近活跃的会话并提示 hasMore")
+    void testSyncDevice_MoreConversationsThanLimit_HasMore() {
+        FleetsProperties.MailboxConfig mailboxConfig = new FleetsProperties.MailboxConfig();
+        mailboxConfig.setDeviceSyncMaxConversations(1);
+        when(fleetsProperties.getMailbox()).thenReturn(mailboxConfig);
+        UserMailbox older = new UserMailbox();
+        older.setConversationId("conv_1_3");
+        older.setLastMsgSequence(3L);
+        older.setLastMessageTime(new Date(1000L));
+        UserMailbox newer = new UserMailbox();
+        newer.setConversationId(CONVERSATION_ID);
+        newer.setLastMsgSequence(4L);
+        newer.setLastMessageTime(new Date(2000L));
+        when(userMailboxRepository.findByUserId(USER_ID)).thenReturn(Arrays.asList(older, newer));
+        when(deviceCursorService.getCursors(USER_ID, "phone")).thenReturn(Collections.emptyMap());
+        MailboxMessage m4 = new MailboxMessage();
+        m4.setMsgSequence(4L);
+        when(mailboxMessageRepository.findByUserIdAndConversationIdAndMsgSequenceGreaterThan(
+            eq(USER_ID), eq(CONVERSATION_ID), eq(0L), any()))
+            .thenReturn(Collections.singletonList(m4));
+        when(mailboxConverter.toMessageVOList(anyList())).thenReturn(Collections.emptyList());
+
+        DeviceSyncDTO dto = new DeviceSyncDTO();
+        dto.setDeviceId("phone");
+
+        DeviceSyncResult result = mailboxService.syncDevice(USER_ID, dto);
+
+        assertThat(result.getHasMore()).isTrue();
+        assertThat(result.getConversations()).extracting(DeviceSyncResult.ConversationDelta::getConversationId)
+            .containsExactly(CONVERSATION_ID);
+    }
+
+    @Test
+    @DisplayName("设备同步 - 游标超过会话最新序列号时视为序列号重置，清除游标并从头同步")
+    void testSyncDevice_CursorAheadOfConversation_ResetsCursor() {
+        when(fleetsProperties.getMailbox()).thenReturn(new FleetsProperties.MailboxConfig());
+        UserMailbox mailbox = new UserMailbox();
+        mailbox.setConversationId(CONVERSATION_ID);
+        mailbox.setLastMsgSequence(2L);
+        when(userMailboxRepository.findByUserId(USER_ID)).thenReturn(Collections.singletonList(mailbox));
+        when(deviceCursorService.getCursors(USER_ID, "phone"))
+            .thenReturn(Collections.singletonMap(CONVERSATION_ID, 40L))
+            .thenReturn(Collections.emptyMap());
+
+        MailboxMessage m1 = new MailboxMessage();
+        m1.setMsgSequence(1L);
+        MailboxMessage m2 = new MailboxMessage();
+        m2.setMsgSequence(2L);
+        when(mailboxMessageRepository.findByUserIdAndConversationIdAndMsgSequenceGreaterThan(
+            eq(USER_ID), eq(CONVERSATION_ID), eq(0L), any()))
+            .thenReturn(Arrays.asList(m1, m2));
+        when(mailboxConverter.toMessageVOList(anyList())).thenReturn(Collections.emptyList());
+
+        DeviceSyncDTO dto = new DeviceSyncDTO();
+        dto.setDeviceId("phone");
+        dto.setAcks(Collections.singletonMap(CONVERSATION_ID, 40L));
+
+        DeviceSyncResult result = mailboxService.syncDevice(USER_ID, dto);
+
+        verify(deviceCursorService).reset(USER_ID, "phone", Collections.singletonList(CONVERSATION_ID));
+        // 旧序列号空间里的确认被丢弃
+        verify(deviceCursorService).advance(USER_ID, "phone", Collections.emptyMap());
+        assertThat(result.getConversations()).hasSize(1);
+        assertThat(result.getConversations().get(0).getCursor()).isEqualTo(2L);
+    }
+
+    @Test
+    @DisplayName("标记已读 - 未读数减少后发布该会话的最新未读数")
+    void testMarkAsRead_PublishesUnreadChanged() {
+        when(mailboxMessageRepository.markAsReadIfUnread(eq(USER_ID), eq(CONVERSATION_ID), eq(3L), any(Date.class)))
+            .thenReturn(1L);
+        when(userMailboxRepository.decrementUnreadCountIfPositive(USER_ID, CONVERSATION_ID)).thenReturn(2);
+
+        MarkReadDTO dto = new MarkReadDTO();
+        dto.setConversationId(CONVERSATION_ID);
+        dto.setSequence(3L);
+
+        assertThat(mailboxService.markAsRead(USER_ID, dto)).isTrue();
+
+        ArgumentCaptor<UnreadChangedEvent> captor = ArgumentCaptor.forClass(UnreadChangedEvent.class);
+        verify(eventPublisher).publishEvent(captor.capture());
+        assertThat(captor.getValue().getConversationId()).isEqualTo(CONVERSATION_ID);
+        assertThat(captor.getValue().getUnreadCounts()).containsEntry(USER_ID, 2);
+    }
+
+    @Test
+    @DisplayName("标记已读 - 消息已是已读时不发布未读变更")
+    void testMarkAsRead_AlreadyRead_NoEvent() {
+        when(mailboxMessageRepository.markAsReadIfUnread(eq(USER_ID), eq(CONVERSATION_ID), eq(3L), any(Date.class)))
+            .thenReturn(0L);
+
+        MarkReadDTO dto = new MarkReadDTO();
+        dto.setConversationId(CONVERSATION_ID);
+        dto.setSequence(3L);
+
+        assertThat(mailboxService.markAsRead(USER_ID, dto)).isTrue();
+
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
 }
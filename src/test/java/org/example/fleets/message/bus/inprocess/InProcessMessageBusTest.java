@@ -0,0 +1,135 @@
+package org.example.fleets.message.bus.inprocess;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.fleets.common.config.properties.FleetsProperties;
+import org.example.fleets.message.bus.MessageBusListener;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 进程内消息总线单元测试
+ */
+@DisplayName("进程内消息总线单元测试")
+class InProcessMessageBusTest {
+
+    private InProcessMessageBus messageBus;
+
+    @BeforeEach
+    void setUp() {
+        FleetsProperties properties = new FleetsProperties();
+        properties.getBus().setRingBufferSize(4);
+        properties.getBus().setConsumerThreads(1);
+        properties.getBus().setOfferTimeoutMillis(10);
+        messageBus = new InProcessMessageBus(new ObjectMapper(), properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        messageBus.destroy();
+    }
+
+    @Test
+    @DisplayName("发布对象 - 订阅者收到 JSON 字符串")
+    void publish_Object_ListenerReceivesJson() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        List<String> received = new CopyOnWriteArrayList<>();
+        messageBus.subscribe("t1", listener("t1", received, latch));
+
+        messageBus.publish("t1", Collections.singletonMap("id", "msg_001"));
+
+        assertThat(latch.await(2, TimeUnit.SECONDS)).isTrue();
+        assertThat(received).containsExactly("{\"id\":\"msg_001\"}");
+    }
+
+    @Test
+    @DisplayName("带 tag 的目标 - 按 topic 路由")
+    void publish_WithTag_RoutesByTopic() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        List<String> received = new CopyOnWriteArrayList<>();
+        messageBus.subscribe("t1", listener("t1", received, latch));
+
+        messageBus.publish("t1:tagA", "hello");
+
+        assertThat(latch.await(2, TimeUnit.SECONDS)).isTrue();
+        assertThat(received).containsExactly("hello");
+    }
+
+    @Test
+    @DisplayName("多个订阅者 - 各自收到一份")
+    void publish_MultipleSubscribers_EachReceives() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(2);
+        List<String> received = new CopyOnWriteArrayList<>();
+        messageBus.subscribe("t1", listener("t1", received, latch));
+        messageBus.subscribe("t1", listener("t1", received, latch));
+
+        messageBus.publish("t1", "hello");
+
+        assertThat(latch.await(2, TimeUnit.SECONDS)).isTrue();
+        assertThat(received).hasSize(2);
+    }
+
+    @Test
+    @DisplayName("队列已满 - 在发布线程上投递，不丢消息")
+    void publish_RingFull_DeliversOnCaller() throws InterruptedException {
+        CountDownLatch blocker = new CountDownLatch(1);
+        List<String> received = new CopyOnWriteArrayList<>();
+        messageBus.subscribe("t1", new MessageBusListener() {
+            @Override
+            public String topic() {
+                return "t1";
+            }
+
+            @Override
+            public void onMessage(String payload) {
+                if ("block".equals(payload)) {
+                    try {
+                        blocker.await(2, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                received.add(payload);
+            }
+        });
+
+        messageBus.publish("t1", "block");
+        for (int i = 0; i < 10; i++) {
+            messageBus.publish("t1", "m" + i);
+        }
+        blocker.countDown();
+        messageBus.destroy();
+
+        assertThat(received).hasSize(11);
+    }
+
+    @Test
+    @DisplayName("无订阅者 - 直接丢弃不抛异常")
+    void publish_NoSubscriber_NoException() {
+        messageBus.publish("unknown", "hello");
+    }
+
+    private MessageBusListener listener(String topic, List<String> received, CountDownLatch latch) {
+        return new MessageBusListener() {
+            @Override
+            public String topic() {
+                return topic;
+            }
+
+            @Override
+            public void onMessage(String payload) {
+                received.add(payload);
+                latch.countDown();
+            }
+        };
+    }
+}
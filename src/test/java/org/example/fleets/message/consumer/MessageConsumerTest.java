@@ -3,7 +3,11 @@ package org.example.fleets.message.consumer;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.example.fleets.group.service.GroupService;
+import org.example.fleets.message.bus.MessageBus;
+import org.example.fleets.message.bus.MessageTopics;
+import org.example.fleets.message.model.dto.OfflinePushDTO;
 import org.example.fleets.message.model.entity.Message;
+import org.example.fleets.message.service.MessageAckService;
 import org.example.fleets.websocket.service.WebSocketService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -14,7 +18,9 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.Arrays;
 import java.util.Date;
+import java.util.LinkedHashSet;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.*;
@@ -37,6 +43,10 @@ class MessageConsumerTest {
     private WebSocketService webSocketService;
     @Mock
     private GroupService groupService;
+    @Mock
+    private MessageAckService messageAckService;
+    @Mock
+    private MessageBus messageBus;
 
     @InjectMocks
     private MessageConsumer messageConsumer;
@@ -68,6 +78,7 @@ class MessageConsumerTest {
     void onMessage_SingleChat_CallsSendMessageToUser() throws JsonProcessingException {
         String json = "{\"id\":\"msg_001\",\"messageType\":1,\"receiverId\":2}";
         when(objectMapper.readValue(json, Message.class)).thenReturn(singleChatMessage);
+        when(webSocketService.sendMessageToUser(RECEIVER_ID, singleChatMessage)).thenReturn(true);
 
         messageConsumer.onMessage(json);
 
@@ -76,6 +87,42 @@ class MessageConsumerTest {
         verify(webSocketService, times(1)).sendMessageToUser(userIdCaptor.capture(), messageCaptor.capture());
         assertThat(userIdCaptor.getValue()).isEqualTo(RECEIVER_ID);
         assertThat(messageCaptor.getValue().getId()).isEqualTo(MESSAGE_ID);
+        verify(messageAckService).trackDelivery(RECEIVER_ID, singleChatMessage);
+        verify(webSocketService).sendMessageToSenderSessions(1L, singleChatMessage);
+        verify(messageBus, never()).publishAsync(anyString(), any());
+    }
+
+    @Test
+    @DisplayName("单聊接收者不在线 - 不登记送达确认，转离线推送")
+    void onMessage_SingleChat_ReceiverOffline_PublishesOfflinePush() throws JsonProcessingException {
+        String json = "{\"id\":\"msg_001\",\"messageType\":1,\"receiverId\":2}";
+        when(objectMapper.readValue(json, Message.class)).thenReturn(singleChatMessage);
+        when(webSocketService.sendMessageToUser(RECEIVER_ID, singleChatMessage)).thenReturn(false);
+
+        messageConsumer.onMessage(json);
+
+        verify(messageAckService, never()).trackDelivery(anyLong(), any(Message.class));
+        verify(webSocketService).sendMessageToSenderSessions(1L, singleChatMessage);
+        ArgumentCaptor<Object> captor = ArgumentCaptor.forClass(Object.class);
+        verify(messageBus).publishAsync(eq(MessageTopics.IM_OFFLINE_PUSH), captor.capture());
+        OfflinePushDTO dto = (OfflinePushDTO) captor.getValue();
+        assertThat(dto.getUserIds()).containsExactly(RECEIVER_ID);
+        assertThat(dto.getMessageId()).isEqualTo(MESSAGE_ID);
+    }
+
+    @Test
+    @DisplayName("群聊部分成员不在线 - 离线成员（不含发送者）转离线推送")
+    void onMessage_GroupChat_OfflineMembers_PublishesOfflinePushWithoutSender() throws JsonProcessingException {
+        String json = "{\"id\":\"msg_002\",\"messageType\":2,\"groupId\":10}";
+        when(objectMapper.readValue(json, Message.class)).thenReturn(groupChatMessage);
+        when(webSocketService.sendMessageToGroup(GROUP_ID, groupChatMessage))
+                .thenReturn(new LinkedHashSet<>(Arrays.asList(1L, 3L, 4L)));
+
+        messageConsumer.onMessage(json);
+
+        ArgumentCaptor<Object> captor = ArgumentCaptor.forClass(Object.class);
+        verify(messageBus).publishAsync(eq(MessageTopics.IM_OFFLINE_PUSH), captor.capture());
+        assertThat(((OfflinePushDTO) captor.getValue()).getUserIds()).containsExactly(3L, 4L);
     }
 
     @Test
@@ -0,0 +1,85 @@
+package org.example.fleets.message.consumer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.fleets.common.service.ConversationService;
+import org.example.fleets.message.model.dto.OfflinePushDTO;
+import org.example.fleets.message.push.OfflinePushCoalescer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * 离线推送消费者单元测试
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("离线推送消费者单元测试")
+class OfflinePushConsumerTest {
+
+    @Mock
+    private ConversationService conversationService;
+    @Mock
+    private OfflinePushCoalescer offlinePushCoalescer;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private OfflinePushConsumer consumer;
+
+    @BeforeEach
+    void setUp() {
+        consumer = new OfflinePushConsumer(objectMapper, conversationService, offlinePushCoalescer);
+    }
+
+    @Test
+    @DisplayName("群聊 - 跳过免打扰成员与发送者，其余按群会话合并")
+    void onMessage_Group_SkipsMutedAndSender() throws Exception {
+        OfflinePushDTO dto = new OfflinePushDTO();
+        dto.setUserIds(Arrays.asList(1L, 2L, 3L, 4L));
+        dto.setMessageId("m1");
+        dto.setMessageType(2);
+        dto.setSenderId(1L);
+        dto.setGroupId(9L);
+        when(conversationService.getMutedOwnerIds(1, 9L, dto.getUserIds())).thenReturn(Collections.singleton(3L));
+
+        consumer.onMessage(objectMapper.writeValueAsString(dto));
+
+        verify(offlinePushCoalescer).offer(2L, "conv_group_9", "m1");
+        verify(offlinePushCoalescer).offer(4L, "conv_group_9", "m1");
+        verify(offlinePushCoalescer, never()).offer(1L, "conv_group_9", "m1");
+        verify(offlinePushCoalescer, never()).offer(3L, "conv_group_9", "m1");
+    }
+
+    @Test
+    @DisplayName("单聊 - 按接收者与发送者的会话判断免打扰")
+    void onMessage_Single_MutedReceiver_NotOffered() throws Exception {
+        OfflinePushDTO dto = new OfflinePushDTO();
+        dto.setUserIds(Collections.singletonList(5L));
+        dto.setMessageId("m2");
+        dto.setMessageType(1);
+        dto.setSenderId(8L);
+        when(conversationService.getMutedOwnerIds(0, 8L, dto.getUserIds())).thenReturn(Collections.singleton(5L));
+
+        consumer.onMessage(objectMapper.writeValueAsString(dto));
+
+        verify(offlinePushCoalescer, never()).offer(any(), anyString(), anyString());
+    }
+
+    @Test
+    @DisplayName("JSON 解析失败 - 不处理、不抛异常")
+    void onMessage_InvalidJson_Ignored() {
+        consumer.onMessage("not json");
+
+        verifyNoInteractions(conversationService, offlinePushCoalescer);
+    }
+}
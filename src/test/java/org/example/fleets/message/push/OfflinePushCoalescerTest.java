@@ -0,0 +1,115 @@
+package org.example.fleets.message.push;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.fleets.cache.redis.RedisService;
+import org.example.fleets.common.config.properties.FleetsProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+/**
+ * 离线推送合并器单元测试
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("离线推送合并器单元测试")
+class OfflinePushCoalescerTest {
+
+    @Mock
+    private RedisService redisService;
+
+    private final List<OfflineNotification> sent = new CopyOnWriteArrayList<>();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private OfflinePushCoalescer coalescer;
+
+    @BeforeEach
+    void setUp() {
+        FleetsProperties properties = new FleetsProperties();
+        properties.getOfflinePush().setCoalesceWindowMillis(50);
+        properties.getOfflinePush().setMinIntervalSeconds(60);
+        properties.getOfflinePush().setMaxPendingUsers(2);
+        coalescer = new OfflinePushCoalescer(sent::add, redisService, properties, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        coalescer.shutdown();
+    }
+
+    private static void waitFor(Runnable assertion) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (true) {
+            try {
+                assertion.run();
+                return;
+            } catch (AssertionError e) {
+                if (System.nanoTime() > deadline) {
+                    throw e;
+                }
+                Thread.sleep(10);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("窗口内多条离线消息 - 合并为一条摘要")
+    void offer_WithinWindow_SendsOneSummary() throws Exception {
+        when(redisService.setIfAbsent(eq("push:offline:rate:1"), anyString(), anyLong(), eq(TimeUnit.SECONDS)))
+            .thenReturn(true);
+
+        coalescer.offer(1L, "conv_1_2", "m1");
+        coalescer.offer(1L, "conv_1_2", "m2");
+        coalescer.offer(1L, "conv_group_9", "m3");
+        coalescer.offer(1L, "conv_1_3", "m4");
+        coalescer.offer(1L, "conv_group_9", "m5");
+
+        waitFor(() -> assertThat(sent).hasSize(1));
+        OfflineNotification notification = sent.get(0);
+        assertThat(notification.getUserId()).isEqualTo(1L);
+        assertThat(notification.getMessageCount()).isEqualTo(5);
+        assertThat(notification.getConversationCount()).isEqualTo(3);
+        assertThat(notification.getBody()).isEqualTo("3 个会话的 5 条新消息");
+        assertThat(notification.getLastMessageId()).isEqualTo("m5");
+        assertThat(meterRegistry.counter("fleets.offline.push", "result", "sent").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("仍在最小间隔内 - 不发送，继续合并不丢计数")
+    void offer_RateLimited_KeepsCoalescing() throws Exception {
+        when(redisService.setIfAbsent(eq("push:offline:rate:1"), anyString(), anyLong(), eq(TimeUnit.SECONDS)))
+            .thenReturn(false);
+        when(redisService.getExpire("push:offline:rate:1")).thenReturn(30L);
+
+        coalescer.offer(1L, "conv_group_9", "m1");
+        waitFor(() -> assertThat(meterRegistry.counter("fleets.offline.push", "result", "rate_limited").count())
+            .isEqualTo(1.0));
+        coalescer.offer(1L, "conv_group_9", "m2");
+
+        assertThat(sent).isEmpty();
+        assertThat(coalescer.pendingCount(1L)).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("合并中的用户数达到上限 - 新用户的事件丢弃")
+    void offer_MaxPendingUsers_DropsNewUsers() {
+        coalescer.offer(1L, "conv_1_9", "m1");
+        coalescer.offer(2L, "conv_2_9", "m2");
+        coalescer.offer(3L, "conv_3_9", "m3");
+
+        assertThat(coalescer.pendingCount(3L)).isZero();
+        assertThat(meterRegistry.counter("fleets.offline.push", "result", "dropped").count()).isEqualTo(1.0);
+    }
+}
@@ -0,0 +1,162 @@
+package org.example.fleets.message.service.impl;
+
+import org.example.fleets.cache.redis.RedisService;
+import org.example.fleets.common.config.properties.FleetsProperties;
+import org.example.fleets.message.model.dto.AnalyticsEventDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.redisson.api.RAtomicLongAsync;
+import org.redisson.api.RBatch;
+import org.redisson.api.RFuture;
+import org.redisson.api.RHyperLogLogAsync;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 统计服务单元测试
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("统计服务单元测试")
+class AnalyticsServiceImplTest {
+
+    private static final String EVENT_TYPE = "message_send";
+    private static final Date EVENT_TIME = Date.from(
+            LocalDateTime.of(2026, 10, 19, 10, 30).atZone(ZoneId.systemDefault()).toInstant());
+
+    @Mock
+    private RedisService redisService;
+    @Mock
+    private RBatch batch;
+    @Mock
+    private RAtomicLongAsync counter;
+    @Mock
+    private RHyperLogLogAsync<String> hll;
+
+    private AnalyticsServiceImpl analyticsService;
+
+    @BeforeEach
+    void setUp() {
+        analyticsService = new AnalyticsServiceImpl(redisService, new FleetsProperties());
+        when(redisService.createBatch()).thenReturn(batch);
+    }
+
+    @Test
+    @DisplayName("多次事件 - 聚合为一次 Pipeline 写入")
+    void flush_AggregatesEventsIntoSingleBatch() {
+        when(batch.getAtomicLong(anyString())).thenReturn(counter);
+        doReturn(hll).when(batch).getHyperLogLog(anyString(), any());
+
+        analyticsService.record(event(1L));
+        analyticsService.record(event(1L));
+        analyticsService.record(event(2L));
+        analyticsService.flush();
+
+        verify(batch).getAtomicLong("analytics:count:message_send:202610191030");
+        verify(batch).getAtomicLong("analytics:count:message_send:2026101910");
+        verify(batch).getAtomicLong("analytics:count:message_send:20261019");
+        verify(counter, times(3)).addAndGetAsync(3L);
+        verify(batch).getHyperLogLog(eq("analytics:uv:message_send:20261019"), any());
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Collection<String>> users = ArgumentCaptor.forClass(Collection.class);
+        verify(hll).addAllAsync(users.capture());
+        assertThat(users.getValue()).containsExactlyInAnyOrder("1", "2");
+        verify(batch, times(1)).execute();
+    }
+
+    @Test
+    @DisplayName("无事件 - 不访问 Redis")
+    void flush_NoEvents_SkipsExecute() {
+        analyticsService.flush();
+
+        verify(batch, never()).execute();
+    }
+
+    @Test
+    @DisplayName("写入失败 - 计数回灌，下次 flush 重新写入")
+    void flush_ExecuteFails_RestoresCounts() {
+        RFuture<Long> failedCount = future(false);
+        RFuture<Boolean> failedUnique = future(false);
+        when(batch.getAtomicLong(anyString())).thenReturn(counter);
+        when(counter.addAndGetAsync(anyLong())).thenReturn(failedCount);
+        doReturn(hll).when(batch).getHyperLogLog(anyString(), any());
+        when(hll.addAllAsync(anyCollection())).thenReturn(failedUnique);
+        when(batch.execute()).thenThrow(new RuntimeException("redis down")).thenReturn(null);
+
+        analyticsService.record(event(1L));
+        analyticsService.flush();
+        analyticsService.flush();
+
+        verify(counter, times(6)).addAndGetAsync(1L);
+        verify(hll, times(2)).addAllAsync(anyCollection());
+        verify(batch, times(2)).execute();
+    }
+
+    @Test
+    @DisplayName("部分写入失败 - 只回灌失败的 Key，已写入的不重复累加")
+    void flush_PartialFailure_RestoresOnlyFailedKeys() {
+        RAtomicLongAsync minuteCounter = mock(RAtomicLongAsync.class);
+        RFuture<Long> failedCount = future(false);
+        RFuture<Long> writtenCount = future(true);
+        RFuture<Boolean> writtenUnique = future(true);
+        when(batch.getAtomicLong("analytics:count:message_send:202610191030")).thenReturn(minuteCounter);
+        when(batch.getAtomicLong("analytics:count:message_send:2026101910")).thenReturn(counter);
+        when(batch.getAtomicLong("analytics:count:message_send:20261019")).thenReturn(counter);
+        when(minuteCounter.addAndGetAsync(anyLong())).thenReturn(failedCount);
+        when(counter.addAndGetAsync(anyLong())).thenReturn(writtenCount);
+        doReturn(hll).when(batch).getHyperLogLog(anyString(), any());
+        when(hll.addAllAsync(anyCollection())).thenReturn(writtenUnique);
+        when(batch.execute()).thenThrow(new RuntimeException("partial failure")).thenReturn(null);
+
+        analyticsService.record(event(1L));
+        analyticsService.flush();
+        analyticsService.flush();
+
+        verify(minuteCounter, times(2)).addAndGetAsync(1L);
+        verify(counter, times(2)).addAndGetAsync(1L);
+        verify(hll, times(1)).addAllAsync(anyCollection());
+    }
+
+    @Test
+    @DisplayName("flush 后的新事件 - 计入下一轮，不丢失")
+    void flush_EventsAfterFlush_CountedNextRound() {
+        when(batch.getAtomicLong(anyString())).thenReturn(counter);
+        doReturn(hll).when(batch).getHyperLogLog(anyString(), any());
+
+        analyticsService.record(event(1L));
+        analyticsService.flush();
+        analyticsService.record(event(1L));
+        analyticsService.record(event(1L));
+        analyticsService.flush();
+
+        verify(counter, times(3)).addAndGetAsync(1L);
+        verify(counter, times(3)).addAndGetAsync(2L);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> RFuture<T> future(boolean success) {
+        RFuture<T> future = mock(RFuture.class);
+        when(future.isSuccess()).thenReturn(success);
+        return future;
+    }
+
+    private AnalyticsEventDTO event(Long userId) {
+        AnalyticsEventDTO dto = new AnalyticsEventDTO();
+        dto.setEventType(EVENT_TYPE);
+        dto.setUserId(userId);
+        dto.setTimestamp(EVENT_TIME);
+        return dto;
+    }
+}
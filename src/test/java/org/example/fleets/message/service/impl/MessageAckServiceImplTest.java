@@ -0,0 +1,117 @@
+package org.example.fleets.message.service.impl;
+
+import org.example.fleets.common.config.properties.FleetsProperties;
+import org.example.fleets.mailbox.service.MailboxService;
+import org.example.fleets.message.model.entity.Message;
+import org.example.fleets.websocket.service.WebSocketService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 消息确认服务单元测试
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("消息确认服务单元测试")
+class MessageAckServiceImplTest {
+
+    private static final Long USER_ID = 2L;
+
+    @Mock
+    private MailboxService mailboxService;
+    @Mock
+    private WebSocketService webSocketService;
+
+    private FleetsProperties fleetsProperties;
+    private MessageAckServiceImpl messageAckService;
+
+    @BeforeEach
+    void setUp() {
+        fleetsProperties = new FleetsProperties();
+        fleetsProperties.getAck().setInitialTimeoutMillis(50);
+        fleetsProperties.getAck().setMaxBackoffMillis(50);
+        fleetsProperties.getAck().setMaxRetries(2);
+        fleetsProperties.getAck().setMaxPendingPerUser(2);
+        fleetsProperties.getAck().setWheelTickMillis(10);
+        messageAckService = new MessageAckServiceImpl(mailboxService, webSocketService, fleetsProperties);
+        messageAckService.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        messageAckService.destroy();
+    }
+
+    @Test
+    @DisplayName("送达确认 - 清除待确认条目，不再重推")
+    void handleDeliveredAck_ClearsPending() throws InterruptedException {
+        fleetsProperties.getAck().setInitialTimeoutMillis(100);
+        messageAckService.trackDelivery(USER_ID, message("msg_001"));
+
+        messageAckService.handleDeliveredAck(USER_ID, "msg_001");
+        Thread.sleep(300);
+
+        assertThat(messageAckService.getPendingCount(USER_ID)).isZero();
+        verify(webSocketService, never()).sendMessageToUser(anyLong(), any(Message.class));
+    }
+
+    @Test
+    @DisplayName("超时未确认 - 按次数重推后转为仅信箱")
+    void trackDelivery_NoAck_RetriesThenGivesUp() {
+        messageAckService.trackDelivery(USER_ID, message("msg_001"));
+
+        verify(webSocketService, timeout(2000).times(2)).sendMessageToUser(eq(USER_ID), any(Message.class));
+        long deadline = System.currentTimeMillis() + 2000;
+        while (messageAckService.getPendingCount(USER_ID) > 0 && System.currentTimeMillis() < deadline) {
+            Thread.yield();
+        }
+        assertThat(messageAckService.getPendingCount(USER_ID)).isZero();
+        verify(webSocketService, times(2)).sendMessageToUser(eq(USER_ID), any(Message.class));
+    }
+
+    @Test
+    @DisplayName("窗口已满 - 淘汰最早的条目，内存有界")
+    void trackDelivery_WindowFull_EvictsEldest() {
+        fleetsProperties.getAck().setInitialTimeoutMillis(10000);
+        messageAckService.trackDelivery(USER_ID, message("msg_001"));
+        messageAckService.trackDelivery(USER_ID, message("msg_002"));
+        messageAckService.trackDelivery(USER_ID, message("msg_003"));
+
+        assertThat(messageAckService.getPendingCount(USER_ID)).isEqualTo(2);
+
+        messageAckService.handleDeliveredAck(USER_ID, "msg_002");
+        messageAckService.handleDeliveredAck(USER_ID, "msg_003");
+        assertThat(messageAckService.getPendingCount(USER_ID)).isZero();
+    }
+
+    @Test
+    @DisplayName("批量已读确认 - 清除条目并标记信箱已读")
+    void batchHandleReadAck_MarksMailboxRead() {
+        fleetsProperties.getAck().setInitialTimeoutMillis(10000);
+        messageAckService.trackDelivery(USER_ID, message("msg_001"));
+
+        messageAckService.batchHandleReadAck(USER_ID, Arrays.asList("msg_001", "msg_002"));
+
+        assertThat(messageAckService.getPendingCount(USER_ID)).isZero();
+        verify(mailboxService).markAsReadByMessageId(USER_ID, "msg_001");
+        verify(mailboxService).markAsReadByMessageId(USER_ID, "msg_002");
+    }
+
+    private Message message(String id) {
+        Message message = new Message();
+        message.setId(id);
+        message.setMessageType(1);
+        message.setReceiverId(USER_ID);
+        return message;
+    }
+}
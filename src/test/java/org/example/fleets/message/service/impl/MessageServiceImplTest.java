@@ -1,12 +1,15 @@
 package org.example.fleets.message.service.impl;
 
 import lombok.var;
+import org.example.fleets.cache.redis.RedisService;
+import org.example.fleets.common.config.properties.FleetsProperties;
 import org.example.fleets.common.exception.BusinessException;
 import org.example.fleets.common.exception.ErrorCode;
 import org.example.fleets.common.service.ConversationService;
 import org.example.fleets.group.model.vo.GroupVO;
 import org.example.fleets.group.service.GroupService;
 import org.example.fleets.mailbox.service.MailboxService;
+import org.example.fleets.mailbox.service.SequenceService;
 import org.example.fleets.message.converter.MessageConverter;
 import org.example.fleets.message.model.dto.MessageSendDTO;
 import org.example.fleets.message.model.entity.Message;
@@ -14,6 +17,7 @@ import org.example.fleets.message.model.enums.MessageStatus;
 import org.example.fleets.message.model.vo.MessageVO;
 import org.example.fleets.message.producer.MessageProducer;
 import org.example.fleets.message.repository.MessageRepository;
+import org.example.fleets.message.service.cache.ClientMsgIdCacheService;
 import org.example.fleets.user.mapper.UserMapper;
 import org.example.fleets.user.model.entity.User;
 import org.example.fleets.user.service.FriendshipService;
@@ -24,6 +28,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.util.Arrays;
@@ -64,6 +69,12 @@ class MessageServiceImplTest {
     private FriendshipService friendshipService;
     @Mock
     private UserMapper userMapper;
+    @Mock
+    private ClientMsgIdCacheService clientMsgIdCacheService;
+    @Mock
+    private SequenceService sequenceService;
+    @Spy
+    private SendStageExecutor sendStageExecutor = new SendStageExecutor(new FleetsProperties(), mock(RedisService.class));
 
     @InjectMocks
     private MessageServiceImpl messageService;
@@ -100,6 +111,7 @@ class MessageServiceImplTest {
     @DisplayName("发送单聊消息 - 成功：保存、信箱、会话、MQ 均被调用")
     void sendMessage_SingleChat_Success() {
         when(friendshipService.isFriend(SENDER_ID, RECEIVER_ID)).thenReturn(true);
+        when(sequenceService.generateConversationSequence(anyString())).thenReturn(7L);
         when(messageRepository.save(any(Message.class))).thenReturn(savedMessage);
         MessageVO vo = new MessageVO();
         vo.setId(MESSAGE_ID);
@@ -110,7 +122,9 @@ class MessageServiceImplTest {
         assertThat(result).isNotNull();
         assertThat(result.getId()).isEqualTo(MESSAGE_ID);
 
-        verify(messageRepository, times(1)).save(any(Message.class));
+        ArgumentCaptor<Message> toSave = ArgumentCaptor.forClass(Message.class);
+        verify(messageRepository, times(1)).save(toSave.capture());
+        assertThat(toSave.getValue().getSequence()).isEqualTo(7L);
         verify(mailboxService, times(2)).writeMessage(anyLong(), anyString(), any(Message.class), anyBoolean());
         verify(conversationService, times(2)).updateConversation(anyLong(), anyLong(), eq(0), eq(MESSAGE_ID), anyString(), any(Date.class), anyBoolean());
 
@@ -119,6 +133,60 @@ class MessageServiceImplTest {
         assertThat(mqPayload.getValue()).isSameAs(savedMessage);
     }
 
+    @Test
+    @DisplayName("从会话发送单聊消息 - 发起会话ID随消息发布，用于回显时跳过该会话")
+    void sendMessage_FromSession_PublishesSenderSessionId() {
+        when(friendshipService.isFriend(SENDER_ID, RECEIVER_ID)).thenReturn(true);
+        when(sequenceService.generateConversationSequence(anyString())).thenReturn(7L);
+        when(messageRepository.save(any(Message.class))).thenReturn(savedMessage);
+        when(messageConverter.toVO(any(Message.class))).thenReturn(new MessageVO());
+
+        messageService.sendMessage(SENDER_ID, singleChatDTO, "session-1");
+
+        ArgumentCaptor<Message> toSave = ArgumentCaptor.forClass(Message.class);
+        verify(messageRepository).save(toSave.capture());
+        assertThat(toSave.getValue().getSenderSessionId()).isNull();
+        ArgumentCaptor<Object> mqPayload = ArgumentCaptor.forClass(Object.class);
+        verify(messageProducer).sendMessage(eq("im-message-topic"), mqPayload.capture());
+        assertThat(((Message) mqPayload.getValue()).getSenderSessionId()).isEqualTo("session-1");
+    }
+
+    @Test
+    @DisplayName("发送单聊消息 - 重复的 clientMsgId 返回原消息，不重复写入与推送")
+    void sendMessage_DuplicateClientMsgId_ReturnsOriginal() {
+        singleChatDTO.setClientMsgId("c-001");
+        when(friendshipService.isFriend(SENDER_ID, RECEIVER_ID)).thenReturn(true);
+        when(clientMsgIdCacheService.claim(SENDER_ID, "c-001")).thenReturn(MESSAGE_ID);
+        when(messageRepository.findById(MESSAGE_ID)).thenReturn(Optional.of(savedMessage));
+        MessageVO vo = new MessageVO();
+        vo.setId(MESSAGE_ID);
+        when(messageConverter.toVO(savedMessage)).thenReturn(vo);
+
+        MessageVO result = messageService.sendMessage(SENDER_ID, singleChatDTO);
+
+        assertThat(result.getId()).isEqualTo(MESSAGE_ID);
+        verify(messageRepository, never()).save(any());
+        verify(mailboxService, never()).writeMessage(anyLong(), anyString(), any(Message.class), anyBoolean());
+        verify(messageProducer, never()).sendMessage(anyString(), any());
+    }
+
+    @Test
+    @DisplayName("发送单聊消息 - 首次 clientMsgId 发送成功后记录 messageId")
+    void sendMessage_NewClientMsgId_RecordsMessageId() {
+        singleChatDTO.setClientMsgId("c-002");
+        when(friendshipService.isFriend(SENDER_ID, RECEIVER_ID)).thenReturn(true);
+        when(clientMsgIdCacheService.claim(SENDER_ID, "c-002")).thenReturn(null);
+        when(messageRepository.save(any(Message.class))).thenReturn(savedMessage);
+        MessageVO vo = new MessageVO();
+        vo.setId(MESSAGE_ID);
+        when(messageConverter.toVO(any(Message.class))).thenReturn(vo);
+
+        messageService.sendMessage(SENDER_ID, singleChatDTO);
+
+        verify(clientMsgIdCacheService).complete(SENDER_ID, "c-002", MESSAGE_ID);
+        verify(clientMsgIdCacheService, never()).release(anyLong(), anyString());
+    }
+
     @Test
     @DisplayName("发送单聊消息 - 非好友抛出 NOT_FRIEND_CANNOT_SEND")
     void sendMessage_SingleChat_NotFriend_Throws() {
@@ -154,6 +222,41 @@ class MessageServiceImplTest {
         verify(mailboxService, atLeastOnce()).writeMessage(anyLong(), anyString(), any(Message.class), anyBoolean());
         verify(conversationService, times(3)).updateConversation(anyLong(), eq(GROUP_ID), eq(1), eq(MESSAGE_ID), anyString(), any(Date.class), anyBoolean());
         verify(messageProducer, times(1)).sendMessage(eq("im-message-topic"), any(Message.class));
+        verify(groupService, times(1)).getGroupMemberIds(GROUP_ID);
+    }
+
+    @Test
+    @DisplayName("发送单聊消息 - 阶段失败（fail 策略）抛出 MESSAGE_SEND_FAILED")
+    void sendMessage_SingleChat_StageFails_Throws() {
+        when(friendshipService.isFriend(SENDER_ID, RECEIVER_ID)).thenReturn(true);
+        when(messageRepository.save(any(Message.class))).thenReturn(savedMessage);
+        when(mailboxService.writeMessage(anyLong(), anyString(), any(Message.class), anyBoolean()))
+            .thenThrow(new RuntimeException("mongo down"));
+
+        assertThatThrownBy(() -> messageService.sendMessage(SENDER_ID, singleChatDTO))
+            .isInstanceOf(BusinessException.class)
+            .satisfies(ex -> assertThat(((BusinessException) ex).getErrorCode()).isEqualTo(ErrorCode.MESSAGE_SEND_FAILED));
+
+        verify(messageConverter, never()).toVO(any(Message.class));
+        verify(messageProducer, never()).sendMessage(anyString(), any());
+    }
+
+    @Test
+    @DisplayName("发送单聊消息 - 阶段失败时 clientMsgId 仍绑定已保存的消息，重试不会产生重复消息")
+    void sendMessage_StageFails_KeepsClientMsgIdBound() {
+        singleChatDTO.setClientMsgId("c-003");
+        when(friendshipService.isFriend(SENDER_ID, RECEIVER_ID)).thenReturn(true);
+        when(clientMsgIdCacheService.claim(SENDER_ID, "c-003")).thenReturn(null);
+        when(messageRepository.save(any(Message.class))).thenReturn(savedMessage);
+        when(mailboxService.writeMessage(anyLong(), anyString(), any(Message.class), anyBoolean()))
+            .thenThrow(new RuntimeException("mongo down"));
+
+        assertThatThrownBy(() -> messageService.sendMessage(SENDER_ID, singleChatDTO))
+            .isInstanceOf(BusinessException.class);
+
+        verify(clientMsgIdCacheService).complete(SENDER_ID, "c-003", MESSAGE_ID);
+        verify(clientMsgIdCacheService, never()).release(anyLong(), anyString());
+        verify(messageProducer, never()).sendMessage(anyString(), any());
     }
 
     @Test
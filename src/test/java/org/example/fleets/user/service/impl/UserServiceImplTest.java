@@ -11,6 +11,7 @@ import org.example.fleets.user.model.entity.User;
 import org.example.fleets.user.model.vo.UserLoginVO;
 import org.example.fleets.user.model.vo.UserVO;
 import org.example.fleets.user.service.cache.UserCacheService;
+import org.example.fleets.websocket.service.TokenAuthCache;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -48,6 +49,8 @@ class UserServiceImplTest {
     private BCryptPasswordEncoder passwordEncoder;
     @MockBean
     private UserConverter userConverter;
+    @MockBean
+    private TokenAuthCache tokenAuthCache;
 
     @Autowired
     private UserServiceImpl userService;
@@ -0,0 +1,439 @@
+package org.example.fleets.websocket.cluster;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.fleets.cache.redis.RedisService;
+import org.example.fleets.common.config.properties.FleetsProperties;
+import org.example.fleets.websocket.codec.StompPayloadCodec;
+import org.example.fleets.websocket.service.SessionResumeService;
+import org.example.fleets.websocket.service.UserOnlineService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.redisson.api.RTopic;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.simp.user.SimpSession;
+import org.springframework.messaging.simp.user.SimpUser;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.messaging.SessionConnectEvent;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 集群推送路由单元测试
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("集群推送路由单元测试")
+class ClusterPushRouterTest {
+
+    private static final String LOCAL_NODE = "node-a";
+    private static final String REMOTE_NODE = "node-b";
+
+    @Mock
+    private SimpMessagingTemplate messagingTemplate;
+    @Mock
+    private UserOnlineService userOnlineService;
+    @Mock
+    private RedisService redisService;
+    @Mock
+    private RTopic remoteTopic;
+    @Mock
+    private SimpUserRegistry simpUserRegistry;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final StompPayloadCodec payloadCodec = new StompPayloadCodec(objectMapper);
+    private ClusterPushRouter router;
+
+    @BeforeEach
+    void setUp() {
+        router = createRouter(new StaticListableBeanFactory());
+    }
+
+    private ClusterPushRouter createRouter(StaticListableBeanFactory localPushTargets) {
+        FleetsProperties properties = new FleetsProperties();
+        properties.getWebsocket().setNodeId(LOCAL_NODE);
+        return new ClusterPushRouter(messagingTemplate, userOnlineService, redisService,
+                new NodeIdentity(properties), objectMapper, simpUserRegistry, payloadCodec,
+                new SessionResumeService(properties), localPushTargets.getBeanProvider(LocalPushTarget.class),
+                eventPublisher, properties, meterRegistry);
+    }
+
+    @Test
+    @DisplayName("会话在本节点 - 直接写入，不发布到 Redis")
+    void pushToUser_LocalSession_DeliversLocally() {
+        when(userOnlineService.getSessionNodes(1L)).thenReturn(Collections.singletonMap("s1", LOCAL_NODE));
+        when(messagingTemplate.getUserDestinationPrefix()).thenReturn("/user/");
+        when(simpUserRegistry.getUser("1")).thenReturn(mock(SimpUser.class));
+
+        router.pushToUser(1L, "/queue/messages", Collections.singletonMap("id", "msg_001"));
+
+        ArgumentCaptor<Message<?>> captor = ArgumentCaptor.forClass(Message.class);
+        verify(messagingTemplate).send(eq("/user/1/queue/messages"), captor.capture());
+        assertThat(new String((byte[]) captor.getValue().getPayload(), StandardCharsets.UTF_8))
+                .isEqualTo("{\"id\":\"msg_001\"}");
+        verify(redisService, never()).getTopic(anyString());
+    }
+
+    @Test
+    @DisplayName("用户不在线 - 不序列化、不投递，返回 false")
+    void pushToUser_Offline_SkipsEncoding() {
+        when(userOnlineService.getSessionNodes(7L)).thenReturn(Collections.emptyMap());
+
+        boolean online = router.pushToUser(7L, "/queue/messages", Collections.singletonMap("id", "msg_000"));
+
+        assertThat(online).isFalse();
+        assertThat(meterRegistry.get("fleets.push.encode").timer().count()).isZero();
+        verify(messagingTemplate, never()).send(anyString(), any(Message.class));
+    }
+
+    @Test
+    @DisplayName("会话在其他节点 - 同节点接收者合并为一个信封")
+    void pushToUsers_RemoteSessions_PublishesOneEnvelopePerNode() throws Exception {
+        Map<Long, Map<String, String>> sessionNodes = new HashMap<>();
+        sessionNodes.put(2L, Collections.singletonMap("s2", REMOTE_NODE));
+        sessionNodes.put(3L, Collections.singletonMap("s3", REMOTE_NODE));
+        when(userOnlineService.getSessionNodes(anyCollection())).thenReturn(sessionNodes);
+        when(redisService.getTopic("ws:push:" + REMOTE_NODE)).thenReturn(remoteTopic);
+        when(remoteTopic.publish(any())).thenReturn(1L);
+
+        Set<Long> offline = router.pushToUsers(Arrays.asList(2L, 3L, 4L), "/queue/messages", "{\"id\":\"msg_002\"}");
+
+        ArgumentCaptor<Object> captor = ArgumentCaptor.forClass(Object.class);
+        verify(remoteTopic, times(1)).publish(captor.capture());
+        PushEnvelope envelope = objectMapper.readValue((String) captor.getValue(), PushEnvelope.class);
+        assertThat(envelope.getUserIds()).containsExactlyInAnyOrder(2L, 3L);
+        assertThat(envelope.getPayload()).isEqualTo("{\"id\":\"msg_002\"}");
+        verify(messagingTemplate, never()).send(anyString(), any(Message.class));
+        assertThat(offline).containsExactly(4L);
+        assertThat(meterRegistry.get("fleets.push.recipients").tag("outcome", "remote").counter().count()).isEqualTo(2.0);
+        assertThat(meterRegistry.get("fleets.push.recipients").tag("outcome", "offline").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("群成员 - 仅写入本节点注册表中存在的用户")
+    void pushToUsers_LocalMembers_SkipsUsersWithoutLocalSession() {
+        Map<Long, Map<String, String>> sessionNodes = new HashMap<>();
+        sessionNodes.put(1L, Collections.singletonMap("s1", LOCAL_NODE));
+        sessionNodes.put(5L, Collections.singletonMap("s5", LOCAL_NODE));
+        when(userOnlineService.getSessionNodes(anyCollection())).thenReturn(sessionNodes);
+        when(messagingTemplate.getUserDestinationPrefix()).thenReturn("/user/");
+        when(simpUserRegistry.getUser("1")).thenReturn(mock(SimpUser.class));
+        when(simpUserRegistry.getUser("5")).thenReturn(null);
+
+        router.pushToUsers(Arrays.asList(1L, 5L), "/queue/messages", "{}");
+
+        verify(messagingTemplate).send(eq("/user/1/queue/messages"), any(Message.class));
+        verify(messagingTemplate, never()).send(eq("/user/5/queue/messages"), any(Message.class));
+    }
+
+    @Test
+    @DisplayName("多个接收者 - 消息体只序列化一次，所有会话共用同一字节数组")
+    void pushToUsers_MultipleRecipients_EncodesOnce() {
+        Map<Long, Map<String, String>> sessionNodes = new HashMap<>();
+        sessionNodes.put(1L, Collections.singletonMap("s1", LOCAL_NODE));
+        sessionNodes.put(2L, Collections.singletonMap("s2", LOCAL_NODE));
+        when(userOnlineService.getSessionNodes(anyCollection())).thenReturn(sessionNodes);
+        when(messagingTemplate.getUserDestinationPrefix()).thenReturn("/user/");
+        when(simpUserRegistry.getUser(anyString())).thenReturn(mock(SimpUser.class));
+
+        router.pushToUsers(Arrays.asList(1L, 2L), "/queue/messages", Collections.singletonMap("id", "msg_003"));
+
+        ArgumentCaptor<Message<?>> captor = ArgumentCaptor.forClass(Message.class);
+        verify(messagingTemplate, times(2)).send(anyString(), captor.capture());
+        assertThat(captor.getAllValues().get(0).getPayload()).isSameAs(captor.getAllValues().get(1).getPayload());
+        assertThat(meterRegistry.get("fleets.push.encode").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("fleets.push.deliveries").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("每个用户各自的消息体 - 相同消息体合并编码，不在线用户单独返回")
+    void pushEachToUsers_GroupsIdenticalPayloads() {
+        Map<Long, Map<String, String>> sessionNodes = new HashMap<>();
+        sessionNodes.put(1L, Collections.singletonMap("s1", LOCAL_NODE));
+        sessionNodes.put(2L, Collections.singletonMap("s2", LOCAL_NODE));
+        sessionNodes.put(3L, Collections.singletonMap("s3", LOCAL_NODE));
+        when(userOnlineService.getSessionNodes(anyCollection())).thenReturn(sessionNodes);
+        when(messagingTemplate.getUserDestinationPrefix()).thenReturn("/user/");
+        when(simpUserRegistry.getUser(anyString())).thenReturn(mock(SimpUser.class));
+
+        Map<Long, Object> payloads = new HashMap<>();
+        payloads.put(1L, Collections.singletonMap("unreadCount", 1));
+        payloads.put(2L, Collections.singletonMap("unreadCount", 1));
+        payloads.put(3L, Collections.singletonMap("unreadCount", 4));
+        payloads.put(4L, Collections.singletonMap("unreadCount", 1));
+
+        Set<Long> offline = router.pushEachToUsers(payloads, "/queue/unread");
+
+        assertThat(offline).containsExactly(4L);
+        ArgumentCaptor<Message<?>> captor = ArgumentCaptor.forClass(Message.class);
+        verify(messagingTemplate).send(eq("/user/3/queue/unread"), captor.capture());
+        assertThat(new String((byte[]) captor.getValue().getPayload(), StandardCharsets.UTF_8))
+                .isEqualTo("{\"unreadCount\":4}");
+        verify(messagingTemplate).send(eq("/user/1/queue/unread"), any(Message.class));
+        verify(messagingTemplate).send(eq("/user/2/queue/unread"), any(Message.class));
+        assertThat(meterRegistry.get("fleets.push.encode").timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("用户有 CBOR 会话 - 按会话分别投递，CBOR 会话收到二进制消息体")
+    void pushToUser_CborSession_DeliversPerSession() throws Exception {
+        connect("s9", "cbor");
+        SimpUser user = mock(SimpUser.class);
+        Set<SimpSession> sessions = new LinkedHashSet<>(Arrays.asList(session("s1"), session("s9")));
+        when(user.getSessions()).thenReturn(sessions);
+        Map<String, String> sessionNodes = new HashMap<>();
+        sessionNodes.put("s1", LOCAL_NODE);
+        sessionNodes.put("s9", LOCAL_NODE);
+        when(userOnlineService.getSessionNodes(1L)).thenReturn(sessionNodes);
+        when(messagingTemplate.getUserDestinationPrefix()).thenReturn("/user/");
+        when(simpUserRegistry.getUser("1")).thenReturn(user);
+
+        router.pushToUser(1L, "/queue/messages", Collections.singletonMap("id", "msg_004"));
+
+        ArgumentCaptor<Message<?>> captor = ArgumentCaptor.forClass(Message.class);
+        verify(messagingTemplate, times(2)).send(eq("/user/1/queue/messages"), captor.capture());
+        Message<?> json = captor.getAllValues().get(0);
+        Message<?> cbor = captor.getAllValues().get(1);
+        assertThat(SimpMessageHeaderAccessor.getSessionId(json.getHeaders())).isEqualTo("s1");
+        assertThat(SimpMessageHeaderAccessor.getSessionId(cbor.getHeaders())).isEqualTo("s9");
+        assertThat(SimpMessageHeaderAccessor.wrap(cbor).getContentType()).isEqualTo(MimeTypeUtils.APPLICATION_OCTET_STREAM);
+        Map<?, ?> decoded = payloadCodec.getCborMapper().readValue((byte[]) cbor.getPayload(), Map.class);
+        assertThat(decoded.get("id")).isEqualTo("msg_004");
+    }
+
+    @Test
+    @DisplayName("CBOR 编码失败 - 该批 CBOR 会话退回 JSON，其余接收者照常投递")
+    void deliverLocal_CborEncodingFails_FallsBackToJson() {
+        connect("s8", "cbor");
+        connect("s9", "cbor");
+        SimpSession s8 = session("s8");
+        SimpSession s9 = session("s9");
+        SimpUser first = mock(SimpUser.class);
+        when(first.getSessions()).thenReturn(Collections.singleton(s8));
+        SimpUser second = mock(SimpUser.class);
+        when(second.getSessions()).thenReturn(Collections.singleton(s9));
+        when(messagingTemplate.getUserDestinationPrefix()).thenReturn("/user/");
+        when(simpUserRegistry.getUser("1")).thenReturn(first);
+        when(simpUserRegistry.getUser("2")).thenReturn(second);
+        byte[] malformed = "not-json{".getBytes(StandardCharsets.UTF_8);
+
+        router.deliverLocal(Arrays.asList(1L, 2L), "/queue/messages", malformed);
+
+        ArgumentCaptor<Message<?>> captor = ArgumentCaptor.forClass(Message.class);
+        verify(messagingTemplate).send(eq("/user/1/queue/messages"), captor.capture());
+        verify(messagingTemplate).send(eq("/user/2/queue/messages"), captor.capture());
+        for (Message<?> message : captor.getAllValues()) {
+            assertThat(SimpMessageHeaderAccessor.wrap(message).getContentType()).isEqualTo(MimeTypeUtils.APPLICATION_JSON);
+            assertThat((byte[]) message.getPayload()).isEqualTo(malformed);
+        }
+    }
+
+    @Test
+    @DisplayName("SockJS 会话请求 CBOR - 不生效，仍为 JSON")
+    void cborRequestedOutsideNativeEndpoint_Ignored() {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.CONNECT);
+        accessor.setSessionId("s7");
+        accessor.setSessionAttributes(new HashMap<>());
+        accessor.setNativeHeader("accept-codec", "cbor");
+        payloadCodec.onConnect(new SessionConnectEvent(this,
+                MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders())));
+
+        assertThat(payloadCodec.isCbor("s7")).isFalse();
+    }
+
+    private void connect(String sessionId, String codec) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.CONNECT);
+        accessor.setSessionId(sessionId);
+        Map<String, Object> attributes = new HashMap<>();
+        payloadCodec.beforeHandshake(null, null, null, attributes);
+        accessor.setSessionAttributes(attributes);
+        accessor.setNativeHeader("accept-codec", codec);
+        payloadCodec.onConnect(new SessionConnectEvent(this,
+                MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders())));
+    }
+
+    private static SimpSession session(String id) {
+        SimpSession session = mock(SimpSession.class);
+        when(session.getId()).thenReturn(id);
+        return session;
+    }
+
+    @Test
+    @DisplayName("目标节点无订阅者 - 清理指向该节点的会话记录")
+    void pushToUser_DeadNode_RemovesStaleSessions() {
+        when(userOnlineService.getSessionNodes(2L)).thenReturn(Collections.singletonMap("s2", REMOTE_NODE));
+        when(redisService.getTopic("ws:push:" + REMOTE_NODE)).thenReturn(remoteTopic);
+        when(remoteTopic.publish(any())).thenReturn(0L);
+
+        router.pushToUser(2L, "/queue/messages", "{}");
+
+        verify(userOnlineService).removeNodeSessions(2L, REMOTE_NODE);
+    }
+
+    @Test
+    @DisplayName("输入人数上报 - 本节点发布事件，其他节点各发一个信封，不投递给用户")
+    void publishTypingCount_LocalEventAndOneEnvelopePerRemoteNode() throws Exception {
+        Map<Long, Map<String, String>> sessionNodes = new HashMap<>();
+        sessionNodes.put(1L, Collections.singletonMap("s1", LOCAL_NODE));
+        sessionNodes.put(2L, Collections.singletonMap("s2", REMOTE_NODE));
+        sessionNodes.put(3L, Collections.singletonMap("s3", REMOTE_NODE));
+        when(userOnlineService.getSessionNodes(anyCollection())).thenReturn(sessionNodes);
+        when(redisService.getTopic("ws:push:" + REMOTE_NODE)).thenReturn(remoteTopic);
+        GroupTypingCount typingCount = new GroupTypingCount();
+        typingCount.setGroupId(100L);
+        typingCount.setNodeId(LOCAL_NODE);
+        typingCount.setCount(2);
+
+        router.publishTypingCount(Arrays.asList(1L, 2L, 3L), typingCount);
+
+        verify(eventPublisher).publishEvent(typingCount);
+        ArgumentCaptor<Object> captor = ArgumentCaptor.forClass(Object.class);
+        verify(remoteTopic, times(1)).publish(captor.capture());
+        PushEnvelope envelope = objectMapper.readValue((String) captor.getValue(), PushEnvelope.class);
+        assertThat(envelope.getTypingCount()).isEqualTo(typingCount);
+        assertThat(envelope.getUserIds()).isNull();
+        verify(messagingTemplate, never()).send(anyString(), any(Message.class));
+    }
+
+    @Test
+    @DisplayName("只推本节点 - 不在本节点的用户跳过且不计入 stale")
+    void pushToLocalUsers_SkipsUsersWithoutLocalSession() {
+        when(messagingTemplate.getUserDestinationPrefix()).thenReturn("/user/");
+        when(simpUserRegistry.getUser("1")).thenReturn(mock(SimpUser.class));
+
+        router.pushToLocalUsers(Arrays.asList(1L, 2L), "/queue/typing", "{}");
+
+        verify(messagingTemplate).send(eq("/user/1/queue/typing"), any(Message.class));
+        verify(messagingTemplate, never()).send(eq("/user/2/queue/typing"), any(Message.class));
+        verify(userOnlineService, never()).getSessionNodes(anyCollection());
+        assertThat(meterRegistry.get("fleets.push.recipients").tag("outcome", "stale").counter().count()).isZero();
+    }
+
+    @Test
+    @DisplayName("连接层承载 - 按是否实际写入连接计为 delivered 或 stale")
+    void deliverLocal_LocalPushTarget_CountsByDeliveryResult() {
+        LocalPushTarget target = mock(LocalPushTarget.class);
+        when(target.deliver(eq(1L), anyString(), any())).thenReturn(true);
+        when(target.deliver(eq(2L), anyString(), any())).thenReturn(false);
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("connector", target);
+        ClusterPushRouter withTarget = createRouter(beanFactory);
+
+        withTarget.deliverLocal(Arrays.asList(1L, 2L), "/queue/messages", "{}".getBytes(StandardCharsets.UTF_8));
+
+        assertThat(meterRegistry.get("fleets.push.recipients").tag("outcome", "delivered").counter().count()).isEqualTo(1.0);
+        assertThat(meterRegistry.get("fleets.push.recipients").tag("outcome", "stale").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("按会话推送 - 本节点连接层会话只写该连接，不推给用户其他会话")
+    void pushToSession_LocalConnectorSession_DeliversOnlyThatSession() {
+        Map<String, String> sessionNodes = new HashMap<>();
+        sessionNodes.put("node-a-c1", LOCAL_NODE);
+        sessionNodes.put("s1", LOCAL_NODE);
+        when(userOnlineService.getSessionNodes(1L)).thenReturn(sessionNodes);
+        LocalPushTarget target = mock(LocalPushTarget.class);
+        when(target.deliverToSession(eq(1L), eq("node-a-c1"), eq("/queue/ack"), any())).thenReturn(true);
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("connector", target);
+        ClusterPushRouter withTarget = createRouter(beanFactory);
+
+        boolean online = withTarget.pushToSession(1L, "node-a-c1", "/queue/ack", Collections.singletonMap("clientMsgId", "c1"));
+
+        assertThat(online).isTrue();
+        verify(target, never()).deliver(any(), anyString(), any());
+        verify(messagingTemplate, never()).send(anyString(), any(Message.class));
+        assertThat(meterRegistry.get("fleets.push.recipients").tag("outcome", "delivered").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("按会话推送 - 会话在其他节点时信封携带会话ID，接收节点只投递该会话")
+    void pushToSession_RemoteSession_EnvelopeCarriesSessionId() throws Exception {
+        when(userOnlineService.getSessionNodes(2L)).thenReturn(Collections.singletonMap("node-b-c2", REMOTE_NODE));
+        when(redisService.getTopic("ws:push:" + REMOTE_NODE)).thenReturn(remoteTopic);
+        when(remoteTopic.publish(any())).thenReturn(1L);
+
+        router.pushToSession(2L, "node-b-c2", "/queue/ack", "{}");
+
+        ArgumentCaptor<Object> captor = ArgumentCaptor.forClass(Object.class);
+        verify(remoteTopic).publish(captor.capture());
+        PushEnvelope envelope = objectMapper.readValue((String) captor.getValue(), PushEnvelope.class);
+        assertThat(envelope.getSessionId()).isEqualTo("node-b-c2");
+        assertThat(envelope.getUserIds()).containsExactly(2L);
+    }
+
+    @Test
+    @DisplayName("按会话推送 - 会话不在线时返回 false")
+    void pushToSession_SessionOffline_ReturnsFalse() {
+        when(userOnlineService.getSessionNodes(3L)).thenReturn(Collections.singletonMap("s3", LOCAL_NODE));
+
+        boolean online = router.pushToSession(3L, "s-gone", "/queue/ack", "{}");
+
+        assertThat(online).isFalse();
+        assertThat(meterRegistry.get("fleets.push.encode").timer().count()).isZero();
+        verify(messagingTemplate, never()).send(anyString(), any(Message.class));
+    }
+
+    @Test
+    @DisplayName("回显到其他会话 - 跳过发起会话，本节点与其他节点的会话各投递一次")
+    void pushToOtherSessions_SkipsExcludedSession() throws Exception {
+        Map<String, String> sessionNodes = new HashMap<>();
+        sessionNodes.put("s1", LOCAL_NODE);
+        sessionNodes.put("s2", LOCAL_NODE);
+        sessionNodes.put("s3", REMOTE_NODE);
+        when(userOnlineService.getSessionNodes(1L)).thenReturn(sessionNodes);
+        SimpSession s2 = mock(SimpSession.class);
+        SimpUser user = mock(SimpUser.class);
+        when(user.getSession("s2")).thenReturn(s2);
+        when(simpUserRegistry.getUser("1")).thenReturn(user);
+        when(redisService.getTopic("ws:push:" + REMOTE_NODE)).thenReturn(remoteTopic);
+        when(remoteTopic.publish(any())).thenReturn(1L);
+
+        boolean online = router.pushToOtherSessions(1L, "s1", "/queue/messages", "{}");
+
+        assertThat(online).isTrue();
+        ArgumentCaptor<Message<?>> sent = ArgumentCaptor.forClass(Message.class);
+        verify(messagingTemplate, times(1)).send(anyString(), sent.capture());
+        assertThat(SimpMessageHeaderAccessor.getSessionId(sent.getValue().getHeaders())).isEqualTo("s2");
+        ArgumentCaptor<Object> captor = ArgumentCaptor.forClass(Object.class);
+        verify(remoteTopic).publish(captor.capture());
+        assertThat(objectMapper.readValue((String) captor.getValue(), PushEnvelope.class).getSessionId()).isEqualTo("s3");
+    }
+
+    @Test
+    @DisplayName("回显到其他会话 - 只有发起会话在线时不推送")
+    void pushToOtherSessions_OnlyExcludedOnline_ReturnsFalse() {
+        when(userOnlineService.getSessionNodes(1L)).thenReturn(Collections.singletonMap("s1", LOCAL_NODE));
+
+        boolean online = router.pushToOtherSessions(1L, "s1", "/queue/messages", "{}");
+
+        assertThat(online).isFalse();
+        assertThat(meterRegistry.get("fleets.push.encode").timer().count()).isZero();
+        verify(messagingTemplate, never()).send(anyString(), any(Message.class));
+    }
+}
@@ -0,0 +1,99 @@
+package org.example.fleets.websocket.cluster;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 推送微批窗口单元测试
+ */
+@DisplayName("推送微批窗口单元测试")
+class PushBatcherTest {
+
+    private static final String DEST = "/user/1/queue/messages";
+
+    private final List<String> frames = new CopyOnWriteArrayList<>();
+    private final List<Integer> counts = new CopyOnWriteArrayList<>();
+    private PushBatcher batcher;
+
+    @AfterEach
+    void tearDown() {
+        batcher.shutdown();
+    }
+
+    private void create(long windowMillis, int maxBytes) {
+        batcher = new PushBatcher(windowMillis, maxBytes, (destination, body, count) -> {
+            frames.add(new String(body, StandardCharsets.UTF_8));
+            counts.add(count);
+        });
+    }
+
+    private static byte[] json(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    @DisplayName("会话空闲 - 第一条立即下发，不等待窗口")
+    void offer_Idle_SendsImmediately() {
+        create(1000, 32 * 1024);
+
+        batcher.offer(DEST, json("{\"id\":1}"));
+
+        assertThat(frames).containsExactly("{\"id\":1}");
+        assertThat(counts).containsExactly(1);
+    }
+
+    @Test
+    @DisplayName("窗口内的后续消息 - 合并为一个数组帧，顺序不变")
+    void offer_WithinWindow_CoalescesIntoArray() throws Exception {
+        create(50, 32 * 1024);
+
+        batcher.offer(DEST, json("{\"id\":1}"));
+        batcher.offer(DEST, json("{\"id\":2}"));
+        batcher.offer(DEST, json("{\"id\":3}"));
+        assertThat(frames).hasSize(1);
+
+        waitForFrames(2);
+        assertThat(frames.get(1)).isEqualTo("[{\"id\":2},{\"id\":3}]");
+        assertThat(counts.get(1)).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("累计字节达到上限 - 不等窗口结束提前下发")
+    void offer_ExceedsMaxBytes_FlushesEarly() {
+        create(10_000, 16);
+
+        batcher.offer(DEST, json("{\"id\":1}"));
+        batcher.offer(DEST, json("{\"id\":2}"));
+        batcher.offer(DEST, json("{\"id\":3}"));
+
+        assertThat(frames).containsExactly("{\"id\":1}", "[{\"id\":2},{\"id\":3}]");
+        assertThat(batcher.pendingCount(DEST)).isZero();
+    }
+
+    @Test
+    @DisplayName("不同目的地 - 各自独立合并")
+    void offer_DifferentDestinations_Independent() {
+        create(1000, 32 * 1024);
+
+        batcher.offer(DEST, json("{\"id\":1}"));
+        batcher.offer("/user/2/queue/messages", json("{\"id\":2}"));
+
+        assertThat(frames).containsExactly("{\"id\":1}", "{\"id\":2}");
+    }
+
+    private void waitForFrames(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (frames.size() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(frames).hasSize(expected);
+    }
+}
@@ -0,0 +1,146 @@
+package org.example.fleets.websocket.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 按会话串行的入站线程池单元测试
+ */
+@DisplayName("按会话串行的入站线程池单元测试")
+class SessionOrderedTaskExecutorTest {
+
+    private SessionOrderedTaskExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = new SessionOrderedTaskExecutor(1000);
+        executor.setCorePoolSize(8);
+        executor.setMaxPoolSize(8);
+        executor.setQueueCapacity(1000);
+        executor.initialize();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    @DisplayName("同一会话连续发送的帧 - 按发送顺序处理")
+    void pipelinedFrames_SameSession_HandledInOrder() throws InterruptedException {
+        int sessionsCount = 4;
+        int framesPerSession = 50;
+        CountDownLatch done = new CountDownLatch(sessionsCount * framesPerSession);
+        Map<String, List<Integer>> handled = new ConcurrentHashMap<>();
+        ExecutorSubscribableChannel channel = new ExecutorSubscribableChannel(executor);
+        channel.subscribe(message -> {
+            // 随机耗时，放大并发执行时的乱序
+            sleepMicros(ThreadLocalRandom.current().nextInt(200));
+            handled.computeIfAbsent(SimpMessageHeaderAccessor.getSessionId(message.getHeaders()),
+                    k -> new CopyOnWriteArrayList<>()).add((Integer) message.getPayload());
+            done.countDown();
+        });
+
+        for (int i = 0; i < framesPerSession; i++) {
+            for (int s = 0; s < sessionsCount; s++) {
+                channel.send(frame("s" + s, i));
+            }
+        }
+
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < framesPerSession; i++) {
+            expected.add(i);
+        }
+        for (int s = 0; s < sessionsCount; s++) {
+            assertThat(handled.get("s" + s)).containsExactlyElementsOf(expected);
+        }
+        assertThat(executor.pendingFrames()).isZero();
+    }
+
+    @Test
+    @DisplayName("单帧处理失败 - 同一会话的后续帧继续处理")
+    void frameFails_LaterFramesStillHandled() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        ExecutorSubscribableChannel channel = new ExecutorSubscribableChannel(executor);
+        channel.subscribe(message -> {
+            if ((Integer) message.getPayload() == 0) {
+                throw new IllegalStateException("boom");
+            }
+            done.countDown();
+        });
+
+        channel.send(frame("s1", 0));
+        channel.send(frame("s1", 1));
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    @DisplayName("帧积压超过上限 - 拒绝")
+    void pendingFramesOverLimit_Rejected() throws InterruptedException {
+        SessionOrderedTaskExecutor bounded = new SessionOrderedTaskExecutor(1);
+        bounded.setCorePoolSize(1);
+        bounded.setMaxPoolSize(1);
+        bounded.initialize();
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        try {
+            ExecutorSubscribableChannel channel = new ExecutorSubscribableChannel(bounded);
+            channel.subscribe(message -> {
+                started.countDown();
+                awaitQuietly(release);
+            });
+            channel.send(frame("s1", 0));
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+            channel.send(frame("s1", 1));
+
+            assertThatThrownBy(() -> channel.send(frame("s1", 2)))
+                    .hasCauseInstanceOf(TaskRejectedException.class);
+        } finally {
+            release.countDown();
+            bounded.shutdown();
+        }
+    }
+
+    private static Message<Integer> frame(String sessionId, int seq) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create();
+        accessor.setSessionId(sessionId);
+        return MessageBuilder.createMessage(seq, accessor.getMessageHeaders());
+    }
+
+    private static void sleepMicros(long micros) {
+        try {
+            TimeUnit.MICROSECONDS.sleep(micros);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
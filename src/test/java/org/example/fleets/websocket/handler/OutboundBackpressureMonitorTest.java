@@ -0,0 +1,116 @@
+package org.example.fleets.websocket.handler;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.fleets.common.config.properties.FleetsProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+/**
+ * 出站背压监控单元测试
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("出站背压监控单元测试")
+class OutboundBackpressureMonitorTest {
+
+    private static final String SESSION_ID = "s1";
+
+    @Mock
+    private WebSocketHandler handler;
+    @Mock
+    private WebSocketSession session;
+    @Mock
+    private MessageChannel channel;
+    @Mock
+    private MessageHandler messageHandler;
+
+    private FleetsProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+    private OutboundBackpressureMonitor monitor;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        properties = new FleetsProperties();
+        meterRegistry = new SimpleMeterRegistry();
+        monitor = new OutboundBackpressureMonitor(properties, meterRegistry);
+        when(session.getId()).thenReturn(SESSION_ID);
+        monitor.decorate(handler).afterConnectionEstablished(session);
+    }
+
+    @Test
+    @DisplayName("出站消息处理完成后积压归零")
+    void testQueuedBytes_ReleasedAfterHandled() {
+        Message<byte[]> message = messageOf(100);
+
+        monitor.preSend(message, channel);
+        assertThat(monitor.queuedBytes(SESSION_ID)).isEqualTo(100);
+        assertThat(meterRegistry.get("fleets.ws.outbound.queued.bytes").gauge().value()).isEqualTo(100);
+
+        monitor.afterMessageHandled(message, channel, messageHandler, null);
+        assertThat(monitor.queuedBytes(SESSION_ID)).isZero();
+    }
+
+    @Test
+    @DisplayName("未能进入线程池的消息撤回计数")
+    void testQueuedBytes_ReleasedWhenRejected() {
+        Message<byte[]> message = messageOf(100);
+
+        monitor.preSend(message, channel);
+        monitor.afterSendCompletion(message, channel, false, new IllegalStateException("rejected"));
+
+        assertThat(monitor.queuedBytes(SESSION_ID)).isZero();
+    }
+
+    @Test
+    @DisplayName("积压持续超过缓冲上限 - 断开会话并计数")
+    void testOverLimit_SessionEvicted() throws Exception {
+        properties.getWebsocket().setSendBufferSizeLimit(150);
+        properties.getWebsocket().setSendTimeLimitMillis(0);
+
+        monitor.preSend(messageOf(100), channel);
+        monitor.preSend(messageOf(100), channel);
+        verify(session, never()).close(any(CloseStatus.class));
+
+        monitor.preSend(messageOf(100), channel);
+
+        verify(session).close(CloseStatus.SESSION_NOT_RELIABLE);
+        assertThat(meterRegistry.get("fleets.ws.sessions.evicted").tag("reason", "backlog").counter().count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("积压回落到上限以下 - 不断开")
+    void testBelowLimitAfterRelease_NotEvicted() throws Exception {
+        properties.getWebsocket().setSendBufferSizeLimit(150);
+        properties.getWebsocket().setSendTimeLimitMillis(0);
+        Message<byte[]> first = messageOf(100);
+
+        monitor.preSend(first, channel);
+        monitor.preSend(messageOf(100), channel);
+        monitor.afterMessageHandled(first, channel, messageHandler, null);
+        monitor.preSend(messageOf(10), channel);
+
+        verify(session, never()).close(any(CloseStatus.class));
+    }
+
+    private static Message<byte[]> messageOf(int size) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId(SESSION_ID);
+        return MessageBuilder.createMessage(new byte[size], accessor.getMessageHeaders());
+    }
+}
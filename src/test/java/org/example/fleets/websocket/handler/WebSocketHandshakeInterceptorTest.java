@@ -0,0 +1,105 @@
+package org.example.fleets.websocket.handler;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.fleets.common.config.properties.FleetsProperties;
+import org.example.fleets.websocket.service.SessionResumeService;
+import org.example.fleets.websocket.service.TokenAuthCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.socket.WebSocketHandler;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+/**
+ * WebSocket 握手拦截器单元测试（准入控制与鉴权缓存）
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("WebSocket 握手拦截器单元测试")
+class WebSocketHandshakeInterceptorTest {
+
+    @Mock
+    private SessionResumeService sessionResumeService;
+    @Mock
+    private TokenAuthCache tokenAuthCache;
+    @Mock
+    private WebSocketHandler wsHandler;
+
+    private HandshakeAdmissionLimiter admissionLimiter;
+    private WebSocketHandshakeInterceptor interceptor;
+
+    @BeforeEach
+    void setUp() {
+        FleetsProperties properties = new FleetsProperties();
+        properties.getWebsocket().setHandshakeMaxConcurrent(1);
+        properties.getWebsocket().setHandshakeRetryAfterSeconds(2);
+        properties.getWebsocket().setHandshakeRetryJitterSeconds(3);
+        admissionLimiter = new HandshakeAdmissionLimiter(properties, new SimpleMeterRegistry());
+        interceptor = new WebSocketHandshakeInterceptor(sessionResumeService, tokenAuthCache, admissionLimiter);
+    }
+
+    @Test
+    @DisplayName("token 有效 - 写入 userId，afterHandshake 后许可归还")
+    void beforeHandshake_ValidToken_Admitted() throws Exception {
+        when(tokenAuthCache.resolveUserId("t1")).thenReturn(1L);
+        Map<String, Object> attributes = new HashMap<>();
+
+        boolean result = interceptor.beforeHandshake(request("token=t1"), response(), wsHandler, attributes);
+
+        assertThat(result).isTrue();
+        assertThat(attributes).containsEntry("userId", 1L);
+        assertThat(admissionLimiter.tryAcquire()).isFalse();
+        interceptor.afterHandshake(null, null, wsHandler, null);
+        assertThat(admissionLimiter.tryAcquire()).isTrue();
+    }
+
+    @Test
+    @DisplayName("并发握手超限 - 返回 503 与带抖动的 Retry-After")
+    void beforeHandshake_OverLimit_Rejected() throws Exception {
+        when(tokenAuthCache.resolveUserId("t1")).thenReturn(1L);
+        interceptor.beforeHandshake(request("token=t1"), response(), wsHandler, new HashMap<>());
+
+        MockHttpServletResponse servletResponse = new MockHttpServletResponse();
+        ServletServerHttpResponse response = new ServletServerHttpResponse(servletResponse);
+        boolean result = interceptor.beforeHandshake(request("token=t2"), response, wsHandler, new HashMap<>());
+        response.flush();
+
+        assertThat(result).isFalse();
+        assertThat(servletResponse.getStatus()).isEqualTo(503);
+        assertThat(Integer.parseInt(servletResponse.getHeader(HttpHeaders.RETRY_AFTER))).isBetween(2, 5);
+        verify(tokenAuthCache, never()).resolveUserId("t2");
+    }
+
+    @Test
+    @DisplayName("token 无效 - 拒绝握手并立即归还许可")
+    void beforeHandshake_InvalidToken_ReleasesPermit() throws Exception {
+        when(tokenAuthCache.resolveUserId("bad")).thenReturn(null);
+
+        boolean result = interceptor.beforeHandshake(request("token=bad"), response(), wsHandler, new HashMap<>());
+
+        assertThat(result).isFalse();
+        assertThat(admissionLimiter.tryAcquire()).isTrue();
+    }
+
+    private static ServletServerHttpRequest request(String query) {
+        MockHttpServletRequest servletRequest = new MockHttpServletRequest("GET", "/ws");
+        servletRequest.setQueryString(query);
+        return new ServletServerHttpRequest(servletRequest);
+    }
+
+    private static ServletServerHttpResponse response() {
+        return new ServletServerHttpResponse(new MockHttpServletResponse());
+    }
+}
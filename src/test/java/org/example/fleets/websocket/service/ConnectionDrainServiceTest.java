@@ -0,0 +1,129 @@
+package org.example.fleets.websocket.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.fleets.common.config.properties.FleetsProperties;
+import org.example.fleets.websocket.cluster.ClusterPushRouter;
+import org.example.fleets.websocket.handler.HandshakeAdmissionLimiter;
+import org.example.fleets.websocket.model.vo.ControlFrameVO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.messaging.simp.user.SimpSession;
+import org.springframework.messaging.simp.user.SimpUser;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 节点排空单元测试
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("节点排空单元测试")
+class ConnectionDrainServiceTest {
+
+    private static final long WINDOW_MILLIS = 1000;
+
+    @Mock
+    private SimpUserRegistry simpUserRegistry;
+    @Mock
+    private ClusterPushRouter clusterPushRouter;
+    @Mock
+    private UserOnlineService userOnlineService;
+    @Mock
+    private SessionResumeService sessionResumeService;
+    @Mock
+    private PresenceNotifier presenceNotifier;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private HandshakeAdmissionLimiter admissionLimiter;
+    private ConnectionDrainService drainService;
+
+    @BeforeEach
+    void setUp() {
+        FleetsProperties properties = new FleetsProperties();
+        properties.getWebsocket().setDrainWindowMillis(WINDOW_MILLIS);
+        properties.getWebsocket().setDrainGraceMillis(0);
+        admissionLimiter = new HandshakeAdmissionLimiter(properties, new SimpleMeterRegistry());
+        drainService = new ConnectionDrainService(admissionLimiter, simpUserRegistry, clusterPushRouter,
+                userOnlineService, sessionResumeService, presenceNotifier, objectMapper, properties);
+
+        SimpUser user = mock(SimpUser.class);
+        when(user.getName()).thenReturn("1");
+        SimpSession phone = mock(SimpSession.class);
+        SimpSession desktop = mock(SimpSession.class);
+        when(phone.getId()).thenReturn("s1");
+        when(phone.getUser()).thenReturn(user);
+        when(desktop.getId()).thenReturn("s2");
+        when(desktop.getUser()).thenReturn(user);
+        when(user.getSessions()).thenReturn(new LinkedHashSet<>(Arrays.asList(phone, desktop)));
+        when(simpUserRegistry.getUsers()).thenReturn(Collections.singleton(user));
+    }
+
+    @Test
+    @DisplayName("排空 - 停止握手，迁移帧在窗口内错开，剩余会话批量下线")
+    @SuppressWarnings("unchecked")
+    void drain_MigratesSessionsAndReleasesPresence() throws Exception {
+        when(simpUserRegistry.getUserCount()).thenReturn(1);
+
+        drainService.drain();
+
+        assertThat(admissionLimiter.tryAcquire()).isFalse();
+        verify(clusterPushRouter).flushPending();
+        ArgumentCaptor<byte[]> bodies = ArgumentCaptor.forClass(byte[].class);
+        verify(clusterPushRouter, times(2)).deliverToSession(eq(1L), anyString(), eq("/queue/control"), bodies.capture());
+        List<byte[]> frames = bodies.getAllValues();
+        ControlFrameVO first = objectMapper.readValue(frames.get(0), ControlFrameVO.class);
+        ControlFrameVO second = objectMapper.readValue(frames.get(1), ControlFrameVO.class);
+        assertThat(first.getType()).isEqualTo(ControlFrameVO.TYPE_MIGRATE);
+        assertThat(first.getReconnectAfterMillis()).isLessThan(WINDOW_MILLIS / 2);
+        assertThat(second.getReconnectAfterMillis()).isBetween(WINDOW_MILLIS / 2, WINDOW_MILLIS - 1);
+
+        ArgumentCaptor<Map<String, Long>> remaining = ArgumentCaptor.forClass(Map.class);
+        verify(userOnlineService).usersOffline(remaining.capture());
+        assertThat(remaining.getValue()).containsOnlyKeys("s1", "s2");
+        assertThat(drainService.isPresenceReleased()).isTrue();
+    }
+
+    @Test
+    @DisplayName("排空 - 挂起等待恢复的会话一并下线，离线用户通知好友")
+    @SuppressWarnings("unchecked")
+    void drain_ExpiresDetachedSessionsAndNotifiesOffline() {
+        when(simpUserRegistry.getUserCount()).thenReturn(0);
+        when(sessionResumeService.expireAll()).thenReturn(Collections.singletonMap("s3", 2L));
+        when(userOnlineService.usersOffline(anyMap())).thenReturn(new LinkedHashSet<>(Arrays.asList(1L, 2L)));
+
+        drainService.drain();
+
+        ArgumentCaptor<Map<String, Long>> remaining = ArgumentCaptor.forClass(Map.class);
+        verify(userOnlineService).usersOffline(remaining.capture());
+        assertThat(remaining.getValue()).containsOnlyKeys("s1", "s2", "s3");
+        verify(presenceNotifier).onTransition(1L, false);
+        verify(presenceNotifier).onTransition(2L, false);
+        verify(presenceNotifier).flushPending();
+    }
+
+    @Test
+    @DisplayName("重复排空 - 只执行一次")
+    void drain_Twice_RunsOnce() {
+        when(simpUserRegistry.getUserCount()).thenReturn(0);
+
+        drainService.drain();
+        drainService.drain();
+
+        verify(clusterPushRouter, times(1)).flushPending();
+        verify(userOnlineService, times(1)).usersOffline(anyMap());
+    }
+}
@@ -0,0 +1,128 @@
+package org.example.fleets.websocket.service;
+
+import org.example.fleets.common.config.properties.FleetsProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+/**
+ * 在线状态变更通知单元测试
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("在线状态变更通知单元测试")
+class PresenceNotifierTest {
+
+    private static final Long USER_ID = 1L;
+
+    @Mock
+    private WebSocketService webSocketService;
+    @Mock
+    private UserOnlineService userOnlineService;
+
+    private FleetsProperties properties;
+    private PresenceNotifier presenceNotifier;
+
+    @BeforeEach
+    void setUp() {
+        properties = new FleetsProperties();
+        properties.getWebsocket().setPresenceDebounceMillis(50);
+        presenceNotifier = new PresenceNotifier(webSocketService, userOnlineService, properties);
+        presenceNotifier.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        presenceNotifier.destroy();
+    }
+
+    @Test
+    @DisplayName("上线转换 - 防抖后通知好友")
+    void testOnline_NotifiedAfterDebounce() {
+        when(userOnlineService.claimPresenceNotification(USER_ID, true)).thenReturn(true);
+
+        presenceNotifier.onTransition(USER_ID, true);
+
+        verify(webSocketService, timeout(1000)).sendOnlineStatusChange(USER_ID, true);
+    }
+
+    @Test
+    @DisplayName("窗口内快速重连 - 只保留最后一次转换，不发离线通知")
+    void testReconnect_Debounced() {
+        when(userOnlineService.claimPresenceNotification(USER_ID, true)).thenReturn(true, false);
+        presenceNotifier.fire(USER_ID, true);
+
+        presenceNotifier.onTransition(USER_ID, false);
+        presenceNotifier.onTransition(USER_ID, true);
+
+        verify(webSocketService, after(200).times(1)).sendOnlineStatusChange(USER_ID, true);
+        verify(webSocketService, never()).sendOnlineStatusChange(USER_ID, false);
+    }
+
+    @Test
+    @DisplayName("到期时实际状态已反转或集群已通知过 - 跳过通知")
+    void testStateFlipped_Skipped() {
+        when(userOnlineService.claimPresenceNotification(USER_ID, false)).thenReturn(false);
+
+        presenceNotifier.fire(USER_ID, false);
+
+        verify(webSocketService, never()).sendOnlineStatusChange(anyLong(), anyBoolean());
+    }
+
+    @Test
+    @DisplayName("上线后离线 - 各通知一次")
+    void testOnlineThenOffline() {
+        when(userOnlineService.claimPresenceNotification(USER_ID, true)).thenReturn(true);
+        when(userOnlineService.claimPresenceNotification(USER_ID, false)).thenReturn(true);
+
+        presenceNotifier.fire(USER_ID, true);
+        presenceNotifier.fire(USER_ID, false);
+
+        verify(webSocketService).sendOnlineStatusChange(USER_ID, true);
+        verify(webSocketService).sendOnlineStatusChange(USER_ID, false);
+    }
+
+    @Test
+    @DisplayName("排空时立即发出挂起中的通知")
+    void testFlushPending_FiresImmediately() {
+        properties.getWebsocket().setPresenceDebounceMillis(60000);
+        when(userOnlineService.claimPresenceNotification(USER_ID, false)).thenReturn(true);
+
+        presenceNotifier.onTransition(USER_ID, false);
+        presenceNotifier.flushPending();
+
+        verify(webSocketService).sendOnlineStatusChange(USER_ID, false);
+    }
+
+    @Test
+    @DisplayName("旧转换已到期 - 不移除窗口内新挂起的转换")
+    void testExpiredTransition_KeepsNewerPending() throws InterruptedException {
+        CountDownLatch claiming = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(userOnlineService.claimPresenceNotification(USER_ID, true)).thenAnswer(invocation -> {
+            claiming.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return true;
+        });
+        when(userOnlineService.claimPresenceNotification(USER_ID, false)).thenReturn(true);
+
+        presenceNotifier.onTransition(USER_ID, true);
+        assertThat(claiming.await(5, TimeUnit.SECONDS)).isTrue();
+        properties.getWebsocket().setPresenceDebounceMillis(60000);
+        presenceNotifier.onTransition(USER_ID, false);
+        release.countDown();
+        presenceNotifier.flushPending();
+
+        verify(webSocketService, timeout(1000)).sendOnlineStatusChange(USER_ID, true);
+        verify(webSocketService).sendOnlineStatusChange(USER_ID, false);
+    }
+}
@@ -0,0 +1,123 @@
+package org.example.fleets.websocket.service;
+
+import org.example.fleets.common.config.properties.FleetsProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 会话快速恢复单元测试
+ */
+@DisplayName("会话快速恢复单元测试")
+class SessionResumeServiceTest {
+
+    private static final Long USER_ID = 1L;
+    private static final String SESSION_ID = "s1";
+
+    private FleetsProperties properties;
+    private SessionResumeService sessionResumeService;
+
+    @BeforeEach
+    void setUp() {
+        properties = new FleetsProperties();
+        sessionResumeService = new SessionResumeService(properties);
+        sessionResumeService.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        sessionResumeService.destroy();
+    }
+
+    @Test
+    @DisplayName("挂起后恢复 - 只补发断开期间缓冲的推送")
+    void testResume_ReplaysBufferedPushes() {
+        String token = sessionResumeService.issueToken(USER_ID, SESSION_ID);
+        assertThat(sessionResumeService.detach(USER_ID, SESSION_ID, () -> { })).isTrue();
+
+        sessionResumeService.buffer(USER_ID, "/queue/messages", bytes("m1"));
+        sessionResumeService.buffer(USER_ID, "/queue/typing", bytes("t1"));
+        sessionResumeService.buffer(USER_ID, "/queue/messages", bytes("m2"));
+
+        SessionResumeService.ResumeTicket ticket = sessionResumeService.verify(token);
+        assertThat(ticket).isNotNull();
+        assertThat(ticket.getUserId()).isEqualTo(USER_ID);
+
+        List<SessionResumeService.BufferedPush> missed = sessionResumeService.resume(ticket);
+        assertThat(missed).extracting(push -> new String(push.getBody(), StandardCharsets.UTF_8))
+                .containsExactly("m1", "m2");
+        assertThat(sessionResumeService.isDetached(USER_ID)).isFalse();
+        assertThat(sessionResumeService.verify(token)).isNull();
+    }
+
+    @Test
+    @DisplayName("未领取令牌的会话 - 不挂起，立即下线")
+    void testDetach_WithoutToken() {
+        assertThat(sessionResumeService.detach(USER_ID, SESSION_ID, () -> { })).isFalse();
+        assertThat(sessionResumeService.isDetached(USER_ID)).isFalse();
+    }
+
+    @Test
+    @DisplayName("令牌被篡改 - 校验失败")
+    void testVerify_TamperedToken() {
+        String token = sessionResumeService.issueToken(USER_ID, SESSION_ID);
+        sessionResumeService.detach(USER_ID, SESSION_ID, () -> { });
+
+        String forged = sessionResumeService.issueToken(2L, "s2").split("\\.")[0] + "." + token.split("\\.")[1];
+
+        assertThat(sessionResumeService.verify(forged)).isNull();
+        assertThat(sessionResumeService.verify("garbage")).isNull();
+    }
+
+    @Test
+    @DisplayName("缓冲溢出 - 恢复时要求全量同步")
+    void testResume_Overflow() {
+        properties.getWebsocket().setResumeBufferSize(1);
+        String token = sessionResumeService.issueToken(USER_ID, SESSION_ID);
+        sessionResumeService.detach(USER_ID, SESSION_ID, () -> { });
+
+        sessionResumeService.buffer(USER_ID, "/queue/messages", bytes("m1"));
+        sessionResumeService.buffer(USER_ID, "/queue/messages", bytes("m2"));
+
+        assertThat(sessionResumeService.resume(sessionResumeService.verify(token))).isNull();
+    }
+
+    @Test
+    @DisplayName("排空 - 挂起的会话立即结束，不再执行到期下线")
+    void testExpireAll_ReturnsDetachedSessions() throws InterruptedException {
+        properties.getWebsocket().setResumeGraceSeconds(1);
+        sessionResumeService.issueToken(USER_ID, SESSION_ID);
+        CountDownLatch expired = new CountDownLatch(1);
+        sessionResumeService.detach(USER_ID, SESSION_ID, expired::countDown);
+
+        assertThat(sessionResumeService.expireAll()).containsEntry(SESSION_ID, USER_ID).hasSize(1);
+
+        assertThat(sessionResumeService.isDetached(USER_ID)).isFalse();
+        assertThat(expired.await(1500, TimeUnit.MILLISECONDS)).isFalse();
+    }
+
+    @Test
+    @DisplayName("恢复窗口到期 - 执行下线")
+    void testGraceExpired_GoesOffline() throws InterruptedException {
+        properties.getWebsocket().setResumeGraceSeconds(0);
+        CountDownLatch offline = new CountDownLatch(1);
+        sessionResumeService.issueToken(USER_ID, SESSION_ID);
+
+        sessionResumeService.detach(USER_ID, SESSION_ID, offline::countDown);
+
+        assertThat(offline.await(1, TimeUnit.SECONDS)).isTrue();
+        assertThat(sessionResumeService.isDetached(USER_ID)).isFalse();
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
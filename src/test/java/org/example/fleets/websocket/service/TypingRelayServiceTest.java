@@ -0,0 +1,199 @@
+package org.example.fleets.websocket.service;
+
+import org.example.fleets.common.config.properties.FleetsProperties;
+import org.example.fleets.group.service.GroupService;
+import org.example.fleets.user.service.FriendshipService;
+import org.example.fleets.websocket.cluster.ClusterPushRouter;
+import org.example.fleets.websocket.cluster.GroupTypingCount;
+import org.example.fleets.websocket.cluster.NodeIdentity;
+import org.example.fleets.websocket.model.vo.TypingVO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 输入状态转发服务单元测试
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("输入状态转发服务单元测试")
+class TypingRelayServiceTest {
+
+    private static final Long USER_ID = 1L;
+    private static final Long PEER_ID = 2L;
+    private static final Long GROUP_ID = 100L;
+    private static final String LOCAL_NODE = "node-a";
+    private static final String REMOTE_NODE = "node-b";
+
+    @Mock
+    private ClusterPushRouter clusterPushRouter;
+    @Mock
+    private GroupService groupService;
+    @Mock
+    private FriendshipService friendshipService;
+
+    private FleetsProperties properties;
+    private TypingRelayService typingRelayService;
+
+    @BeforeEach
+    void setUp() {
+        properties = new FleetsProperties();
+        properties.getWebsocket().setTypingAggregateThreshold(3);
+        properties.getWebsocket().setNodeId(LOCAL_NODE);
+        typingRelayService = new TypingRelayService(clusterPushRouter, groupService, friendshipService,
+                new NodeIdentity(properties), properties);
+    }
+
+    @Test
+    @DisplayName("单聊 - 节流间隔内只转发一次")
+    void testSingleChat_Throttled() {
+        when(friendshipService.isFriend(USER_ID, PEER_ID)).thenReturn(true);
+        typingRelayService.relay(USER_ID, "conv_1_2", true);
+        typingRelayService.relay(USER_ID, "conv_1_2", true);
+
+        ArgumentCaptor<Object> payload = ArgumentCaptor.forClass(Object.class);
+        verify(clusterPushRouter, times(1)).pushToUser(eq(PEER_ID), eq("/queue/typing"), payload.capture());
+        TypingVO vo = (TypingVO) payload.getValue();
+        assertThat(vo.getUserId()).isEqualTo(USER_ID);
+        assertThat(vo.getTyping()).isTrue();
+        assertThat(vo.getExpiresInMillis()).isEqualTo(properties.getWebsocket().getTypingExpireMillis());
+    }
+
+    @Test
+    @DisplayName("单聊 - 停止输入立即转发，之后可再次转发")
+    void testSingleChat_StopResetsThrottle() {
+        when(friendshipService.isFriend(USER_ID, PEER_ID)).thenReturn(true);
+        typingRelayService.relay(USER_ID, "conv_1_2", true);
+        typingRelayService.relay(USER_ID, "conv_1_2", false);
+        typingRelayService.relay(USER_ID, "conv_1_2", true);
+
+        verify(clusterPushRouter, times(3)).pushToUser(eq(PEER_ID), eq("/queue/typing"), any());
+    }
+
+    @Test
+    @DisplayName("单聊 - 不是会话参与者，忽略")
+    void testSingleChat_NotParticipant() {
+        typingRelayService.relay(USER_ID, "conv_2_3", true);
+
+        verifyNoInteractions(clusterPushRouter);
+    }
+
+    @Test
+    @DisplayName("单聊 - 不是好友，不转发")
+    void testSingleChat_NotFriend() {
+        when(friendshipService.isFriend(USER_ID, PEER_ID)).thenReturn(false);
+
+        typingRelayService.relay(USER_ID, "conv_1_2", true);
+
+        verifyNoInteractions(clusterPushRouter);
+    }
+
+    @Test
+    @DisplayName("小群 - 逐人转发给其他成员")
+    void testSmallGroup_RelayToOthers() {
+        when(groupService.getGroupMemberIds(GROUP_ID)).thenReturn(Arrays.asList(USER_ID, PEER_ID));
+
+        typingRelayService.relay(USER_ID, "conv_group_100", true);
+
+        ArgumentCaptor<Collection<Long>> targets = ArgumentCaptor.forClass(Collection.class);
+        verify(clusterPushRouter).pushToUsers(targets.capture(), eq("/queue/typing"), any(TypingVO.class));
+        assertThat(targets.getValue()).containsExactly(PEER_ID);
+    }
+
+    @Test
+    @DisplayName("大群 - 不逐人转发，汇总时上报本节点输入人数")
+    void testLargeGroup_ReportsLocalCount() {
+        List<Long> members = new ArrayList<>(Arrays.asList(1L, 2L, 3L, 4L, 5L));
+        when(groupService.getGroupMemberIds(GROUP_ID)).thenReturn(members);
+
+        typingRelayService.relay(1L, "conv_group_100", true);
+        typingRelayService.relay(2L, "conv_group_100", true);
+        verify(clusterPushRouter, never()).pushToUsers(any(), anyString(), any());
+
+        typingRelayService.flushGroupTypers();
+        typingRelayService.flushGroupTypers();
+
+        ArgumentCaptor<GroupTypingCount> report = ArgumentCaptor.forClass(GroupTypingCount.class);
+        verify(clusterPushRouter, times(1)).publishTypingCount(eq(members), report.capture());
+        assertThat(report.getValue().getGroupId()).isEqualTo(GROUP_ID);
+        assertThat(report.getValue().getNodeId()).isEqualTo(LOCAL_NODE);
+        assertThat(report.getValue().getCount()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("大群 - 停止输入后上报 0")
+    void testLargeGroup_StopReportsZero() {
+        List<Long> members = new ArrayList<>(Arrays.asList(1L, 2L, 3L, 4L, 5L));
+        when(groupService.getGroupMemberIds(GROUP_ID)).thenReturn(members);
+
+        typingRelayService.relay(1L, "conv_group_100", true);
+        typingRelayService.flushGroupTypers();
+        typingRelayService.relay(1L, "conv_group_100", false);
+        typingRelayService.flushGroupTypers();
+        typingRelayService.flushGroupTypers();
+
+        ArgumentCaptor<GroupTypingCount> report = ArgumentCaptor.forClass(GroupTypingCount.class);
+        verify(clusterPushRouter, times(2)).publishTypingCount(eq(members), report.capture());
+        assertThat(report.getAllValues()).extracting(GroupTypingCount::getCount).containsExactly(1, 0);
+    }
+
+    @Test
+    @DisplayName("大群汇总 - 各节点人数相加只推送本节点成员，人数不变不重复推送，降为 0 推送一次")
+    void testLargeGroup_AggregatesNodeCounts() {
+        List<Long> members = new ArrayList<>(Arrays.asList(1L, 2L, 3L, 4L, 5L));
+        when(groupService.getGroupMemberIds(GROUP_ID)).thenReturn(members);
+
+        typingRelayService.onTypingCount(count(LOCAL_NODE, 1));
+        typingRelayService.onTypingCount(count(REMOTE_NODE, 2));
+        typingRelayService.flushGroupTypers();
+        typingRelayService.flushGroupTypers();
+        typingRelayService.onTypingCount(count(LOCAL_NODE, 0));
+        typingRelayService.onTypingCount(count(REMOTE_NODE, 0));
+        typingRelayService.flushGroupTypers();
+        typingRelayService.flushGroupTypers();
+
+        ArgumentCaptor<Object> payload = ArgumentCaptor.forClass(Object.class);
+        verify(clusterPushRouter, times(2)).pushToLocalUsers(eq(members), eq("/queue/typing"), payload.capture());
+        TypingVO typing = (TypingVO) payload.getAllValues().get(0);
+        assertThat(typing.getCount()).isEqualTo(3);
+        assertThat(typing.getUserId()).isNull();
+        assertThat(typing.getTyping()).isTrue();
+        TypingVO stopped = (TypingVO) payload.getAllValues().get(1);
+        assertThat(stopped.getCount()).isZero();
+        assertThat(stopped.getTyping()).isFalse();
+        verify(clusterPushRouter, never()).pushToUsers(any(), anyString(), any());
+    }
+
+    @Test
+    @DisplayName("大群汇总 - 节点上报过期后不再计入")
+    void testLargeGroup_ExpiredNodeCountDropped() {
+        GroupTypingCount expired = count(REMOTE_NODE, 2);
+        expired.setExpiresInMillis(0);
+
+        typingRelayService.onTypingCount(expired);
+        typingRelayService.flushGroupTypers();
+
+        verify(clusterPushRouter, never()).pushToLocalUsers(any(), anyString(), any());
+    }
+
+    private static GroupTypingCount count(String nodeId, int count) {
+        GroupTypingCount typingCount = new GroupTypingCount();
+        typingCount.setGroupId(GROUP_ID);
+        typingCount.setNodeId(nodeId);
+        typingCount.setCount(count);
+        typingCount.setExpiresInMillis(60000);
+        return typingCount;
+    }
+}
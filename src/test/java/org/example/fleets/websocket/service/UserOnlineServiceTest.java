@@ -0,0 +1,226 @@
+package org.example.fleets.websocket.service;
+
+import org.example.fleets.cache.redis.RedisService;
+import org.example.fleets.common.config.properties.FleetsProperties;
+import org.example.fleets.websocket.cluster.NodeIdentity;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.redisson.api.RBatch;
+import org.redisson.api.RBitSetAsync;
+import org.redisson.api.RBucketAsync;
+import org.redisson.api.RMapAsync;
+import org.redisson.api.RScoredSortedSetAsync;
+import org.redisson.api.RScript;
+import org.redisson.api.RSetAsync;
+import org.redisson.misc.RedissonPromise;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 用户在线状态服务单元测试
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("用户在线状态服务单元测试")
+class UserOnlineServiceTest {
+
+    private static final Long USER_ID = 1L;
+    private static final String SESSION_ID = "s1";
+
+    @Mock
+    private RedisService redisService;
+    @Mock
+    private RBatch batch;
+    @Mock
+    private RBucketAsync<Object> bucket;
+    @Mock
+    private RSetAsync<Object> set;
+    @Mock
+    private RMapAsync<Object, Object> map;
+    @Mock
+    private RScoredSortedSetAsync<Object> expiry;
+
+    private UserOnlineService userOnlineService;
+
+    @BeforeEach
+    void setUp() {
+        FleetsProperties properties = new FleetsProperties();
+        properties.getWebsocket().setNodeId("node-a");
+        userOnlineService = new UserOnlineService(redisService, properties, new NodeIdentity(properties));
+    }
+
+    @Test
+    @DisplayName("上线 - 一次脚本调用，第一个会话返回 true")
+    void userOnline_FirstSession_SingleScriptCall() {
+        when(redisService.<Long>evalScript(anyString(), eq(RScript.ReturnType.INTEGER), anyList(), any()))
+                .thenReturn(1L);
+
+        boolean first = userOnlineService.userOnline(USER_ID, SESSION_ID);
+
+        assertThat(first).isTrue();
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Object>> keys = ArgumentCaptor.forClass(List.class);
+        verify(redisService, times(1)).evalScript(anyString(), eq(RScript.ReturnType.INTEGER), keys.capture(), any());
+        assertThat(keys.getValue()).containsExactly(
+                "user:online:1", "user:session:s1", "user:sessions:1", "user:nodes:1", "user:online:bitmap",
+                "user:online:expiry");
+        verifyNoMoreInteractions(redisService);
+    }
+
+    @Test
+    @DisplayName("上线 - 已有其他会话时返回 false")
+    void userOnline_AdditionalSession_ReturnsFalse() {
+        when(redisService.<Long>evalScript(anyString(), eq(RScript.ReturnType.INTEGER), anyList(), any()))
+                .thenReturn(2L);
+
+        assertThat(userOnlineService.userOnline(USER_ID, "s2")).isFalse();
+    }
+
+    @Test
+    @DisplayName("离线 - 仍有其他会话时保持在线")
+    void userOffline_RemainingSessions_StaysOnline() {
+        when(redisService.<Long>evalScript(anyString(), eq(RScript.ReturnType.INTEGER), anyList(), any()))
+                .thenReturn(1L);
+
+        assertThat(userOnlineService.userOffline(USER_ID, SESSION_ID)).isFalse();
+    }
+
+    @Test
+    @DisplayName("离线 - 最后一个会话离开返回 true")
+    void userOffline_LastSession_ReturnsTrue() {
+        when(redisService.<Long>evalScript(anyString(), eq(RScript.ReturnType.INTEGER), anyList(), any()))
+                .thenReturn(0L);
+
+        assertThat(userOnlineService.userOffline(USER_ID, SESSION_ID)).isTrue();
+    }
+
+    @Test
+    @DisplayName("心跳 - 同一周期内多次心跳合并为一次 Pipeline 续期")
+    void flushHeartbeats_CoalescesIntoOneBatch() {
+        when(redisService.createBatch()).thenReturn(batch);
+        doReturn(bucket).when(batch).getBucket(anyString());
+        doReturn(set).when(batch).getSet(anyString());
+        doReturn(map).when(batch).getMap(anyString());
+        doReturn(expiry).when(batch).getScoredSortedSet(anyString(), any());
+
+        userOnlineService.refreshOnlineStatus(USER_ID);
+        userOnlineService.refreshOnlineStatus(USER_ID);
+        userOnlineService.refreshOnlineStatus(2L);
+        userOnlineService.flushHeartbeats();
+
+        verify(redisService, times(1)).createBatch();
+        verify(batch).getBucket("user:online:1");
+        verify(batch).getBucket("user:online:2");
+        verify(bucket, times(2)).expireAsync(Duration.ofSeconds(300L));
+        verify(batch).getScoredSortedSet(eq("user:online:expiry"), any());
+        verify(expiry).addAsync(anyDouble(), eq("1"));
+        verify(expiry).addAsync(anyDouble(), eq("2"));
+        verify(batch, times(1)).execute();
+        verify(redisService, never()).expire(anyString(), anyLong(), any(TimeUnit.class));
+    }
+
+    @Test
+    @DisplayName("心跳 - 刚续期过的用户在下个周期不再写 Redis")
+    void flushHeartbeats_RecentlyRefreshed_SkipsRedis() {
+        when(redisService.createBatch()).thenReturn(batch);
+        doReturn(bucket).when(batch).getBucket(anyString());
+        doReturn(set).when(batch).getSet(anyString());
+        doReturn(map).when(batch).getMap(anyString());
+        doReturn(expiry).when(batch).getScoredSortedSet(anyString(), any());
+
+        userOnlineService.refreshOnlineStatus(USER_ID);
+        userOnlineService.flushHeartbeats();
+        userOnlineService.refreshOnlineStatus(USER_ID);
+        userOnlineService.flushHeartbeats();
+
+        verify(redisService, times(1)).createBatch();
+    }
+
+    @Test
+    @DisplayName("心跳 - 续期后到达的心跳保留到下个周期")
+    void flushHeartbeats_HeartbeatAfterFlush_KeptForNextRound() {
+        when(redisService.createBatch()).thenReturn(batch);
+        doReturn(bucket).when(batch).getBucket(anyString());
+        doReturn(set).when(batch).getSet(anyString());
+        doReturn(map).when(batch).getMap(anyString());
+        doReturn(expiry).when(batch).getScoredSortedSet(anyString(), any());
+
+        userOnlineService.refreshOnlineStatus(USER_ID);
+        userOnlineService.flushHeartbeats();
+        userOnlineService.refreshOnlineStatus(2L);
+        userOnlineService.flushHeartbeats();
+
+        verify(redisService, times(2)).createBatch();
+        verify(batch).getBucket("user:online:1");
+        verify(batch).getBucket("user:online:2");
+    }
+
+    @Test
+    @DisplayName("批量在线查询 - 一次 Pipeline 的 GETBIT")
+    void getOnlineStatus_SingleBatch() {
+        RBitSetAsync bitSet = mock(RBitSetAsync.class);
+        when(redisService.createBatch()).thenReturn(batch);
+        when(batch.getBitSet("user:online:bitmap")).thenReturn(bitSet);
+        when(bitSet.getAsync(1L)).thenReturn(RedissonPromise.newSucceededFuture(true));
+        when(bitSet.getAsync(2L)).thenReturn(RedissonPromise.newSucceededFuture(false));
+
+        Map<Long, Boolean> status = userOnlineService.getOnlineStatus(Arrays.asList(1L, 2L));
+
+        assertThat(status).containsEntry(1L, true).containsEntry(2L, false);
+        verify(batch, times(1)).execute();
+        verify(redisService, never()).hasKey(anyString());
+    }
+
+    @Test
+    @DisplayName("在线位图对账 - 分批执行直到不足一批，持有锁时才执行")
+    void reconcileOnlineBitmap_LoopsUntilPartialBatch() {
+        when(redisService.tryLock(anyString(), eq(0L), anyLong(), eq(TimeUnit.MILLISECONDS))).thenReturn(true);
+        when(redisService.<List<Long>>evalScript(anyString(), eq(RScript.ReturnType.MULTI), anyList(), any()))
+                .thenReturn(Arrays.asList(1000L, 998L), Arrays.asList(3L, 3L));
+
+        userOnlineService.reconcileOnlineBitmap();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Object>> keys = ArgumentCaptor.forClass(List.class);
+        verify(redisService, times(2)).evalScript(anyString(), eq(RScript.ReturnType.MULTI), keys.capture(), any());
+        assertThat(keys.getValue()).containsExactly("user:online:expiry", "user:online:bitmap");
+        verify(redisService).unlock(anyString());
+    }
+
+    @Test
+    @DisplayName("在线位图对账 - 其他节点持有锁时跳过")
+    void reconcileOnlineBitmap_LockHeldElsewhere_Skips() {
+        when(redisService.tryLock(anyString(), eq(0L), anyLong(), eq(TimeUnit.MILLISECONDS))).thenReturn(false);
+
+        userOnlineService.reconcileOnlineBitmap();
+
+        verify(redisService, never()).evalScript(anyString(), any(), anyList(), any());
+    }
+
+    @Test
+    @DisplayName("在线状态通知认领 - 集群已通知过同一状态时返回 false")
+    void claimPresenceNotification_AlreadyNotified_ReturnsFalse() {
+        when(redisService.<Long>evalScript(anyString(), eq(RScript.ReturnType.INTEGER), anyList(), any()))
+                .thenReturn(1L, 0L);
+
+        assertThat(userOnlineService.claimPresenceNotification(USER_ID, true)).isTrue();
+        assertThat(userOnlineService.claimPresenceNotification(USER_ID, true)).isFalse();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Object>> keys = ArgumentCaptor.forClass(List.class);
+        verify(redisService, times(2)).evalScript(anyString(), eq(RScript.ReturnType.INTEGER), keys.capture(), any());
+        assertThat(keys.getValue()).containsExactly("presence:notified:1", "user:online:1");
+    }
+}